@@ -408,6 +408,475 @@ JNIEXPORT void JNICALL
     return;
 }
 
+/*
+ * Runs a SQLite online backup to the end, a batch of pages at a time, telling
+ * the observer how many pages remain after each batch.
+ * @param env pointer to java environment this was called from
+ * @param backup the backup
+ * @param pagesPerStep the number of pages copied per batch
+ * @param sleepMillis the pause between batches in milliseconds
+ * @param observer object with a progress(int remaining, int pageCount) method
+ * @param progress the progress method of the observer
+ * @return the result of the last step, SQLITE_DONE on success
+ */
+static int
+runBackup(JNIEnv * env, sqlite3_backup * backup, jint pagesPerStep,
+    jint sleepMillis, jobject observer, jmethodID progress)
+{
+    int rc;
+
+    // SQLITE_BUSY and SQLITE_LOCKED mean another connection is writing;
+    // wait and try the batch again.
+    do {
+        rc = sqlite3_backup_step(backup, pagesPerStep);
+        env->CallVoidMethod(observer, progress,
+            sqlite3_backup_remaining(backup), sqlite3_backup_pagecount(backup));
+        if (env->ExceptionCheck()) {
+            break;
+        }
+        if (rc != SQLITE_DONE && sleepMillis > 0) {
+            sqlite3_sleep(sleepMillis);
+        }
+    } while (rc == SQLITE_OK || rc == SQLITE_BUSY || rc == SQLITE_LOCKED);
+    return rc;
+}
+
+/**
+ * Copies a SQLite case database with the SQLite online backup API, a batch
+ * of pages at a time, pausing between batches so that other connections can
+ * use the database while it is copied. The observer is told how many pages
+ * remain after each batch.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param dbPathJ the path of the case database
+ * @param backupPathJ the path of the copy, overwritten if it exists
+ * @param pagesPerStep the number of pages copied per batch
+ * @param sleepMillis the pause between batches in milliseconds
+ * @param observer object with a progress(int remaining, int pageCount) method
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_backupCaseDbNat(JNIEnv * env,
+    jclass obj, jstring dbPathJ, jstring backupPathJ, jint pagesPerStep,
+    jint sleepMillis, jobject observer)
+{
+    jmethodID progress = env->GetMethodID(env->GetObjectClass(observer),
+        "progress", "(II)V");
+    if (progress == NULL) {
+        //exception already set
+        return;
+    }
+
+    const char *dbPath = env->GetStringUTFChars(dbPathJ, NULL);
+    if (dbPath == NULL) {
+        //exception already set
+        return;
+    }
+    const char *backupPath = env->GetStringUTFChars(backupPathJ, NULL);
+    if (backupPath == NULL) {
+        //exception already set
+        env->ReleaseStringUTFChars(dbPathJ, dbPath);
+        return;
+    }
+    sqlite3 *source = NULL;
+    sqlite3 *dest = NULL;
+    int rc = sqlite3_open_v2(dbPath, &source, SQLITE_OPEN_READONLY, NULL);
+    if (rc == SQLITE_OK) {
+        rc = sqlite3_open(backupPath, &dest);
+    }
+    env->ReleaseStringUTFChars(dbPathJ, dbPath);
+    env->ReleaseStringUTFChars(backupPathJ, backupPath);
+    if (rc != SQLITE_OK) {
+        setThrowTskCoreError(env, sqlite3_errmsg(dest != NULL ? dest : source));
+        sqlite3_close(dest);
+        sqlite3_close(source);
+        return;
+    }
+
+    sqlite3_backup *backup = sqlite3_backup_init(dest, "main", source, "main");
+    if (backup == NULL) {
+        setThrowTskCoreError(env, sqlite3_errmsg(dest));
+        sqlite3_close(dest);
+        sqlite3_close(source);
+        return;
+    }
+
+    rc = runBackup(env, backup, pagesPerStep, sleepMillis, observer, progress);
+    sqlite3_backup_finish(backup);
+    if (rc != SQLITE_DONE && !env->ExceptionCheck()) {
+        setThrowTskCoreError(env, sqlite3_errstr(rc));
+    }
+    sqlite3_close(dest);
+    sqlite3_close(source);
+}
+
+/*
+ * A SQLite VFS that passes everything through to the default VFS, except that
+ * a write of data that the file already holds is skipped. Backing up a case
+ * database to an existing snapshot through it writes only the pages that
+ * changed since the snapshot was made.
+ */
+#define SNAPSHOT_VFS_NAME "tsk_snapshot"
+
+typedef struct {
+    sqlite3_file base;
+    sqlite3_file *real;         // the file of the default VFS, allocated after this struct
+    sqlite3_int64 bytesWritten; // the number of bytes actually written
+} SNAPSHOT_FILE;
+
+static sqlite3_vfs snapshotVfs;
+
+static int
+snapshotClose(sqlite3_file * file)
+{
+    return ((SNAPSHOT_FILE *) file)->real->pMethods->xClose(((SNAPSHOT_FILE *) file)->real);
+}
+
+static int
+snapshotRead(sqlite3_file * file, void *buf, int amt, sqlite3_int64 off)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xRead(real, buf, amt, off);
+}
+
+static int
+snapshotWrite(sqlite3_file * file, const void *buf, int amt,
+    sqlite3_int64 off)
+{
+    SNAPSHOT_FILE *snapshotFile = (SNAPSHOT_FILE *) file;
+    sqlite3_file *real = snapshotFile->real;
+    std::vector<char> current(amt);
+    if (real->pMethods->xRead(real, &current[0], amt, off) == SQLITE_OK
+        && memcmp(&current[0], buf, amt) == 0) {
+        return SQLITE_OK;
+    }
+    snapshotFile->bytesWritten += amt;
+    return real->pMethods->xWrite(real, buf, amt, off);
+}
+
+static int
+snapshotTruncate(sqlite3_file * file, sqlite3_int64 size)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xTruncate(real, size);
+}
+
+static int
+snapshotSync(sqlite3_file * file, int flags)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xSync(real, flags);
+}
+
+static int
+snapshotFileSize(sqlite3_file * file, sqlite3_int64 * size)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xFileSize(real, size);
+}
+
+static int
+snapshotLock(sqlite3_file * file, int lock)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xLock(real, lock);
+}
+
+static int
+snapshotUnlock(sqlite3_file * file, int lock)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xUnlock(real, lock);
+}
+
+static int
+snapshotCheckReservedLock(sqlite3_file * file, int *resOut)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xCheckReservedLock(real, resOut);
+}
+
+static int
+snapshotFileControl(sqlite3_file * file, int op, void *arg)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xFileControl(real, op, arg);
+}
+
+static int
+snapshotSectorSize(sqlite3_file * file)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xSectorSize(real);
+}
+
+static int
+snapshotDeviceCharacteristics(sqlite3_file * file)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xDeviceCharacteristics(real);
+}
+
+static int
+snapshotShmMap(sqlite3_file * file, int region, int regionSize, int extend,
+    void volatile **pp)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xShmMap(real, region, regionSize, extend, pp);
+}
+
+static int
+snapshotShmLock(sqlite3_file * file, int offset, int n, int flags)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xShmLock(real, offset, n, flags);
+}
+
+static void
+snapshotShmBarrier(sqlite3_file * file)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    real->pMethods->xShmBarrier(real);
+}
+
+static int
+snapshotShmUnmap(sqlite3_file * file, int deleteFlag)
+{
+    sqlite3_file *real = ((SNAPSHOT_FILE *) file)->real;
+    return real->pMethods->xShmUnmap(real, deleteFlag);
+}
+
+// Version 2, without memory mapped I/O, so that every read and write of the
+// file goes through the methods above.
+static const sqlite3_io_methods snapshotIoMethods = {
+    2,
+    snapshotClose,
+    snapshotRead,
+    snapshotWrite,
+    snapshotTruncate,
+    snapshotSync,
+    snapshotFileSize,
+    snapshotLock,
+    snapshotUnlock,
+    snapshotCheckReservedLock,
+    snapshotFileControl,
+    snapshotSectorSize,
+    snapshotDeviceCharacteristics,
+    snapshotShmMap,
+    snapshotShmLock,
+    snapshotShmBarrier,
+    snapshotShmUnmap,
+    NULL,
+    NULL
+};
+
+static int
+snapshotOpen(sqlite3_vfs * vfs, const char *name, sqlite3_file * file,
+    int flags, int *outFlags)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    SNAPSHOT_FILE *snapshotFile = (SNAPSHOT_FILE *) file;
+    snapshotFile->real = (sqlite3_file *) &snapshotFile[1];
+    snapshotFile->bytesWritten = 0;
+    int rc = realVfs->xOpen(realVfs, name, snapshotFile->real, flags, outFlags);
+    // SQLite only closes files whose methods are set.
+    file->pMethods = snapshotFile->real->pMethods != NULL ? &snapshotIoMethods : NULL;
+    return rc;
+}
+
+static int
+snapshotDelete(sqlite3_vfs * vfs, const char *name, int syncDir)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xDelete(realVfs, name, syncDir);
+}
+
+static int
+snapshotAccess(sqlite3_vfs * vfs, const char *name, int flags, int *resOut)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xAccess(realVfs, name, flags, resOut);
+}
+
+static int
+snapshotFullPathname(sqlite3_vfs * vfs, const char *name, int outLen,
+    char *out)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xFullPathname(realVfs, name, outLen, out);
+}
+
+static int
+snapshotRandomness(sqlite3_vfs * vfs, int len, char *out)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xRandomness(realVfs, len, out);
+}
+
+static int
+snapshotSleep(sqlite3_vfs * vfs, int micros)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xSleep(realVfs, micros);
+}
+
+static int
+snapshotCurrentTime(sqlite3_vfs * vfs, double *out)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xCurrentTime(realVfs, out);
+}
+
+static int
+snapshotGetLastError(sqlite3_vfs * vfs, int len, char *out)
+{
+    sqlite3_vfs *realVfs = (sqlite3_vfs *) vfs->pAppData;
+    return realVfs->xGetLastError(realVfs, len, out);
+}
+
+/*
+ * Registers the snapshot VFS with SQLite, if it is not registered yet.
+ * @return SQLITE_OK on success
+ */
+static int
+registerSnapshotVfs()
+{
+    static bool registered = false;
+    int rc = sqlite3_initialize();
+    if (rc != SQLITE_OK) {
+        return rc;
+    }
+
+    sqlite3_mutex *mutex = sqlite3_mutex_alloc(SQLITE_MUTEX_STATIC_APP1);
+    sqlite3_mutex_enter(mutex);
+    if (!registered) {
+        sqlite3_vfs *realVfs = sqlite3_vfs_find(NULL);
+        if (realVfs == NULL) {
+            rc = SQLITE_ERROR;
+        }
+        else {
+            memset(&snapshotVfs, 0, sizeof(snapshotVfs));
+            snapshotVfs.iVersion = 1;
+            snapshotVfs.szOsFile = (int) sizeof(SNAPSHOT_FILE) + realVfs->szOsFile;
+            snapshotVfs.mxPathname = realVfs->mxPathname;
+            snapshotVfs.zName = SNAPSHOT_VFS_NAME;
+            snapshotVfs.pAppData = realVfs;
+            snapshotVfs.xOpen = snapshotOpen;
+            snapshotVfs.xDelete = snapshotDelete;
+            snapshotVfs.xAccess = snapshotAccess;
+            snapshotVfs.xFullPathname = snapshotFullPathname;
+            snapshotVfs.xRandomness = snapshotRandomness;
+            snapshotVfs.xSleep = snapshotSleep;
+            snapshotVfs.xCurrentTime = snapshotCurrentTime;
+            snapshotVfs.xGetLastError = snapshotGetLastError;
+            rc = sqlite3_vfs_register(&snapshotVfs, 0);
+            registered = (rc == SQLITE_OK);
+        }
+    }
+    sqlite3_mutex_leave(mutex);
+    return rc;
+}
+
+/**
+ * Updates an existing snapshot of a SQLite case database in place with the
+ * SQLite online backup API, writing only the pages that changed since it was
+ * made. The case database is read in one read transaction, so the snapshot
+ * is consistent even though other connections, in this process or another,
+ * keep writing: with a write-ahead log they write past the pages read,
+ * without one their commits wait until the update is done. The observer is
+ * told how many pages remain after each batch.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param dbPathJ the path of the case database
+ * @param snapshotPathJ the path of the existing snapshot
+ * @param pagesPerStep the number of pages copied per batch
+ * @param observer object with a progress(int remaining, int pageCount) method
+ * @return the number of bytes written to the snapshot
+ */
+JNIEXPORT jlong JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_updateCaseDbSnapshotNat(JNIEnv * env,
+    jclass obj, jstring dbPathJ, jstring snapshotPathJ, jint pagesPerStep,
+    jobject observer)
+{
+    jmethodID progress = env->GetMethodID(env->GetObjectClass(observer),
+        "progress", "(II)V");
+    if (progress == NULL) {
+        //exception already set
+        return 0;
+    }
+    if (registerSnapshotVfs() != SQLITE_OK) {
+        setThrowTskCoreError(env, "updateCaseDbSnapshotNat: Error registering the snapshot VFS");
+        return 0;
+    }
+
+    const char *dbPath = env->GetStringUTFChars(dbPathJ, NULL);
+    if (dbPath == NULL) {
+        //exception already set
+        return 0;
+    }
+    const char *snapshotPath = env->GetStringUTFChars(snapshotPathJ, NULL);
+    if (snapshotPath == NULL) {
+        //exception already set
+        env->ReleaseStringUTFChars(dbPathJ, dbPath);
+        return 0;
+    }
+    sqlite3 *source = NULL;
+    sqlite3 *dest = NULL;
+    int rc = sqlite3_open_v2(dbPath, &source, SQLITE_OPEN_READONLY, NULL);
+    if (rc == SQLITE_OK) {
+        rc = sqlite3_open_v2(snapshotPath, &dest, SQLITE_OPEN_READWRITE,
+            SNAPSHOT_VFS_NAME);
+    }
+    env->ReleaseStringUTFChars(dbPathJ, dbPath);
+    env->ReleaseStringUTFChars(snapshotPathJ, snapshotPath);
+
+    // Without a journal, pages the snapshot already holds are not read and
+    // written again to the journal. The snapshot is a copy, so an update
+    // that fails part way is made again from scratch by the caller.
+    if (rc == SQLITE_OK) {
+        rc = sqlite3_exec(dest, "PRAGMA journal_mode=OFF", NULL, NULL, NULL);
+    }
+    // Begin the read transaction that the backup runs in, so that it is not
+    // restarted by writes of other connections.
+    if (rc == SQLITE_OK) {
+        rc = sqlite3_exec(source, "BEGIN; SELECT COUNT(*) FROM sqlite_master", NULL, NULL, NULL);
+    }
+    if (rc != SQLITE_OK) {
+        setThrowTskCoreError(env, sqlite3_errmsg(dest != NULL ? dest : source));
+        sqlite3_close(dest);
+        sqlite3_close(source);
+        return 0;
+    }
+
+    sqlite3_backup *backup = sqlite3_backup_init(dest, "main", source, "main");
+    if (backup == NULL) {
+        setThrowTskCoreError(env, sqlite3_errmsg(dest));
+        sqlite3_exec(source, "ROLLBACK", NULL, NULL, NULL);
+        sqlite3_close(dest);
+        sqlite3_close(source);
+        return 0;
+    }
+
+    rc = runBackup(env, backup, pagesPerStep, 0, observer, progress);
+    sqlite3_backup_finish(backup);
+    sqlite3_exec(source, "ROLLBACK", NULL, NULL, NULL);
+    jlong bytesWritten = 0;
+    if (rc != SQLITE_DONE) {
+        if (!env->ExceptionCheck()) {
+            setThrowTskCoreError(env, sqlite3_errstr(rc));
+        }
+    }
+    else {
+        sqlite3_file *file = NULL;
+        if (sqlite3_file_control(dest, "main", SQLITE_FCNTL_FILE_POINTER, &file) == SQLITE_OK
+            && file != NULL) {
+            bytesWritten = ((SNAPSHOT_FILE *) file)->bytesWritten;
+        }
+    }
+    sqlite3_close(dest);
+    sqlite3_close(source);
+    return bytesWritten;
+}
+
 /**
  * Opens an existing hash database.
  * @param env Pointer to Java environment from which this method was called.
@@ -873,6 +1342,53 @@ JNIEXPORT jboolean JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_hashDbLooku
     return file_known;
 }
 
+/**
+ * Looks up a batch of hashes in a hash database.
+ * @param env Pointer to Java environment from which this method was called.
+ * @param obj The Java object from which this method was called.
+ * @param hashesJ The binary hash values, packed end to end.
+ * @param hashLen The length of each hash value in bytes.
+ * @param dbHandle A handle for the hash database.
+ * @return An array with a flag for each hash value, true if it was found.
+ */
+JNIEXPORT jbooleanArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_hashDbLookupBatchNat
+(JNIEnv * env, jclass obj, jbyteArray hashesJ, jint hashLen, jint dbHandle)
+{
+    if ((size_t)dbHandle > hashDbs.size()) {
+        setThrowTskCoreError(env, "Invalid database handle");
+        return NULL;
+    }
+
+    TSK_HDB_INFO *db = hashDbs.at(dbHandle-1);
+    if (db == NULL) {
+        setThrowTskCoreError(env, "Invalid database handle");
+        return NULL;
+    }
+
+    jsize hashesLen = env->GetArrayLength(hashesJ);
+    if (hashLen <= 0 || hashLen > 255 || hashesLen % hashLen != 0) {
+        setThrowTskCoreError(env, "Invalid hash length");
+        return NULL;
+    }
+
+    size_t count = (size_t) (hashesLen / hashLen);
+    std::vector<uint8_t> hashes(hashesLen + 1);
+    env->GetByteArrayRegion(hashesJ, 0, hashesLen, (jbyte *) &hashes[0]);
+    std::vector<uint8_t> found(count + 1);
+    if (tsk_hdb_lookup_raw_batch(db, &hashes[0], count, (uint8_t) hashLen, &found[0]) == -1) {
+        setThrowTskCoreError(env, tsk_error_get_errstr());
+        return NULL;
+    }
+
+    jbooleanArray foundJ = env->NewBooleanArray((jsize) count);
+    if (foundJ == NULL) {
+        //exception already set
+        return NULL;
+    }
+    env->SetBooleanArrayRegion(foundJ, 0, (jsize) count, (jboolean *) &found[0]);
+    return foundJ;
+}
+
 /**
  * Looks up a hash in a hash database.
  * @param env Pointer to Java environment from which this method was called.
@@ -1261,60 +1777,408 @@ JNIEXPORT void JNICALL
 
 
 /*
- * Revert the given add-image process.  Deletes the 'process' handle.
+ * A Java listener of an add-image process.
+ */
+typedef struct {
+    JavaVM *jvm;
+    jobject listener;   ///< global reference to the listener
+    jmethodID method;   ///< the method of the listener that is called
+} ADD_IMG_LISTENER;
+
+/*
+ * Make an add-image listener that calls the given method of the given Java
+ * object.
  * @param env pointer to java environment this was called from
- * @param obj the java object this was called from
- * @param process the add-image process created by initAddImgNat
+ * @param listener the Java object
+ * @param name the name of the method
+ * @param sig the signature of the method
+ * @return the listener, or NULL on error (exception was set)
  */
-JNIEXPORT void JNICALL
-    Java_org_sleuthkit_datamodel_SleuthkitJNI_revertAddImgNat(JNIEnv * env,
-    jclass obj, jlong process) {
-    TskAutoDb *tskAuto = ((TskAutoDb *) process);
-    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
-        setThrowTskCoreError(env,
-            "revertAddImgNat: Invalid TskAutoDb object passed in");
-        return;
+static ADD_IMG_LISTENER *
+newAddImgListener(JNIEnv * env, jobject listener, const char *name, const char *sig)
+{
+    jmethodID method = env->GetMethodID(env->GetObjectClass(listener), name, sig);
+    if (method == NULL) {
+        //exception already set
+        return NULL;
     }
-    if (tskAuto->revertAddImage()) {
-        setThrowTskCoreError(env);
-        return;
+    ADD_IMG_LISTENER *addImgListener = new ADD_IMG_LISTENER;
+    if (env->GetJavaVM(&addImgListener->jvm) != JNI_OK) {
+        delete addImgListener;
+        setThrowTskCoreError(env, "newAddImgListener: Error getting the JVM");
+        return NULL;
     }
-    delete tskAuto;
-    tskAuto = 0;
+    addImgListener->listener = env->NewGlobalRef(listener);
+    addImgListener->method = method;
+    return addImgListener;
 }
 
-
 /*
- * Commit the given add-image process. Deletes the 'process' handle.
+ * Free an add-image listener made by newAddImgListener.
  * @param env pointer to java environment this was called from
- * @param obj the java object this was called from
- * @param process the add-image process created by initAddImgNat
+ * @param addImgListener the listener, or NULL
  */
-JNIEXPORT jlong JNICALL
-    Java_org_sleuthkit_datamodel_SleuthkitJNI_commitAddImgNat(JNIEnv * env,
-    jclass obj, jlong process) {
-    TskAutoDb *tskAuto = ((TskAutoDb *) process);
-    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
-        setThrowTskCoreError(env,
-             "commitAddImgNat: Invalid TskAutoDb object passed in");
-        return -1;
-    }
-    int64_t imgId = tskAuto->commitAddImage();
-    delete tskAuto;
-    tskAuto = 0;
-    if (imgId == -1) {
-        setThrowTskCoreError(env);
-        return -1;
+static void
+deleteAddImgListener(JNIEnv * env, ADD_IMG_LISTENER * addImgListener)
+{
+    if (addImgListener != NULL) {
+        env->DeleteGlobalRef(addImgListener->listener);
+        delete addImgListener;
     }
-    return imgId;
 }
 
-
-
 /*
- * Open an image pointer for the given image
- * @return the created TSK_IMG_INFO pointer
- * @param env pointer to java environment this was called from
+ * Get the JNI environment of the thread that calls an add-image listener.
+ * Add-image callbacks are made on the thread that called runAddImgNat,
+ * commitAddImgNat or revertAddImgNat, which is attached to the JVM.
+ * @param addImgListener the listener
+ * @return the environment, or NULL if the thread is not attached
+ */
+static JNIEnv *
+getAddImgListenerEnv(ADD_IMG_LISTENER * addImgListener)
+{
+    JNIEnv *env = NULL;
+    if (addImgListener->jvm->GetEnv((void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return NULL;
+    }
+    return env;
+}
+
+/*
+ * Streaming chunk callback of TskAutoDb, which passes the object ID range of
+ * the chunk to the Java listener.  Exceptions thrown by the listener are
+ * cleared so that the process goes on.
+ */
+static void
+addImgStreamingChunkCb(int64_t firstObjId, int64_t lastObjId, void *ptr)
+{
+    ADD_IMG_LISTENER *addImgListener = (ADD_IMG_LISTENER *) ptr;
+    JNIEnv *env = getAddImgListenerEnv(addImgListener);
+    if (env == NULL) {
+        return;
+    }
+    env->CallVoidMethod(addImgListener->listener, addImgListener->method,
+        (jlong) firstObjId, (jlong) lastObjId);
+    if (env->ExceptionCheck()) {
+        env->ExceptionClear();
+    }
+}
+
+/*
+ * Index progress callback of TskAutoDb, which passes the index that was
+ * built to the Java listener.  Exceptions thrown by the listener are cleared
+ * so that the remaining indexes are built.
+ */
+static void
+addImgIndexBuiltCb(int indexesBuilt, int indexCount, const char *indexName, void *ptr)
+{
+    ADD_IMG_LISTENER *addImgListener = (ADD_IMG_LISTENER *) ptr;
+    JNIEnv *env = getAddImgListenerEnv(addImgListener);
+    if (env == NULL) {
+        return;
+    }
+    jstring indexNameJ = env->NewStringUTF(indexName);
+    if (indexNameJ != NULL) {
+        env->CallVoidMethod(addImgListener->listener, addImgListener->method,
+            indexNameJ, (jint) indexesBuilt, (jint) indexCount);
+        env->DeleteLocalRef(indexNameJ);
+    }
+    if (env->ExceptionCheck()) {
+        env->ExceptionClear();
+    }
+}
+
+/*
+ * Free the Java listeners of an add-image process, if it has any.
+ * @param env pointer to java environment this was called from
+ * @param tskAuto the add-image process
+ */
+static void
+freeAddImgListeners(JNIEnv * env, TskAutoDb * tskAuto)
+{
+    deleteAddImgListener(env, (ADD_IMG_LISTENER *) tskAuto->getStreamingChunkCallbackPtr());
+    tskAuto->setStreamingChunks(0, NULL, NULL);
+    deleteAddImgListener(env, (ADD_IMG_LISTENER *) tskAuto->getBulkLoadCallbackPtr());
+    tskAuto->setBulkLoad(false, NULL, NULL);
+}
+
+/*
+ * Revert the given add-image process.  Deletes the 'process' handle.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_revertAddImgNat(JNIEnv * env,
+    jclass obj, jlong process) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "revertAddImgNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    if (tskAuto->revertAddImage()) {
+        setThrowTskCoreError(env);
+        return;
+    }
+    freeAddImgListeners(env, tskAuto);
+    delete tskAuto;
+    tskAuto = 0;
+}
+
+
+/*
+ * Commit the given add-image process. Deletes the 'process' handle.  Throws
+ * a TskDataException if the image was committed but errors were registered
+ * while committing it, i.e. the indexes dropped in bulk load mode could not
+ * be built again.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ */
+JNIEXPORT jlong JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_commitAddImgNat(JNIEnv * env,
+    jclass obj, jlong process) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+             "commitAddImgNat: Invalid TskAutoDb object passed in");
+        return -1;
+    }
+    size_t errorCount = tskAuto->getErrorList().size();
+    int64_t imgId = tskAuto->commitAddImage();
+
+    stringstream msgss;
+    vector<TskAuto::error_record> errors = tskAuto->getErrorList();
+    if ((imgId != -1) && (errors.size() > errorCount)) {
+        msgss << "Errors occurred while committing image " << imgId << std::endl;
+        for (size_t i = errorCount; i < errors.size(); i++) {
+            msgss << (i - errorCount + 1) << ". ";
+            msgss << (TskAuto::errorRecordToString(errors[i]));
+            msgss << " " << std::endl;
+        }
+    }
+
+    freeAddImgListeners(env, tskAuto);
+    delete tskAuto;
+    tskAuto = 0;
+    if (imgId == -1) {
+        setThrowTskCoreError(env);
+        return -1;
+    }
+    if (errors.size() > errorCount) {
+        setThrowTskDataError(env, msgss.str().c_str());
+    }
+    return imgId;
+}
+
+
+/*
+ * Walk the file systems of the image of the given add-image process in
+ * parallel.  Must be called before runAddImgNat.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @param maxThreads maximum number of walker threads, 0 for one per file system
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgParallelFsNat(JNIEnv * env,
+    jclass obj, jlong process, jint maxThreads) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "setAddImgParallelFsNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    tskAuto->setParallelFileSystems(true, maxThreads > 0 ? (unsigned int) maxThreads : 0);
+}
+
+
+/*
+ * Commit the files of the given add-image process in chunks as they are
+ * walked.  Must be called before runAddImgNat.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @param filesPerChunk number of files per chunk
+ * @param listener object with a chunkCommitted(long firstObjId, long lastObjId) method, or null
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgStreamingNat(JNIEnv * env,
+    jclass obj, jlong process, jint filesPerChunk, jobject listener) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "setAddImgStreamingNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    deleteAddImgListener(env, (ADD_IMG_LISTENER *) tskAuto->getStreamingChunkCallbackPtr());
+    tskAuto->setStreamingChunks(0, NULL, NULL);
+    if (filesPerChunk <= 0) {
+        return;
+    }
+    if (listener == NULL) {
+        tskAuto->setStreamingChunks((uint64_t) filesPerChunk, NULL, NULL);
+        return;
+    }
+
+    ADD_IMG_LISTENER *addImgListener = newAddImgListener(env, listener, "chunkCommitted", "(JJ)V");
+    if (addImgListener == NULL) {
+        //exception already set
+        return;
+    }
+    tskAuto->setStreamingChunks((uint64_t) filesPerChunk, addImgStreamingChunkCb, addImgListener);
+}
+
+
+/*
+ * Drop the secondary indexes of the case database while the image of the
+ * given add-image process is added, and build them again when it is committed
+ * or reverted.  Must be called before runAddImgNat.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @param listener object with an indexBuilt(String indexName, int indexesBuilt, int indexCount) method, or null
+ */
+JNIEXPORT void JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgBulkLoadNat(JNIEnv * env,
+    jclass obj, jlong process, jobject listener) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "setAddImgBulkLoadNat: Invalid TskAutoDb object passed in");
+        return;
+    }
+    deleteAddImgListener(env, (ADD_IMG_LISTENER *) tskAuto->getBulkLoadCallbackPtr());
+    tskAuto->setBulkLoad(false, NULL, NULL);
+    if (listener == NULL) {
+        tskAuto->setBulkLoad(true, NULL, NULL);
+        return;
+    }
+
+    ADD_IMG_LISTENER *addImgListener = newAddImgListener(env, listener, "indexBuilt", "(Ljava/lang/String;II)V");
+    if (addImgListener == NULL) {
+        //exception already set
+        return;
+    }
+    tskAuto->setBulkLoad(true, addImgIndexBuiltCb, addImgListener);
+}
+
+
+/*
+ * Get the hit and miss counts of the parent directory cache used by the
+ * given add-image process.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @return hits, misses, entries, capacity and resets
+ */
+JNIEXPORT jlongArray JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgParentDirCacheStatsNat(JNIEnv * env,
+    jclass obj, jlong process) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "getAddImgParentDirCacheStatsNat: Invalid TskAutoDb object passed in");
+        return NULL;
+    }
+
+    TSK_DB_PARENT_DIR_CACHE_STATS cacheStats = tskAuto->getParentDirCacheStats();
+    jlong stats[5];
+    stats[0] = (jlong) cacheStats.hits;
+    stats[1] = (jlong) cacheStats.misses;
+    stats[2] = (jlong) cacheStats.entries;
+    stats[3] = (jlong) cacheStats.capacity;
+    stats[4] = (jlong) cacheStats.resets;
+    jlongArray jstats = env->NewLongArray(5);
+    if (jstats == NULL) {
+        //exception already set
+        return NULL;
+    }
+    env->SetLongArrayRegion(jstats, 0, 5, stats);
+    return jstats;
+}
+
+
+/*
+ * Get the time the given add-image process has spent walking the image and
+ * inserting its files.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @return total, insert and unallocated space microseconds, and files inserted
+ */
+JNIEXPORT jlongArray JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgTimingsNat(JNIEnv * env,
+    jclass obj, jlong process) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "getAddImgTimingsNat: Invalid TskAutoDb object passed in");
+        return NULL;
+    }
+
+    TskAutoDb::ADD_IMAGE_TIMINGS addImageTimings = tskAuto->getAddImageTimings();
+    jlong timings[4];
+    timings[0] = (jlong) addImageTimings.totalUsec;
+    timings[1] = (jlong) addImageTimings.insertUsec;
+    timings[2] = (jlong) addImageTimings.unallocUsec;
+    timings[3] = (jlong) addImageTimings.filesInserted;
+    jlongArray jtimings = env->NewLongArray(4);
+    if (jtimings == NULL) {
+        //exception already set
+        return NULL;
+    }
+    env->SetLongArrayRegion(jtimings, 0, 4, timings);
+    return jtimings;
+}
+
+/*
+ * Get the progress of the file systems that the given add-image process
+ * walks in parallel.
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param process the add-image process created by initAddImgNat
+ * @return five values per file system: object id, offset, files found,
+ * files added and 1 if the walk is done, 0 otherwise
+ */
+JNIEXPORT jlongArray JNICALL
+    Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgFsProgressNat(JNIEnv * env,
+    jclass obj, jlong process) {
+    TskAutoDb *tskAuto = ((TskAutoDb *) process);
+    if (!tskAuto || tskAuto->m_tag != TSK_AUTO_TAG) {
+        setThrowTskCoreError(env,
+            "getAddImgFsProgressNat: Invalid TskAutoDb object passed in");
+        return NULL;
+    }
+
+    std::vector<TskAutoDb::FS_PROGRESS> progress = tskAuto->getFsProgress();
+    std::vector<jlong> values;
+    for (size_t i = 0; i < progress.size(); i++) {
+        values.push_back((jlong) progress[i].fsObjId);
+        values.push_back((jlong) progress[i].offset);
+        values.push_back((jlong) progress[i].filesFound);
+        values.push_back((jlong) progress[i].filesAdded);
+        values.push_back(progress[i].done ? 1 : 0);
+    }
+
+    jlongArray jprogress = env->NewLongArray((jsize) values.size());
+    if (jprogress == NULL) {
+        //exception already set
+        return NULL;
+    }
+    if (values.empty() == false) {
+        env->SetLongArrayRegion(jprogress, 0, (jsize) values.size(), &values[0]);
+    }
+    return jprogress;
+}
+
+
+
+/*
+ * Open an image pointer for the given image
+ * @return the created TSK_IMG_INFO pointer
+ * @param env pointer to java environment this was called from
  * @param obj the java object this was called from
  * @param paths the paths to the image parts
  * @param num_imgs number of image parts
@@ -1593,6 +2457,69 @@ Java_org_sleuthkit_datamodel_SleuthkitJNI_readImgNat(JNIEnv * env,
 }
 
 
+/*
+ * Read bytes from the given image into a byte array, starting at an offset
+ * in the array
+ * @return number of bytes read from the image, -1 on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_img_info the pointer to the image object
+ * @param jbuf array to read to
+ * @param bufOffset the offset in the array to write at
+ * @param offset the offset in bytes to start at
+ * @param len number of bytes to read
+ */
+JNIEXPORT jint JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readImgToOffsetNat(JNIEnv * env,
+    jclass obj, jlong a_img_info, jbyteArray jbuf, jint bufOffset,
+    jlong offset, jlong len)
+{
+    jsize jbuflen = env->GetArrayLength(jbuf);
+    if (bufOffset < 0 || len < 0 || bufOffset > jbuflen
+        || len > jbuflen - bufOffset) {
+        setThrowTskCoreError(env, "Read exceeds the bounds of the buffer");
+        return -1;
+    }
+
+    //use fixed size stack-allocated buffer if possible
+    char fixed_buf [FIXED_BUF_SIZE];
+
+    char * buf = fixed_buf;
+    bool dynBuf = false;
+    if (len > FIXED_BUF_SIZE) {
+        dynBuf = true;
+        buf = (char *) tsk_malloc((size_t) len);
+        if (buf == NULL) {
+            setThrowTskCoreError(env);
+            return -1;
+        }
+    }
+
+    TSK_IMG_INFO *img_info = castImgInfo(env, a_img_info);
+    if (img_info == 0) {
+        if (dynBuf) {
+            free(buf);
+        }
+        //exception already set
+        return -1;
+    }
+
+    ssize_t bytesread =
+        tsk_img_read(img_info, (TSK_OFF_T) offset, buf, (size_t) len);
+    if (bytesread == -1) {
+        if (dynBuf) {
+            free(buf);
+        }
+        setThrowTskCoreError(env, tsk_error_get());
+        return -1;
+    }
+
+    env->SetByteArrayRegion(jbuf, bufOffset, (jsize) bytesread, (jbyte *) buf);
+    if (dynBuf) {
+        free(buf);
+    }
+    return (jint) bytesread;
+}
 /*
  * Read bytes from the given volume system
  * @return number of bytes read from the volume system, -1 on error
@@ -1870,6 +2797,224 @@ Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileNat(JNIEnv * env,
 }
 
 
+/**
+ * Get the native address of a region of a direct java.nio.ByteBuffer.
+ * Throws a TskCoreException if the buffer is not direct or is too small.
+ * @param env JNI env
+ * @param jbuf direct buffer to get the address of
+ * @param bufOffset offset of the region in the buffer
+ * @param len length of the region
+ * @returns pointer to the start of the region or NULL on error
+ */
+static char *
+getDirectBufRegion(JNIEnv * env, jobject jbuf, jint bufOffset, jlong len)
+{
+    char *addr = (char *) env->GetDirectBufferAddress(jbuf);
+    if (addr == NULL) {
+        setThrowTskCoreError(env, "Buffer is not a direct buffer");
+        return NULL;
+    }
+    jlong capacity = env->GetDirectBufferCapacity(jbuf);
+    if (bufOffset < 0 || len < 0 || bufOffset + len > capacity) {
+        setThrowTskCoreError(env, "Read region exceeds buffer capacity");
+        return NULL;
+    }
+    return addr + bufOffset;
+}
+
+/*
+ * Read bytes from the given image directly into a direct buffer
+ * @return number of bytes read from the image, -1 on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_img_info the pointer to the image object
+ * @param jbuf direct buffer to read to
+ * @param bufOffset the offset in the buffer to write at
+ * @param offset the offset in bytes to start at
+ * @param len number of bytes to read
+ */
+JNIEXPORT jint JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readImgDirectNat(JNIEnv * env,
+    jclass obj, jlong a_img_info, jobject jbuf, jint bufOffset, jlong offset, jlong len)
+{
+    char *buf = getDirectBufRegion(env, jbuf, bufOffset, len);
+    if (buf == NULL) {
+        //exception already set
+        return -1;
+    }
+
+    TSK_IMG_INFO *img_info = castImgInfo(env, a_img_info);
+    if (img_info == 0) {
+        //exception already set
+        return -1;
+    }
+
+    ssize_t bytesread =
+        tsk_img_read(img_info, (TSK_OFF_T) offset, buf, (size_t) len);
+    if (bytesread == -1) {
+        setThrowTskCoreError(env, tsk_error_get());
+        return -1;
+    }
+    return (jint)bytesread;
+}
+
+/*
+ * Read bytes from the given volume system directly into a direct buffer
+ * @return number of bytes read from the volume system, -1 on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_vs_info the pointer to the volume system object
+ * @param jbuf direct buffer to read to
+ * @param bufOffset the offset in the buffer to write at
+ * @param offset the offset in bytes to start at
+ * @param len number of bytes to read
+ */
+JNIEXPORT jint JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readVsDirectNat(JNIEnv * env,
+    jclass obj, jlong a_vs_info, jobject jbuf, jint bufOffset, jlong offset, jlong len)
+{
+    char *buf = getDirectBufRegion(env, jbuf, bufOffset, len);
+    if (buf == NULL) {
+        //exception already set
+        return -1;
+    }
+
+    TSK_VS_INFO *vs_info = castVsInfo(env, a_vs_info);
+    if (vs_info == 0) {
+        //exception already set
+        return -1;
+    }
+
+    ssize_t bytesread = tsk_vs_read_block(vs_info, (TSK_DADDR_T) offset, buf,
+        (size_t) len);
+    if (bytesread == -1) {
+        setThrowTskCoreError(env, tsk_error_get());
+        return -1;
+    }
+    return (jint)bytesread;
+}
+
+/*
+ * Read bytes from the given volume directly into a direct buffer
+ * @return number of bytes read from the volume or -1 on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_vol_info the pointer to the volume object
+ * @param jbuf direct buffer to read to
+ * @param bufOffset the offset in the buffer to write at
+ * @param offset the offset in bytes to start at
+ * @param len number of bytes to read
+ */
+JNIEXPORT jint JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readVolDirectNat(JNIEnv * env,
+    jclass obj, jlong a_vol_info, jobject jbuf, jint bufOffset, jlong offset, jlong len)
+{
+    char *buf = getDirectBufRegion(env, jbuf, bufOffset, len);
+    if (buf == NULL) {
+        //exception already set
+        return -1;
+    }
+
+    TSK_VS_PART_INFO *vol_part_info = castVsPartInfo(env, a_vol_info);
+    if (vol_part_info == 0) {
+        //exception already set
+        return -1;
+    }
+
+    ssize_t bytesread =
+        tsk_vs_part_read(vol_part_info, (TSK_OFF_T) offset, buf,
+        (size_t) len);
+    if (bytesread == -1) {
+        setThrowTskCoreError(env, tsk_error_get());
+        return -1;
+    }
+    return (jint)bytesread;
+}
+
+/*
+ * Read bytes from the given file system directly into a direct buffer
+ * @return number of bytes read from the file system, -1 on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_fs_info the pointer to the file system object
+ * @param jbuf direct buffer to read to
+ * @param bufOffset the offset in the buffer to write at
+ * @param offset the offset in bytes to start at
+ * @param len number of bytes to read
+ */
+JNIEXPORT jint JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readFsDirectNat(JNIEnv * env,
+    jclass obj, jlong a_fs_info, jobject jbuf, jint bufOffset, jlong offset, jlong len)
+{
+    char *buf = getDirectBufRegion(env, jbuf, bufOffset, len);
+    if (buf == NULL) {
+        //exception already set
+        return -1;
+    }
+
+    TSK_FS_INFO *fs_info = castFsInfo(env, a_fs_info);
+    if (fs_info == 0) {
+        //exception already set
+        return -1;
+    }
+
+    ssize_t bytesread =
+        tsk_fs_read(fs_info, (TSK_OFF_T) offset, buf, (size_t) len);
+    if (bytesread == -1) {
+        setThrowTskCoreError(env, tsk_error_get());
+        return -1;
+    }
+    return (jint)bytesread;
+}
+
+/*
+ * Read bytes from the given file directly into a direct buffer
+ * @return number of bytes read, or -1 on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_file_handle the pointer to the TSK_JNI_FILEHANDLE object
+ * @param jbuf direct buffer to read to
+ * @param bufOffset the offset in the buffer to write at
+ * @param offset the offset in bytes to start at
+ * @param offset_type whether offset is relative to the file or its slack
+ * @param len number of bytes to read
+ */
+JNIEXPORT jint JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileDirectNat(JNIEnv * env,
+    jclass obj, jlong a_file_handle, jobject jbuf, jint bufOffset, jlong offset, jint offset_type, jlong len)
+{
+    char *buf = getDirectBufRegion(env, jbuf, bufOffset, len);
+    if (buf == NULL) {
+        //exception already set
+        return -1;
+    }
+
+    const TSK_JNI_FILEHANDLE *file_handle = castJniFileHandle(env, a_file_handle);
+    if (file_handle == 0) {
+        //exception already set
+        return -1;
+    }
+
+    TSK_FS_ATTR * tsk_fs_attr = file_handle->fs_attr;
+
+    TSK_FS_FILE_READ_FLAG_ENUM readFlag = TSK_FS_FILE_READ_FLAG_NONE;
+    TSK_OFF_T readOffset = (TSK_OFF_T) offset;
+    if(offset_type == TSK_FS_FILE_READ_OFFSET_TYPE_START_OF_SLACK){
+        readFlag = TSK_FS_FILE_READ_FLAG_SLACK;
+        readOffset += tsk_fs_attr->nrd.initsize;
+    }
+
+    //read attribute
+    ssize_t bytesread = tsk_fs_attr_read(tsk_fs_attr,  readOffset, buf, (size_t) len,
+        readFlag);
+    if (bytesread == -1) {
+        setThrowTskCoreError(env, tsk_error_get());
+        return -1;
+    }
+    return (jint)bytesread;
+}
+
+
 /**
  * Runs istat on a given file and saves the output to a temp file.
  *
@@ -1912,6 +3057,70 @@ JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_saveFileMetaDat
     return 0;
 }
 
+/*
+ * Set the number and size of the entries of the read cache of the given image
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_img_info the pointer to the image object
+ * @param a_num_entries number of cache entries
+ * @param a_entry_len size of each cache entry in bytes
+ */
+JNIEXPORT void JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_setImgCacheNat(JNIEnv * env,
+    jclass obj, jlong a_img_info, jint a_num_entries, jint a_entry_len)
+{
+    TSK_IMG_INFO *img_info = castImgInfo(env, a_img_info);
+    if (img_info == 0) {
+        //exception already set
+        return;
+    }
+    if (a_entry_len <= 0) {
+        setThrowTskCoreError(env, "Invalid image cache entry size");
+        return;
+    }
+    if (tsk_img_set_cache(img_info, (int) a_num_entries, (size_t) a_entry_len)) {
+        setThrowTskCoreError(env, tsk_error_get());
+    }
+}
+
+/*
+ * Get the read cache statistics of the given image
+ * @return array of the hit count, miss count, number of entries and entry
+ * size, or NULL on error
+ * @param env pointer to java environment this was called from
+ * @param obj the java object this was called from
+ * @param a_img_info the pointer to the image object
+ */
+JNIEXPORT jlongArray JNICALL
+Java_org_sleuthkit_datamodel_SleuthkitJNI_getImgCacheStatsNat(JNIEnv * env,
+    jclass obj, jlong a_img_info)
+{
+    TSK_IMG_INFO *img_info = castImgInfo(env, a_img_info);
+    if (img_info == 0) {
+        //exception already set
+        return NULL;
+    }
+
+    uint64_t hits = 0;
+    uint64_t misses = 0;
+    int num_entries = 0;
+    size_t entry_len = 0;
+    tsk_img_get_cache_stats(img_info, &hits, &misses, &num_entries, &entry_len);
+
+    jlong stats[4];
+    stats[0] = (jlong) hits;
+    stats[1] = (jlong) misses;
+    stats[2] = (jlong) num_entries;
+    stats[3] = (jlong) entry_len;
+    jlongArray jstats = env->NewLongArray(4);
+    if (jstats == NULL) {
+        //exception already set
+        return NULL;
+    }
+    env->SetLongArrayRegion(jstats, 0, 4, stats);
+    return jstats;
+}
+
 /*
  * Close the given image
  * @param env pointer to java environment this was called from
@@ -63,6 +63,22 @@ JNIEXPORT jlong JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_openCaseDbNat
 JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_closeCaseDbNat
   (JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    backupCaseDbNat
+ * Signature: (Ljava/lang/String;Ljava/lang/String;IILorg/sleuthkit/datamodel/SleuthkitJNI/BackupProgressObserver;)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_backupCaseDbNat
+  (JNIEnv *, jclass, jstring, jstring, jint, jint, jobject);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    updateCaseDbSnapshotNat
+ * Signature: (Ljava/lang/String;Ljava/lang/String;ILorg/sleuthkit/datamodel/SleuthkitJNI/BackupProgressObserver;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_updateCaseDbSnapshotNat
+  (JNIEnv *, jclass, jstring, jstring, jint, jobject);
+
 /*
  * Class:     org_sleuthkit_datamodel_SleuthkitJNI
  * Method:    hashDbOpenNat
@@ -199,6 +215,14 @@ JNIEXPORT jboolean JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_hashDbIsIdx
 JNIEXPORT jboolean JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_hashDbLookup
   (JNIEnv *, jclass, jstring, jint);
 
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    hashDbLookupBatchNat
+ * Signature: ([BII)[Z
+ */
+JNIEXPORT jbooleanArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_hashDbLookupBatchNat
+  (JNIEnv *, jclass, jbyteArray, jint, jint);
+
 /*
  * Class:     org_sleuthkit_datamodel_SleuthkitJNI
  * Method:    hashDbLookupVerbose
@@ -263,6 +287,54 @@ JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_revertAddImgNat
 JNIEXPORT jlong JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_commitAddImgNat
   (JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setAddImgParallelFsNat
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgParallelFsNat
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setAddImgStreamingNat
+ * Signature: (JILorg/sleuthkit/datamodel/AddImageChunkListener;)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgStreamingNat
+  (JNIEnv *, jclass, jlong, jint, jobject);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setAddImgBulkLoadNat
+ * Signature: (JLorg/sleuthkit/datamodel/AddImageIndexListener;)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setAddImgBulkLoadNat
+  (JNIEnv *, jclass, jlong, jobject);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getAddImgFsProgressNat
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgFsProgressNat
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getAddImgParentDirCacheStatsNat
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgParentDirCacheStatsNat
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getAddImgTimingsNat
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getAddImgTimingsNat
+  (JNIEnv *, jclass, jlong);
+
 /*
  * Class:     org_sleuthkit_datamodel_SleuthkitJNI
  * Method:    openImgNat
@@ -311,6 +383,14 @@ JNIEXPORT jlong JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_openFileNat
 JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readImgNat
   (JNIEnv *, jclass, jlong, jbyteArray, jlong, jlong);
 
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readImgToOffsetNat
+ * Signature: (J[BIJJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readImgToOffsetNat
+  (JNIEnv *, jclass, jlong, jbyteArray, jint, jlong, jlong);
+
 /*
  * Class:     org_sleuthkit_datamodel_SleuthkitJNI
  * Method:    readVsNat
@@ -343,6 +423,62 @@ JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readFsNat
 JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileNat
   (JNIEnv *, jclass, jlong, jbyteArray, jlong, jint, jlong);
 
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readImgDirectNat
+ * Signature: (JLjava/nio/ByteBuffer;IJJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readImgDirectNat
+  (JNIEnv *, jclass, jlong, jobject, jint, jlong, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readVsDirectNat
+ * Signature: (JLjava/nio/ByteBuffer;IJJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readVsDirectNat
+  (JNIEnv *, jclass, jlong, jobject, jint, jlong, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readVolDirectNat
+ * Signature: (JLjava/nio/ByteBuffer;IJJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readVolDirectNat
+  (JNIEnv *, jclass, jlong, jobject, jint, jlong, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readFsDirectNat
+ * Signature: (JLjava/nio/ByteBuffer;IJJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readFsDirectNat
+  (JNIEnv *, jclass, jlong, jobject, jint, jlong, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    readFileDirectNat
+ * Signature: (JLjava/nio/ByteBuffer;IJIJ)I
+ */
+JNIEXPORT jint JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_readFileDirectNat
+  (JNIEnv *, jclass, jlong, jobject, jint, jlong, jint, jlong);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    setImgCacheNat
+ * Signature: (JII)V
+ */
+JNIEXPORT void JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_setImgCacheNat
+  (JNIEnv *, jclass, jlong, jint, jint);
+
+/*
+ * Class:     org_sleuthkit_datamodel_SleuthkitJNI
+ * Method:    getImgCacheStatsNat
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_sleuthkit_datamodel_SleuthkitJNI_getImgCacheStatsNat
+  (JNIEnv *, jclass, jlong);
+
 /*
  * Class:     org_sleuthkit_datamodel_SleuthkitJNI
  * Method:    saveFileMetaDataTextNat
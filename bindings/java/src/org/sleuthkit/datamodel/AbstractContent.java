@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.datamodel;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -63,6 +64,21 @@ public String getName() {
 		return this.name;
 	}
 
+	/*
+	 * This base implementation reads into a temporary array with read(byte[],
+	 * long, long) and copies the result into the buffer. Content types backed
+	 * by a SleuthKit handle override it to read directly into direct buffers.
+	 */
+	@Override
+	public int read(ByteBuffer buf, long offset) throws TskCoreException {
+		byte[] bytes = new byte[buf.remaining()];
+		int bytesRead = read(bytes, offset, bytes.length);
+		if (bytesRead > 0) {
+			buf.put(bytes, 0, bytesRead);
+		}
+		return bytesRead;
+	}
+
 	/*
 	 * This base implementation simply walks the hierarchy appending its own
 	 * name to the result of calling its parent's getUniquePath() method (with
@@ -112,6 +128,16 @@ public int getChildrenCount() throws TskCoreException {
 		return childrenCount;
 	}
 
+	/**
+	 * Forgets the remembered children count, so that hasChildren and
+	 * getChildrenCount query the case database again. Called by SleuthkitCase
+	 * when a child is added to a cached object.
+	 */
+	void resetChildrenCount() {
+		childrenCount = -1;
+		checkedHasChildren = false;
+	}
+
 	@Override
 	public synchronized Content getParent() throws TskCoreException {
 		if (parent == null) {
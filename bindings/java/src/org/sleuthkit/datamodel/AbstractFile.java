@@ -21,6 +21,7 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -773,6 +774,38 @@ protected int readInt(byte[] buf, long offset, long len) throws TskCoreException
 		return 0;
 	}
 
+	@Override
+	public final int read(ByteBuffer buf, long offset) throws TskCoreException {
+		//template method
+		//if localPath is set, use local, otherwise, use readInt() supplied by derived class
+		if (localPathSet) {
+			return super.read(buf, offset);
+		} else {
+			return readInt(buf, offset);
+		}
+	}
+
+	/**
+	 * Internal custom read (non-local) method into a ByteBuffer that child
+	 * classes can implement. The default implementation reads through
+	 * readInt(byte[], long, long) and copies the result into the buffer.
+	 *
+	 * @param buf    buffer to read into, starting at its position
+	 * @param offset start reading position in the file
+	 *
+	 * @return number of bytes read
+	 *
+	 * @throws TskCoreException exception thrown when file could not be read
+	 */
+	protected int readInt(ByteBuffer buf, long offset) throws TskCoreException {
+		byte[] bytes = new byte[buf.remaining()];
+		int bytesRead = readInt(bytes, offset, bytes.length);
+		if (bytesRead > 0) {
+			buf.put(bytes, 0, bytesRead);
+		}
+		return bytesRead;
+	}
+
 	/**
 	 * Local file path read support
 	 *
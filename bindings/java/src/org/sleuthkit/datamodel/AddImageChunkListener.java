@@ -0,0 +1,38 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * Listener of an add image process in streaming mode, which is told each time
+ * a chunk of the image has been committed to the case database. See
+ * SleuthkitJNI.CaseDbHandle.AddImageProcess.setStreaming.
+ */
+public interface AddImageChunkListener {
+
+	/**
+	 * Called after a chunk of the image has been committed. The volume
+	 * systems, file systems and files of the chunk have object ids in the
+	 * given range and can be read from the case database. Exceptions thrown by
+	 * this method are ignored.
+	 *
+	 * @param firstObjId The lowest object id of the chunk.
+	 * @param lastObjId  The highest object id of the chunk.
+	 */
+	void chunkCommitted(long firstObjId, long lastObjId);
+}
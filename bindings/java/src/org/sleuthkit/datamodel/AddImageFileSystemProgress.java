@@ -0,0 +1,93 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * A snapshot of the progress of one file system of an image that an add image
+ * process walks in parallel with the other file systems of the image.
+ */
+public final class AddImageFileSystemProgress {
+
+	private final long fileSystemId;
+	private final long offset;
+	private final long filesFound;
+	private final long filesAdded;
+	private final boolean done;
+
+	AddImageFileSystemProgress(long fileSystemId, long offset, long filesFound, long filesAdded, boolean done) {
+		this.fileSystemId = fileSystemId;
+		this.offset = offset;
+		this.filesFound = filesFound;
+		this.filesAdded = filesAdded;
+		this.done = done;
+	}
+
+	/**
+	 * Gets the object id of the file system.
+	 *
+	 * @return The object id.
+	 */
+	public long getFileSystemId() {
+		return fileSystemId;
+	}
+
+	/**
+	 * Gets the offset of the file system in the image.
+	 *
+	 * @return The offset in bytes.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the number of files the walker of the file system has found and
+	 * queued for the case database.
+	 *
+	 * @return The number of files found.
+	 */
+	public long getFilesFound() {
+		return filesFound;
+	}
+
+	/**
+	 * Gets the number of files of the file system that have been added to the
+	 * case database.
+	 *
+	 * @return The number of files added.
+	 */
+	public long getFilesAdded() {
+		return filesAdded;
+	}
+
+	/**
+	 * Indicates whether the walker of the file system has finished. Files it
+	 * found may still be waiting to be added to the case database.
+	 *
+	 * @return True if the walk is done.
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public String toString() {
+		return "AddImageFileSystemProgress{" + "fileSystemId=" + fileSystemId + ", offset=" + offset + ", found=" + filesFound + ", added=" + filesAdded + ", done=" + done + '}'; //NON-NLS
+	}
+}
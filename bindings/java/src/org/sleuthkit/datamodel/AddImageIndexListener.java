@@ -0,0 +1,37 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * Listener of an add image process in bulk load mode, which is told each time
+ * one of the secondary indexes of the case database has been built again. See
+ * SleuthkitJNI.CaseDbHandle.AddImageProcess.setBulkLoad.
+ */
+public interface AddImageIndexListener {
+
+	/**
+	 * Called after an index has been built. Exceptions thrown by this method
+	 * are ignored.
+	 *
+	 * @param indexName    The name of the index.
+	 * @param indexesBuilt The number of indexes built so far.
+	 * @param indexCount   The number of indexes to build.
+	 */
+	void indexBuilt(String indexName, int indexesBuilt, int indexCount);
+}
@@ -0,0 +1,94 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * A snapshot of the time an add image process has spent on an image, split
+ * into walking its file systems, inserting their files into the case database
+ * and adding its unallocated space. When file systems are walked in parallel
+ * the walkers run while files are inserted, so the walk time is the time the
+ * database writer was not inserting.
+ */
+public final class AddImageTimings {
+
+	private final long totalMicros;
+	private final long insertMicros;
+	private final long unallocMicros;
+	private final long filesInserted;
+
+	AddImageTimings(long totalMicros, long insertMicros, long unallocMicros, long filesInserted) {
+		this.totalMicros = totalMicros;
+		this.insertMicros = insertMicros;
+		this.unallocMicros = unallocMicros;
+		this.filesInserted = filesInserted;
+	}
+
+	/**
+	 * Gets the total time spent adding the files of the image.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getTotalMicros() {
+		return totalMicros;
+	}
+
+	/**
+	 * Gets the part of the total time spent walking the file systems.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getWalkMicros() {
+		return Math.max(0, totalMicros - insertMicros - unallocMicros);
+	}
+
+	/**
+	 * Gets the part of the total time spent inserting file system files and
+	 * their layout ranges into the case database.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getInsertMicros() {
+		return insertMicros;
+	}
+
+	/**
+	 * Gets the part of the total time spent adding the unallocated space of
+	 * the image.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getUnallocMicros() {
+		return unallocMicros;
+	}
+
+	/**
+	 * Gets the number of file system files inserted, one per attribute.
+	 *
+	 * @return The file count.
+	 */
+	public long getFilesInserted() {
+		return filesInserted;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("AddImageTimings{total=%dus walk=%dus insert=%dus unalloc=%dus files=%d}", //NON-NLS
+				totalMicros, getWalkMicros(), insertMicros, unallocMicros, filesInserted);
+	}
+}
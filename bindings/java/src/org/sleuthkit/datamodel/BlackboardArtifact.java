@@ -20,6 +20,7 @@
 
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -310,6 +311,30 @@ public List<BlackboardAttribute> getAttributes() throws TskCoreException {
 		return attributes;
 	}
 
+	/**
+	 * Replaces the cached attributes of this artifact with attributes loaded
+	 * in bulk by the case database, so that getAttributes does not need to
+	 * query for them.
+	 *
+	 * @param attributes The attributes of this artifact.
+	 */
+	void setAttributesCache(Collection<BlackboardAttribute> attributes) {
+		attrsCache.clear();
+		attrsCache.addAll(attributes);
+		loadedCacheFromDb = true;
+	}
+
+	/**
+	 * Adds attributes to the cached attributes of this artifact without
+	 * writing them to the case database. Used by the case database when the
+	 * attributes are written in a batch.
+	 *
+	 * @param attributes The attributes to add.
+	 */
+	void addAttributesToCache(Collection<BlackboardAttribute> attributes) {
+		attrsCache.addAll(attributes);
+	}
+
 	/**
 	 * Gets the attribute of this artifact that matches a given type.
 	 *
@@ -736,6 +761,28 @@ public final int read(byte[] buf, long offset, long len) throws TskCoreException
 		return (int) readLen;
 	}
 
+	/**
+	 * Reads content data for this artifact into a ByteBuffer. Artifact content
+	 * is a string dump of all its attributes.
+	 *
+	 * @param buf    buffer to copy read data to, starting at its position
+	 * @param offset byte offset in the content to start reading from
+	 *
+	 * @return num of bytes read, or -1 on error
+	 *
+	 * @throws TskCoreException if critical error occurred during read in the
+	 *                          tsk core
+	 */
+	@Override
+	public final int read(ByteBuffer buf, long offset) throws TskCoreException {
+		byte[] bytes = new byte[buf.remaining()];
+		int bytesRead = read(bytes, offset, bytes.length);
+		if (bytesRead > 0) {
+			buf.put(bytes, 0, bytesRead);
+		}
+		return bytesRead;
+	}
+
 	@Override
 	public String getName() {
 		return this.displayName + getArtifactID();
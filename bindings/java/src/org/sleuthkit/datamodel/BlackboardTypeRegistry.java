@@ -0,0 +1,172 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A registry of artifact or attribute types, looked up by type id or type
+ * name. The registry is an immutable snapshot that is replaced as a whole
+ * when types are registered, so lookups take no lock and allocate nothing,
+ * and a type becomes visible by id and by name at the same time. Ids are
+ * looked up in an open addressing table of primitive ints, without boxing.
+ * Registering is comparatively expensive, which suits types: they are
+ * loaded when a case is opened and rarely added afterwards.
+ *
+ * This class is thread-safe.
+ *
+ * @param <T> The type of the registered types.
+ */
+final class BlackboardTypeRegistry<T> {
+
+	private volatile Snapshot<T> snapshot = new Snapshot<T>(new int[0], new Object[0], new String[0]);
+
+	/**
+	 * Gets the type with a given id.
+	 *
+	 * @param typeId The type id.
+	 *
+	 * @return The type, or null if there is no type with the id.
+	 */
+	T get(int typeId) {
+		return snapshot.get(typeId);
+	}
+
+	/**
+	 * Gets the type with a given name.
+	 *
+	 * @param typeName The type name.
+	 *
+	 * @return The type, or null if there is no type with the name.
+	 */
+	T get(String typeName) {
+		return snapshot.byName.get(typeName);
+	}
+
+	/**
+	 * Adds a type to the registry, replacing any type with the same id.
+	 *
+	 * @param typeId   The type id.
+	 * @param typeName The type name.
+	 * @param type     The type.
+	 */
+	void register(int typeId, String typeName, T type) {
+		register(new int[]{typeId}, new String[]{typeName}, new Object[]{type});
+	}
+
+	/**
+	 * Adds several types to the registry in one step, replacing any types
+	 * with the same ids.
+	 *
+	 * @param typeIds   The type ids.
+	 * @param typeNames The type names, in the same order as the ids.
+	 * @param types     The types, in the same order as the ids.
+	 */
+	synchronized void register(int[] typeIds, String[] typeNames, Object[] types) {
+		Snapshot<T> current = snapshot;
+		int count = current.size();
+		int[] ids = new int[count + typeIds.length];
+		Object[] values = new Object[count + typeIds.length];
+		String[] names = new String[count + typeIds.length];
+		current.copyTo(ids, values, names);
+		for (int i = 0; i < typeIds.length; i++) {
+			ids[count + i] = typeIds[i];
+			values[count + i] = types[i];
+			names[count + i] = typeNames[i];
+		}
+		snapshot = new Snapshot<T>(ids, values, names);
+	}
+
+	/**
+	 * An immutable set of types, with an open addressing table keyed by id
+	 * and a hash map keyed by name.
+	 */
+	private static final class Snapshot<T> {
+
+		private final int[] tableIds;
+		private final Object[] tableTypes; // A null entry is an empty slot.
+		private final String[] tableNames;
+		private final int mask;
+		private final int size;
+		private final Map<String, T> byName;
+
+		@SuppressWarnings("unchecked")
+		Snapshot(int[] ids, Object[] types, String[] names) {
+			int capacity = 4;
+			while (capacity < ids.length * 2) {
+				capacity <<= 1;
+			}
+			tableIds = new int[capacity];
+			tableTypes = new Object[capacity];
+			tableNames = new String[capacity];
+			mask = capacity - 1;
+			Map<String, T> nameMap = new HashMap<String, T>();
+			int count = 0;
+			for (int i = 0; i < ids.length; i++) {
+				int slot = slot(ids[i]);
+				while (tableTypes[slot] != null && tableIds[slot] != ids[i]) {
+					slot = (slot + 1) & mask;
+				}
+				if (tableTypes[slot] == null) {
+					count++;
+				} else {
+					nameMap.remove(tableNames[slot]);
+				}
+				tableIds[slot] = ids[i];
+				tableTypes[slot] = types[i];
+				tableNames[slot] = names[i];
+				nameMap.put(names[i], (T) types[i]);
+			}
+			size = count;
+			byName = nameMap;
+		}
+
+		@SuppressWarnings("unchecked")
+		T get(int typeId) {
+			for (int slot = slot(typeId); tableTypes[slot] != null; slot = (slot + 1) & mask) {
+				if (tableIds[slot] == typeId) {
+					return (T) tableTypes[slot];
+				}
+			}
+			return null;
+		}
+
+		int size() {
+			return size;
+		}
+
+		void copyTo(int[] ids, Object[] types, String[] names) {
+			int i = 0;
+			for (int slot = 0; slot < tableTypes.length; slot++) {
+				if (tableTypes[slot] != null) {
+					ids[i] = tableIds[slot];
+					types[i] = tableTypes[slot];
+					names[i] = tableNames[slot];
+					i++;
+				}
+			}
+		}
+
+		private int slot(int typeId) {
+			int hash = typeId * 0x9E3779B9;
+			return (hash ^ (hash >>> 16)) & mask;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * Named sets of SQLite and connection pool settings for single-user case
+ * databases, each tuned for a kind of workload. A profile is chosen when the
+ * case database is opened or created with SleuthkitCase.openCase or
+ * SleuthkitCase.newCase. The page cache size applies to each pooled
+ * connection, so the memory a profile may use grows with its maximum pool
+ * size. Every profile other than DEFAULT uses
+ * SleuthkitCase.ConcurrencyMode.CONCURRENT_READS, which switches the case
+ * database file to write-ahead logging; the journal mode is stored in the
+ * file, so the case stays in WAL mode when it is reopened with another
+ * profile.
+ */
+public enum CaseDbPerformanceProfile {
+
+	/**
+	 * The settings used when no profile is given: SQLite's default page cache
+	 * and temporary storage, no memory mapping, 5 to 20 pooled connections
+	 * and ConcurrencyMode.SERIALIZED.
+	 */
+	DEFAULT(SleuthkitCase.ConcurrencyMode.SERIALIZED, 0, 0, false, 5, 20),
+	/**
+	 * For adding images and running ingest: a few connections, each with a
+	 * large page cache, memory mapped I/O and in-memory temporary tables, and
+	 * write-ahead logging so that the many small writes do not block readers.
+	 */
+	BULK_INGEST(SleuthkitCase.ConcurrencyMode.CONCURRENT_READS, 64 * 1024, 256L * 1024 * 1024, true, 2, 10),
+	/**
+	 * For browsing and tagging a case: a full pool of connections with modest
+	 * page caches, memory mapped I/O and write-ahead logging, so that the
+	 * occasional write does not stall the user interface.
+	 */
+	INTERACTIVE_REVIEW(SleuthkitCase.ConcurrencyMode.CONCURRENT_READS, 16 * 1024, 256L * 1024 * 1024, true, 5, 20),
+	/**
+	 * For generating reports and other large queries: a large pool of
+	 * connections, a large memory map and in-memory temporary tables for
+	 * sorting, with write-ahead logging so that readers never wait for each
+	 * other or for writers. The connections can still write, e.g. to store
+	 * the tags or settings of a report, and opening a case with this profile
+	 * switches it to WAL mode like the other profiles that use
+	 * SleuthkitCase.ConcurrencyMode.CONCURRENT_READS.
+	 */
+	REPORTING(SleuthkitCase.ConcurrencyMode.CONCURRENT_READS, 32 * 1024, 1024L * 1024 * 1024, true, 5, 32);
+
+	private final SleuthkitCase.ConcurrencyMode concurrencyMode;
+	private final int cacheSizeKiB;
+	private final long mmapSize;
+	private final boolean tempStoreInMemory;
+	private final int minPoolSize;
+	private final int maxPoolSize;
+
+	private CaseDbPerformanceProfile(SleuthkitCase.ConcurrencyMode concurrencyMode, int cacheSizeKiB, long mmapSize, boolean tempStoreInMemory, int minPoolSize, int maxPoolSize) {
+		this.concurrencyMode = concurrencyMode;
+		this.cacheSizeKiB = cacheSizeKiB;
+		this.mmapSize = mmapSize;
+		this.tempStoreInMemory = tempStoreInMemory;
+		this.minPoolSize = minPoolSize;
+		this.maxPoolSize = maxPoolSize;
+	}
+
+	/**
+	 * Gets how threads that read and write the case database are
+	 * coordinated.
+	 *
+	 * @return The concurrency mode.
+	 */
+	public SleuthkitCase.ConcurrencyMode getConcurrencyMode() {
+		return concurrencyMode;
+	}
+
+	/**
+	 * Gets the size of the page cache of each connection.
+	 *
+	 * @return The size in KiB, or 0 for the SQLite default.
+	 */
+	public int getCacheSizeKiB() {
+		return cacheSizeKiB;
+	}
+
+	/**
+	 * Gets the largest part of the case database file each connection reads
+	 * through a memory map.
+	 *
+	 * @return The size in bytes, or 0 if memory mapped I/O is not used.
+	 */
+	public long getMmapSize() {
+		return mmapSize;
+	}
+
+	/**
+	 * Indicates whether temporary tables and indexes, such as those used for
+	 * sorting, are kept in memory.
+	 *
+	 * @return True if they are kept in memory, false for the SQLite default.
+	 */
+	public boolean isTempStoreInMemory() {
+		return tempStoreInMemory;
+	}
+
+	/**
+	 * Gets the minimum number of pooled connections.
+	 *
+	 * @return The minimum pool size.
+	 */
+	public int getMinPoolSize() {
+		return minPoolSize;
+	}
+
+	/**
+	 * Gets the maximum number of pooled connections.
+	 *
+	 * @return The maximum pool size.
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * The outcome of a snapshot of a case database made with
+ * SleuthkitCase.createSnapshot.
+ */
+public final class CaseDbSnapshot {
+
+	/**
+	 * The kinds of snapshot.
+	 */
+	public enum Mode {
+
+		/**
+		 * Copies every page of the case database with the SQLite online backup
+		 * API, in small batches, while other threads keep using the case
+		 * database. If writes keep forcing the copy to restart, writers are
+		 * held off for the rest of the copy.
+		 */
+		FULL,
+		/**
+		 * Updates an existing snapshot in place with the SQLite online backup
+		 * API, in one read transaction of the case database, writing only the
+		 * pages that changed since it was made. Readers are not held off;
+		 * writers are, unless the case database has a write-ahead log. Falls
+		 * back to a full snapshot if there is no existing snapshot.
+		 */
+		INCREMENTAL
+	}
+
+	/**
+	 * Receives progress notifications while a snapshot is made.
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * Called periodically while a snapshot is made. A full snapshot that
+		 * restarts reports a smaller number of bytes done than before.
+		 *
+		 * @param bytesDone  The number of bytes of the case database processed
+		 *                   so far.
+		 * @param totalBytes The size of the case database in bytes.
+		 */
+		void progress(long bytesDone, long totalBytes);
+	}
+
+	private final String path;
+	private final Mode mode;
+	private final long bytesRead;
+	private final long bytesWritten;
+	private final long elapsedNanos;
+	private final int restartCount;
+
+	CaseDbSnapshot(String path, Mode mode, long bytesRead, long bytesWritten, long elapsedNanos, int restartCount) {
+		this.path = path;
+		this.mode = mode;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.elapsedNanos = elapsedNanos;
+		this.restartCount = restartCount;
+	}
+
+	/**
+	 * Gets the path of the snapshot file.
+	 *
+	 * @return The path.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the kind of snapshot that was made. This is FULL if an incremental
+	 * snapshot was requested but there was no existing snapshot to update.
+	 *
+	 * @return The mode.
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Gets the number of bytes of the case database read to make the
+	 * snapshot, including the bytes read by attempts that restarted.
+	 *
+	 * @return The number of bytes read.
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Gets the number of bytes written to the snapshot file.
+	 *
+	 * @return The number of bytes written.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Gets the time taken to make the snapshot.
+	 *
+	 * @return The elapsed time in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * Gets the number of times a full snapshot restarted because the case
+	 * database was written to while it was copied.
+	 *
+	 * @return The restart count.
+	 */
+	public int getRestartCount() {
+		return restartCount;
+	}
+
+	/**
+	 * Gets the rate at which the case database was read.
+	 *
+	 * @return The throughput in bytes per second.
+	 */
+	public double getBytesPerSecond() {
+		return elapsedNanos > 0 ? bytesRead * 1e9 / elapsedNanos : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "CaseDbSnapshot{" + "path=" + path + ", mode=" + mode + ", bytesRead=" + bytesRead + ", bytesWritten=" + bytesWritten + ", elapsedMillis=" + getElapsedMillis() + ", restarts=" + restartCount + '}'; //NON-NLS
+	}
+}
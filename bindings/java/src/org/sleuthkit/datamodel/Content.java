@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.datamodel;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -46,6 +47,24 @@ public interface Content extends SleuthkitVisitableItem {
 	 */
 	public int read(byte[] buf, long offset, long len) throws TskCoreException;
 
+	/**
+	 * Reads data that this content object is associated with into a
+	 * ByteBuffer. Up to buf.remaining() bytes are read into the buffer
+	 * starting at its current position, and the position is advanced by the
+	 * number of bytes read. When the buffer is a direct buffer, implementations
+	 * backed by the SleuthKit write the data straight into the buffer's memory
+	 * without an intermediate copy.
+	 *
+	 * @param buf    buffer to copy read data to
+	 * @param offset byte offset in the content to start reading from
+	 *
+	 * @return num of bytes read, or -1 on error
+	 *
+	 * @throws TskCoreException if critical error occurred during read in the
+	 *                          tsk core
+	 */
+	public int read(ByteBuffer buf, long offset) throws TskCoreException;
+
 	/**
 	 * Free native resources after read is done on the Content object. After
 	 * closing, read can be called again on the same Content object, which
@@ -0,0 +1,136 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only SeekableByteChannel over a Content object's data. Reads go
+ * through Content.read(ByteBuffer, long), so reading into a direct buffer does
+ * not copy the data through a Java array. Closing the channel does not close
+ * the content.
+ *
+ * This class is not thread-safe.
+ */
+public final class ContentByteChannel implements SeekableByteChannel {
+
+	private final Content content;
+	private final long contentSize;
+	private long position;
+	private boolean open = true;
+
+	/**
+	 * Constructs a channel positioned at the start of a Content object's data.
+	 *
+	 * @param content The content to read.
+	 */
+	public ContentByteChannel(Content content) {
+		this.content = content;
+		this.contentSize = content.getSize();
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		ensureOpen();
+		if (position >= contentSize) {
+			return -1;
+		}
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		int oldLimit = dst.limit();
+		long lenToRead = Math.min(dst.remaining(), contentSize - position);
+		dst.limit(dst.position() + (int) lenToRead);
+		int lenRead;
+		try {
+			lenRead = content.read(dst, position);
+		} catch (TskCoreException ex) {
+			throw new IOException("Error reading content " + content.getId() + " at offset " + position, ex); //NON-NLS
+		} finally {
+			dst.limit(oldLimit);
+		}
+		if (lenRead <= 0) {
+			return -1;
+		}
+		position += lenRead;
+		return lenRead;
+	}
+
+	/**
+	 * Not supported, the channel is read-only.
+	 *
+	 * @throws NonWritableChannelException Always.
+	 */
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public long position() throws IOException {
+		ensureOpen();
+		return position;
+	}
+
+	@Override
+	public SeekableByteChannel position(long newPosition) throws IOException {
+		ensureOpen();
+		if (newPosition < 0) {
+			throw new IllegalArgumentException("Illegal negative position in the channel"); //NON-NLS
+		}
+		position = newPosition;
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		ensureOpen();
+		return contentSize;
+	}
+
+	/**
+	 * Not supported, the channel is read-only.
+	 *
+	 * @throws NonWritableChannelException Always.
+	 */
+	@Override
+	public SeekableByteChannel truncate(long size) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+	}
+
+	private void ensureOpen() throws ClosedChannelException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded, least recently used cache of Content objects keyed by object
+ * id. Once installed with SleuthkitCase.setContentCache, lookups by id return
+ * the same Content instance for as long as it stays in the cache, and edits
+ * made through the SleuthkitCase keep the cached instances up to date.
+ *
+ * This class is thread-safe.
+ */
+public final class ContentCache {
+
+	/**
+	 * The default maximum number of Content objects held by a cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final int maxEntries;
+	private final Map<Long, Content> cache;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * Constructs a cache holding at most DEFAULT_MAX_ENTRIES Content objects.
+	 */
+	public ContentCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Constructs a cache holding at most maxEntries Content objects. When the
+	 * cache is full, the least recently used object is evicted.
+	 *
+	 * @param maxEntries The maximum number of objects in the cache, must be
+	 *                   positive.
+	 */
+	public ContentCache(int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive"); //NON-NLS
+		}
+		this.maxEntries = maxEntries;
+		this.cache = new LinkedHashMap<Long, Content>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Content> eldest) {
+				if (size() > ContentCache.this.maxEntries) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gets the cached Content object with the given object id.
+	 *
+	 * @param objId The object id.
+	 *
+	 * @return The cached object, or null if it is not in the cache.
+	 */
+	synchronized Content get(long objId) {
+		Content content = cache.get(objId);
+		if (content == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return content;
+	}
+
+	/**
+	 * Adds a Content object to the cache. If an object with the same id is
+	 * already cached, the cached instance is kept so that callers keep sharing
+	 * one instance per id.
+	 *
+	 * @param content The object to add.
+	 *
+	 * @return The cached instance for the object's id.
+	 */
+	synchronized <T extends Content> T put(T content) {
+		Content cached = cache.get(content.getId());
+		if (cached != null && cached.getClass() == content.getClass()) {
+			@SuppressWarnings("unchecked")
+			T existing = (T) cached;
+			return existing;
+		}
+		cache.put(content.getId(), content);
+		return content;
+	}
+
+	/**
+	 * Removes the Content object with the given object id from the cache.
+	 *
+	 * @param objId The object id.
+	 */
+	synchronized void invalidate(long objId) {
+		cache.remove(objId);
+	}
+
+	/**
+	 * Removes the Content object with the same id as the given object from the
+	 * cache, unless the cached instance is the given object itself. Used after
+	 * an edit that has already been applied to the given object.
+	 *
+	 * @param content The edited object.
+	 */
+	synchronized void invalidateIfStale(Content content) {
+		Content cached = cache.get(content.getId());
+		if (cached != null && cached != content) {
+			cache.remove(content.getId());
+		}
+	}
+
+	/**
+	 * Makes the cached Content object with the given object id, if any, count
+	 * its children again the next time they are asked for. Used after a child
+	 * has been added to it.
+	 *
+	 * @param parentObjId The object id of the parent.
+	 */
+	synchronized void childrenChanged(long parentObjId) {
+		Content cached = cache.get(parentObjId);
+		if (cached instanceof AbstractContent) {
+			((AbstractContent) cached).resetChildrenCount();
+		}
+	}
+
+	/**
+	 * Makes every cached Content object count its children again the next time
+	 * they are asked for. Used after children were added outside of the
+	 * SleuthkitCase, e.g. by a streaming add image process.
+	 */
+	synchronized void allChildrenChanged() {
+		for (Content cached : cache.values()) {
+			if (cached instanceof AbstractContent) {
+				((AbstractContent) cached).resetChildrenCount();
+			}
+		}
+	}
+
+	/**
+	 * Removes all objects from the cache. The hit, miss and eviction counts are
+	 * not reset.
+	 */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Gets the maximum number of objects the cache holds.
+	 *
+	 * @return The maximum number of objects.
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Gets the number of objects currently in the cache.
+	 *
+	 * @return The number of objects.
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Gets the number of lookups that found their object in the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Gets the number of lookups that did not find their object in the cache.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Gets the number of objects evicted to keep the cache within its size
+	 * bound.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ContentCache{" + "size=" + cache.size() + ", maxEntries=" + maxEntries + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + '}'; //NON-NLS
+	}
+}
@@ -51,7 +51,11 @@ public static void run(String imagePath) {
 			} catch (TskDataException ex) {
 				Logger.getLogger(Sample.class.getName()).log(Level.SEVERE, null, ex);
 			}
-			process.commit();
+			try {
+				process.commit();
+			} catch (TskDataException ex) {
+				Logger.getLogger(Sample.class.getName()).log(Level.SEVERE, null, ex);
+			}
 
 			// print out all the images found, and their children
 			List<Image> images = sk.getImages();
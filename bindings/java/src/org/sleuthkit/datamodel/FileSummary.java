@@ -0,0 +1,199 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import org.sleuthkit.datamodel.TskData.TSK_DB_FILES_TYPE_ENUM;
+import org.sleuthkit.datamodel.TskData.TSK_FS_META_FLAG_ENUM;
+import org.sleuthkit.datamodel.TskData.TSK_FS_META_TYPE_ENUM;
+import org.sleuthkit.datamodel.TskData.TSK_FS_NAME_FLAG_ENUM;
+import org.sleuthkit.datamodel.TskData.TSK_FS_NAME_TYPE_ENUM;
+
+/**
+ * The columns of a file that are needed to list it in a directory tree: its
+ * object id, name, type, size, flags and times. A file summary is read with a
+ * query of only those columns and does no further queries, so listing a
+ * directory as summaries is much cheaper than loading its children as
+ * AbstractFile objects. Use SleuthkitCase.getAbstractFileById to load the full
+ * file when it is needed.
+ */
+public final class FileSummary {
+
+	private final long objId;
+	private final String name;
+	private final short type;
+	private final short dirType;
+	private final short metaType;
+	private final short dirFlag;
+	private final short metaFlags;
+	private final long size;
+	private final long ctime;
+	private final long crtime;
+	private final long atime;
+	private final long mtime;
+
+	FileSummary(long objId, String name, short type, short dirType, short metaType, short dirFlag, short metaFlags,
+			long size, long ctime, long crtime, long atime, long mtime) {
+		this.objId = objId;
+		this.name = name;
+		this.type = type;
+		this.dirType = dirType;
+		this.metaType = metaType;
+		this.dirFlag = dirFlag;
+		this.metaFlags = metaFlags;
+		this.size = size;
+		this.ctime = ctime;
+		this.crtime = crtime;
+		this.atime = atime;
+		this.mtime = mtime;
+	}
+
+	/**
+	 * Gets the object id of the file.
+	 *
+	 * @return The object id.
+	 */
+	public long getId() {
+		return objId;
+	}
+
+	/**
+	 * Gets the name of the file.
+	 *
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the type of the file.
+	 *
+	 * @return The type.
+	 */
+	public TSK_DB_FILES_TYPE_ENUM getType() {
+		return TSK_DB_FILES_TYPE_ENUM.valueOf(type);
+	}
+
+	/**
+	 * Gets the file type recorded in the directory entry of the file.
+	 *
+	 * @return The directory entry type.
+	 */
+	public TSK_FS_NAME_TYPE_ENUM getDirType() {
+		return TSK_FS_NAME_TYPE_ENUM.valueOf(dirType);
+	}
+
+	/**
+	 * Gets the file type recorded in the metadata of the file.
+	 *
+	 * @return The metadata type.
+	 */
+	public TSK_FS_META_TYPE_ENUM getMetaType() {
+		return TSK_FS_META_TYPE_ENUM.valueOf(metaType);
+	}
+
+	/**
+	 * Gets the allocation flag of the directory entry of the file.
+	 *
+	 * @return The directory entry flag.
+	 */
+	public TSK_FS_NAME_FLAG_ENUM getDirFlag() {
+		return TSK_FS_NAME_FLAG_ENUM.valueOf(dirFlag);
+	}
+
+	/**
+	 * Gets the flags of the metadata of the file.
+	 *
+	 * @return The metadata flags, a combination of TSK_FS_META_FLAG_ENUM
+	 *         values.
+	 */
+	public short getMetaFlags() {
+		return metaFlags;
+	}
+
+	/**
+	 * Indicates whether the file is a directory, including virtual and local
+	 * directories.
+	 *
+	 * @return True if the file is a directory.
+	 */
+	public boolean isDir() {
+		return metaType == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_DIR.getValue()
+				|| metaType == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue();
+	}
+
+	/**
+	 * Indicates whether the metadata of the file is allocated.
+	 *
+	 * @return True if the metadata is allocated.
+	 */
+	public boolean isMetaAllocated() {
+		return (metaFlags & TSK_FS_META_FLAG_ENUM.ALLOC.getValue()) != 0;
+	}
+
+	/**
+	 * Gets the size of the file.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the last change time of the file.
+	 *
+	 * @return The time in seconds since the epoch.
+	 */
+	public long getCtime() {
+		return ctime;
+	}
+
+	/**
+	 * Gets the creation time of the file.
+	 *
+	 * @return The time in seconds since the epoch.
+	 */
+	public long getCrtime() {
+		return crtime;
+	}
+
+	/**
+	 * Gets the last access time of the file.
+	 *
+	 * @return The time in seconds since the epoch.
+	 */
+	public long getAtime() {
+		return atime;
+	}
+
+	/**
+	 * Gets the last modification time of the file.
+	 *
+	 * @return The time in seconds since the epoch.
+	 */
+	public long getMtime() {
+		return mtime;
+	}
+
+	@Override
+	public String toString() {
+		return "FileSummary{" + "objId=" + objId + ", name=" + name + ", size=" + size + '}'; //NON-NLS
+	}
+}
@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.datamodel;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -215,6 +216,31 @@ protected int readInt(byte[] buf, long offset, long len) throws TskCoreException
 		return SleuthkitJNI.readFile(fileHandle, buf, offset, len);
 	}
 
+	/**
+	 * Reads bytes from this file or directory into a ByteBuffer. Direct
+	 * buffers are filled by the SleuthKit without an intermediate copy.
+	 *
+	 * @param buf    Buffer to read into, starting at its position.
+	 * @param offset Start position in the file.
+	 *
+	 * @return Number of bytes read.
+	 *
+	 * @throws TskCoreException if there is a problem reading the file.
+	 */
+	@Override
+	@SuppressWarnings("deprecation")
+	protected int readInt(ByteBuffer buf, long offset) throws TskCoreException {
+		if (!buf.isDirect()) {
+			return super.readInt(buf, offset);
+		}
+		if (offset == 0 && size == 0) {
+			//special case for 0-size file
+			return 0;
+		}
+		loadFileHandle();
+		return SleuthkitJNI.readFile(fileHandle, buf, offset);
+	}
+
 	@Override
 	public boolean isRoot() {
 		try {
@@ -0,0 +1,337 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An in-memory set of the MD5 hashes in the index (.idx) file of a text hash
+ * database, such as the NSRL. The index file is memory mapped and its sorted
+ * entries are loaded into a single array of 128-bit keys, together with a
+ * table from the first 16 bits of a hash to the range of keys that start
+ * with them. A lookup is a short binary search within that range, with no
+ * native calls and no file access.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class HashSetIndex {
+
+	private static final String IDX_HEAD_PREFIX = "0000000000000000000000000000000000000000"; //NON-NLS
+	private static final int MD5_HEX_LEN = 32;
+	private static final int MD5_LEN = 16;
+	private static final int PREFIX_BITS = 16;
+	private static final int MAX_MAPPED_REGION = 1 << 30;
+
+	private final String indexPath;
+	private final long[] keys; // Each hash is two longs, high half first.
+	private final int[] prefixStarts;
+	private final int entryCount;
+	private final long loadTimeNanos;
+
+	private HashSetIndex(String indexPath, long[] keys, int entryCount, int[] prefixStarts, long loadTimeNanos) {
+		this.indexPath = indexPath;
+		this.keys = keys;
+		this.entryCount = entryCount;
+		this.prefixStarts = prefixStarts;
+		this.loadTimeNanos = loadTimeNanos;
+	}
+
+	/**
+	 * Loads the MD5 hashes in the index file of a text hash database.
+	 *
+	 * @param indexPath The path of the index file, as returned by
+	 *                  SleuthkitJNI.getHashDatabaseIndexPath.
+	 *
+	 * @return The hash set.
+	 *
+	 * @throws TskCoreException If the file cannot be read or is not an MD5
+	 *                          index file.
+	 */
+	public static HashSetIndex load(String indexPath) throws TskCoreException {
+		long startTime = System.nanoTime();
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(indexPath);
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+
+			// Skip the header lines, which start with 40 zeros, and use the
+			// first entry to find the length of the fixed length lines.
+			MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 4096));
+			long dataStart = 0;
+			int lineLength = 0;
+			boolean sawHeader = false;
+			while (head.hasRemaining()) {
+				int lineStart = head.position();
+				while (head.hasRemaining() && head.get() != '\n') {
+				}
+				int length = head.position() - lineStart;
+				if (isHeaderLine(head, lineStart, length)) {
+					sawHeader = true;
+					dataStart = head.position();
+				} else {
+					lineLength = length;
+					break;
+				}
+			}
+			if (!sawHeader) {
+				throw new TskCoreException("Not a hash database index file: " + indexPath); //NON-NLS
+			}
+			if (dataStart == size) {
+				return new HashSetIndex(indexPath, new long[0], 0, new int[(1 << PREFIX_BITS) + 1], System.nanoTime() - startTime);
+			}
+			if (lineLength <= MD5_HEX_LEN || head.get((int) dataStart + MD5_HEX_LEN) != '|') {
+				throw new TskCoreException("Not an MD5 hash database index file: " + indexPath); //NON-NLS
+			}
+
+			long lineCount = (size - dataStart) / lineLength;
+			if (lineCount > Integer.MAX_VALUE / 2) {
+				throw new TskCoreException("Hash database index file is too large to load into memory: " + indexPath); //NON-NLS
+			}
+			long[] keys = new long[(int) lineCount * 2];
+			int count = 0;
+			long linesPerRegion = MAX_MAPPED_REGION / lineLength;
+			for (long line = 0; line < lineCount; line += linesPerRegion) {
+				long regionLines = Math.min(linesPerRegion, lineCount - line);
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + line * lineLength, regionLines * lineLength);
+				for (int i = 0; i < regionLines; i++) {
+					int offset = i * lineLength;
+					long high = parseHex(region, offset);
+					long low = parseHex(region, offset + MD5_HEX_LEN / 2);
+					// The index is sorted, so repeated hashes are adjacent.
+					if (count > 0 && keys[2 * count - 2] == high && keys[2 * count - 1] == low) {
+						continue;
+					}
+					keys[2 * count] = high;
+					keys[2 * count + 1] = low;
+					count++;
+				}
+			}
+			if (count * 2 < keys.length) {
+				keys = Arrays.copyOf(keys, count * 2);
+			}
+			return new HashSetIndex(indexPath, keys, count, buildPrefixStarts(keys, count), System.nanoTime() - startTime);
+		} catch (IOException ex) {
+			throw new TskCoreException("Error loading hash database index file: " + indexPath, ex); //NON-NLS
+		} catch (NumberFormatException ex) {
+			throw new TskCoreException("Invalid entry in hash database index file: " + indexPath, ex); //NON-NLS
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException ex) {
+					// Nothing more to do, the file was only read.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether the set contains an MD5 hash.
+	 *
+	 * @param md5 The hash as 16 bytes.
+	 *
+	 * @return True if the hash is in the set.
+	 */
+	public boolean contains(byte[] md5) {
+		if (md5.length != MD5_LEN) {
+			throw new IllegalArgumentException("An MD5 hash must be 16 bytes"); //NON-NLS
+		}
+		return contains(toLong(md5, 0), toLong(md5, 8));
+	}
+
+	/**
+	 * Indicates whether the set contains an MD5 hash.
+	 *
+	 * @param md5 The hash as a hex string, in upper or lower case.
+	 *
+	 * @return True if the hash is in the set, false if it is not or the string
+	 *         is not an MD5 hash.
+	 */
+	public boolean contains(String md5) {
+		if (md5.length() != MD5_HEX_LEN) {
+			return false;
+		}
+		long high = 0;
+		long low = 0;
+		for (int i = 0; i < MD5_HEX_LEN; i++) {
+			int digit = Character.digit(md5.charAt(i), 16);
+			if (digit < 0) {
+				return false;
+			}
+			if (i < MD5_HEX_LEN / 2) {
+				high = (high << 4) | digit;
+			} else {
+				low = (low << 4) | digit;
+			}
+		}
+		return contains(high, low);
+	}
+
+	/**
+	 * Indicates which of a batch of MD5 hashes the set contains.
+	 *
+	 * @param md5s The hashes, 16 bytes each.
+	 *
+	 * @return An array with an element for each hash, true if the hash is in
+	 *         the set.
+	 */
+	public boolean[] containsAll(byte[][] md5s) {
+		boolean[] found = new boolean[md5s.length];
+		for (int i = 0; i < md5s.length; i++) {
+			found[i] = contains(md5s[i]);
+		}
+		return found;
+	}
+
+	/**
+	 * Indicates whether the set contains an MD5 hash.
+	 *
+	 * @param high The first 8 bytes of the hash, big-endian.
+	 * @param low  The last 8 bytes of the hash, big-endian.
+	 *
+	 * @return True if the hash is in the set.
+	 */
+	public boolean contains(long high, long low) {
+		int prefix = (int) (high >>> (64 - PREFIX_BITS));
+		int start = prefixStarts[prefix];
+		int end = prefixStarts[prefix + 1] - 1;
+		while (start <= end) {
+			int mid = (start + end) >>> 1;
+			int cmp = compare(keys[2 * mid], keys[2 * mid + 1], high, low);
+			if (cmp < 0) {
+				start = mid + 1;
+			} else if (cmp > 0) {
+				end = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the path of the index file the set was loaded from.
+	 *
+	 * @return The path.
+	 */
+	public String getIndexPath() {
+		return indexPath;
+	}
+
+	/**
+	 * Gets the number of distinct hashes in the set.
+	 *
+	 * @return The number of hashes.
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Gets the approximate amount of heap memory used by the set.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long getMemoryFootprint() {
+		return (long) keys.length * 8 + (long) prefixStarts.length * 4;
+	}
+
+	/**
+	 * Gets the time it took to load the set from the index file.
+	 *
+	 * @return The load time in milliseconds.
+	 */
+	public long getLoadTimeMillis() {
+		return loadTimeNanos / 1000000;
+	}
+
+	@Override
+	public String toString() {
+		return "HashSetIndex{" + "indexPath=" + indexPath + ", entries=" + entryCount + ", memoryFootprint=" + getMemoryFootprint() + ", loadTimeMillis=" + getLoadTimeMillis() + '}'; //NON-NLS
+	}
+
+	private static boolean isHeaderLine(MappedByteBuffer buffer, int lineStart, int length) {
+		if (length <= IDX_HEAD_PREFIX.length()) {
+			return false;
+		}
+		for (int i = 0; i < IDX_HEAD_PREFIX.length(); i++) {
+			if (buffer.get(lineStart + i) != IDX_HEAD_PREFIX.charAt(i)) {
+				return false;
+			}
+		}
+		return buffer.get(lineStart + IDX_HEAD_PREFIX.length() + 1) == '|';
+	}
+
+	private static long parseHex(MappedByteBuffer buffer, int offset) {
+		long value = 0;
+		for (int i = 0; i < MD5_HEX_LEN / 2; i++) {
+			int digit = Character.digit(buffer.get(offset + i), 16);
+			if (digit < 0) {
+				throw new NumberFormatException("Invalid hex digit at offset " + (offset + i)); //NON-NLS
+			}
+			value = (value << 4) | digit;
+		}
+		return value;
+	}
+
+	private static long toLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Compares two 128-bit keys as unsigned numbers, which is the order of
+	 * the hex strings in the index file.
+	 */
+	private static int compare(long high1, long low1, long high2, long low2) {
+		if (high1 != high2) {
+			return (high1 + Long.MIN_VALUE) < (high2 + Long.MIN_VALUE) ? -1 : 1;
+		}
+		if (low1 != low2) {
+			return (low1 + Long.MIN_VALUE) < (low2 + Long.MIN_VALUE) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Builds the table from the first bits of a hash to the position of the
+	 * first key with those bits. Keys with prefix p are at positions
+	 * prefixStarts[p] to prefixStarts[p + 1] - 1.
+	 */
+	private static int[] buildPrefixStarts(long[] keys, int count) {
+		int[] prefixStarts = new int[(1 << PREFIX_BITS) + 1];
+		int key = 0;
+		for (int prefix = 0; prefix < (1 << PREFIX_BITS); prefix++) {
+			prefixStarts[prefix] = key;
+			while (key < count && (int) (keys[2 * key] >>> (64 - PREFIX_BITS)) == prefix) {
+				key++;
+			}
+		}
+		prefixStarts[1 << PREFIX_BITS] = count;
+		return prefixStarts;
+	}
+}
@@ -35,7 +35,8 @@ public class HashUtility {
 
 	/**
 	 * Calculate the MD5 hash for the given FsContent and store it in the
-	 * database
+	 * database. To hash many files, use HashingService, which hashes files in
+	 * parallel and stores the hashes in batches.
 	 *
 	 * @param file file object whose md5 hash we want to calculate
 	 *
@@ -53,13 +54,7 @@ static public String calculateMd5(AbstractFile file) throws IOException {
 				md.update(buffer, 0, len);
 				len = in.read(buffer);
 			}
-			byte[] hash = md.digest();
-			BigInteger bigInt = new BigInteger(1, hash);
-			hashText = bigInt.toString(16);
-			// zero padding
-			while (hashText.length() < 32) {
-				hashText = "0" + hashText;
-			}
+			hashText = toHexString(md.digest());
 			file.getSleuthkitCase().setMd5Hash(file, hashText);
 		} catch (NoSuchAlgorithmException ex) {
 			logger.log(Level.WARNING, "No algorithm known as 'md5'", ex); //NON-NLS
@@ -71,6 +66,23 @@ static public String calculateMd5(AbstractFile file) throws IOException {
 		return hashText;
 	}
 
+	/**
+	 * Converts a hash to a lowercase hex string, zero padded to two characters
+	 * per byte.
+	 *
+	 * @param hash The hash.
+	 *
+	 * @return The hex string.
+	 */
+	static String toHexString(byte[] hash) {
+		String hashText = new BigInteger(1, hash).toString(16);
+		StringBuilder padding = new StringBuilder();
+		for (int i = hashText.length(); i < hash.length * 2; i++) {
+			padding.append('0');
+		}
+		return padding.append(hashText).toString();
+	}
+
 	/**
 	 * Determine if the passed in Hash value is that for no data (i.e. an empty
 	 * file). Looking these values up or correlating on them causes lots of
@@ -0,0 +1,502 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashes files on a pool of worker threads. Each file is read once and its
+ * MD5, SHA-1 and SHA-256 hashes are computed in the same pass, using a large
+ * read buffer owned by the worker thread. The MD5 hashes are stored in the
+ * case database in batches rather than with one UPDATE per file; a batch is
+ * stored when it is full or when the worker threads have no more queued
+ * files.
+ *
+ * Typical use:
+ *
+ * <pre>
+ * HashingService hashingService = new HashingService(caseDb, Runtime.getRuntime().availableProcessors());
+ * hashingService.submitAll(files);
+ * hashingService.shutdown();
+ * </pre>
+ *
+ * This class is thread-safe.
+ */
+public final class HashingService {
+
+	/**
+	 * The default size of the read buffer of each worker thread.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The default number of MD5 hashes stored per database update.
+	 */
+	public static final int DEFAULT_UPDATE_BATCH_SIZE = 500;
+
+	private static final Logger logger = Logger.getLogger(HashingService.class.getName());
+	private static final AtomicInteger serviceCount = new AtomicInteger();
+	private final SleuthkitCase caseDb;
+	private final ExecutorService executor;
+	private final int updateBatchSize;
+	private final ThreadLocal<Hasher> hashers;
+	private final List<HashFuture> pendingUpdates = new ArrayList<HashFuture>();
+	private final AtomicInteger filesInFlight = new AtomicInteger();
+	private final AtomicLong filesSubmitted = new AtomicLong();
+	private final AtomicLong filesHashed = new AtomicLong();
+	private final AtomicLong filesFailed = new AtomicLong();
+	private final AtomicLong bytesHashed = new AtomicLong();
+	private final AtomicLong startTime = new AtomicLong();
+
+	/**
+	 * Constructs a hashing service with the default buffer size and update
+	 * batch size.
+	 *
+	 * @param caseDb      The case database to store the MD5 hashes in.
+	 * @param threadCount The number of worker threads.
+	 */
+	public HashingService(SleuthkitCase caseDb, int threadCount) {
+		this(caseDb, threadCount, DEFAULT_BUFFER_SIZE, DEFAULT_UPDATE_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructs a hashing service.
+	 *
+	 * @param caseDb          The case database to store the MD5 hashes in.
+	 * @param threadCount     The number of worker threads.
+	 * @param bufferSize      The size of the read buffer of each worker
+	 *                        thread.
+	 * @param updateBatchSize The number of MD5 hashes stored per database
+	 *                        update.
+	 */
+	public HashingService(SleuthkitCase caseDb, int threadCount, final int bufferSize, int updateBatchSize) {
+		if (threadCount <= 0 || bufferSize <= 0 || updateBatchSize <= 0) {
+			throw new IllegalArgumentException("threadCount, bufferSize and updateBatchSize must be positive"); //NON-NLS
+		}
+		this.caseDb = caseDb;
+		this.updateBatchSize = updateBatchSize;
+		this.hashers = new ThreadLocal<Hasher>() {
+			@Override
+			protected Hasher initialValue() {
+				return new Hasher(bufferSize);
+			}
+		};
+		final int serviceNumber = serviceCount.incrementAndGet();
+		this.executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				return new Thread(runnable, "HashingService-" + serviceNumber + "-" + threadCount.incrementAndGet()); //NON-NLS
+			}
+		});
+	}
+
+	/**
+	 * Queues a file to be hashed.
+	 *
+	 * @param file The file.
+	 *
+	 * @return A future for the hashes of the file, which completes once the
+	 *         MD5 hash has been stored in the case database, at the latest
+	 *         when the worker threads have no more queued files. If the file
+	 *         cannot be read or the hash cannot be stored, the future throws
+	 *         an ExecutionException whose cause is the TskCoreException thrown
+	 *         by the read or the database update.
+	 */
+	public Future<HashResult> submit(final AbstractFile file) {
+		startTime.compareAndSet(0, System.nanoTime());
+		filesSubmitted.incrementAndGet();
+		HashFuture future = new HashFuture();
+		filesInFlight.incrementAndGet();
+		try {
+			executor.execute(new HashTask(file, future));
+		} catch (RejectedExecutionException ex) {
+			filesInFlight.decrementAndGet();
+			throw ex;
+		}
+		return future;
+	}
+
+	/**
+	 * Queues files to be hashed.
+	 *
+	 * @param files The files.
+	 *
+	 * @return Futures for the hashes of the files, in the same order as the
+	 *         files.
+	 */
+	public List<Future<HashResult>> submitAll(Collection<? extends AbstractFile> files) {
+		List<Future<HashResult>> futures = new ArrayList<Future<HashResult>>(files.size());
+		for (AbstractFile file : files) {
+			futures.add(submit(file));
+		}
+		return futures;
+	}
+
+	/**
+	 * Stores the MD5 hashes computed since the last database update and
+	 * completes the futures of their files.
+	 *
+	 * @throws TskCoreException If there is a problem updating the case
+	 *                          database.
+	 */
+	public void flush() throws TskCoreException {
+		List<HashFuture> updates;
+		synchronized (pendingUpdates) {
+			updates = new ArrayList<HashFuture>(pendingUpdates);
+			pendingUpdates.clear();
+		}
+		store(updates);
+	}
+
+	/**
+	 * Waits for the queued files to be hashed, stores the remaining MD5 hashes
+	 * and stops the worker threads. No files can be submitted afterwards.
+	 *
+	 * @throws InterruptedException If the calling thread is interrupted while
+	 *                              waiting.
+	 * @throws TskCoreException     If there is a problem updating the case
+	 *                              database.
+	 */
+	public void shutdown() throws InterruptedException, TskCoreException {
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+			// Keep waiting; hashing large files can take a long time.
+		}
+		flush();
+	}
+
+	/**
+	 * Stops the worker threads without waiting for the queued files and
+	 * discards the MD5 hashes that have not been stored yet. The futures of
+	 * the files that were not stored are cancelled.
+	 */
+	public void shutdownNow() {
+		for (Runnable task : executor.shutdownNow()) {
+			((HashTask) task).future.cancel(false);
+		}
+		synchronized (pendingUpdates) {
+			for (HashFuture future : pendingUpdates) {
+				future.cancel(false);
+			}
+			pendingUpdates.clear();
+		}
+	}
+
+	/**
+	 * Gets the number of files submitted so far.
+	 *
+	 * @return The number of files.
+	 */
+	public long getFilesSubmitted() {
+		return filesSubmitted.get();
+	}
+
+	/**
+	 * Gets the number of files hashed so far.
+	 *
+	 * @return The number of files.
+	 */
+	public long getFilesHashed() {
+		return filesHashed.get();
+	}
+
+	/**
+	 * Gets the number of files that could not be hashed, or whose MD5 hash
+	 * could not be stored.
+	 *
+	 * @return The number of files.
+	 */
+	public long getFilesFailed() {
+		return filesFailed.get();
+	}
+
+	/**
+	 * Gets the number of bytes hashed so far.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getBytesHashed() {
+		return bytesHashed.get();
+	}
+
+	/**
+	 * Gets the average number of bytes hashed per second since the first file
+	 * was submitted.
+	 *
+	 * @return The throughput in bytes per second, or zero if no file has been
+	 *         submitted.
+	 */
+	public double getBytesPerSecond() {
+		long start = startTime.get();
+		if (start == 0) {
+			return 0;
+		}
+		long elapsed = System.nanoTime() - start;
+		return elapsed > 0 ? bytesHashed.get() * 1e9 / elapsed : 0;
+	}
+
+	private void hash(AbstractFile file, HashFuture future) {
+		if (future.isDone()) {
+			return;
+		}
+		try {
+			future.result = hashers.get().hash(file);
+		} catch (Exception ex) {
+			filesFailed.incrementAndGet();
+			future.failed(ex);
+			return;
+		}
+		filesHashed.incrementAndGet();
+		queueUpdate(future);
+	}
+
+	/**
+	 * Called when a worker thread is done with a file. Stores the MD5 hashes
+	 * waiting for a full batch if no other file is queued or being hashed, so
+	 * that their futures do not wait for files that may never be submitted.
+	 */
+	private void fileDone() {
+		if (filesInFlight.decrementAndGet() == 0) {
+			try {
+				flush();
+			} catch (TskCoreException ex) {
+				// The futures of the files carry the error.
+				logger.log(Level.WARNING, "Error updating content's md5 in database", ex); //NON-NLS
+			}
+		}
+	}
+
+	private void queueUpdate(HashFuture future) {
+		List<HashFuture> updates = null;
+		synchronized (pendingUpdates) {
+			pendingUpdates.add(future);
+			if (pendingUpdates.size() >= updateBatchSize) {
+				updates = new ArrayList<HashFuture>(pendingUpdates);
+				pendingUpdates.clear();
+			}
+		}
+		if (updates != null) {
+			try {
+				store(updates);
+			} catch (TskCoreException ex) {
+				// The futures of the files carry the error.
+				logger.log(Level.WARNING, "Error updating content's md5 in database", ex); //NON-NLS
+			}
+		}
+	}
+
+	/**
+	 * Stores the MD5 hashes of a batch of hashed files and completes their
+	 * futures, with the error if the update fails.
+	 *
+	 * @param updates The futures of the files.
+	 *
+	 * @throws TskCoreException If there is a problem updating the case
+	 *                          database.
+	 */
+	private void store(List<HashFuture> updates) throws TskCoreException {
+		Map<AbstractFile, String> md5Hashes = new LinkedHashMap<AbstractFile, String>();
+		for (HashFuture future : updates) {
+			md5Hashes.put(future.result.getFile(), future.result.getMd5());
+		}
+		try {
+			caseDb.setMd5Hashes(md5Hashes);
+		} catch (TskCoreException ex) {
+			filesFailed.addAndGet(updates.size());
+			for (HashFuture future : updates) {
+				future.failed(ex);
+			}
+			throw ex;
+		}
+		for (HashFuture future : updates) {
+			future.stored();
+		}
+	}
+
+	/**
+	 * The task that hashes a submitted file on a worker thread.
+	 */
+	private final class HashTask implements Runnable {
+
+		private final AbstractFile file;
+		private final HashFuture future;
+
+		HashTask(AbstractFile file, HashFuture future) {
+			this.file = file;
+			this.future = future;
+		}
+
+		@Override
+		public void run() {
+			try {
+				hash(file, future);
+			} finally {
+				fileDone();
+			}
+		}
+	}
+
+	/**
+	 * The future of a submitted file, completed by the service once the MD5
+	 * hash of the file has been stored, or the file could not be hashed. A
+	 * file whose future is cancelled before it is hashed is skipped.
+	 */
+	private static final class HashFuture extends FutureTask<HashResult> {
+
+		private static final Callable<HashResult> NO_TASK = new Callable<HashResult>() {
+			@Override
+			public HashResult call() {
+				throw new IllegalStateException("HashFuture is completed by the HashingService"); //NON-NLS
+			}
+		};
+		private volatile HashResult result;
+
+		HashFuture() {
+			super(NO_TASK);
+		}
+
+		void stored() {
+			set(result);
+		}
+
+		void failed(Throwable error) {
+			setException(error);
+		}
+	}
+
+	/**
+	 * The read buffer and message digests of one worker thread.
+	 */
+	private final class Hasher {
+
+		private final byte[] buffer;
+		private final MessageDigest md5;
+		private final MessageDigest sha1;
+		private final MessageDigest sha256;
+
+		Hasher(int bufferSize) {
+			buffer = new byte[bufferSize];
+			try {
+				md5 = MessageDigest.getInstance("MD5"); //NON-NLS
+				sha1 = MessageDigest.getInstance("SHA-1"); //NON-NLS
+				sha256 = MessageDigest.getInstance("SHA-256"); //NON-NLS
+			} catch (NoSuchAlgorithmException ex) {
+				// Every Java platform is required to support these algorithms.
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		HashResult hash(AbstractFile file) throws TskCoreException {
+			md5.reset();
+			sha1.reset();
+			sha256.reset();
+			long size = file.getSize();
+			long offset = 0;
+			while (offset < size) {
+				int bytesRead = file.read(buffer, offset, Math.min(buffer.length, size - offset));
+				if (bytesRead <= 0) {
+					// Hashing what was read would store a wrong hash.
+					throw new TskCoreException(String.format("Read of file %s (id %d) stopped at offset %d of %d", //NON-NLS
+							file.getName(), file.getId(), offset, size));
+				}
+				md5.update(buffer, 0, bytesRead);
+				sha1.update(buffer, 0, bytesRead);
+				sha256.update(buffer, 0, bytesRead);
+				offset += bytesRead;
+				bytesHashed.addAndGet(bytesRead);
+			}
+			return new HashResult(file, HashUtility.toHexString(md5.digest()),
+					HashUtility.toHexString(sha1.digest()), HashUtility.toHexString(sha256.digest()));
+		}
+	}
+
+	/**
+	 * The hashes of a file.
+	 */
+	public static final class HashResult {
+
+		private final AbstractFile file;
+		private final String md5;
+		private final String sha1;
+		private final String sha256;
+
+		private HashResult(AbstractFile file, String md5, String sha1, String sha256) {
+			this.file = file;
+			this.md5 = md5;
+			this.sha1 = sha1;
+			this.sha256 = sha256;
+		}
+
+		/**
+		 * Gets the hashed file.
+		 *
+		 * @return The file.
+		 */
+		public AbstractFile getFile() {
+			return file;
+		}
+
+		/**
+		 * Gets the MD5 hash of the file.
+		 *
+		 * @return The hash as a lowercase hex string.
+		 */
+		public String getMd5() {
+			return md5;
+		}
+
+		/**
+		 * Gets the SHA-1 hash of the file.
+		 *
+		 * @return The hash as a lowercase hex string.
+		 */
+		public String getSha1() {
+			return sha1;
+		}
+
+		/**
+		 * Gets the SHA-256 hash of the file.
+		 *
+		 * @return The hash as a lowercase hex string.
+		 */
+		public String getSha256() {
+			return sha256;
+		}
+	}
+}
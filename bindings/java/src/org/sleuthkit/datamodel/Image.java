@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.datamodel;
 
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.ResourceBundle;
 import java.util.ArrayList;
@@ -103,6 +104,35 @@ public synchronized long getImageHandle() throws TskCoreException {
 		return imageHandle;
 	}
 
+	/**
+	 * Sets the size of the read cache the SleuthKit keeps for this image.
+	 * More or larger entries help when many threads read different parts of
+	 * the image at the same time. Cached data is discarded.
+	 *
+	 * @param cacheEntries   The number of read cache entries.
+	 * @param cacheEntrySize The size of each read cache entry in bytes, a
+	 *                       multiple of 512. Reads larger than this bypass the
+	 *                       cache.
+	 *
+	 * @throws TskCoreException If the cache size is invalid or the cache
+	 *                          cannot be allocated.
+	 */
+	public void setCacheSize(int cacheEntries, int cacheEntrySize) throws TskCoreException {
+		SleuthkitJNI.setImageCacheSize(getImageHandle(), cacheEntries, cacheEntrySize);
+	}
+
+	/**
+	 * Gets the configuration and hit and miss counts of the read cache the
+	 * SleuthKit keeps for this image.
+	 *
+	 * @return The cache statistics.
+	 *
+	 * @throws TskCoreException If there is a problem getting the statistics.
+	 */
+	public ImageCacheStats getCacheStats() throws TskCoreException {
+		return SleuthkitJNI.getImageCacheStats(getImageHandle());
+	}
+
 	@Override
 	public Content getDataSource() {
 		return this;
@@ -131,6 +161,14 @@ public int read(byte[] buf, long offset, long len) throws TskCoreException {
 		return SleuthkitJNI.readImg(getImageHandle(), buf, offset, len);
 	}
 
+	@Override
+	public int read(ByteBuffer buf, long offset) throws TskCoreException {
+		if (!buf.isDirect()) {
+			return super.read(buf, offset);
+		}
+		return SleuthkitJNI.readImg(getImageHandle(), buf, offset);
+	}
+
 	@Override
 	public long getSize() {
 		if (size == 0) {
@@ -0,0 +1,91 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * A snapshot of the configuration and hit and miss counts of the read cache
+ * the SleuthKit keeps for an open image.
+ */
+public final class ImageCacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final int entryCount;
+	private final int entrySize;
+
+	ImageCacheStats(long hitCount, long missCount, int entryCount, int entrySize) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.entryCount = entryCount;
+		this.entrySize = entrySize;
+	}
+
+	/**
+	 * Gets the number of reads served from the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Gets the number of reads that had to load data from the image into the
+	 * cache.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Gets the fraction of cache lookups that were hits.
+	 *
+	 * @return The hit ratio, between 0 and 1, or 0 if the cache has not been
+	 *         used.
+	 */
+	public double getHitRatio() {
+		long lookups = hitCount + missCount;
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Gets the number of entries in the cache.
+	 *
+	 * @return The number of entries.
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Gets the size of each cache entry.
+	 *
+	 * @return The entry size in bytes.
+	 */
+	public int getEntrySize() {
+		return entrySize;
+	}
+
+	@Override
+	public String toString() {
+		return "ImageCacheStats{" + "hits=" + hitCount + ", misses=" + missCount + ", entries=" + entryCount + ", entrySize=" + entrySize + '}'; //NON-NLS
+	}
+}
@@ -18,6 +18,8 @@
  */
 package org.sleuthkit.datamodel;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.sleuthkit.datamodel.TskData.FileKnown;
@@ -43,6 +45,13 @@
 public class LayoutFile extends AbstractFile {
 
 	private long imageHandle = -1;
+	private volatile RangeIndex rangeIndex;
+	private final Object readAheadLock = new Object();
+	private int readAheadSize;
+	private byte[] readAheadBuffer;
+	private long readAheadStart;
+	private int readAheadLength;
+	private long nextSequentialOffset = -1;
 
 	/**
 	 * Constructs a representation of a layout file that has been added to a
@@ -125,6 +134,40 @@ public boolean isRoot() {
 	public void close() {
 	}
 
+	/**
+	 * Sets the size of the read-ahead buffer of this file. When read-ahead is
+	 * enabled, a sequential read smaller than the buffer fills the whole buffer
+	 * with one read per run of image-contiguous layout ranges, and the
+	 * following sequential reads are served from the buffer. This reduces the
+	 * number of native image reads when a fragmented file is streamed in small
+	 * chunks. Read-ahead is disabled by default.
+	 *
+	 * @param size The size of the read-ahead buffer in bytes, or zero to
+	 *             disable read-ahead.
+	 */
+	public void setReadAheadSize(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative"); //NON-NLS
+		}
+		synchronized (readAheadLock) {
+			readAheadSize = size;
+			readAheadBuffer = null;
+			readAheadLength = 0;
+		}
+	}
+
+	/**
+	 * Gets the size of the read-ahead buffer of this file.
+	 *
+	 * @return The size of the read-ahead buffer in bytes, zero if read-ahead is
+	 *         disabled.
+	 */
+	public int getReadAheadSize() {
+		synchronized (readAheadLock) {
+			return readAheadSize;
+		}
+	}
+
 	/**
 	 * Reads bytes from the layout ranges associated with this file.
 	 *
@@ -138,9 +181,6 @@ public void close() {
 	 */
 	@Override
 	protected int readInt(byte[] buf, long offset, long len) throws TskCoreException {
-		long offsetInThisLayoutContent = 0; // current offset in this LayoutContent
-		int bytesRead = 0; // Bytes read so far
-
 		if (imageHandle == -1) {
 			Content dataSource = getDataSource();
 			if ((dataSource != null) && (dataSource instanceof Image)) {
@@ -151,23 +191,44 @@ protected int readInt(byte[] buf, long offset, long len) throws TskCoreException
 			}
 		}
 
-		for (TskFileRange range : getRanges()) {
-			if (bytesRead < len) { // we haven't read enough yet
-				if (offset < offsetInThisLayoutContent + range.getByteLen()) { // if we are in a range object we want to read from
-					long offsetInRange = 0; // how far into the current range object to start reading
-					if (bytesRead == 0) { // we haven't read anything yet so we want to read from the correct offset in this range object
-						offsetInRange = offset - offsetInThisLayoutContent; // start reading from the correct offset
-					}
-					long offsetInImage = range.getByteStart() + offsetInRange; // how far into the image to start reading
-					long lenToRead = Math.min(range.getByteLen() - offsetInRange, len - bytesRead); // how much we can read this time
-					int lenRead = readImgToOffset(imageHandle, buf, bytesRead, offsetInImage, (int) lenToRead);
-					bytesRead += lenRead;
-					if (lenToRead != lenRead) { // If image read failed or was cut short
-						break;
-					}
-				}
-				offsetInThisLayoutContent += range.getByteLen();
-			} else { // we're done reading
+		int lenToRead = (int) Math.min(len, buf.length);
+		synchronized (readAheadLock) {
+			if (readAheadSize > 0 && lenToRead < readAheadSize
+					&& (offset == nextSequentialOffset || isInReadAheadBuffer(offset))) {
+				return readFromReadAheadBuffer(buf, offset, lenToRead);
+			}
+			nextSequentialOffset = offset + lenToRead;
+		}
+		return readRanges(buf, 0, offset, lenToRead);
+	}
+
+	/**
+	 * Reads bytes from the layout ranges associated with this file directly
+	 * into a buffer, starting at a given position in the buffer.
+	 *
+	 * @param buf         The array to read into.
+	 * @param offsetInBuf Where to start in the array.
+	 * @param offset      Start position in the file.
+	 * @param len         Number of bytes to read.
+	 *
+	 * @return Number of bytes read.
+	 *
+	 * @throws TskCoreException if there is a problem reading the file.
+	 */
+	private int readRanges(byte[] buf, int offsetInBuf, long offset, int len) throws TskCoreException {
+		RangeIndex index = getRangeIndex();
+		int bytesRead = 0;
+		for (int i = index.find(offset); i >= 0 && i < index.size() && bytesRead < len; i++) {
+			long offsetInRange = offset + bytesRead - index.fileOffsets[i];
+			long lenToRead = Math.min(index.lengths[i] - offsetInRange, len - bytesRead);
+			if (lenToRead <= 0) {
+				break;
+			}
+			int lenRead = SleuthkitJNI.readImg(imageHandle, buf, offsetInBuf + bytesRead, index.imageOffsets[i] + offsetInRange, lenToRead);
+			if (lenRead > 0) {
+				bytesRead += lenRead;
+			}
+			if (lenToRead != lenRead) { // If image read failed or was cut short
 				break;
 			}
 		}
@@ -175,26 +236,127 @@ protected int readInt(byte[] buf, long offset, long len) throws TskCoreException
 	}
 
 	/**
-	 * Reads bytes from an image into a buffer, starting at given position in
-	 * buffer.
+	 * Indicates whether the byte at the given offset is in the read-ahead
+	 * buffer. Must be called while holding the read-ahead lock.
 	 *
-	 * @param imgHandle	    The image to read from.
-	 * @param buf	          The array to read into.
-	 * @param offsetInBuf	  Where to start in the array.
-	 * @param offsetInImage	Where to start in the image.
-	 * @param lenToRead	    How far to read in the image.
+	 * @param offset Position in the file.
 	 *
-	 * @return the number of characters read, or -1 if the end of the stream has
-	 *         been reached
+	 * @return True if the byte is buffered.
+	 */
+	private boolean isInReadAheadBuffer(long offset) {
+		return readAheadBuffer != null && offset >= readAheadStart && offset < readAheadStart + readAheadLength;
+	}
+
+	/**
+	 * Reads bytes through the read-ahead buffer, refilling it from the layout
+	 * ranges as needed. Must be called while holding the read-ahead lock.
 	 *
-	 * @throws TskCoreException exception thrown if critical error occurs within
-	 *                          TSK
+	 * @param buf    Buffer to read into.
+	 * @param offset Start position in the file.
+	 * @param len    Number of bytes to read, less than the read-ahead size.
+	 *
+	 * @return Number of bytes read.
+	 *
+	 * @throws TskCoreException if there is a problem reading the file.
+	 */
+	private int readFromReadAheadBuffer(byte[] buf, long offset, int len) throws TskCoreException {
+		int bytesRead = 0;
+		while (bytesRead < len) {
+			long position = offset + bytesRead;
+			if (!isInReadAheadBuffer(position)) {
+				if (readAheadBuffer == null) {
+					readAheadBuffer = new byte[readAheadSize];
+				}
+				int lenToFill = (int) Math.min(readAheadBuffer.length, Math.max(0, getSize() - position));
+				readAheadStart = position;
+				readAheadLength = 0;
+				readAheadLength = readRanges(readAheadBuffer, 0, position, lenToFill);
+				if (readAheadLength <= 0) {
+					break;
+				}
+			}
+			int lenToCopy = (int) Math.min(len - bytesRead, readAheadStart + readAheadLength - position);
+			System.arraycopy(readAheadBuffer, (int) (position - readAheadStart), buf, bytesRead, lenToCopy);
+			bytesRead += lenToCopy;
+		}
+		nextSequentialOffset = offset + bytesRead;
+		return bytesRead;
+	}
+
+	/**
+	 * Gets the index of the layout ranges of this file, building it on first
+	 * use.
+	 *
+	 * @return The range index.
+	 *
+	 * @throws TskCoreException if there is a problem getting the ranges.
+	 */
+	private RangeIndex getRangeIndex() throws TskCoreException {
+		RangeIndex index = rangeIndex;
+		if (index == null) {
+			index = new RangeIndex(getRanges());
+			rangeIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * The layout ranges of a file, with consecutive ranges that are also
+	 * contiguous in the image merged into one extent, so that the extent
+	 * containing a file offset can be found with a binary search and read with
+	 * a single image read.
 	 */
-	private int readImgToOffset(long imgHandle, byte[] buf, int offsetInBuf, long offsetInImage, int lenToRead) throws TskCoreException {
-		byte[] currentBuffer = new byte[lenToRead]; // the buffer for the current range object
-		int lenRead = SleuthkitJNI.readImg(imgHandle, currentBuffer, offsetInImage, lenToRead);
-		System.arraycopy(currentBuffer, 0, buf, offsetInBuf, lenToRead); // copy what we just read into the main buffer
-		return lenRead;
+	private static final class RangeIndex {
+
+		private final long[] fileOffsets;
+		private final long[] imageOffsets;
+		private final long[] lengths;
+		private final int size;
+
+		RangeIndex(List<TskFileRange> ranges) {
+			fileOffsets = new long[ranges.size()];
+			imageOffsets = new long[ranges.size()];
+			lengths = new long[ranges.size()];
+			int count = 0;
+			long fileOffset = 0;
+			for (TskFileRange range : ranges) {
+				if (range.getByteLen() <= 0) {
+					continue;
+				}
+				if (count > 0 && imageOffsets[count - 1] + lengths[count - 1] == range.getByteStart()) {
+					lengths[count - 1] += range.getByteLen();
+				} else {
+					fileOffsets[count] = fileOffset;
+					imageOffsets[count] = range.getByteStart();
+					lengths[count] = range.getByteLen();
+					count++;
+				}
+				fileOffset += range.getByteLen();
+			}
+			size = count;
+		}
+
+		/**
+		 * Gets the number of extents in the index.
+		 *
+		 * @return The number of extents.
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Finds the extent containing a file offset.
+		 *
+		 * @param offset Position in the file.
+		 *
+		 * @return The position of the extent in the index, or -1 if the offset
+		 *         precedes the first extent.
+		 */
+		int find(long offset) {
+			int i = Arrays.binarySearch(fileOffsets, 0, size, offset);
+			return i >= 0 ? i : -i - 2;
+		}
 	}
 
 	/**
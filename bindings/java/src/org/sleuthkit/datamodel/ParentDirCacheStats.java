@@ -0,0 +1,105 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * A snapshot of the hit and miss counts of the cache the SleuthKit uses to
+ * find the object id of the parent directory of each file it adds to the case
+ * database. Lookups that miss the cache query the case database instead.
+ */
+public final class ParentDirCacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long entryCount;
+	private final long capacity;
+	private final long resetCount;
+
+	ParentDirCacheStats(long hitCount, long missCount, long entryCount, long capacity, long resetCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.entryCount = entryCount;
+		this.capacity = capacity;
+		this.resetCount = resetCount;
+	}
+
+	/**
+	 * Gets the number of parent directories found in the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Gets the number of parent directories that had to be looked up in the
+	 * case database.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Gets the fraction of cache lookups that were hits.
+	 *
+	 * @return The hit ratio, between 0 and 1, or 0 if the cache has not been
+	 *         used.
+	 */
+	public double getHitRatio() {
+		long lookups = hitCount + missCount;
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Gets the number of directories in the cache.
+	 *
+	 * @return The number of entries.
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Gets the number of slots allocated for the cache. Each slot takes 32
+	 * bytes and at most three quarters of the slots are used.
+	 *
+	 * @return The number of slots.
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of times the cache was emptied because it had reached
+	 * its maximum size.
+	 *
+	 * @return The reset count.
+	 */
+	public long getResetCount() {
+		return resetCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ParentDirCacheStats{" + "hits=" + hitCount + ", misses=" + missCount + ", entries=" + entryCount + ", capacity=" + capacity + ", resets=" + resetCount + '}'; //NON-NLS
+	}
+}
@@ -24,25 +24,70 @@
 import java.util.logging.Logger;
 
 /**
- * InputStream to read bytes from a Content object's data
+ * InputStream to read bytes from a Content object's data. Small reads are
+ * served from an internal buffer. The buffer is refilled with a read-ahead
+ * window that starts small and doubles each time the stream is read
+ * sequentially past the end of the buffer, up to a maximum size, so that
+ * reading a byte or a few bytes at a time does not cost one native read per
+ * call. Seeking elsewhere shrinks the window back to its initial size. The
+ * stream supports mark and reset, which, like skip and seek, only move the
+ * current position.
  */
 public class ReadContentInputStream extends InputStream {
 
+	/**
+	 * The initial size of the read-ahead window.
+	 */
+	public static final int MIN_READ_AHEAD_SIZE = 8 * 1024;
+
+	/**
+	 * The default maximum size of the read-ahead window.
+	 */
+	public static final int DEFAULT_MAX_READ_AHEAD_SIZE = 1024 * 1024;
+
 	private long currentOffset;
 	private long contentSize;
 	private Content content;
+	private final int maxReadAheadSize;
+	private int readAheadSize = MIN_READ_AHEAD_SIZE;
+	private byte[] buffer;
+	private long bufferStart;
+	private int bufferLength;
+	private long markOffset;
 	private static final Logger logger = Logger.getLogger(ReadContentInputStream.class.getName());
 
 	public ReadContentInputStream(Content content) {
+		this(content, DEFAULT_MAX_READ_AHEAD_SIZE);
+	}
+
+	/**
+	 * Constructs a stream over a Content object's data with a given maximum
+	 * read-ahead window.
+	 *
+	 * @param content          The content to read.
+	 * @param maxReadAheadSize The maximum size of the read-ahead window in
+	 *                         bytes. Reads at least this large bypass the
+	 *                         internal buffer.
+	 */
+	public ReadContentInputStream(Content content, int maxReadAheadSize) {
+		if (maxReadAheadSize <= 0) {
+			throw new IllegalArgumentException("maxReadAheadSize must be positive"); //NON-NLS
+		}
 		this.content = content;
 		this.currentOffset = 0;
 		this.contentSize = content.getSize();
+		this.maxReadAheadSize = Math.max(maxReadAheadSize, MIN_READ_AHEAD_SIZE);
 	}
 
 	@Override
 	public int read() throws IOException {
-		byte[] buff = new byte[1];
-		return (read(buff) != -1) ? buff[0] : -1;
+		if (currentOffset >= contentSize) {
+			return -1;
+		}
+		if (!isBuffered(currentOffset) && fillBuffer() <= 0) {
+			return -1;
+		}
+		return buffer[(int) (currentOffset++ - bufferStart)] & 0xFF;
 	}
 
 	@Override
@@ -80,6 +125,34 @@ public int read(byte[] b, int off, int len) throws IOException {
 		// is the buffer big enough?
 		lenToRead = Math.min(lenToRead, buffLen - off);
 
+		if (!isBuffered(currentOffset)) {
+			if (lenToRead >= readAheadSize) {
+				//large read, bypass the read-ahead buffer
+				return readDirect(b, off, lenToRead);
+			}
+			if (fillBuffer() <= 0) {
+				return -1;
+			}
+		}
+		int lenToCopy = (int) Math.min(lenToRead, bufferStart + bufferLength - currentOffset);
+		System.arraycopy(buffer, (int) (currentOffset - bufferStart), b, off, lenToCopy);
+		currentOffset += lenToCopy;
+		return lenToCopy;
+	}
+
+	/**
+	 * Reads from the content into a user buffer without going through the
+	 * read-ahead buffer.
+	 *
+	 * @param b         The user buffer.
+	 * @param off       Where to start in the user buffer.
+	 * @param lenToRead How many bytes to read.
+	 *
+	 * @return The number of bytes read, or -1 at EOF.
+	 *
+	 * @throws IOException If there is an error reading the content.
+	 */
+	private int readDirect(byte[] b, int off, int lenToRead) throws IOException {
 		byte[] retBuf = null;
 		if (off == 0) {
 			//write directly to user buffer
@@ -88,29 +161,79 @@ public int read(byte[] b, int off, int len) throws IOException {
 			//write to a temp buffer, then copy to user buffer
 			retBuf = new byte[lenToRead];
 		}
-		try {
-			final int lenRead = content.read(retBuf, currentOffset, lenToRead);
+		final int lenRead = readContent(retBuf, lenToRead);
+		if (lenRead == 0 || lenRead == -1) {
+			//error or no more bytes to read, report EOF
+			return -1;
+		}
+		currentOffset += lenRead;
 
-			if (lenRead == 0 || lenRead == -1) {
-				//error or no more bytes to read, report EOF
-				return -1;
-			} else {
-				currentOffset += lenRead;
+		//if read into user-specified offset, copy back from temp buffer to user
+		if (off != 0) {
+			System.arraycopy(retBuf, 0, b, off, lenRead);
+		}
+		return lenRead;
+	}
 
-				//if read into user-specified offset, copy back from temp buffer to user
-				if (off != 0) {
-					System.arraycopy(retBuf, 0, b, off, lenRead);
-				}
+	/**
+	 * Refills the read-ahead buffer starting at the current position. The
+	 * read-ahead window doubles if the current position is right after the
+	 * data previously in the buffer and goes back to its initial size
+	 * otherwise.
+	 *
+	 * @return The number of bytes in the buffer, zero or -1 at EOF.
+	 *
+	 * @throws IOException If there is an error reading the content.
+	 */
+	private int fillBuffer() throws IOException {
+		if (buffer != null && bufferLength > 0 && currentOffset == bufferStart + bufferLength) {
+			readAheadSize = Math.min(readAheadSize * 2, maxReadAheadSize);
+		} else {
+			readAheadSize = MIN_READ_AHEAD_SIZE;
+		}
+		if (buffer == null || buffer.length < readAheadSize) {
+			buffer = new byte[readAheadSize];
+		}
+		int lenToRead = (int) Math.min(contentSize - currentOffset, readAheadSize);
+		bufferStart = currentOffset;
+		bufferLength = 0;
+		int lenRead = readContent(buffer, lenToRead);
+		bufferLength = Math.max(lenRead, 0);
+		return lenRead;
+	}
 
-				return lenRead;
-			}
+	/**
+	 * Reads from the content at the current position into the start of an
+	 * array.
+	 *
+	 * @param buf       The array.
+	 * @param lenToRead How many bytes to read.
+	 *
+	 * @return The number of bytes read, or -1 on error.
+	 *
+	 * @throws IOException If there is an error reading the content.
+	 */
+	private int readContent(byte[] buf, int lenToRead) throws IOException {
+		try {
+			return content.read(buf, currentOffset, lenToRead);
 		} catch (TskCoreException ex) {
 			logger.log(Level.WARNING, ("Error reading content into stream: " //NON-NLS
 					+ content.getId()) + ": " + content.getName()
 					+ ", at offset " + currentOffset + ", length to read: " + lenToRead, ex); //NON-NLS
 			throw new IOException(ex);
 		}
+	}
 
+	/**
+	 * Indicates whether the byte at the given offset is in the read-ahead
+	 * buffer.
+	 *
+	 * @param offset The offset in the content.
+	 *
+	 * @return True if the byte is buffered.
+	 */
+	private boolean isBuffered(long offset) {
+		return offset >= bufferStart && offset < bufferStart + bufferLength;
 	}
 
 	@Override
@@ -140,7 +263,28 @@ public void close() throws IOException {
 
 	@Override
 	public boolean markSupported() {
-		return false;
+		return true;
+	}
+
+	/**
+	 * Marks the current position in the stream. The stream can be reset to
+	 * the mark any number of times, regardless of how much has been read
+	 * since.
+	 *
+	 * @param readlimit Ignored, the mark never becomes invalid.
+	 */
+	@Override
+	public synchronized void mark(int readlimit) {
+		markOffset = currentOffset;
+	}
+
+	/**
+	 * Moves the current position back to the last mark, or to the start of
+	 * the stream if mark has not been called.
+	 */
+	@Override
+	public synchronized void reset() throws IOException {
+		currentOffset = markOffset;
 	}
 
 	/// additional methods to facilitate stream seeking
@@ -18,6 +18,7 @@
  */
 package org.sleuthkit.datamodel;
 
+import java.nio.ByteBuffer;
 import org.sleuthkit.datamodel.TskData.FileKnown;
 import org.sleuthkit.datamodel.TskData.TSK_FS_ATTR_TYPE_ENUM;
 import org.sleuthkit.datamodel.TskData.TSK_FS_META_TYPE_ENUM;
@@ -117,6 +118,31 @@ protected int readInt(byte[] buf, long offset, long len) throws TskCoreException
 		return SleuthkitJNI.readFileSlack(fileHandle, buf, offset, len);
 	}
 
+	/**
+	 * Reads bytes from the slack space into a ByteBuffer. Direct buffers are
+	 * filled by the SleuthKit without an intermediate copy.
+	 *
+	 * @param buf    Buffer to read into, starting at its position.
+	 * @param offset Start position in the slack space.
+	 *
+	 * @return Number of bytes read.
+	 *
+	 * @throws TskCoreException if there is a problem reading the file.
+	 */
+	@Override
+	@SuppressWarnings("deprecation")
+	protected int readInt(ByteBuffer buf, long offset) throws TskCoreException {
+		if (!buf.isDirect()) {
+			return super.readInt(buf, offset);
+		}
+		if (offset == 0 && size == 0) {
+			//special case for 0-size file
+			return 0;
+		}
+		loadFileHandle();
+		return SleuthkitJNI.readFileSlack(fileHandle, buf, offset);
+	}
+
 	/**
 	 * Accepts a content visitor (Visitor design pattern).
 	 *
@@ -22,14 +22,8 @@
 import com.mchange.v2.c3p0.DataSources;
 import com.mchange.v2.c3p0.PooledDataSource;
 import java.beans.PropertyVetoException;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.URLEncoder;
@@ -46,18 +40,32 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.NoSuchElementException;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -94,7 +102,7 @@ public class SleuthkitCase {
 	 * tsk/auto/tsk_db.h.
 	 */
 	private static final CaseDbSchemaVersionNumber CURRENT_DB_SCHEMA_VERSION
-			= new CaseDbSchemaVersionNumber(7, 2);
+			= new CaseDbSchemaVersionNumber(7, 3);
 
 	private static final long BASE_ARTIFACT_ID = Long.MIN_VALUE; // Artifact ids will start at the lowest negative value
 	private static final Logger logger = Logger.getLogger(SleuthkitCase.class.getName());
@@ -107,6 +115,22 @@ public class SleuthkitCase {
 	private static final String SQL_ERROR_LIMIT_GROUP = "54";
 	private static final String SQL_ERROR_INTERNAL_GROUP = "xx";
 	private static final int MIN_USER_DEFINED_TYPE_ID = 10000;
+	private static final int MAX_IDS_PER_IN_CLAUSE = 500; // Keeps IN (...) lists well under the SQLite and PostgreSQL statement limits.
+	private static final int DEFAULT_CURSOR_FETCH_SIZE = 1000;
+	private static final int DEFAULT_ARTIFACT_BATCH_SIZE = 1000;
+	private static final int DEFAULT_WRITE_BEHIND_CAPACITY = 10000;
+	private static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 500;
+	private static final int SNAPSHOT_RESTARTS_BEFORE_HOLDING_WRITERS = 3;
+	private static final int SQLITE_BUSY_TIMEOUT_MILLIS = 30000;
+	// The indexes TskDb::s_indexes in the native code marks as dropped in bulk load mode.
+	private static final String[] BULK_LOAD_INDEXES = {
+		"parObjId ON tsk_objects(par_obj_id)", //NON-NLS
+		"layout_objID ON tsk_file_layout(obj_id)", //NON-NLS
+		"mime_type ON tsk_files(dir_type,mime_type,type)", //NON-NLS
+		"file_extension ON tsk_files(extension)", //NON-NLS
+		"file_md5 ON tsk_files(md5,size)"}; //NON-NLS
+	private static final int SNAPSHOT_PAGES_PER_STEP = 256;
+	private static final int SNAPSHOT_STEP_SLEEP_MILLIS = 5;
 	private final ConnectionPool connections;
 	private final Map<Long, VirtualDirectory> rootIdsToCarvedFileDirs = new HashMap<Long, VirtualDirectory>();
 	private final Map<Long, FileSystem> fileSystemIdMap = new HashMap<Long, FileSystem>(); // Cache for file system files.
@@ -117,16 +141,53 @@ public class SleuthkitCase {
 	private final String caseDirPath;
 	private SleuthkitJNI.CaseDbHandle caseHandle;
 	private String dbBackupPath;
-	private Map<Integer, BlackboardArtifact.Type> typeIdToArtifactTypeMap;
-	private Map<Integer, BlackboardAttribute.Type> typeIdToAttributeTypeMap;
-	private Map<String, BlackboardArtifact.Type> typeNameToArtifactTypeMap;
-	private Map<String, BlackboardAttribute.Type> typeNameToAttributeTypeMap;
+	private final BlackboardTypeRegistry<BlackboardArtifact.Type> artifactTypes = new BlackboardTypeRegistry<BlackboardArtifact.Type>();
+	private final BlackboardTypeRegistry<BlackboardAttribute.Type> attributeTypes = new BlackboardTypeRegistry<BlackboardAttribute.Type>();
 	private long nextArtifactId; // Used to ensure artifact ids come from the desired range.
+	private volatile ContentCache contentCache; // Optional cache of Content objects by obj_id, null if disabled.
+	private volatile int cursorFetchSize = DEFAULT_CURSOR_FETCH_SIZE; // Rows per page for CaseDbCursor queries.
 	// This read/write lock is used to implement a layer of locking on top of
 	// the locking protocol provided by the underlying SQLite database. The Java
 	// locking protocol improves performance for reasons that are not currently
 	// understood. Note that the lock is contructed to use a fairness policy.
+	// It is only used in ConcurrencyMode.SERIALIZED.
 	private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+	// In ConcurrencyMode.CONCURRENT_READS readers take no Java lock and this
+	// non-fair lock admits one writer at a time, so that writers wait here
+	// rather than in the SQLITE_BUSY retry loop.
+	private final ReentrantLock writerLock = new ReentrantLock();
+	private final ConcurrencyMode concurrencyMode;
+	private final Set<WriteBehindQueue> writeBehindQueues = Collections.newSetFromMap(new ConcurrentHashMap<WriteBehindQueue, Boolean>());
+	private final CaseDbPerformanceProfile performanceProfile;
+	// Statement timers, one per prepared statement indexed by ordinal, and
+	// one shared by all statements built as strings.
+	private final StatementTimer[] statementTimers = createStatementTimers();
+	private final StatementTimer adHocStatementTimer = new StatementTimer("AD_HOC"); //NON-NLS
+	private volatile boolean statementTimingEnabled;
+
+	/**
+	 * The ways threads that read and write a single-user (SQLite) case
+	 * database are coordinated. Multi-user (PostgreSQL) case databases leave
+	 * all coordination to the database server.
+	 */
+	public enum ConcurrencyMode {
+
+		/**
+		 * Readers share, and writers exclusively hold, a single fair
+		 * read/write lock, so a write blocks every reader. This is the
+		 * default.
+		 */
+		SERIALIZED,
+		/**
+		 * The case database is switched to write-ahead logging, which lets
+		 * each pooled connection read the last committed state while another
+		 * connection writes. Reads take no Java lock and writes are
+		 * serialized through a non-fair writer lock. The journal mode is
+		 * stored in the database file, so the case database stays in WAL
+		 * mode when it is reopened.
+		 */
+		CONCURRENT_READS
+	}
 
 	/**
 	 * Private constructor, clients must use newCase() or openCase() method to
@@ -136,17 +197,21 @@ public class SleuthkitCase {
 	 * @param caseHandle A handle to a case database object in the native code
 	 *                   SleuthKit layer.
 	 * @param dbType     The type of database we're dealing with
+	 * @param concurrencyMode How reads and writes are coordinated.
+	 * @param profile    The SQLite and connection pool settings to use.
 	 *
 	 * @throws Exception
 	 */
-	private SleuthkitCase(String dbPath, SleuthkitJNI.CaseDbHandle caseHandle, DbType dbType) throws Exception {
+	private SleuthkitCase(String dbPath, SleuthkitJNI.CaseDbHandle caseHandle, DbType dbType, ConcurrencyMode concurrencyMode, CaseDbPerformanceProfile profile) throws Exception {
 		Class.forName("org.sqlite.JDBC");
 		this.dbPath = dbPath;
 		this.dbType = dbType;
+		this.concurrencyMode = concurrencyMode;
+		this.performanceProfile = profile;
 		File dbFile = new File(dbPath);
 		this.caseDirPath = dbFile.getParentFile().getAbsolutePath();
 		this.databaseName = dbFile.getName();
-		this.connections = new SQLiteConnections(dbPath);
+		this.connections = new SQLiteConnections(dbPath, concurrencyMode, profile);
 		this.caseHandle = caseHandle;
 		init();
 		logSQLiteJDBCDriverInfo();
@@ -173,6 +238,8 @@ private SleuthkitCase(String host, int port, String dbName, String userName, Str
 		this.dbPath = "";
 		this.databaseName = dbName;
 		this.dbType = dbType;
+		this.concurrencyMode = ConcurrencyMode.SERIALIZED;
+		this.performanceProfile = CaseDbPerformanceProfile.DEFAULT;
 		this.caseDirPath = caseDirPath;
 		this.connections = new PostgreSQLConnections(host, port, dbName, userName, password);
 		this.caseHandle = caseHandle;
@@ -180,11 +247,6 @@ private SleuthkitCase(String host, int port, String dbName, String userName, Str
 	}
 
 	private void init() throws Exception {
-		typeIdToArtifactTypeMap = new ConcurrentHashMap<Integer, BlackboardArtifact.Type>();
-		typeIdToAttributeTypeMap = new ConcurrentHashMap<Integer, BlackboardAttribute.Type>();
-		typeNameToArtifactTypeMap = new ConcurrentHashMap<String, BlackboardArtifact.Type>();
-		typeNameToAttributeTypeMap = new ConcurrentHashMap<String, BlackboardAttribute.Type>();
-
 		/*
 		 * The following methods need to be called before updateDatabaseSchema
 		 * due to the way that updateFromSchema2toSchema3 was implemented.
@@ -194,12 +256,16 @@ private void init() throws Exception {
 		initNextArtifactId();
 
 		updateDatabaseSchema(null);
+		loadBlackboardTypes();
 
 		CaseDbConnection connection = connections.getConnection();
 		initIngestModuleTypes(connection);
 		initIngestStatusTypes(connection);
 		initReviewStatuses(connection);
 		initEncodingTypes(connection);
+		if (dbType == DbType.SQLITE) {
+			createMissingIndexes(connection);
+		}
 		connection.close();
 	}
 
@@ -227,8 +293,7 @@ private void initBlackboardArtifactTypes() throws SQLException, TskCoreException
 					resultSet.close();
 					resultSet = null;
 				}
-				this.typeIdToArtifactTypeMap.put(type.getTypeID(), new BlackboardArtifact.Type(type));
-				this.typeNameToArtifactTypeMap.put(type.getLabel(), new BlackboardArtifact.Type(type));
+				this.artifactTypes.register(type.getTypeID(), type.getLabel(), new BlackboardArtifact.Type(type));
 			}
 			if (dbType == DbType.POSTGRESQL) {
 				int newPrimaryKeyIndex = Collections.max(Arrays.asList(ARTIFACT_TYPE.values())).getTypeID() + 1;
@@ -266,8 +331,7 @@ private void initBlackboardAttributeTypes() throws SQLException, TskCoreExceptio
 					resultSet.close();
 					resultSet = null;
 				}
-				this.typeIdToAttributeTypeMap.put(type.getTypeID(), new BlackboardAttribute.Type(type));
-				this.typeNameToAttributeTypeMap.put(type.getLabel(), new BlackboardAttribute.Type(type));
+				this.attributeTypes.register(type.getTypeID(), type.getLabel(), new BlackboardAttribute.Type(type));
 			}
 			if (this.dbType == DbType.POSTGRESQL) {
 				int newPrimaryKeyIndex = Collections.max(Arrays.asList(ATTRIBUTE_TYPE.values())).getTypeID() + 1;
@@ -280,6 +344,62 @@ private void initBlackboardAttributeTypes() throws SQLException, TskCoreExceptio
 		}
 	}
 
+	/**
+	 * Loads every artifact type and attribute type in the case database,
+	 * including user-defined types, into the type registries, so that type
+	 * lookups do not need to query the case database.
+	 *
+	 * @throws SQLException
+	 * @throws TskCoreException
+	 */
+	private void loadBlackboardTypes() throws SQLException, TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		Statement statement = null;
+		ResultSet resultSet = null;
+		try {
+			statement = connection.createStatement();
+			resultSet = connection.executeQuery(statement, "SELECT artifact_type_id, type_name, display_name FROM blackboard_artifact_types"); //NON-NLS
+			List<Integer> ids = new ArrayList<Integer>();
+			List<String> names = new ArrayList<String>();
+			List<Object> types = new ArrayList<Object>();
+			while (resultSet.next()) {
+				BlackboardArtifact.Type type = new BlackboardArtifact.Type(resultSet.getInt("artifact_type_id"),
+						resultSet.getString("type_name"), resultSet.getString("display_name"));
+				ids.add(type.getTypeID());
+				names.add(type.getTypeName());
+				types.add(type);
+			}
+			resultSet.close();
+			resultSet = null;
+			artifactTypes.register(toIntArray(ids), names.toArray(new String[names.size()]), types.toArray());
+
+			resultSet = connection.executeQuery(statement, "SELECT attribute_type_id, type_name, display_name, value_type FROM blackboard_attribute_types"); //NON-NLS
+			ids.clear();
+			names.clear();
+			types.clear();
+			while (resultSet.next()) {
+				BlackboardAttribute.Type type = new BlackboardAttribute.Type(resultSet.getInt("attribute_type_id"), resultSet.getString("type_name"),
+						resultSet.getString("display_name"), TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(resultSet.getLong("value_type")));
+				ids.add(type.getTypeID());
+				names.add(type.getTypeName());
+				types.add(type);
+			}
+			attributeTypes.register(toIntArray(ids), names.toArray(new String[names.size()]), types.toArray());
+		} finally {
+			closeResultSet(resultSet);
+			closeStatement(statement);
+			connection.close();
+		}
+	}
+
+	private static int[] toIntArray(List<Integer> values) {
+		int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
 	/**
 	 * Initialize the next artifact id. If there are entries in the
 	 * blackboard_artifacts table we will use max(artifact_id) + 1 otherwise we
@@ -432,6 +552,27 @@ private void initEncodingTypes(CaseDbConnection connection) throws SQLException,
 		}
 	}
 
+	/**
+	 * Builds the secondary indexes that an add image process in bulk load mode
+	 * dropped and did not build again, e.g. because the process ended first.
+	 * See SleuthkitJNI.CaseDbHandle.AddImageProcess.setBulkLoad.
+	 *
+	 * @param connection A connection to a SQLite case database.
+	 *
+	 * @throws SQLException if an index can't be built.
+	 */
+	private void createMissingIndexes(CaseDbConnection connection) throws SQLException {
+		Statement statement = null;
+		try {
+			statement = connection.createStatement();
+			for (String index : BULK_LOAD_INDEXES) {
+				statement.execute("CREATE INDEX IF NOT EXISTS " + index); //NON-NLS
+			}
+		} finally {
+			closeStatement(statement);
+		}
+	}
+
 	/**
 	 * Modify the case database to bring it up-to-date with the current version
 	 * of the database schema.
@@ -507,6 +648,7 @@ private void updateDatabaseSchema(String dbPath) throws Exception {
 				dbSchemaVersion = updateFromSchema6toSchema7(dbSchemaVersion, connection);
 				dbSchemaVersion = updateFromSchema7toSchema7dot1(dbSchemaVersion, connection);
 				dbSchemaVersion = updateFromSchema7dot1toSchema7dot2(dbSchemaVersion, connection);
+				dbSchemaVersion = updateFromSchema7dot2toSchema7dot3(dbSchemaVersion, connection);
 
 				// Write the updated schema version number to the the tsk_db_info table.
 				statement = connection.createStatement();
@@ -528,7 +670,9 @@ private void updateDatabaseSchema(String dbPath) throws Exception {
 
 	/**
 	 * Make a duplicate / backup copy of the current case database. Makes a new
-	 * copy only, and continues to use the current connection.
+	 * copy only, and continues to use the current connection. The copy is made
+	 * with the SQLite online backup API, so it includes the changes still in
+	 * the write-ahead log of a case database in concurrent-reads mode.
 	 *
 	 * @param newDBPath Path to the copy to be created. File will be overwritten
 	 *                  if it exists.
@@ -539,32 +683,188 @@ public void copyCaseDB(String newDBPath) throws IOException {
 		if (dbPath.isEmpty()) {
 			throw new IOException("Copying case database files is not supported for this type of case database"); //NON-NLS
 		}
-		InputStream in = null;
-		OutputStream out = null;
+		File newDBFile = new File(newDBPath);
+		if (newDBFile.exists() && !newDBFile.delete()) {
+			throw new IOException("Could not overwrite " + newDBPath); //NON-NLS
+		}
 		acquireSingleUserCaseWriteLock();
 		try {
-			InputStream inFile = new FileInputStream(dbPath);
-			in = new BufferedInputStream(inFile);
-			OutputStream outFile = new FileOutputStream(newDBPath);
-			out = new BufferedOutputStream(outFile);
-			int bytesRead = in.read();
-			while (bytesRead != -1) {
-				out.write(bytesRead);
-				bytesRead = in.read();
+			// Copy every page in one step, which reads the database in one
+			// read transaction.
+			SleuthkitJNI.backupCaseDb(dbPath, newDBPath, -1, 0, new SleuthkitJNI.BackupProgressObserver() {
+				@Override
+				public void progress(int remaining, int pageCount) {
+				}
+			});
+		} catch (TskCoreException ex) {
+			throw new IOException("Error copying case database to " + newDBPath, ex); //NON-NLS
+		} finally {
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
+	/**
+	 * Makes a snapshot of the case database while other threads keep using
+	 * it. A full snapshot copies the database with the SQLite online backup
+	 * API, a batch of pages at a time, without taking the case write lock.
+	 * Each write to the database by another connection makes the copy start
+	 * over, so after a few restarts writers are held off for the rest of the
+	 * copy. An incremental snapshot updates a snapshot made earlier at the
+	 * same path with the backup API in one read transaction, writing only the
+	 * pages that changed since. It is consistent whatever other connections
+	 * do, but while it runs they can only commit if the case database has a
+	 * write-ahead log.
+	 *
+	 * @param snapshotPath The path of the snapshot file.
+	 * @param mode         The kind of snapshot to make.
+	 * @param listener     A listener for progress notifications, may be null.
+	 *
+	 * @return A description of the snapshot that was made.
+	 *
+	 * @throws TskCoreException If the case database is not a SQLite database
+	 *                          or there is an error making the snapshot.
+	 */
+	public CaseDbSnapshot createSnapshot(String snapshotPath, CaseDbSnapshot.Mode mode, CaseDbSnapshot.ProgressListener listener) throws TskCoreException {
+		if (dbType != DbType.SQLITE) {
+			throw new TskCoreException("Snapshots are not supported for this type of case database"); //NON-NLS
+		}
+		long startTime = System.nanoTime();
+		if (mode == CaseDbSnapshot.Mode.INCREMENTAL && new File(snapshotPath).isFile()) {
+			return createIncrementalSnapshot(snapshotPath, listener, startTime);
+		}
+		return createFullSnapshot(snapshotPath, listener, startTime);
+	}
+
+	/**
+	 * Copies the case database with the SQLite online backup API.
+	 *
+	 * @param snapshotPath The path of the snapshot file.
+	 * @param listener     A listener for progress notifications, may be null.
+	 * @param startTime    The System.nanoTime() at which the snapshot started.
+	 *
+	 * @return A description of the snapshot.
+	 *
+	 * @throws TskCoreException If there is an error making the snapshot.
+	 */
+	private CaseDbSnapshot createFullSnapshot(String snapshotPath, CaseDbSnapshot.ProgressListener listener, long startTime) throws TskCoreException {
+		Connection connection = null;
+		SnapshotBackupObserver observer = null;
+		try {
+			connection = new SQLiteConfig().createConnection("jdbc:sqlite:" + dbPath); //NON-NLS
+			observer = new SnapshotBackupObserver(getPageSize(connection), listener);
+			SleuthkitJNI.backupCaseDb(dbPath, snapshotPath, SNAPSHOT_PAGES_PER_STEP, SNAPSHOT_STEP_SLEEP_MILLIS, observer);
+			long bytesCopied = observer.getBytesCopied();
+			return new CaseDbSnapshot(snapshotPath, CaseDbSnapshot.Mode.FULL, bytesCopied, bytesCopied, System.nanoTime() - startTime, observer.getRestartCount());
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error creating snapshot of case database", ex);
+		} finally {
+			if (observer != null) {
+				observer.releaseWriters();
 			}
+			closeConnection(connection);
+		}
+	}
+
+	/**
+	 * Updates an existing snapshot of the case database, writing only the
+	 * pages that differ from the database.
+	 *
+	 * @param snapshotPath The path of the existing snapshot file.
+	 * @param listener     A listener for progress notifications, may be null.
+	 * @param startTime    The System.nanoTime() at which the snapshot started.
+	 *
+	 * @return A description of the snapshot.
+	 *
+	 * @throws TskCoreException If there is an error making the snapshot.
+	 */
+	private CaseDbSnapshot createIncrementalSnapshot(String snapshotPath, CaseDbSnapshot.ProgressListener listener, long startTime) throws TskCoreException {
+		Connection connection = null;
+		try {
+			connection = new SQLiteConfig().createConnection("jdbc:sqlite:" + dbPath); //NON-NLS
+			SnapshotBackupObserver observer = new SnapshotBackupObserver(getPageSize(connection), listener);
+			long bytesWritten = SleuthkitJNI.updateCaseDbSnapshot(dbPath, snapshotPath, SNAPSHOT_PAGES_PER_STEP, observer);
+			return new CaseDbSnapshot(snapshotPath, CaseDbSnapshot.Mode.INCREMENTAL, observer.getBytesCopied(), bytesWritten, System.nanoTime() - startTime, 0);
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error creating snapshot of case database", ex);
 		} finally {
-			try {
-				if (in != null) {
-					in.close();
-				}
-				if (out != null) {
-					out.flush();
-					out.close();
+			closeConnection(connection);
+		}
+	}
+
+	/**
+	 * Gets the page size of a SQLite database.
+	 *
+	 * @param connection A connection to the database.
+	 *
+	 * @return The page size in bytes.
+	 *
+	 * @throws SQLException If there is an error querying the database.
+	 */
+	private static int getPageSize(Connection connection) throws SQLException {
+		Statement statement = null;
+		ResultSet resultSet = null;
+		try {
+			statement = connection.createStatement();
+			resultSet = statement.executeQuery("PRAGMA page_size"); //NON-NLS
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			closeResultSet(resultSet);
+			closeStatement(statement);
+		}
+	}
+
+	/**
+	 * Tracks the progress of a SQLite online backup, detecting restarts and
+	 * holding off writers once the backup has restarted too often.
+	 */
+	private final class SnapshotBackupObserver implements SleuthkitJNI.BackupProgressObserver {
+
+		private final int pageSize;
+		private final CaseDbSnapshot.ProgressListener listener;
+		private int lastPagesDone;
+		private long pagesCopied;
+		private int restartCount;
+		private boolean holdingOffWriters;
+
+		SnapshotBackupObserver(int pageSize, CaseDbSnapshot.ProgressListener listener) {
+			this.pageSize = pageSize;
+			this.listener = listener;
+		}
+
+		@Override
+		public void progress(int remaining, int pageCount) {
+			int pagesDone = pageCount - remaining;
+			if (pagesDone < lastPagesDone) {
+				// Another connection wrote to the database and the backup
+				// started over.
+				restartCount++;
+				lastPagesDone = 0;
+				if (restartCount >= SNAPSHOT_RESTARTS_BEFORE_HOLDING_WRITERS && !holdingOffWriters) {
+					acquireWriterExclusionLock();
+					holdingOffWriters = true;
 				}
-			} catch (IOException e) {
-				logger.log(Level.WARNING, "Could not close streams after db copy", e); //NON-NLS
 			}
-			releaseSingleUserCaseWriteLock();
+			pagesCopied += pagesDone - lastPagesDone;
+			lastPagesDone = pagesDone;
+			if (listener != null) {
+				listener.progress((long) pagesDone * pageSize, (long) pageCount * pageSize);
+			}
+		}
+
+		void releaseWriters() {
+			if (holdingOffWriters) {
+				releaseWriterExclusionLock();
+				holdingOffWriters = false;
+			}
+		}
+
+		long getBytesCopied() {
+			return pagesCopied * pageSize;
+		}
+
+		int getRestartCount() {
+			return restartCount;
 		}
 	}
 
@@ -1067,6 +1367,28 @@ private CaseDbSchemaVersionNumber updateFromSchema7dot1toSchema7dot2(CaseDbSchem
 		}
 	}
 
+	private CaseDbSchemaVersionNumber updateFromSchema7dot2toSchema7dot3(CaseDbSchemaVersionNumber schemaVersion, CaseDbConnection connection) throws SQLException, TskCoreException {
+		if (schemaVersion.getMajor() != 7) {
+			return schemaVersion;
+		}
+
+		if (schemaVersion.getMinor() != 2) {
+			return schemaVersion;
+		}
+		/*
+		 * This upgrade adds an index on the md5 column of the tsk_files table
+		 * for hash lookups and hashed file counts.
+		 */
+		Statement statement = null;
+		try {
+			statement = connection.createStatement();
+			statement.execute("CREATE INDEX file_md5 ON tsk_files(md5,size)"); //NON-NLS
+			return new CaseDbSchemaVersionNumber(7, 3);
+		} finally {
+			closeStatement(statement);
+		}
+	}
+
 	/**
 	 * Extract the extension from a file name.
 	 *
@@ -1216,7 +1538,7 @@ public String getBackupDatabasePath() {
 	 * @throws TskCoreException
 	 */
 	public CaseDbTransaction beginTransaction() throws TskCoreException {
-		return new CaseDbTransaction(connections.getConnection());
+		return new CaseDbTransaction(connections.getConnection(), contentCache);
 	}
 
 	/**
@@ -1238,6 +1560,83 @@ public String getDbDirPath() {
 		return caseDirPath;
 	}
 
+	/**
+	 * Installs a cache of Content objects keyed by object id, used by
+	 * getContentById, getAbstractFileById and getArtifactById. Edits made
+	 * through this case database keep the cached objects up to date. Pass
+	 * null to disable caching, which is the default.
+	 *
+	 * @param cache The cache to use, or null to disable caching.
+	 */
+	public void setContentCache(ContentCache cache) {
+		this.contentCache = cache;
+		final SleuthkitJNI.CaseDbHandle handle = caseHandle;
+		if (handle != null) {
+			handle.setContentCache(cache);
+		}
+	}
+
+	/**
+	 * Gets the cache of Content objects installed with setContentCache.
+	 *
+	 * @return The cache, or null if caching is disabled.
+	 */
+	public ContentCache getContentCache() {
+		return contentCache;
+	}
+
+	/**
+	 * Sets the number of rows read from the database per page by the cursors
+	 * returned by the open*Cursor methods. Larger values use more memory per
+	 * cursor and fewer queries, and hold the case read lock of single-user
+	 * cases longer per page. The setting applies to cursors opened after the
+	 * call.
+	 *
+	 * @param fetchSize The number of rows per round trip, must be positive.
+	 */
+	public void setCursorFetchSize(int fetchSize) {
+		if (fetchSize <= 0) {
+			throw new IllegalArgumentException("fetchSize must be positive"); //NON-NLS
+		}
+		cursorFetchSize = fetchSize;
+	}
+
+	/**
+	 * Gets the number of rows read from the database per page by the cursors
+	 * returned by the open*Cursor methods.
+	 *
+	 * @return The number of rows per page.
+	 */
+	public int getCursorFetchSize() {
+		return cursorFetchSize;
+	}
+
+	/**
+	 * Makes a cached parent count its children again after a child was added
+	 * to it and committed.
+	 *
+	 * @param parentId The object id of the parent.
+	 */
+	private void childrenChanged(long parentId) {
+		final ContentCache cache = contentCache;
+		if (cache != null) {
+			cache.childrenChanged(parentId);
+		}
+	}
+
+	/**
+	 * Drops a stale cached copy of a Content object after an edit has been
+	 * applied to the given instance.
+	 *
+	 * @param content The edited object.
+	 */
+	private void invalidateCachedContent(Content content) {
+		final ContentCache cache = contentCache;
+		if (cache != null) {
+			cache.invalidateIfStale(content);
+		}
+	}
+
 	/**
 	 * Acquires a write lock, but only if this is a single-user case. Always
 	 * call this method in a try block with a call to the lock release method in
@@ -1245,7 +1644,11 @@ public String getDbDirPath() {
 	 */
 	public void acquireSingleUserCaseWriteLock() {
 		if (dbType == DbType.SQLITE) {
-			rwLock.writeLock().lock();
+			if (concurrencyMode == ConcurrencyMode.CONCURRENT_READS) {
+				writerLock.lock();
+			} else {
+				rwLock.writeLock().lock();
+			}
 		}
 	}
 
@@ -1256,114 +1659,318 @@ public void acquireSingleUserCaseWriteLock() {
 	 */
 	public void releaseSingleUserCaseWriteLock() {
 		if (dbType == DbType.SQLITE) {
-			rwLock.writeLock().unlock();
+			if (concurrencyMode == ConcurrencyMode.CONCURRENT_READS) {
+				writerLock.unlock();
+			} else {
+				rwLock.writeLock().unlock();
+			}
 		}
 	}
 
 	/**
-	 * Acquires a read lock, but only if this is a single-user case. Call this
-	 * method in a try block with a call to the lock release method in an
-	 * associated finally block.
+	 * Acquires a read lock, but only if this is a single-user case opened in
+	 * ConcurrencyMode.SERIALIZED. Call this method in a try block with a call
+	 * to the lock release method in an associated finally block.
 	 */
 	public void acquireSingleUserCaseReadLock() {
-		if (dbType == DbType.SQLITE) {
+		if (dbType == DbType.SQLITE && concurrencyMode == ConcurrencyMode.SERIALIZED) {
 			rwLock.readLock().lock();
 		}
 	}
 
 	/**
-	 * Releases a read lock, but only if this is a single-user case. This method
-	 * should always be called in the finally block of a try block in which the
-	 * lock was acquired.
+	 * Releases a read lock, but only if this is a single-user case opened in
+	 * ConcurrencyMode.SERIALIZED. This method should always be called in the
+	 * finally block of a try block in which the lock was acquired.
 	 */
 	public void releaseSingleUserCaseReadLock() {
-		if (dbType == DbType.SQLITE) {
+		if (dbType == DbType.SQLITE && concurrencyMode == ConcurrencyMode.SERIALIZED) {
 			rwLock.readLock().unlock();
 		}
 	}
 
 	/**
-	 * Open an existing case database.
-	 *
-	 * @param dbPath Path to SQLite case database.
-	 *
-	 * @return Case database object.
-	 *
-	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 * Keeps other threads from writing to a single-user case database,
+	 * without keeping them from reading it where the concurrency mode allows
+	 * that.
 	 */
-	public static SleuthkitCase openCase(String dbPath) throws TskCoreException {
-		try {
-			final SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.openCaseDb(dbPath);
-			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE);
-		} catch (TskUnsupportedSchemaVersionException ex) {
-			//don't wrap in new TskCoreException
-			throw ex;
-		} catch (Exception ex) {
-			throw new TskCoreException("Failed to open case database at " + dbPath, ex);
+	private void acquireWriterExclusionLock() {
+		if (dbType == DbType.SQLITE) {
+			if (concurrencyMode == ConcurrencyMode.CONCURRENT_READS) {
+				writerLock.lock();
+			} else {
+				rwLock.readLock().lock();
+			}
 		}
 	}
 
 	/**
-	 * Open an existing multi-user case database.
-	 *
-	 * @param databaseName The name of the database.
-	 * @param info         Connection information for the the database.
-	 * @param caseDir      The folder where the case metadata fils is stored.
-	 *
-	 * @return A case database object.
-	 *
-	 * @throws TskCoreException If there is a problem opening the database.
+	 * Releases a lock acquired with acquireWriterExclusionLock.
 	 */
-	public static SleuthkitCase openCase(String databaseName, CaseDbConnectionInfo info, String caseDir) throws TskCoreException {
-		try {
-			/*
-			 * The flow of this method involves trying to open case and if
-			 * successful, return that case. If unsuccessful, an exception is
-			 * thrown. We catch any exceptions, and use tryConnect() to attempt
-			 * to obtain further information about the error. If tryConnect() is
-			 * unable to successfully connect, tryConnect() will throw a
-			 * TskCoreException with a message containing user-level error
-			 * reporting. If tryConnect() is able to connect, flow continues and
-			 * we rethrow the original exception obtained from trying to create
-			 * the case. In this way, we obtain more detailed information if we
-			 * are able, but do not lose any information if unable.
-			 */
-			final SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.openCaseDb(databaseName, info);
-			return new SleuthkitCase(info.getHost(), Integer.parseInt(info.getPort()), databaseName, info.getUserName(), info.getPassword(), caseHandle, caseDir, info.getDbType());
-		} catch (PropertyVetoException exp) {
-			// In this case, the JDBC driver doesn't support PostgreSQL. Use the generic message here.
-			throw new TskCoreException(exp.getMessage(), exp);
-		} catch (TskUnsupportedSchemaVersionException ex) {
-			//don't wrap in new TskCoreException
-			throw ex;
-		} catch (Exception exp) {
-			tryConnect(info); // attempt to connect, throw with user-friendly message if unable
-			throw new TskCoreException(exp.getMessage(), exp); // throw with generic message if tryConnect() was successful
+	private void releaseWriterExclusionLock() {
+		if (dbType == DbType.SQLITE) {
+			if (concurrencyMode == ConcurrencyMode.CONCURRENT_READS) {
+				writerLock.unlock();
+			} else {
+				rwLock.readLock().unlock();
+			}
 		}
 	}
 
 	/**
-	 * Creates a new SQLite case database.
+	 * Gets how threads that read and write this case database are
+	 * coordinated.
 	 *
-	 * @param dbPath Path to where SQlite case database should be created.
-	 *
-	 * @return A case database object.
+	 * @return The concurrency mode.
+	 */
+	public ConcurrencyMode getConcurrencyMode() {
+		return concurrencyMode;
+	}
+
+	/**
+	 * Gets the SQLite and connection pool settings this case database was
+	 * opened with. Multi-user case databases always report the default
+	 * profile.
 	 *
-	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 * @return The performance profile.
 	 */
-	public static SleuthkitCase newCase(String dbPath) throws TskCoreException {
-		try {
-			SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.newCaseDb(dbPath);
-			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE);
-		} catch (Exception ex) {
-			throw new TskCoreException("Failed to create case database at " + dbPath, ex);
-		}
+	public CaseDbPerformanceProfile getPerformanceProfile() {
+		return performanceProfile;
 	}
 
 	/**
-	 * Creates a new PostgreSQL case database.
+	 * Turns the recording of case database statement execution times on or
+	 * off. Timing is off by default. Times already recorded are kept when it
+	 * is turned off.
 	 *
-	 * @param caseName    The name of the case. It will be used to create a case
+	 * @param enabled True to record execution times.
+	 */
+	public void setStatementTimingEnabled(boolean enabled) {
+		statementTimingEnabled = enabled;
+	}
+
+	/**
+	 * Indicates whether case database statement execution times are being
+	 * recorded.
+	 *
+	 * @return True if execution times are being recorded.
+	 */
+	public boolean isStatementTimingEnabled() {
+		return statementTimingEnabled;
+	}
+
+	/**
+	 * Gets the recorded execution times of the case database statements that
+	 * have been executed since timing was enabled or last reset, ordered by
+	 * total time, longest first.
+	 *
+	 * @return The statement timings.
+	 */
+	public List<StatementTiming> getStatementTimings() {
+		List<StatementTiming> timings = new ArrayList<StatementTiming>();
+		for (StatementTimer timer : statementTimers) {
+			StatementTiming timing = timer.getTiming();
+			if (timing.getCount() > 0) {
+				timings.add(timing);
+			}
+		}
+		StatementTiming adHoc = adHocStatementTimer.getTiming();
+		if (adHoc.getCount() > 0) {
+			timings.add(adHoc);
+		}
+		Collections.sort(timings, new Comparator<StatementTiming>() {
+			@Override
+			public int compare(StatementTiming first, StatementTiming second) {
+				return Long.compare(second.getTotalMicros(), first.getTotalMicros());
+			}
+		});
+		return timings;
+	}
+
+	/**
+	 * Gets the recorded execution times of the case database statements as
+	 * text, one statement per line, for logging or display.
+	 *
+	 * @return The report.
+	 */
+	public String getStatementTimingReport() {
+		StringBuilder report = new StringBuilder();
+		for (StatementTiming timing : getStatementTimings()) {
+			report.append(timing).append('\n');
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Discards the recorded case database statement execution times.
+	 */
+	public void resetStatementTimings() {
+		for (StatementTimer timer : statementTimers) {
+			timer.reset();
+		}
+		adHocStatementTimer.reset();
+	}
+
+	private static StatementTimer[] createStatementTimers() {
+		PREPARED_STATEMENT[] statements = PREPARED_STATEMENT.values();
+		StatementTimer[] timers = new StatementTimer[statements.length];
+		for (PREPARED_STATEMENT statement : statements) {
+			timers[statement.ordinal()] = new StatementTimer(statement.name());
+		}
+		return timers;
+	}
+
+	/**
+	 * Open an existing case database.
+	 *
+	 * @param dbPath Path to SQLite case database.
+	 *
+	 * @return Case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase openCase(String dbPath) throws TskCoreException {
+		return openCase(dbPath, ConcurrencyMode.SERIALIZED);
+	}
+
+	/**
+	 * Open an existing case database with a given concurrency mode.
+	 *
+	 * @param dbPath          Path to SQLite case database.
+	 * @param concurrencyMode How threads that read and write the case database
+	 *                        are coordinated.
+	 *
+	 * @return Case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase openCase(String dbPath, ConcurrencyMode concurrencyMode) throws TskCoreException {
+		return openCase(dbPath, concurrencyMode, CaseDbPerformanceProfile.DEFAULT);
+	}
+
+	/**
+	 * Open an existing case database with the SQLite and connection pool
+	 * settings of a performance profile, including its concurrency mode.
+	 *
+	 * @param dbPath  Path to SQLite case database.
+	 * @param profile The performance profile.
+	 *
+	 * @return Case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase openCase(String dbPath, CaseDbPerformanceProfile profile) throws TskCoreException {
+		return openCase(dbPath, profile.getConcurrencyMode(), profile);
+	}
+
+	private static SleuthkitCase openCase(String dbPath, ConcurrencyMode concurrencyMode, CaseDbPerformanceProfile profile) throws TskCoreException {
+		try {
+			final SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.openCaseDb(dbPath);
+			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE, concurrencyMode, profile);
+		} catch (TskUnsupportedSchemaVersionException ex) {
+			//don't wrap in new TskCoreException
+			throw ex;
+		} catch (Exception ex) {
+			throw new TskCoreException("Failed to open case database at " + dbPath, ex);
+		}
+	}
+
+	/**
+	 * Open an existing multi-user case database.
+	 *
+	 * @param databaseName The name of the database.
+	 * @param info         Connection information for the the database.
+	 * @param caseDir      The folder where the case metadata fils is stored.
+	 *
+	 * @return A case database object.
+	 *
+	 * @throws TskCoreException If there is a problem opening the database.
+	 */
+	public static SleuthkitCase openCase(String databaseName, CaseDbConnectionInfo info, String caseDir) throws TskCoreException {
+		try {
+			/*
+			 * The flow of this method involves trying to open case and if
+			 * successful, return that case. If unsuccessful, an exception is
+			 * thrown. We catch any exceptions, and use tryConnect() to attempt
+			 * to obtain further information about the error. If tryConnect() is
+			 * unable to successfully connect, tryConnect() will throw a
+			 * TskCoreException with a message containing user-level error
+			 * reporting. If tryConnect() is able to connect, flow continues and
+			 * we rethrow the original exception obtained from trying to create
+			 * the case. In this way, we obtain more detailed information if we
+			 * are able, but do not lose any information if unable.
+			 */
+			final SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.openCaseDb(databaseName, info);
+			return new SleuthkitCase(info.getHost(), Integer.parseInt(info.getPort()), databaseName, info.getUserName(), info.getPassword(), caseHandle, caseDir, info.getDbType());
+		} catch (PropertyVetoException exp) {
+			// In this case, the JDBC driver doesn't support PostgreSQL. Use the generic message here.
+			throw new TskCoreException(exp.getMessage(), exp);
+		} catch (TskUnsupportedSchemaVersionException ex) {
+			//don't wrap in new TskCoreException
+			throw ex;
+		} catch (Exception exp) {
+			tryConnect(info); // attempt to connect, throw with user-friendly message if unable
+			throw new TskCoreException(exp.getMessage(), exp); // throw with generic message if tryConnect() was successful
+		}
+	}
+
+	/**
+	 * Creates a new SQLite case database.
+	 *
+	 * @param dbPath Path to where SQlite case database should be created.
+	 *
+	 * @return A case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase newCase(String dbPath) throws TskCoreException {
+		return newCase(dbPath, ConcurrencyMode.SERIALIZED);
+	}
+
+	/**
+	 * Creates a new SQLite case database with a given concurrency mode.
+	 *
+	 * @param dbPath          Path to where SQlite case database should be
+	 *                        created.
+	 * @param concurrencyMode How threads that read and write the case database
+	 *                        are coordinated.
+	 *
+	 * @return A case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase newCase(String dbPath, ConcurrencyMode concurrencyMode) throws TskCoreException {
+		return newCase(dbPath, concurrencyMode, CaseDbPerformanceProfile.DEFAULT);
+	}
+
+	/**
+	 * Creates a new SQLite case database with the SQLite and connection pool
+	 * settings of a performance profile, including its concurrency mode.
+	 *
+	 * @param dbPath  Path to where SQlite case database should be created.
+	 * @param profile The performance profile.
+	 *
+	 * @return A case database object.
+	 *
+	 * @throws org.sleuthkit.datamodel.TskCoreException
+	 */
+	public static SleuthkitCase newCase(String dbPath, CaseDbPerformanceProfile profile) throws TskCoreException {
+		return newCase(dbPath, profile.getConcurrencyMode(), profile);
+	}
+
+	private static SleuthkitCase newCase(String dbPath, ConcurrencyMode concurrencyMode, CaseDbPerformanceProfile profile) throws TskCoreException {
+		try {
+			SleuthkitJNI.CaseDbHandle caseHandle = SleuthkitJNI.newCaseDb(dbPath);
+			return new SleuthkitCase(dbPath, caseHandle, DbType.SQLITE, concurrencyMode, profile);
+		} catch (Exception ex) {
+			throw new TskCoreException("Failed to create case database at " + dbPath, ex);
+		}
+	}
+
+	/**
+	 * Creates a new PostgreSQL case database.
+	 *
+	 * @param caseName    The name of the case. It will be used to create a case
 	 *                    database name that can be safely used in SQL commands
 	 *                    and will not be subject to name collisions on the case
 	 *                    database server. Use getDatabaseName to get the
@@ -1631,7 +2238,7 @@ public DataSource getDataSource(long objectId) throws TskDataException, TskCoreE
 	 * @throws TskCoreException
 	 */
 	public ArrayList<BlackboardArtifact> getBlackboardArtifacts(int artifactTypeID) throws TskCoreException {
-		return getArtifactsHelper("blackboard_artifacts.artifact_type_id = " + artifactTypeID);
+		return getArtifactsHelper(PREPARED_STATEMENT.SELECT_ARTIFACTS_WITH_TYPE_BY_TYPE_ID, artifactTypeID);
 	}
 
 	/**
@@ -2190,23 +2797,48 @@ private ArrayList<BlackboardArtifact> getArtifactsHelper(String whereClause) thr
 		ResultSet rs = null;
 		try {
 			Statement statement = connection.createStatement();
-			String query = "SELECT blackboard_artifacts.artifact_id AS artifact_id, "
-					+ "blackboard_artifacts.obj_id AS obj_id, "
-					+ "blackboard_artifacts.artifact_obj_id AS artifact_obj_id, "
-					+ "blackboard_artifact_types.artifact_type_id AS artifact_type_id, "
-					+ "blackboard_artifact_types.type_name AS type_name, "
-					+ "blackboard_artifact_types.display_name AS display_name, "
-					+ "blackboard_artifacts.review_status_id AS review_status_id "
-					+ "FROM blackboard_artifacts, blackboard_artifact_types "
-					+ "WHERE blackboard_artifacts.artifact_type_id = blackboard_artifact_types.artifact_type_id "
-					+ " AND blackboard_artifacts.review_status_id !=" + BlackboardArtifact.ReviewStatus.REJECTED.getID()
-					+ " AND " + whereClause;
-			rs = connection.executeQuery(statement, query);
+			rs = connection.executeQuery(statement, getArtifactsHelperQuery(whereClause));
 			ArrayList<BlackboardArtifact> artifacts = new ArrayList<BlackboardArtifact>();
 			while (rs.next()) {
-				artifacts.add(new BlackboardArtifact(this, rs.getLong("artifact_id"), rs.getLong("obj_id"), rs.getLong("artifact_obj_id"),
-						rs.getInt("artifact_type_id"), rs.getString("type_name"), rs.getString("display_name"),
-						BlackboardArtifact.ReviewStatus.withID(rs.getInt("review_status_id"))));
+				artifacts.add(artifactWithTypeFromResultSet(rs));
+			}
+			return artifacts;
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error getting or creating a blackboard artifact", ex);
+		} finally {
+			closeResultSet(rs);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
+	/**
+	 * Gets unrejected blackboard artifacts using a prepared statement built
+	 * from the query of getArtifactsHelperQuery.
+	 *
+	 * @param statementKey The prepared statement.
+	 * @param parameters   The values of the parameters of the statement, in
+	 *                     order.
+	 *
+	 * @return A list of BlackboardArtifact objects.
+	 *
+	 * @throws TskCoreException If there is a problem querying the case
+	 *                          database.
+	 */
+	private ArrayList<BlackboardArtifact> getArtifactsHelper(PREPARED_STATEMENT statementKey, Object... parameters) throws TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		ResultSet rs = null;
+		try {
+			PreparedStatement statement = connection.getPreparedStatement(statementKey);
+			statement.clearParameters();
+			for (int i = 0; i < parameters.length; i++) {
+				statement.setObject(i + 1, parameters[i]);
+			}
+			rs = connection.executeQuery(statement);
+			ArrayList<BlackboardArtifact> artifacts = new ArrayList<BlackboardArtifact>();
+			while (rs.next()) {
+				artifacts.add(artifactWithTypeFromResultSet(rs));
 			}
 			return artifacts;
 		} catch (SQLException ex) {
@@ -2218,6 +2850,43 @@ private ArrayList<BlackboardArtifact> getArtifactsHelper(String whereClause) thr
 		}
 	}
 
+	/**
+	 * Builds the query used by getArtifactsHelper and the artifact cursors.
+	 *
+	 * @param whereClause The WHERE clause to append to the SELECT statement.
+	 *
+	 * @return The query.
+	 */
+	private static String getArtifactsHelperQuery(String whereClause) {
+		return "SELECT blackboard_artifacts.artifact_id AS artifact_id, "
+				+ "blackboard_artifacts.obj_id AS obj_id, "
+				+ "blackboard_artifacts.artifact_obj_id AS artifact_obj_id, "
+				+ "blackboard_artifact_types.artifact_type_id AS artifact_type_id, "
+				+ "blackboard_artifact_types.type_name AS type_name, "
+				+ "blackboard_artifact_types.display_name AS display_name, "
+				+ "blackboard_artifacts.review_status_id AS review_status_id "
+				+ "FROM blackboard_artifacts, blackboard_artifact_types "
+				+ "WHERE blackboard_artifacts.artifact_type_id = blackboard_artifact_types.artifact_type_id "
+				+ " AND blackboard_artifacts.review_status_id !=" + BlackboardArtifact.ReviewStatus.REJECTED.getID()
+				+ " AND " + whereClause;
+	}
+
+	/**
+	 * Creates a BlackboardArtifact from the current row of a result set of the
+	 * query built by getArtifactsHelperQuery.
+	 *
+	 * @param rs The result set, positioned on the row to read.
+	 *
+	 * @return The artifact.
+	 *
+	 * @throws SQLException If there is a problem reading the row.
+	 */
+	private BlackboardArtifact artifactWithTypeFromResultSet(ResultSet rs) throws SQLException {
+		return new BlackboardArtifact(this, rs.getLong("artifact_id"), rs.getLong("obj_id"), rs.getLong("artifact_obj_id"),
+				rs.getInt("artifact_type_id"), rs.getString("type_name"), rs.getString("display_name"),
+				BlackboardArtifact.ReviewStatus.withID(rs.getInt("review_status_id")));
+	}
+
 	/**
 	 * Helper method to get count of all artifacts matching the type id and
 	 * object id. Does not included rejected artifacts.
@@ -2268,7 +2937,7 @@ private long getArtifactsCountHelper(int artifactTypeID, long obj_id) throws Tsk
 	 *                          within TSK core
 	 */
 	public ArrayList<BlackboardArtifact> getBlackboardArtifacts(String artifactTypeName, long obj_id) throws TskCoreException {
-		return getArtifactsHelper("blackboard_artifacts.obj_id = " + obj_id + " AND blackboard_artifact_types.type_name = '" + artifactTypeName + "';");
+		return getArtifactsHelper(PREPARED_STATEMENT.SELECT_ARTIFACTS_WITH_TYPE_BY_OBJ_ID_AND_TYPE_NAME, obj_id, artifactTypeName);
 	}
 
 	/**
@@ -2284,7 +2953,7 @@ public ArrayList<BlackboardArtifact> getBlackboardArtifacts(String artifactTypeN
 	 *                          within TSK core
 	 */
 	public ArrayList<BlackboardArtifact> getBlackboardArtifacts(int artifactTypeID, long obj_id) throws TskCoreException {
-		return getArtifactsHelper("blackboard_artifacts.obj_id = " + obj_id + " AND blackboard_artifact_types.artifact_type_id = " + artifactTypeID + ";");
+		return getArtifactsHelper(PREPARED_STATEMENT.SELECT_ARTIFACTS_WITH_TYPE_BY_OBJ_ID_AND_TYPE_ID, obj_id, artifactTypeID);
 	}
 
 	/**
@@ -2367,7 +3036,7 @@ public long getBlackboardArtifactsCount(ARTIFACT_TYPE artifactType, long obj_id)
 	 *                          within TSK core
 	 */
 	public ArrayList<BlackboardArtifact> getBlackboardArtifacts(String artifactTypeName) throws TskCoreException {
-		return getArtifactsHelper("blackboard_artifact_types.type_name = '" + artifactTypeName + "';");
+		return getArtifactsHelper(PREPARED_STATEMENT.SELECT_ARTIFACTS_WITH_TYPE_BY_TYPE_NAME, artifactTypeName);
 	}
 
 	/**
@@ -2382,7 +3051,7 @@ public ArrayList<BlackboardArtifact> getBlackboardArtifacts(String artifactTypeN
 	 *                          within TSK core
 	 */
 	public ArrayList<BlackboardArtifact> getBlackboardArtifacts(ARTIFACT_TYPE artifactType) throws TskCoreException {
-		return getArtifactsHelper("blackboard_artifact_types.artifact_type_id = " + artifactType.getTypeID() + ";");
+		return getArtifactsHelper(PREPARED_STATEMENT.SELECT_ARTIFACTS_WITH_TYPE_BY_TYPE_ID, artifactType.getTypeID());
 	}
 
 	/**
@@ -2527,36 +3196,49 @@ public void addBlackboardAttributes(Collection<BlackboardAttribute> attributes,
 	}
 
 	private void addBlackBoardAttribute(BlackboardAttribute attr, int artifactTypeId, CaseDbConnection connection) throws SQLException, TskCoreException {
+		connection.executeUpdate(getAddBlackboardAttributeStatement(attr, artifactTypeId, connection));
+	}
+
+	/**
+	 * Gets the prepared INSERT statement for an attribute's value type and
+	 * sets its parameters to the values of the attribute.
+	 *
+	 * @param attr           A blackboard attribute.
+	 * @param artifactTypeId The type of artifact associated with the attribute.
+	 * @param connection     The connection to prepare the statement on.
+	 *
+	 * @return The statement, ready to be executed or added to a batch.
+	 *
+	 * @throws SQLException     If there is a problem setting the parameters.
+	 * @throws TskCoreException If the value type of the attribute is unknown.
+	 */
+	private PreparedStatement getAddBlackboardAttributeStatement(BlackboardAttribute attr, int artifactTypeId, CaseDbConnection connection) throws SQLException, TskCoreException {
+		// Every parameter is set, so they are not cleared first; the SQLite
+		// driver drops the rows already added to a batch when they are.
 		PreparedStatement statement;
 		switch (attr.getAttributeType().getValueType()) {
 			case STRING:
 				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_STRING_ATTRIBUTE);
-				statement.clearParameters();
 				statement.setString(7, attr.getValueString());
 				break;
 			case BYTE:
 				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_BYTE_ATTRIBUTE);
-				statement.clearParameters();
 				statement.setBytes(7, attr.getValueBytes());
 				break;
 			case INTEGER:
 				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_INT_ATTRIBUTE);
-				statement.clearParameters();
 				statement.setInt(7, attr.getValueInt());
 				break;
 			case LONG:
 				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LONG_ATTRIBUTE);
-				statement.clearParameters();
 				statement.setLong(7, attr.getValueLong());
 				break;
 			case DOUBLE:
 				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_DOUBLE_ATTRIBUTE);
-				statement.clearParameters();
 				statement.setDouble(7, attr.getValueDouble());
 				break;
 			case DATETIME:
 				statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_LONG_ATTRIBUTE);
-				statement.clearParameters();
 				statement.setLong(7, attr.getValueLong());
 				break;
 			default:
@@ -2568,7 +3250,7 @@ private void addBlackBoardAttribute(BlackboardAttribute attr, int artifactTypeId
 		statement.setString(4, "");
 		statement.setInt(5, attr.getAttributeType().getTypeID());
 		statement.setLong(6, attr.getAttributeType().getValueType().getType());
-		connection.executeUpdate(statement);
+		return statement;
 	}
 
 	/**
@@ -2726,9 +3408,8 @@ public BlackboardAttribute.Type addArtifactAttributeType(String attrTypeString,
 				}
 				connection.executeUpdate(s, "INSERT INTO blackboard_attribute_types (attribute_type_id, type_name, display_name, value_type) VALUES ('" + maxID + "', '" + attrTypeString + "', '" + displayName + "', '" + valueType.getType() + "')"); //NON-NLS
 				BlackboardAttribute.Type type = new BlackboardAttribute.Type(maxID, attrTypeString, displayName, valueType);
-				this.typeIdToAttributeTypeMap.put(type.getTypeID(), type);
-				this.typeNameToAttributeTypeMap.put(type.getTypeName(), type);
 				connection.commitTransaction();
+				this.attributeTypes.register(type.getTypeID(), type.getTypeName(), type);
 				return type;
 			} else {
 				throw new TskDataException("The attribute type that was added was already within the system.");
@@ -2756,8 +3437,9 @@ public BlackboardAttribute.Type addArtifactAttributeType(String attrTypeString,
 	 *
 	 */
 	public BlackboardAttribute.Type getAttributeType(String attrTypeName) throws TskCoreException {
-		if (this.typeNameToAttributeTypeMap.containsKey(attrTypeName)) {
-			return this.typeNameToAttributeTypeMap.get(attrTypeName);
+		BlackboardAttribute.Type registeredType = attributeTypes.get(attrTypeName);
+		if (registeredType != null) {
+			return registeredType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -2770,8 +3452,7 @@ public BlackboardAttribute.Type getAttributeType(String attrTypeName) throws Tsk
 			if (rs.next()) {
 				type = new BlackboardAttribute.Type(rs.getInt("attribute_type_id"), rs.getString("type_name"),
 						rs.getString("display_name"), TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getLong("value_type")));
-				this.typeIdToAttributeTypeMap.put(type.getTypeID(), type);
-				this.typeNameToAttributeTypeMap.put(attrTypeName, type);
+				this.attributeTypes.register(type.getTypeID(), type.getTypeName(), type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -2795,8 +3476,9 @@ public BlackboardAttribute.Type getAttributeType(String attrTypeName) throws Tsk
 	 *
 	 */
 	private BlackboardAttribute.Type getAttributeType(int typeID) throws TskCoreException {
-		if (this.typeIdToAttributeTypeMap.containsKey(typeID)) {
-			return this.typeIdToAttributeTypeMap.get(typeID);
+		BlackboardAttribute.Type registeredType = attributeTypes.get(typeID);
+		if (registeredType != null) {
+			return registeredType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -2809,8 +3491,7 @@ private BlackboardAttribute.Type getAttributeType(int typeID) throws TskCoreExce
 			if (rs.next()) {
 				type = new BlackboardAttribute.Type(rs.getInt("attribute_type_id"), rs.getString("type_name"),
 						rs.getString("display_name"), TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getLong("value_type")));
-				this.typeIdToAttributeTypeMap.put(typeID, type);
-				this.typeNameToAttributeTypeMap.put(type.getTypeName(), type);
+				this.attributeTypes.register(type.getTypeID(), type.getTypeName(), type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -2834,8 +3515,9 @@ private BlackboardAttribute.Type getAttributeType(int typeID) throws TskCoreExce
 	 *
 	 */
 	public BlackboardArtifact.Type getArtifactType(String artTypeName) throws TskCoreException {
-		if (this.typeNameToArtifactTypeMap.containsKey(artTypeName)) {
-			return this.typeNameToArtifactTypeMap.get(artTypeName);
+		BlackboardArtifact.Type registeredType = artifactTypes.get(artTypeName);
+		if (registeredType != null) {
+			return registeredType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -2848,8 +3530,7 @@ public BlackboardArtifact.Type getArtifactType(String artTypeName) throws TskCor
 			if (rs.next()) {
 				type = new BlackboardArtifact.Type(rs.getInt("artifact_type_id"),
 						rs.getString("type_name"), rs.getString("display_name"));
-				this.typeIdToArtifactTypeMap.put(type.getTypeID(), type);
-				this.typeNameToArtifactTypeMap.put(artTypeName, type);
+				this.artifactTypes.register(type.getTypeID(), type.getTypeName(), type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -2873,8 +3554,9 @@ public BlackboardArtifact.Type getArtifactType(String artTypeName) throws TskCor
 	 *
 	 */
 	BlackboardArtifact.Type getArtifactType(int artTypeId) throws TskCoreException {
-		if (this.typeIdToArtifactTypeMap.containsKey(artTypeId)) {
-			return typeIdToArtifactTypeMap.get(artTypeId);
+		BlackboardArtifact.Type registeredType = artifactTypes.get(artTypeId);
+		if (registeredType != null) {
+			return registeredType;
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
@@ -2887,8 +3569,7 @@ BlackboardArtifact.Type getArtifactType(int artTypeId) throws TskCoreException {
 			if (rs.next()) {
 				type = new BlackboardArtifact.Type(rs.getInt("artifact_type_id"),
 						rs.getString("type_name"), rs.getString("display_name"));
-				this.typeIdToArtifactTypeMap.put(artTypeId, type);
-				this.typeNameToArtifactTypeMap.put(type.getTypeName(), type);
+				this.artifactTypes.register(type.getTypeID(), type.getTypeName(), type);
 			}
 			return type;
 		} catch (SQLException ex) {
@@ -2936,9 +3617,8 @@ public BlackboardArtifact.Type addBlackboardArtifactType(String artifactTypeName
 				}
 				connection.executeUpdate(s, "INSERT INTO blackboard_artifact_types (artifact_type_id, type_name, display_name) VALUES ('" + maxID + "', '" + artifactTypeName + "', '" + displayName + "')"); //NON-NLS
 				BlackboardArtifact.Type type = new BlackboardArtifact.Type(maxID, artifactTypeName, displayName);
-				this.typeIdToArtifactTypeMap.put(type.getTypeID(), type);
-				this.typeNameToArtifactTypeMap.put(type.getTypeName(), type);
 				connection.commitTransaction();
+				this.artifactTypes.register(type.getTypeID(), type.getTypeName(), type);
 				return type;
 			} else {
 				throw new TskDataException("The attribute type that was added was already within the system.");
@@ -2959,42 +3639,13 @@ public ArrayList<BlackboardAttribute> getBlackboardAttributes(final BlackboardAr
 		acquireSingleUserCaseReadLock();
 		ResultSet rs = null;
 		try {
-			Statement statement = connection.createStatement();
-			rs = connection.executeQuery(statement, "SELECT attrs.artifact_id AS artifact_id, "
-					+ "attrs.source AS source, attrs.context AS context, attrs.attribute_type_id AS attribute_type_id, "
-					+ "attrs.value_type AS value_type, attrs.value_byte AS value_byte, "
-					+ "attrs.value_text AS value_text, attrs.value_int32 AS value_int32, "
-					+ "attrs.value_int64 AS value_int64, attrs.value_double AS value_double, "
-					+ "types.type_name AS type_name, types.display_name AS display_name "
-					+ "FROM blackboard_attributes AS attrs, blackboard_attribute_types AS types WHERE attrs.artifact_id = " + artifact.getArtifactID()
-					+ " AND attrs.attribute_type_id = types.attribute_type_id");
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_ATTRIBUTES_OF_ARTIFACT);
+			statement.clearParameters();
+			statement.setLong(1, artifact.getArtifactID());
+			rs = connection.executeQuery(statement);
 			ArrayList<BlackboardAttribute> attributes = new ArrayList<BlackboardAttribute>();
 			while (rs.next()) {
-				int attributeTypeId = rs.getInt("attribute_type_id");
-				String attributeTypeName = rs.getString("type_name");
-				BlackboardAttribute.Type attributeType;
-				if (this.typeIdToAttributeTypeMap.containsKey(attributeTypeId)) {
-					attributeType = this.typeIdToAttributeTypeMap.get(attributeTypeId);
-				} else {
-					attributeType = new BlackboardAttribute.Type(attributeTypeId, attributeTypeName,
-							rs.getString("display_name"),
-							BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getInt("value_type")));
-					this.typeIdToAttributeTypeMap.put(attributeTypeId, attributeType);
-					this.typeNameToAttributeTypeMap.put(attributeTypeName, attributeType);
-				}
-
-				final BlackboardAttribute attr = new BlackboardAttribute(
-						rs.getLong("artifact_id"),
-						attributeType,
-						rs.getString("source"),
-						rs.getString("context"),
-						rs.getInt("value_int32"),
-						rs.getLong("value_int64"),
-						rs.getDouble("value_double"),
-						rs.getString("value_text"),
-						rs.getBytes("value_byte"), this
-				);
-				attributes.add(attr);
+				attributes.add(attributeFromResultSet(rs));
 			}
 			return attributes;
 		} catch (SQLException ex) {
@@ -3007,31 +3658,181 @@ public ArrayList<BlackboardAttribute> getBlackboardAttributes(final BlackboardAr
 	}
 
 	/**
-	 * Get all attributes that match a where clause. The clause should begin
-	 * with "WHERE" or "JOIN". To use this method you must know the database
-	 * tables
-	 *
-	 * @param whereClause a sqlite where clause
+	 * Loads the attributes of a collection of artifacts and stores them in
+	 * each artifact's attribute cache, so that subsequent calls to
+	 * BlackboardArtifact.getAttributes do not query the case database. The
+	 * attributes are fetched with one query per chunk of artifacts rather than
+	 * one query per artifact.
 	 *
-	 * @return a list of matching attributes
+	 * @param artifacts The artifacts to load the attributes of.
 	 *
 	 * @throws TskCoreException exception thrown if a critical error occurs
-	 *                          within tsk core \ref query_database_page
+	 *                          within tsk core
 	 */
-	public ArrayList<BlackboardAttribute> getMatchingAttributes(String whereClause) throws TskCoreException {
+	public void loadBlackboardAttributes(Collection<BlackboardArtifact> artifacts) throws TskCoreException {
+		if (artifacts.isEmpty()) {
+			return;
+		}
+		// More than one artifact object may represent the same artifact.
+		Map<Long, List<BlackboardArtifact>> artifactsById = new LinkedHashMap<Long, List<BlackboardArtifact>>();
+		for (BlackboardArtifact artifact : artifacts) {
+			List<BlackboardArtifact> sameId = artifactsById.get(artifact.getArtifactID());
+			if (sameId == null) {
+				sameId = new ArrayList<BlackboardArtifact>(1);
+				artifactsById.put(artifact.getArtifactID(), sameId);
+			}
+			sameId.add(artifact);
+		}
+
+		Map<Long, List<BlackboardAttribute>> attributesById = new HashMap<Long, List<BlackboardAttribute>>();
+		for (Long artifactId : artifactsById.keySet()) {
+			attributesById.put(artifactId, new ArrayList<BlackboardAttribute>());
+		}
+
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
+		Statement statement = null;
 		ResultSet rs = null;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT blackboard_attributes.artifact_id AS artifact_id, "
-					+ "blackboard_attributes.source AS source, blackboard_attributes.context AS context, "
-					+ "blackboard_attributes.attribute_type_id AS attribute_type_id, "
-					+ "blackboard_attributes.value_type AS value_type, blackboard_attributes.value_byte AS value_byte, "
-					+ "blackboard_attributes.value_text AS value_text, blackboard_attributes.value_int32 AS value_int32, "
-					+ "blackboard_attributes.value_int64 AS value_int64, blackboard_attributes.value_double AS value_double "
-					+ "FROM blackboard_attributes " + whereClause); //NON-NLS
+			statement = connection.createStatement();
+			List<Long> artifactIds = new ArrayList<Long>(artifactsById.keySet());
+			for (int start = 0; start < artifactIds.size(); start += MAX_IDS_PER_IN_CLAUSE) {
+				List<Long> chunk = artifactIds.subList(start, Math.min(start + MAX_IDS_PER_IN_CLAUSE, artifactIds.size()));
+				rs = connection.executeQuery(statement, "SELECT attrs.artifact_id AS artifact_id, " //NON-NLS
+						+ "attrs.source AS source, attrs.context AS context, attrs.attribute_type_id AS attribute_type_id, " //NON-NLS
+						+ "attrs.value_type AS value_type, attrs.value_byte AS value_byte, " //NON-NLS
+						+ "attrs.value_text AS value_text, attrs.value_int32 AS value_int32, " //NON-NLS
+						+ "attrs.value_int64 AS value_int64, attrs.value_double AS value_double, " //NON-NLS
+						+ "types.type_name AS type_name, types.display_name AS display_name " //NON-NLS
+						+ "FROM blackboard_attributes AS attrs, blackboard_attribute_types AS types " //NON-NLS
+						+ "WHERE attrs.artifact_id IN (" + joinIds(chunk) + ")" //NON-NLS
+						+ " AND attrs.attribute_type_id = types.attribute_type_id"); //NON-NLS
+				while (rs.next()) {
+					BlackboardAttribute attr = attributeFromResultSet(rs);
+					attributesById.get(attr.getArtifactID()).add(attr);
+				}
+				rs.close();
+				rs = null;
+			}
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error getting attributes for artifacts", ex);
+		} finally {
+			closeResultSet(rs);
+			closeStatement(statement);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+
+		for (Map.Entry<Long, List<BlackboardArtifact>> entry : artifactsById.entrySet()) {
+			List<BlackboardAttribute> attributes = attributesById.get(entry.getKey());
+			for (BlackboardArtifact artifact : entry.getValue()) {
+				artifact.setAttributesCache(attributes);
+			}
+		}
+	}
+
+	/**
+	 * Gets all of the artifacts of a given type associated with a data
+	 * source, with their attributes already loaded. The attributes are loaded
+	 * with loadBlackboardAttributes, so the total number of queries grows with
+	 * the number of chunks of artifacts rather than the number of artifacts.
+	 *
+	 * @param artifactType    The artifact type.
+	 * @param dataSourceObjId The object id of the data source.
+	 *
+	 * @return The artifacts, each with its attribute cache populated.
+	 *
+	 * @throws TskCoreException exception thrown if a critical error occurs
+	 *                          within tsk core
+	 */
+	public List<BlackboardArtifact> getBlackboardArtifactsWithAttributes(BlackboardArtifact.Type artifactType, long dataSourceObjId) throws TskCoreException {
+		List<BlackboardArtifact> artifacts = getArtifactsHelper("blackboard_artifacts.artifact_type_id = " + artifactType.getTypeID() //NON-NLS
+				+ " AND (blackboard_artifacts.obj_id = " + dataSourceObjId //NON-NLS
+				+ " OR blackboard_artifacts.obj_id IN (SELECT obj_id FROM tsk_files WHERE data_source_obj_id = " + dataSourceObjId + "))"); //NON-NLS
+		loadBlackboardAttributes(artifacts);
+		return artifacts;
+	}
+
+	/**
+	 * Creates a BlackboardAttribute from the current row of a result set of a
+	 * query of the blackboard_attributes table joined with the
+	 * blackboard_attribute_types table. Attribute types not seen before are
+	 * added to the attribute type registry.
+	 *
+	 * @param rs A result set positioned on a row.
+	 *
+	 * @return The attribute.
+	 *
+	 * @throws SQLException if there is a problem reading the row.
+	 */
+	private BlackboardAttribute attributeFromResultSet(ResultSet rs) throws SQLException {
+		int attributeTypeId = rs.getInt("attribute_type_id");
+		BlackboardAttribute.Type attributeType = attributeTypes.get(attributeTypeId);
+		if (attributeType == null) {
+			String attributeTypeName = rs.getString("type_name");
+			attributeType = new BlackboardAttribute.Type(attributeTypeId, attributeTypeName,
+					rs.getString("display_name"),
+					BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.fromType(rs.getInt("value_type")));
+			this.attributeTypes.register(attributeTypeId, attributeTypeName, attributeType);
+		}
+
+		return new BlackboardAttribute(
+				rs.getLong("artifact_id"),
+				attributeType,
+				rs.getString("source"),
+				rs.getString("context"),
+				rs.getInt("value_int32"),
+				rs.getLong("value_int64"),
+				rs.getDouble("value_double"),
+				rs.getString("value_text"),
+				rs.getBytes("value_byte"), this
+		);
+	}
+
+	/**
+	 * Joins object ids into a comma separated list for use in an IN clause.
+	 *
+	 * @param ids The ids.
+	 *
+	 * @return The comma separated ids.
+	 */
+	private static String joinIds(Collection<Long> ids) {
+		StringBuilder builder = new StringBuilder(ids.size() * 12);
+		for (Long id : ids) {
+			if (builder.length() > 0) {
+				builder.append(',');
+			}
+			builder.append(id);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Get all attributes that match a where clause. The clause should begin
+	 * with "WHERE" or "JOIN". To use this method you must know the database
+	 * tables
+	 *
+	 * @param whereClause a sqlite where clause
+	 *
+	 * @return a list of matching attributes
+	 *
+	 * @throws TskCoreException exception thrown if a critical error occurs
+	 *                          within tsk core \ref query_database_page
+	 */
+	public ArrayList<BlackboardAttribute> getMatchingAttributes(String whereClause) throws TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		Statement s = null;
+		ResultSet rs = null;
+		try {
+			s = connection.createStatement();
+			rs = connection.executeQuery(s, "SELECT blackboard_attributes.artifact_id AS artifact_id, "
+					+ "blackboard_attributes.source AS source, blackboard_attributes.context AS context, "
+					+ "blackboard_attributes.attribute_type_id AS attribute_type_id, "
+					+ "blackboard_attributes.value_type AS value_type, blackboard_attributes.value_byte AS value_byte, "
+					+ "blackboard_attributes.value_text AS value_text, blackboard_attributes.value_int32 AS value_int32, "
+					+ "blackboard_attributes.value_int64 AS value_int64, blackboard_attributes.value_double AS value_double "
+					+ "FROM blackboard_attributes " + whereClause); //NON-NLS
 			ArrayList<BlackboardAttribute> matches = new ArrayList<BlackboardAttribute>();
 			while (rs.next()) {
 				BlackboardAttribute.Type type;
@@ -3079,19 +3880,10 @@ public ArrayList<BlackboardArtifact> getMatchingArtifacts(String whereClause) th
 		Statement s = null;
 		try {
 			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT blackboard_artifacts.artifact_id AS artifact_id, "
-					+ "blackboard_artifacts.obj_id AS obj_id, blackboard_artifacts.artifact_obj_id AS artifact_obj_id, blackboard_artifacts.artifact_type_id AS artifact_type_id, "
-					+ "blackboard_artifacts.review_status_id AS review_status_id  "
-					+ "FROM blackboard_artifacts " + whereClause); //NON-NLS
+			rs = connection.executeQuery(s, getMatchingArtifactsQuery(whereClause));
 			ArrayList<BlackboardArtifact> matches = new ArrayList<BlackboardArtifact>();
 			while (rs.next()) {
-				BlackboardArtifact.Type type;
-				// artifact type is cached, so this does not necessarily call to the db
-				type = this.getArtifactType(rs.getInt("artifact_type_id"));
-				BlackboardArtifact artifact = new BlackboardArtifact(this, rs.getLong("artifact_id"), rs.getLong("obj_id"), rs.getLong("artifact_obj_id"),
-						type.getTypeID(), type.getTypeName(), type.getDisplayName(),
-						BlackboardArtifact.ReviewStatus.withID(rs.getInt("review_status_id")));
-				matches.add(artifact);
+				matches.add(matchingArtifactFromResultSet(rs));
 			}
 			return matches;
 		} catch (SQLException ex) {
@@ -3104,6 +3896,86 @@ public ArrayList<BlackboardArtifact> getMatchingArtifacts(String whereClause) th
 		}
 	}
 
+	/**
+	 * Builds the query used by getMatchingArtifacts and the matching artifacts
+	 * cursor.
+	 *
+	 * @param whereClause A clause beginning with "WHERE" or "JOIN".
+	 *
+	 * @return The query.
+	 */
+	private static String getMatchingArtifactsQuery(String whereClause) {
+		return "SELECT blackboard_artifacts.artifact_id AS artifact_id, "
+				+ "blackboard_artifacts.obj_id AS obj_id, blackboard_artifacts.artifact_obj_id AS artifact_obj_id, blackboard_artifacts.artifact_type_id AS artifact_type_id, "
+				+ "blackboard_artifacts.review_status_id AS review_status_id  "
+				+ "FROM blackboard_artifacts " + whereClause; //NON-NLS
+	}
+
+	/**
+	 * Creates a BlackboardArtifact from the current row of a result set of the
+	 * query built by getMatchingArtifactsQuery.
+	 *
+	 * @param rs The result set, positioned on the row to read.
+	 *
+	 * @return The artifact.
+	 *
+	 * @throws SQLException     If there is a problem reading the row.
+	 * @throws TskCoreException If there is a problem looking up the artifact
+	 *                          type.
+	 */
+	private BlackboardArtifact matchingArtifactFromResultSet(ResultSet rs) throws SQLException, TskCoreException {
+		// artifact type is cached, so this does not necessarily call to the db
+		BlackboardArtifact.Type type = this.getArtifactType(rs.getInt("artifact_type_id"));
+		return new BlackboardArtifact(this, rs.getLong("artifact_id"), rs.getLong("obj_id"), rs.getLong("artifact_obj_id"),
+				type.getTypeID(), type.getTypeName(), type.getDisplayName(),
+				BlackboardArtifact.ReviewStatus.withID(rs.getInt("review_status_id")));
+	}
+
+	/**
+	 * Opens a cursor over all artifacts that match a where clause. Unlike
+	 * getMatchingArtifacts, the artifacts are created one page of rows at a
+	 * time as the cursor is advanced, so the memory used does not depend on
+	 * the number of matches. The artifacts are returned in the order of their artifact ids.
+	 * See CaseDbCursor.
+	 *
+	 * @param whereClause a sqlite where clause, beginning with "WHERE" or
+	 *                    "JOIN"
+	 *
+	 * @return A cursor over the matching artifacts.
+	 *
+	 * @throws TskCoreException exception thrown if a critical error occurs
+	 *                          within tsk core \ref query_database_page
+	 */
+	public CaseDbCursor<BlackboardArtifact> openMatchingArtifactsCursor(String whereClause) throws TskCoreException {
+		return new CaseDbCursor<BlackboardArtifact>(getMatchingArtifactsQuery(whereClause), "artifact_id") { //NON-NLS
+			@Override
+			BlackboardArtifact fromResultSet(ResultSet rs, CaseDbConnection connection) throws SQLException, TskCoreException {
+				return matchingArtifactFromResultSet(rs);
+			}
+		};
+	}
+
+	/**
+	 * Opens a cursor over all blackboard artifacts of a given type. Does not
+	 * include rejected artifacts. The artifacts are returned in the order of
+	 * their artifact ids. See CaseDbCursor.
+	 *
+	 * @param artifactType The artifact type.
+	 *
+	 * @return A cursor over the artifacts.
+	 *
+	 * @throws TskCoreException If there is a problem querying the case
+	 *                          database.
+	 */
+	public CaseDbCursor<BlackboardArtifact> openBlackboardArtifactsCursor(BlackboardArtifact.Type artifactType) throws TskCoreException {
+		return new CaseDbCursor<BlackboardArtifact>(getArtifactsHelperQuery("blackboard_artifact_types.artifact_type_id = " + artifactType.getTypeID()), "artifact_id") { //NON-NLS
+			@Override
+			BlackboardArtifact fromResultSet(ResultSet rs, CaseDbConnection connection) throws SQLException {
+				return artifactWithTypeFromResultSet(rs);
+			}
+		};
+	}
+
 	/**
 	 * Add a new blackboard artifact with the given type. If that artifact type
 	 * does not exist an error will be thrown. The artifact type name can be
@@ -3172,6 +4044,7 @@ private BlackboardArtifact newBlackboardArtifact(int artifact_type_id, long obj_
 			connection.executeUpdate(statement);
 			resultSet = statement.getGeneratedKeys();
 			resultSet.next();
+			childrenChanged(obj_id);
 			return new BlackboardArtifact(this, resultSet.getLong(1), //last_insert_rowid()
 					obj_id, artifact_obj_id, artifact_type_id, artifactTypeName, artifactDisplayName, BlackboardArtifact.ReviewStatus.UNDECIDED, true);
 		} catch (SQLException ex) {
@@ -3316,6 +4189,61 @@ List<Content> getAbstractFileChildren(Content parent) throws TskCoreException {
 		}
 	}
 
+	/**
+	 * Gets summaries of the files that are children of a given content, in the
+	 * order of Content.getChildren: directories first, then by name. Only the
+	 * columns of a FileSummary are read, so this is the cheapest way to list
+	 * the contents of a directory.
+	 *
+	 * @param parent The parent content.
+	 *
+	 * @return The file summaries.
+	 *
+	 * @throws TskCoreException exception thrown if a critical error occurs
+	 *                          within tsk core
+	 */
+	public List<FileSummary> getFileSummaries(Content parent) throws TskCoreException {
+		return getFileSummaries(parent.getId());
+	}
+
+	/**
+	 * Gets summaries of the files that are children of the content with a
+	 * given object id, in the order of Content.getChildren: directories first,
+	 * then by name. Only the columns of a FileSummary are read, so this is the
+	 * cheapest way to list the contents of a directory.
+	 *
+	 * @param parentId The object id of the parent content.
+	 *
+	 * @return The file summaries.
+	 *
+	 * @throws TskCoreException exception thrown if a critical error occurs
+	 *                          within tsk core
+	 */
+	public List<FileSummary> getFileSummaries(long parentId) throws TskCoreException {
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		ResultSet rs = null;
+		try {
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILE_SUMMARIES_BY_PARENT);
+			statement.clearParameters();
+			statement.setLong(1, parentId);
+			rs = connection.executeQuery(statement);
+			List<FileSummary> summaries = new ArrayList<FileSummary>();
+			while (rs.next()) {
+				summaries.add(new FileSummary(rs.getLong(1), rs.getString(2), rs.getShort(3),
+						rs.getShort(4), rs.getShort(5), rs.getShort(6), rs.getShort(7), rs.getLong(8),
+						rs.getLong(9), rs.getLong(10), rs.getLong(11), rs.getLong(12)));
+			}
+			return summaries;
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error getting file summaries for children of object " + parentId, ex);
+		} finally {
+			closeResultSet(rs);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+	}
+
 	/**
 	 * Get list of IDs for abstract files of a given type that are children of a
 	 * given content.
@@ -3428,7 +4356,7 @@ List<Long> getBlackboardArtifactChildrenIds(Content parent) throws TskCoreExcept
 	List<Content> getBlackboardArtifactChildren(Content parent) throws TskCoreException {
 
 		long parentId = parent.getId();
-		ArrayList<BlackboardArtifact> artsArray = getArtifactsHelper("blackboard_artifacts.obj_id = " + parentId + ";");
+		ArrayList<BlackboardArtifact> artsArray = getArtifactsHelper(PREPARED_STATEMENT.SELECT_ARTIFACTS_WITH_TYPE_BY_OBJ_ID, parentId);
 
 		List<Content> lc = new ArrayList<Content>();
 		lc.addAll(artsArray);
@@ -3585,13 +4513,21 @@ Directory getParentDirectory(FsContent fsc) throws TskCoreException {
 	 *                          core
 	 */
 	public Content getContentById(long id) throws TskCoreException {
+		final ContentCache cache = contentCache;
+		if (cache != null) {
+			Content cached = cache.get(id);
+			if (cached != null) {
+				return cached;
+			}
+		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
 		ResultSet rs = null;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT * FROM tsk_objects WHERE obj_id = " + id + " LIMIT  1"); //NON-NLS
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_OBJECT_BY_ID);
+			statement.clearParameters();
+			statement.setLong(1, id);
+			rs = connection.executeQuery(statement);
 			if (!rs.next()) {
 				return null;
 			}
@@ -3613,20 +4549,22 @@ public Content getContentById(long id) throws TskCoreException {
 					content = getFileSystemById(id, parentId);
 					break;
 				case ABSTRACTFILE:
-					content = getAbstractFileById(id);
+					content = loadAbstractFileById(id);
 					break;
 				case ARTIFACT:
-					content = getArtifactById(id);
+					content = loadArtifactById(id);
 					break;
 				default:
 					throw new TskCoreException("Could not obtain Content object with ID: " + id);
 			}
+			if (cache != null && content != null) {
+				content = cache.put(content);
+			}
 			return content;
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error getting Content by ID.", ex);
 		} finally {
 			closeResultSet(rs);
-			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
@@ -3819,6 +4757,30 @@ DerivedFile.DerivedMethod getDerivedMethod(long id) throws TskCoreException {
 	 *                          core and file could not be queried
 	 */
 	public AbstractFile getAbstractFileById(long id) throws TskCoreException {
+		final ContentCache cache = contentCache;
+		if (cache == null) {
+			return loadAbstractFileById(id);
+		}
+		Content cached = cache.get(id);
+		if (cached instanceof AbstractFile) {
+			return (AbstractFile) cached;
+		}
+		AbstractFile file = loadAbstractFileById(id);
+		return file == null ? null : cache.put(file);
+	}
+
+	/**
+	 * Get abstract file object from tsk_files table by its id, bypassing the
+	 * content cache.
+	 *
+	 * @param id id of the file object in tsk_files table
+	 *
+	 * @return AbstractFile object populated, or null if not found.
+	 *
+	 * @throws TskCoreException thrown if critical error occurred within tsk
+	 *                          core and file could not be queried
+	 */
+	private AbstractFile loadAbstractFileById(long id) throws TskCoreException {
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet rs = null;
@@ -3853,6 +4815,30 @@ public AbstractFile getAbstractFileById(long id) throws TskCoreException {
 	 *                          core and file could not be queried
 	 */
 	public BlackboardArtifact getArtifactById(long id) throws TskCoreException {
+		final ContentCache cache = contentCache;
+		if (cache == null) {
+			return loadArtifactById(id);
+		}
+		Content cached = cache.get(id);
+		if (cached instanceof BlackboardArtifact) {
+			return (BlackboardArtifact) cached;
+		}
+		BlackboardArtifact artifact = loadArtifactById(id);
+		return artifact == null ? null : cache.put(artifact);
+	}
+
+	/**
+	 * Get artifact from blackboard_artifacts table by its artifact_obj_id,
+	 * bypassing the content cache.
+	 *
+	 * @param id id of the artifact object in blackboard_artifacts table
+	 *
+	 * @return Artifact object populated, or null if not found.
+	 *
+	 * @throws TskCoreException thrown if critical error occurred within tsk
+	 *                          core and file could not be queried
+	 */
+	private BlackboardArtifact loadArtifactById(long id) throws TskCoreException {
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
 		ResultSet rs = null;
@@ -4093,6 +5079,9 @@ public VirtualDirectory addVirtualDirectory(long parentId, String directoryName,
 			resultSet = statement.getGeneratedKeys();
 			resultSet.next();
 			long newObjId = resultSet.getLong(1); //last_insert_rowid()
+			if (parentId != 0) {
+				transaction.childAdded(parentId);
+			}
 
 			// Insert a row for the virtual directory into the tsk_files table.
 			// INSERT INTO tsk_files (obj_id, fs_obj_id, name, type, has_path, dir_type, meta_type,
@@ -4251,6 +5240,9 @@ public LocalDirectory addLocalDirectory(long parentId, String directoryName, Cas
 			resultSet = statement.getGeneratedKeys();
 			resultSet.next();
 			long newObjId = resultSet.getLong(1); //last_insert_rowid()
+			if (parentId != 0) {
+				transaction.childAdded(parentId);
+			}
 
 			// Insert a row for the local directory into the tsk_files table.
 			// INSERT INTO tsk_files (obj_id, fs_obj_id, name, type, has_path, dir_type, meta_type,
@@ -4487,6 +5479,7 @@ public final List<LayoutFile> addLayoutFiles(Content parent, List<TskFileRange>
 				prepStmt.setLong(1, parent.getId()); // par_obj_id
 				prepStmt.setLong(2, TskData.ObjectType.ABSTRACTFILE.getObjectType()); // type
 				connection.executeUpdate(prepStmt);
+				transaction.childAdded(parent.getId());
 				resultSet = prepStmt.getGeneratedKeys();
 				resultSet.next();
 				long fileRangeId = resultSet.getLong(1); //last_insert_rowid()
@@ -4681,6 +5674,7 @@ public final List<LayoutFile> addCarvedFiles(CarvingResult carvingResult) throws
 				prepStmt.setLong(1, carvedFilesDir.getId()); // par_obj_id
 				prepStmt.setLong(2, TskData.ObjectType.ABSTRACTFILE.getObjectType()); // type
 				connection.executeUpdate(prepStmt);
+				transaction.childAdded(carvedFilesDir.getId());
 				resultSet = prepStmt.getGeneratedKeys();
 				resultSet.next();
 				long carvedFileId = resultSet.getLong(1); //last_insert_rowid()
@@ -4911,6 +5905,7 @@ public DerivedFile addDerivedFile(String fileName, String localPath,
 			addFilePath(connection, newObjId, localPath, encodingType);
 
 			connection.commitTransaction();
+			childrenChanged(parentId);
 
 			//TODO add derived method to tsk_files_derived and tsk_files_derived_method
 			return new DerivedFile(this, newObjId, dataSourceObjId, fileName, dirType, metaType, dirFlag, metaFlags,
@@ -5015,6 +6010,7 @@ public LocalFile addLocalFile(String fileName, String localPath,
 			long objectId = resultSet.getLong(1); //last_insert_rowid()
 			resultSet.close();
 			resultSet = null;
+			transaction.childAdded(parent.getId());
 
 			// Insert a row for the local/logical file into the tsk_files table.
 			// INSERT INTO tsk_files (obj_id, fs_obj_id, name, type, has_path, dir_type, meta_type,
@@ -5222,6 +6218,30 @@ public List<AbstractFile> findAllFilesWhere(String sqlWhereClause) throws TskCor
 		}
 	}
 
+	/**
+	 * Opens a cursor over all files matching the specific WHERE clause. Unlike
+	 * findAllFilesWhere, the AbstractFile objects are created one page of rows
+	 * at a time as the cursor is advanced, so the memory used does not depend
+	 * on the number of matches. The files are returned in the order of their
+	 * object ids. See CaseDbCursor.
+	 *
+	 * @param sqlWhereClause a SQL where clause appropriate for the desired
+	 *                       files (do not begin the WHERE clause with the word
+	 *                       WHERE!)
+	 *
+	 * @return A cursor over the files that satisfy the given WHERE clause.
+	 *
+	 * @throws TskCoreException \ref query_database_page
+	 */
+	public CaseDbCursor<AbstractFile> openFilesWhereCursor(String sqlWhereClause) throws TskCoreException {
+		return new CaseDbCursor<AbstractFile>("SELECT * FROM tsk_files WHERE " + sqlWhereClause, "obj_id") { //NON-NLS
+			@Override
+			AbstractFile fromResultSet(ResultSet rs, CaseDbConnection connection) throws SQLException {
+				return abstractFileFromResultSet(rs, connection);
+			}
+		};
+	}
+
 	/**
 	 * Find and return list of all (abstract) ids of files matching the specific
 	 * Where clause
@@ -5504,12 +6524,12 @@ private FileSystem getFileSystemByIdHelper(long id, Content parent) throws TskCo
 		}
 		CaseDbConnection connection = connections.getConnection();
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
 		ResultSet rs = null;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT * FROM tsk_fs_info " //NON-NLS
-					+ "where obj_id = " + id); //NON-NLS
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILE_SYSTEM_BY_ID);
+			statement.clearParameters();
+			statement.setLong(1, id);
+			rs = connection.executeQuery(statement);
 			if (rs.next()) {
 				TskData.TSK_FS_TYPE_ENUM fsType = TskData.TSK_FS_TYPE_ENUM.valueOf(rs.getInt("fs_type")); //NON-NLS
 				FileSystem fs = new FileSystem(this, rs.getLong("obj_id"), "", rs.getLong("img_offset"), //NON-NLS
@@ -5528,7 +6548,6 @@ private FileSystem getFileSystemByIdHelper(long id, Content parent) throws TskCo
 			throw new TskCoreException("Error getting File System by ID", ex);
 		} finally {
 			closeResultSet(rs);
-			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
@@ -6027,6 +7046,10 @@ public void setImagePaths(long obj_id, List<String> paths) throws TskCoreExcepti
 				connection.executeUpdate(statement, "INSERT INTO tsk_image_names VALUES (" + obj_id + ", '" + paths.get(i) + "', " + i + ")"); //NON-NLS
 			}
 			connection.commitTransaction();
+			final ContentCache cache = contentCache;
+			if (cache != null) {
+				cache.invalidate(obj_id);
+			}
 		} catch (SQLException ex) {
 			connection.rollbackTransaction();
 			throw new TskCoreException("Error updating image paths.", ex);
@@ -6066,52 +7089,9 @@ private List<AbstractFile> resultSetToAbstractFiles(ResultSet rs, CaseDbConnecti
 		ArrayList<AbstractFile> results = new ArrayList<AbstractFile>();
 		try {
 			while (rs.next()) {
-				final short type = rs.getShort("type"); //NON-NLS
-				if (type == TSK_DB_FILES_TYPE_ENUM.FS.getFileType()
-						&& (rs.getShort("meta_type") != TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue())) {
-					FsContent result;
-					if (rs.getShort("meta_type") == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_DIR.getValue()) { //NON-NLS
-						result = directory(rs, null);
-					} else {
-						result = file(rs, null);
-					}
-					results.add(result);
-				} else if (type == TSK_DB_FILES_TYPE_ENUM.VIRTUAL_DIR.getFileType()
-						|| (rs.getShort("meta_type") == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue())) { //NON-NLS
-					final VirtualDirectory virtDir = virtualDirectory(rs);
-					results.add(virtDir);
-				} else if (type == TSK_DB_FILES_TYPE_ENUM.LOCAL_DIR.getFileType()) {
-					final LocalDirectory localDir = localDirectory(rs);
-					results.add(localDir);
-				} else if (type == TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS.getFileType()
-						|| type == TSK_DB_FILES_TYPE_ENUM.UNUSED_BLOCKS.getFileType()
-						|| type == TSK_DB_FILES_TYPE_ENUM.CARVED.getFileType()) {
-					TSK_DB_FILES_TYPE_ENUM atype = TSK_DB_FILES_TYPE_ENUM.valueOf(type);
-					String parentPath = rs.getString("parent_path"); //NON-NLS
-					if (parentPath == null) {
-						parentPath = "/"; //NON-NLS
-					}
-					LayoutFile lf = new LayoutFile(this,
-							rs.getLong("obj_id"), //NON-NLS
-							rs.getLong("data_source_obj_id"),
-							rs.getString("name"), //NON-NLS
-							atype,
-							TSK_FS_NAME_TYPE_ENUM.valueOf(rs.getShort("dir_type")), TSK_FS_META_TYPE_ENUM.valueOf(rs.getShort("meta_type")), //NON-NLS
-							TSK_FS_NAME_FLAG_ENUM.valueOf(rs.getShort("dir_flags")), rs.getShort("meta_flags"), //NON-NLS
-							rs.getLong("size"), //NON-NLS
-							rs.getString("md5"), FileKnown.valueOf(rs.getByte("known")), parentPath, rs.getString("mime_type")); //NON-NLS
-					results.add(lf);
-				} else if (type == TSK_DB_FILES_TYPE_ENUM.DERIVED.getFileType()) {
-					final DerivedFile df;
-					df = derivedFile(rs, connection, AbstractContent.UNKNOWN_ID);
-					results.add(df);
-				} else if (type == TSK_DB_FILES_TYPE_ENUM.LOCAL.getFileType()) {
-					final LocalFile lf;
-					lf = localFile(rs, connection, AbstractContent.UNKNOWN_ID);
-					results.add(lf);
-				} else if (type == TSK_DB_FILES_TYPE_ENUM.SLACK.getFileType()) {
-					final SlackFile sf = slackFile(rs, null);
-					results.add(sf);
+				AbstractFile file = abstractFileFromResultSet(rs, connection);
+				if (file != null) {
+					results.add(file);
 				}
 			} //end for each resultSet
 		} catch (SQLException e) {
@@ -6121,6 +7101,59 @@ private List<AbstractFile> resultSetToAbstractFiles(ResultSet rs, CaseDbConnecti
 		return results;
 	}
 
+	/**
+	 * Creates an AbstractFile object for the current row of the result set of
+	 * a tsk_files table query of the form "SELECT * FROM tsk_files WHERE XYZ".
+	 *
+	 * @param rs         The result set, positioned on the row to read.
+	 * @param connection A case database connection.
+	 *
+	 * @return The AbstractFile object, or null if the row has a file type that
+	 *         is not handled.
+	 *
+	 * @throws SQLException Thrown if there is a problem reading the row.
+	 */
+	private AbstractFile abstractFileFromResultSet(ResultSet rs, CaseDbConnection connection) throws SQLException {
+		final short type = rs.getShort("type"); //NON-NLS
+		if (type == TSK_DB_FILES_TYPE_ENUM.FS.getFileType()
+				&& (rs.getShort("meta_type") != TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue())) {
+			if (rs.getShort("meta_type") == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_DIR.getValue()) { //NON-NLS
+				return directory(rs, null);
+			} else {
+				return file(rs, null);
+			}
+		} else if (type == TSK_DB_FILES_TYPE_ENUM.VIRTUAL_DIR.getFileType()
+				|| (rs.getShort("meta_type") == TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_VIRT_DIR.getValue())) { //NON-NLS
+			return virtualDirectory(rs);
+		} else if (type == TSK_DB_FILES_TYPE_ENUM.LOCAL_DIR.getFileType()) {
+			return localDirectory(rs);
+		} else if (type == TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS.getFileType()
+				|| type == TSK_DB_FILES_TYPE_ENUM.UNUSED_BLOCKS.getFileType()
+				|| type == TSK_DB_FILES_TYPE_ENUM.CARVED.getFileType()) {
+			TSK_DB_FILES_TYPE_ENUM atype = TSK_DB_FILES_TYPE_ENUM.valueOf(type);
+			String parentPath = rs.getString("parent_path"); //NON-NLS
+			if (parentPath == null) {
+				parentPath = "/"; //NON-NLS
+			}
+			return new LayoutFile(this,
+					rs.getLong("obj_id"), //NON-NLS
+					rs.getLong("data_source_obj_id"),
+					rs.getString("name"), //NON-NLS
+					atype,
+					TSK_FS_NAME_TYPE_ENUM.valueOf(rs.getShort("dir_type")), TSK_FS_META_TYPE_ENUM.valueOf(rs.getShort("meta_type")), //NON-NLS
+					TSK_FS_NAME_FLAG_ENUM.valueOf(rs.getShort("dir_flags")), rs.getShort("meta_flags"), //NON-NLS
+					rs.getLong("size"), //NON-NLS
+					rs.getString("md5"), FileKnown.valueOf(rs.getByte("known")), parentPath, rs.getString("mime_type")); //NON-NLS
+		} else if (type == TSK_DB_FILES_TYPE_ENUM.DERIVED.getFileType()) {
+			return derivedFile(rs, connection, AbstractContent.UNKNOWN_ID, false);
+		} else if (type == TSK_DB_FILES_TYPE_ENUM.LOCAL.getFileType()) {
+			return localFile(rs, connection, AbstractContent.UNKNOWN_ID, false);
+		} else if (type == TSK_DB_FILES_TYPE_ENUM.SLACK.getFileType()) {
+			return slackFile(rs, null);
+		}
+		return null;
+	}
+
 	// This following methods generate AbstractFile objects from a ResultSet
 	/**
 	 * Create a File object from the result set containing query results on
@@ -6232,18 +7265,27 @@ LocalDirectory localDirectory(ResultSet rs) throws SQLException {
 	 * @param connection The case database connection.
 	 * @param parentId   The parent id for the derived file or
 	 *                   AbstractContent.UNKNOWN_ID.
+	 * @param pathJoined True if the query joined tsk_files_path, selecting its
+	 *                   path and encoding_type columns as local_path and
+	 *                   local_encoding_type, so that no additional query is
+	 *                   needed.
 	 *
 	 * @return The DerivedFile object.
 	 *
 	 * @throws SQLException if there is an error reading from the result set or
 	 *                      doing additional queries.
 	 */
-	private DerivedFile derivedFile(ResultSet rs, CaseDbConnection connection, long parentId) throws SQLException {
+	private DerivedFile derivedFile(ResultSet rs, CaseDbConnection connection, long parentId, boolean pathJoined) throws SQLException {
 		boolean hasLocalPath = rs.getBoolean("has_path"); //NON-NLS
 		long objId = rs.getLong("obj_id"); //NON-NLS
 		String localPath = null;
 		TskData.EncodingType encodingType = TskData.EncodingType.NONE;
-		if (hasLocalPath) {
+		if (pathJoined) {
+			localPath = rs.getString("local_path"); //NON-NLS
+			if (localPath != null) {
+				encodingType = TskData.EncodingType.valueOf(rs.getInt("local_encoding_type")); //NON-NLS
+			}
+		} else if (hasLocalPath) {
 			ResultSet rsFilePath = null;
 			try {
 				PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_LOCAL_PATH_AND_ENCODING_FOR_FILE);
@@ -6284,17 +7326,26 @@ private DerivedFile derivedFile(ResultSet rs, CaseDbConnection connection, long
 	 * @param connection The case database connection.
 	 * @param parentId   The parent id for the derived file or
 	 *                   AbstractContent.UNKNOWN_ID.
+	 * @param pathJoined True if the query joined tsk_files_path, selecting its
+	 *                   path and encoding_type columns as local_path and
+	 *                   local_encoding_type, so that no additional query is
+	 *                   needed.
 	 *
 	 * @return The LocalFile object.
 	 *
 	 * @throws SQLException if there is an error reading from the result set or
 	 *                      doing additional queries.
 	 */
-	private LocalFile localFile(ResultSet rs, CaseDbConnection connection, long parentId) throws SQLException {
+	private LocalFile localFile(ResultSet rs, CaseDbConnection connection, long parentId, boolean pathJoined) throws SQLException {
 		long objId = rs.getLong("obj_id"); //NON-NLS
 		String localPath = null;
 		TskData.EncodingType encodingType = TskData.EncodingType.NONE;
-		if (rs.getBoolean("has_path")) {
+		if (pathJoined) {
+			localPath = rs.getString("local_path"); //NON-NLS
+			if (localPath != null) {
+				encodingType = TskData.EncodingType.valueOf(rs.getInt("local_encoding_type")); //NON-NLS
+			}
+		} else if (rs.getBoolean("has_path")) {
 			ResultSet rsFilePath = null;
 			try {
 				PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_LOCAL_PATH_AND_ENCODING_FOR_FILE);
@@ -6358,7 +7409,8 @@ org.sleuthkit.datamodel.SlackFile slackFile(ResultSet rs, FileSystem fs) throws
 
 	/**
 	 * Returns the list of abstractFile objects from a result of selecting many
-	 * files that meet a certain criteria.
+	 * files that meet a certain criteria. The query must join tsk_files_path
+	 * as SELECT_FILES_BY_PARENT does.
 	 *
 	 * @param rs
 	 * @param parentId
@@ -6415,11 +7467,11 @@ List<Content> fileChildren(ResultSet rs, CaseDbConnection connection, long paren
 						break;
 					}
 					case DERIVED:
-						final DerivedFile df = derivedFile(rs, connection, parentId);
+						final DerivedFile df = derivedFile(rs, connection, parentId, true);
 						children.add(df);
 						break;
 					case LOCAL: {
-						final LocalFile lf = localFile(rs, connection, parentId);
+						final LocalFile lf = localFile(rs, connection, parentId, true);
 						children.add(lf);
 						break;
 					}
@@ -6502,6 +7554,14 @@ protected void finalize() throws Throwable {
 	 * Call to free resources when done with instance.
 	 */
 	public synchronized void close() {
+		// The writer threads need the write lock to finish.
+		for (WriteBehindQueue queue : new ArrayList<WriteBehindQueue>(writeBehindQueues)) {
+			try {
+				queue.shutdown();
+			} catch (TskCoreException ex) {
+				logger.log(Level.SEVERE, "Error shutting down write-behind queue.", ex); //NON-NLS
+			}
+		}
 		acquireSingleUserCaseWriteLock();
 
 		try {
@@ -6511,6 +7571,10 @@ public synchronized void close() {
 		}
 
 		fileSystemIdMap.clear();
+		final ContentCache cache = contentCache;
+		if (cache != null) {
+			cache.clear();
+		}
 
 		try {
 			if (this.caseHandle != null) {
@@ -6551,6 +7615,7 @@ public boolean setKnown(AbstractFile file, FileKnown fileKnown) throws TskCoreEx
 					+ "SET known='" + fileKnown.getFileKnownValue() + "' " //NON-NLS
 					+ "WHERE obj_id=" + id); //NON-NLS
 			file.setKnown(fileKnown);
+			invalidateCachedContent(file);
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error setting Known status.", ex);
 		} finally {
@@ -6579,6 +7644,7 @@ public void setFileMIMEType(AbstractFile file, String mimeType) throws TskCoreEx
 			statement = connection.createStatement();
 			connection.executeUpdate(statement, String.format("UPDATE tsk_files SET mime_type = '%s' WHERE obj_id = %d", mimeType, file.getId()));
 			file.setMIMEType(mimeType);
+			invalidateCachedContent(file);
 		} catch (SQLException ex) {
 			throw new TskCoreException(String.format("Error setting MIME type for file (obj_id = %s)", file.getId()), ex);
 		} finally {
@@ -6612,6 +7678,7 @@ void setMd5Hash(AbstractFile file, String md5Hash) throws TskCoreException {
 			statement.setLong(2, id);
 			connection.executeUpdate(statement);
 			file.setMd5Hash(md5Hash.toLowerCase());
+			invalidateCachedContent(file);
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error setting MD5 hash", ex);
 		} finally {
@@ -6620,6 +7687,55 @@ void setMd5Hash(AbstractFile file, String md5Hash) throws TskCoreException {
 		}
 	}
 
+	/**
+	 * Stores the MD5 hashes of a group of files in the database with one
+	 * batched UPDATE in a single transaction.
+	 *
+	 * @param md5Hashes The MD5 hashes, keyed by file.
+	 *
+	 * @throws TskCoreException thrown if a critical error occurred within tsk
+	 *                          core
+	 */
+	void setMd5Hashes(Map<AbstractFile, String> md5Hashes) throws TskCoreException {
+		if (md5Hashes.isEmpty()) {
+			return;
+		}
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseWriteLock();
+		PreparedStatement statement = null;
+		try {
+			connection.beginTransaction();
+			statement = connection.getPreparedStatement(PREPARED_STATEMENT.UPDATE_FILE_MD5);
+			for (Map.Entry<AbstractFile, String> entry : md5Hashes.entrySet()) {
+				// Every parameter is set, so they are not cleared first; the
+				// SQLite driver drops the rows already added to the batch
+				// when they are.
+				statement.setString(1, entry.getValue().toLowerCase());
+				statement.setLong(2, entry.getKey().getId());
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			connection.commitTransaction();
+			for (Map.Entry<AbstractFile, String> entry : md5Hashes.entrySet()) {
+				entry.getKey().setMd5Hash(entry.getValue().toLowerCase());
+				invalidateCachedContent(entry.getKey());
+			}
+		} catch (SQLException ex) {
+			connection.rollbackTransaction();
+			throw new TskCoreException("Error setting MD5 hashes", ex);
+		} finally {
+			if (statement != null) {
+				try {
+					statement.clearBatch();
+				} catch (SQLException ex) {
+					logger.log(Level.WARNING, "Error clearing statement batch", ex); //NON-NLS
+				}
+			}
+			connection.close();
+			releaseSingleUserCaseWriteLock();
+		}
+	}
+
 	/**
 	 * Set the review status of the given artifact to newStatus
 	 *
@@ -6642,6 +7758,12 @@ public void setReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.Revi
 			connection.executeUpdate(statement, "UPDATE blackboard_artifacts "
 					+ " SET review_status_id=" + newStatus.getID()
 					+ " WHERE blackboard_artifacts.artifact_id = " + artifact.getArtifactID());
+			// The review status of an artifact object is immutable, so the
+			// cached instance, if any, is stale.
+			final ContentCache cache = contentCache;
+			if (cache != null) {
+				cache.invalidate(artifact.getId());
+			}
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error setting review status", ex);
 		} finally {
@@ -6720,25 +7842,106 @@ public List<AbstractFile> findFilesByMd5(String md5Hash) {
 			return Collections.<AbstractFile>emptyList();
 		}
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
 		ResultSet rs = null;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT * FROM tsk_files WHERE " //NON-NLS
-					+ " md5 = '" + md5Hash.toLowerCase() + "' " //NON-NLS
-					+ "AND size > 0"); //NON-NLS
-			return resultSetToAbstractFiles(rs, connection);
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_FILES_BY_MD5);
+			statement.clearParameters();
+			statement.setString(1, md5Hash.toLowerCase());
+			rs = connection.executeQuery(statement);
+			return resultSetToAbstractFiles(rs, connection);
 		} catch (SQLException ex) {
 			logger.log(Level.WARNING, "Error querying database.", ex); //NON-NLS
 			return Collections.<AbstractFile>emptyList();
 		} finally {
 			closeResultSet(rs);
-			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
 	}
 
+	/**
+	 * Finds all the files with any of the given MD5 hashes, with one query per
+	 * chunk of hashes rather than one query per hash.
+	 *
+	 * @param md5Hashes The hashes to match files with. Strings that are not
+	 *                  MD5 hashes are allowed and match no files.
+	 *
+	 * @return A map from each of the given hashes, in lowercase, to the files
+	 *         with that hash. Hashes that match no files map to an empty list.
+	 *
+	 * @throws TskCoreException If there is an error querying the case
+	 *                          database.
+	 */
+	public Map<String, List<AbstractFile>> findFilesByMd5(Collection<String> md5Hashes) throws TskCoreException {
+		Map<String, List<AbstractFile>> filesByHash = new LinkedHashMap<String, List<AbstractFile>>();
+		List<String> validHashes = new ArrayList<String>();
+		for (String md5Hash : md5Hashes) {
+			String key = md5Hash.toLowerCase();
+			if (!filesByHash.containsKey(key)) {
+				filesByHash.put(key, new ArrayList<AbstractFile>());
+				if (isMd5Hash(key)) {
+					validHashes.add(key);
+				}
+			}
+		}
+		if (validHashes.isEmpty()) {
+			return filesByHash;
+		}
+
+		CaseDbConnection connection = connections.getConnection();
+		acquireSingleUserCaseReadLock();
+		Statement statement = null;
+		ResultSet rs = null;
+		try {
+			statement = connection.createStatement();
+			for (int start = 0; start < validHashes.size(); start += MAX_IDS_PER_IN_CLAUSE) {
+				List<String> chunk = validHashes.subList(start, Math.min(start + MAX_IDS_PER_IN_CLAUSE, validHashes.size()));
+				StringBuilder hashList = new StringBuilder();
+				for (String md5Hash : chunk) {
+					if (hashList.length() > 0) {
+						hashList.append(',');
+					}
+					// Safe to quote directly, the hashes have been checked to be hex strings.
+					hashList.append('\'').append(md5Hash).append('\'');
+				}
+				rs = connection.executeQuery(statement, "SELECT * FROM tsk_files WHERE md5 IN (" + hashList + ") AND size > 0"); //NON-NLS
+				for (AbstractFile file : resultSetToAbstractFiles(rs, connection)) {
+					filesByHash.get(file.getMd5Hash()).add(file);
+				}
+				rs.close();
+				rs = null;
+			}
+		} catch (SQLException ex) {
+			throw new TskCoreException("Error finding files by md5 hashes", ex);
+		} finally {
+			closeResultSet(rs);
+			closeStatement(statement);
+			connection.close();
+			releaseSingleUserCaseReadLock();
+		}
+		return filesByHash;
+	}
+
+	/**
+	 * Indicates whether a string is a lowercase MD5 hash.
+	 *
+	 * @param md5Hash The string.
+	 *
+	 * @return True if the string is 32 lowercase hex digits.
+	 */
+	private static boolean isMd5Hash(String md5Hash) {
+		if (md5Hash.length() != 32) {
+			return false;
+		}
+		for (int i = 0; i < md5Hash.length(); i++) {
+			char c = md5Hash.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Query all the files to verify if they have an MD5 hash associated with
 	 * them.
@@ -6755,22 +7958,18 @@ public boolean allFilesMd5Hashed() {
 		}
 		boolean allFilesAreHashed = false;
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
 		ResultSet rs = null;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT COUNT(*) AS count FROM tsk_files " //NON-NLS
-					+ "WHERE dir_type = '" + TskData.TSK_FS_NAME_TYPE_ENUM.REG.getValue() + "' " //NON-NLS
-					+ "AND md5 IS NULL " //NON-NLS
-					+ "AND size > '0'"); //NON-NLS
-			if (rs.next() && rs.getInt("count") == 0) {
-				allFilesAreHashed = true;
-			}
+			// Stops at the first unhashed file found through the md5 index.
+			PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.SELECT_ANY_FILE_NOT_MD5_HASHED);
+			statement.clearParameters();
+			statement.setShort(1, TskData.TSK_FS_NAME_TYPE_ENUM.REG.getValue());
+			rs = connection.executeQuery(statement);
+			allFilesAreHashed = !rs.next();
 		} catch (SQLException ex) {
 			logger.log(Level.WARNING, "Failed to query whether all files have MD5 hashes", ex); //NON-NLS
 		} finally {
 			closeResultSet(rs);
-			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
@@ -6783,6 +7982,27 @@ public boolean allFilesMd5Hashed() {
 	 * @return the number of files with an MD5 hash
 	 */
 	public int countFilesMd5Hashed() {
+		return countFilesByMd5Status(PREPARED_STATEMENT.COUNT_FILES_MD5_HASHED);
+	}
+
+	/**
+	 * Counts the files with content that do not have an MD5 hash.
+	 *
+	 * @return the number of files without an MD5 hash
+	 */
+	public int countFilesNotMd5Hashed() {
+		return countFilesByMd5Status(PREPARED_STATEMENT.COUNT_FILES_NOT_MD5_HASHED);
+	}
+
+	/**
+	 * Runs one of the hashed file count queries, which are answered from the
+	 * md5 index alone.
+	 *
+	 * @param countStatement The count query.
+	 *
+	 * @return the count, or 0 if there is an error
+	 */
+	private int countFilesByMd5Status(PREPARED_STATEMENT countStatement) {
 		CaseDbConnection connection;
 		try {
 			connection = connections.getConnection();
@@ -6792,13 +8012,10 @@ public int countFilesMd5Hashed() {
 		}
 		int count = 0;
 		acquireSingleUserCaseReadLock();
-		Statement s = null;
 		ResultSet rs = null;
 		try {
-			s = connection.createStatement();
-			rs = connection.executeQuery(s, "SELECT COUNT(*) AS count FROM tsk_files " //NON-NLS
-					+ "WHERE md5 IS NOT NULL " //NON-NLS
-					+ "AND size > '0'"); //NON-NLS
+			PreparedStatement statement = connection.getPreparedStatement(countStatement);
+			rs = connection.executeQuery(statement);
 			if (rs.next()) {
 				count = rs.getInt("count");
 			}
@@ -6806,12 +8023,10 @@ public int countFilesMd5Hashed() {
 			logger.log(Level.WARNING, "Failed to query for all the files.", ex); //NON-NLS
 		} finally {
 			closeResultSet(rs);
-			closeStatement(s);
 			connection.close();
 			releaseSingleUserCaseReadLock();
 		}
 		return count;
-
 	}
 
 	/**
@@ -7489,6 +8704,10 @@ public void updateImagePath(String newPath, long objectId) throws TskCoreExcepti
 			statement.setString(1, newPath);
 			statement.setLong(2, objectId);
 			connection.executeUpdate(statement);
+			final ContentCache cache = contentCache;
+			if (cache != null) {
+				cache.invalidate(objectId);
+			}
 		} catch (SQLException ex) {
 			throw new TskCoreException("Error updating image path in database for object " + objectId, ex);
 		} finally {
@@ -7644,6 +8863,16 @@ private static void closeStatement(Statement statement) {
 		}
 	}
 
+	private static void closeConnection(Connection connection) {
+		if (connection != null) {
+			try {
+				connection.close();
+			} catch (SQLException ex) {
+				logger.log(Level.SEVERE, "Error closing Connection", ex); //NON-NLS
+			}
+		}
+	}
+
 	/**
 	 * Sets the end date for the given ingest job
 	 *
@@ -7895,16 +9124,27 @@ private enum PREPARED_STATEMENT {
 		COUNT_ARTIFACTS_OF_TYPE("SELECT COUNT(*) AS count FROM blackboard_artifacts WHERE artifact_type_id = ? AND review_status_id != " + BlackboardArtifact.ReviewStatus.REJECTED.getID()), //NON-NLS
 		COUNT_ARTIFACTS_FROM_SOURCE("SELECT COUNT(*) AS count FROM blackboard_artifacts WHERE obj_id = ? AND review_status_id != " + BlackboardArtifact.ReviewStatus.REJECTED.getID()), //NON-NLS
 		COUNT_ARTIFACTS_BY_SOURCE_AND_TYPE("SELECT COUNT(*) AS count FROM blackboard_artifacts WHERE obj_id = ? AND artifact_type_id = ? AND review_status_id != " + BlackboardArtifact.ReviewStatus.REJECTED.getID()), //NON-NLS
-		SELECT_FILES_BY_PARENT("SELECT tsk_files.* " //NON-NLS
+		SELECT_FILES_BY_PARENT("SELECT tsk_files.*, " //NON-NLS
+				+ "tsk_files_path.path AS local_path, tsk_files_path.encoding_type AS local_encoding_type " //NON-NLS
 				+ "FROM tsk_objects INNER JOIN tsk_files " //NON-NLS
 				+ "ON tsk_objects.obj_id=tsk_files.obj_id " //NON-NLS
+				+ "LEFT JOIN tsk_files_path ON tsk_files.obj_id = tsk_files_path.obj_id " //NON-NLS
 				+ "WHERE (tsk_objects.par_obj_id = ? ) " //NON-NLS
 				+ "ORDER BY tsk_files.meta_type DESC, LOWER(tsk_files.name)"), //NON-NLS
-		SELECT_FILES_BY_PARENT_AND_TYPE("SELECT tsk_files.* " //NON-NLS
+		SELECT_FILES_BY_PARENT_AND_TYPE("SELECT tsk_files.*, " //NON-NLS
+				+ "tsk_files_path.path AS local_path, tsk_files_path.encoding_type AS local_encoding_type " //NON-NLS
 				+ "FROM tsk_objects INNER JOIN tsk_files " //NON-NLS
 				+ "ON tsk_objects.obj_id=tsk_files.obj_id " //NON-NLS
+				+ "LEFT JOIN tsk_files_path ON tsk_files.obj_id = tsk_files_path.obj_id " //NON-NLS
 				+ "WHERE (tsk_objects.par_obj_id = ? AND tsk_files.type = ? ) " //NON-NLS
 				+ "ORDER BY tsk_files.dir_type, LOWER(tsk_files.name)"), //NON-NLS
+		SELECT_FILE_SUMMARIES_BY_PARENT("SELECT tsk_files.obj_id, tsk_files.name, tsk_files.type, " //NON-NLS
+				+ "tsk_files.dir_type, tsk_files.meta_type, tsk_files.dir_flags, tsk_files.meta_flags, tsk_files.size, " //NON-NLS
+				+ "tsk_files.ctime, tsk_files.crtime, tsk_files.atime, tsk_files.mtime " //NON-NLS
+				+ "FROM tsk_objects INNER JOIN tsk_files " //NON-NLS
+				+ "ON tsk_objects.obj_id=tsk_files.obj_id " //NON-NLS
+				+ "WHERE (tsk_objects.par_obj_id = ? ) " //NON-NLS
+				+ "ORDER BY tsk_files.meta_type DESC, LOWER(tsk_files.name)"), //NON-NLS
 		SELECT_FILE_IDS_BY_PARENT("SELECT tsk_files.obj_id AS obj_id " //NON-NLS
 				+ "FROM tsk_objects INNER JOIN tsk_files " //NON-NLS
 				+ "ON tsk_objects.obj_id=tsk_files.obj_id " //NON-NLS
@@ -7915,6 +9155,21 @@ private enum PREPARED_STATEMENT {
 				+ "WHERE (tsk_objects.par_obj_id = ? " //NON-NLS
 				+ "AND tsk_files.type = ? )"), //NON-NLS
 		SELECT_FILE_BY_ID("SELECT * FROM tsk_files WHERE obj_id = ? LIMIT 1"), //NON-NLS
+		SELECT_OBJECT_BY_ID("SELECT * FROM tsk_objects WHERE obj_id = ? LIMIT 1"), //NON-NLS
+		SELECT_FILE_SYSTEM_BY_ID("SELECT * FROM tsk_fs_info WHERE obj_id = ?"), //NON-NLS
+		SELECT_ARTIFACTS_WITH_TYPE_BY_TYPE_ID(getArtifactsHelperQuery("blackboard_artifacts.artifact_type_id = ?")), //NON-NLS
+		SELECT_ARTIFACTS_WITH_TYPE_BY_TYPE_NAME(getArtifactsHelperQuery("blackboard_artifact_types.type_name = ?")), //NON-NLS
+		SELECT_ARTIFACTS_WITH_TYPE_BY_OBJ_ID(getArtifactsHelperQuery("blackboard_artifacts.obj_id = ?")), //NON-NLS
+		SELECT_ARTIFACTS_WITH_TYPE_BY_OBJ_ID_AND_TYPE_ID(getArtifactsHelperQuery("blackboard_artifacts.obj_id = ? AND blackboard_artifacts.artifact_type_id = ?")), //NON-NLS
+		SELECT_ARTIFACTS_WITH_TYPE_BY_OBJ_ID_AND_TYPE_NAME(getArtifactsHelperQuery("blackboard_artifacts.obj_id = ? AND blackboard_artifact_types.type_name = ?")), //NON-NLS
+		SELECT_ATTRIBUTES_OF_ARTIFACT("SELECT attrs.artifact_id AS artifact_id, " //NON-NLS
+				+ "attrs.source AS source, attrs.context AS context, attrs.attribute_type_id AS attribute_type_id, " //NON-NLS
+				+ "attrs.value_type AS value_type, attrs.value_byte AS value_byte, " //NON-NLS
+				+ "attrs.value_text AS value_text, attrs.value_int32 AS value_int32, " //NON-NLS
+				+ "attrs.value_int64 AS value_int64, attrs.value_double AS value_double, " //NON-NLS
+				+ "types.type_name AS type_name, types.display_name AS display_name " //NON-NLS
+				+ "FROM blackboard_attributes AS attrs, blackboard_attribute_types AS types WHERE attrs.artifact_id = ? " //NON-NLS
+				+ "AND attrs.attribute_type_id = types.attribute_type_id"), //NON-NLS
 		SELECT_ARTIFACT_BY_ARTIFACT_OBJ_ID("SELECT * FROM blackboard_artifacts WHERE artifact_obj_id = ? LIMIT 1"),
 		INSERT_ARTIFACT("INSERT INTO blackboard_artifacts (artifact_id, obj_id, artifact_obj_id, artifact_type_id, review_status_id) " //NON-NLS
 				+ "VALUES (?, ?, ?, ?," + BlackboardArtifact.ReviewStatus.UNDECIDED.getID() + ")"), //NON-NLS
@@ -7933,6 +9188,13 @@ private enum PREPARED_STATEMENT {
 		SELECT_FILES_BY_DATA_SOURCE_AND_NAME("SELECT * FROM tsk_files WHERE LOWER(name) LIKE LOWER(?) AND LOWER(name) NOT LIKE LOWER('%journal%') AND data_source_obj_id = ?"), //NON-NLS
 		SELECT_FILES_BY_DATA_SOURCE_AND_PARENT_PATH_AND_NAME("SELECT * FROM tsk_files WHERE LOWER(name) LIKE LOWER(?) AND LOWER(name) NOT LIKE LOWER('%journal%') AND LOWER(parent_path) LIKE LOWER(?) AND data_source_obj_id = ?"), //NON-NLS
 		UPDATE_FILE_MD5("UPDATE tsk_files SET md5 = ? WHERE obj_id = ?"), //NON-NLS
+		UPDATE_FILE_KNOWN("UPDATE tsk_files SET known = ? WHERE obj_id = ?"), //NON-NLS
+		UPDATE_FILE_MIME_TYPE("UPDATE tsk_files SET mime_type = ? WHERE obj_id = ?"), //NON-NLS
+		UPDATE_ARTIFACT_REVIEW_STATUS("UPDATE blackboard_artifacts SET review_status_id = ? WHERE artifact_id = ?"), //NON-NLS
+		SELECT_FILES_BY_MD5("SELECT * FROM tsk_files WHERE md5 = ? AND size > 0"), //NON-NLS
+		SELECT_ANY_FILE_NOT_MD5_HASHED("SELECT obj_id FROM tsk_files WHERE md5 IS NULL AND size > 0 AND dir_type = ? LIMIT 1"), //NON-NLS
+		COUNT_FILES_MD5_HASHED("SELECT COUNT(*) AS count FROM tsk_files WHERE md5 IS NOT NULL AND size > 0"), //NON-NLS
+		COUNT_FILES_NOT_MD5_HASHED("SELECT COUNT(*) AS count FROM tsk_files WHERE md5 IS NULL AND size > 0"), //NON-NLS
 		SELECT_LOCAL_PATH_FOR_FILE("SELECT path FROM tsk_files_path WHERE obj_id = ?"), //NON-NLS
 		SELECT_ENCODING_FOR_FILE("SELECT encoding_type FROM tsk_files_path WHERE obj_id = ?"), // NON-NLS
 		SELECT_LOCAL_PATH_AND_ENCODING_FOR_FILE("SELECT path, encoding_type FROM tsk_files_path WHERE obj_id = ?"), // NON_NLS
@@ -7942,6 +9204,9 @@ private enum PREPARED_STATEMENT {
 		SELECT_FILE_DERIVATION_METHOD("SELECT tool_name, tool_version, other FROM tsk_files_derived_method WHERE derived_id = ?"), //NON-NLS
 		SELECT_MAX_OBJECT_ID("SELECT MAX(obj_id) AS max_obj_id FROM tsk_objects"), //NON-NLS
 		INSERT_OBJECT("INSERT INTO tsk_objects (par_obj_id, type) VALUES (?, ?)"), //NON-NLS
+		INSERT_OBJECT_WITH_ID("INSERT INTO tsk_objects (obj_id, par_obj_id, type) VALUES (?, ?, ?)"), //NON-NLS
+		POSTGRESQL_RESERVE_ARTIFACT_IDS("SELECT nextval('tsk_objects_obj_id_seq') AS obj_id, nextval('blackboard_artifacts_artifact_id_seq') AS artifact_id " //NON-NLS
+				+ "FROM generate_series(1, ?)"), //NON-NLS
 		INSERT_FILE("INSERT INTO tsk_files (obj_id, fs_obj_id, name, type, has_path, dir_type, meta_type, dir_flags, meta_flags, size, ctime, crtime, atime, mtime, parent_path, data_source_obj_id,extension) " //NON-NLS
 				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?,?)"), //NON-NLS
 		INSERT_LAYOUT_FILE("INSERT INTO tsk_file_layout (obj_id, byte_start, byte_len, sequence) " //NON-NLS
@@ -8052,11 +9317,11 @@ private final class SQLiteConnections extends ConnectionPool {
 
 		private final Map<String, String> configurationOverrides = new HashMap<String, String>();
 
-		SQLiteConnections(String dbPath) throws SQLException {
+		SQLiteConnections(String dbPath, ConcurrencyMode concurrencyMode, CaseDbPerformanceProfile profile) throws SQLException {
 			configurationOverrides.put("acquireIncrement", "2");
-			configurationOverrides.put("initialPoolSize", "5");
-			configurationOverrides.put("maxPoolSize", "20");
-			configurationOverrides.put("minPoolSize", "5");
+			configurationOverrides.put("initialPoolSize", Integer.toString(profile.getMinPoolSize()));
+			configurationOverrides.put("maxPoolSize", Integer.toString(profile.getMaxPoolSize()));
+			configurationOverrides.put("minPoolSize", Integer.toString(profile.getMinPoolSize()));
 			configurationOverrides.put("maxStatements", "100");
 			configurationOverrides.put("maxStatementsPerConnection", "20");
 
@@ -8064,7 +9329,20 @@ private final class SQLiteConnections extends ConnectionPool {
 			config.setSynchronous(SQLiteConfig.SynchronousMode.OFF); // Reduce I/O operations, we have no OS crash recovery anyway.
 			config.setReadUncommited(true);
 			config.enforceForeignKeys(true); // Enforce foreign key constraints.
-			SQLiteDataSource unpooled = new SQLiteDataSource(config);
+			if (concurrencyMode == ConcurrencyMode.CONCURRENT_READS) {
+				// Readers see the last commit instead of waiting for writers.
+				// A busy timeout lets SQLite wait out brief locks, such as a
+				// checkpoint, instead of the multi-second retry sleep.
+				config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+				config.setBusyTimeout(Integer.toString(SQLITE_BUSY_TIMEOUT_MILLIS));
+			}
+			if (profile.getCacheSizeKiB() > 0) {
+				config.setCacheSize(-profile.getCacheSizeKiB()); // A negative size is in KiB rather than pages.
+			}
+			if (profile.isTempStoreInMemory()) {
+				config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+			}
+			SQLiteDataSource unpooled = new MemoryMappedSQLiteDataSource(config, profile.getMmapSize());
 			unpooled.setUrl("jdbc:sqlite:" + dbPath);
 			setPooledDataSource((PooledDataSource) DataSources.pooledDataSource(unpooled, configurationOverrides));
 		}
@@ -8075,6 +9353,41 @@ public CaseDbConnection getPooledConnection() throws SQLException {
 		}
 	}
 
+	/**
+	 * A SQLite data source that sets the memory map size of each new
+	 * connection, which SQLiteConfig has no setting for. The pool asks it for
+	 * a connection only when it opens a physical connection, so the pragma is
+	 * not run each time a pooled connection is handed out.
+	 */
+	private static final class MemoryMappedSQLiteDataSource extends SQLiteDataSource {
+
+		private static final long serialVersionUID = 1L;
+		private final long mmapSize;
+
+		MemoryMappedSQLiteDataSource(SQLiteConfig config, long mmapSize) {
+			super(config);
+			this.mmapSize = mmapSize;
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			Connection connection = super.getConnection(username, password);
+			if (mmapSize > 0) {
+				Statement statement = null;
+				try {
+					statement = connection.createStatement();
+					statement.execute("PRAGMA mmap_size = " + mmapSize); //NON-NLS
+				} catch (SQLException ex) {
+					closeConnection(connection);
+					throw ex;
+				} finally {
+					closeStatement(statement);
+				}
+			}
+			return connection;
+		}
+	}
+
 	/**
 	 * Handles the initial setup of PostgreSQL database connections, as well as
 	 * overriding getPooledConnection()
@@ -8295,10 +9608,13 @@ public void execute() throws SQLException {
 
 		private final Connection connection;
 		private final Map<PREPARED_STATEMENT, PreparedStatement> preparedStatements;
+		// Maps the prepared statements back to their keys for timing.
+		private final Map<PreparedStatement, PREPARED_STATEMENT> statementKeys;
 
 		CaseDbConnection(Connection connection) {
 			this.connection = connection;
 			preparedStatements = new EnumMap<PREPARED_STATEMENT, PreparedStatement>(PREPARED_STATEMENT.class);
+			statementKeys = new IdentityHashMap<PreparedStatement, PREPARED_STATEMENT>();
 		}
 
 		boolean isOpen() {
@@ -8317,6 +9633,7 @@ PreparedStatement getPreparedStatement(PREPARED_STATEMENT statementKey, int gene
 			} else {
 				statement = prepareStatement(statementKey.getSQL(), generateKeys);
 				this.preparedStatements.put(statementKey, statement);
+				this.statementKeys.put(statement, statementKey);
 			}
 			return statement;
 		}
@@ -8381,7 +9698,7 @@ void rollbackTransactionWithThrow() throws SQLException {
 
 		ResultSet executeQuery(Statement statement, String query) throws SQLException {
 			ExecuteQuery queryCommand = new ExecuteQuery(statement, query);
-			executeCommand(queryCommand);
+			executeTimedCommand(queryCommand, adHocStatementTimer);
 			return queryCommand.getResultSet();
 		}
 
@@ -8396,7 +9713,7 @@ ResultSet executeQuery(Statement statement, String query) throws SQLException {
 		 */
 		ResultSet executeQuery(PreparedStatement statement) throws SQLException {
 			ExecutePreparedStatementQuery executePreparedStatementQuery = new ExecutePreparedStatementQuery(statement);
-			executeCommand(executePreparedStatementQuery);
+			executeTimedCommand(executePreparedStatementQuery, getStatementTimer(statement));
 			return executePreparedStatementQuery.getResultSet();
 		}
 
@@ -8406,12 +9723,39 @@ void executeUpdate(Statement statement, String update) throws SQLException {
 
 		void executeUpdate(Statement statement, String update, int generateKeys) throws SQLException {
 			ExecuteStatementUpdate executeStatementUpdate = new ExecuteStatementUpdate(statement, update);
-			executeCommand(executeStatementUpdate);
+			executeTimedCommand(executeStatementUpdate, adHocStatementTimer);
 		}
 
 		void executeUpdate(PreparedStatement statement) throws SQLException {
 			ExecutePreparedStatementUpdate executePreparedStatementUpdate = new ExecutePreparedStatementUpdate(statement);
-			executeCommand(executePreparedStatementUpdate);
+			executeTimedCommand(executePreparedStatementUpdate, getStatementTimer(statement));
+		}
+
+		/**
+		 * Executes a command, recording its execution time if statement
+		 * timing is enabled. Retries are included in the time.
+		 *
+		 * @param command The command.
+		 * @param timer   The timer to record the time with, may be null.
+		 *
+		 * @throws SQLException If the command fails.
+		 */
+		void executeTimedCommand(DbCommand command, StatementTimer timer) throws SQLException {
+			if (!statementTimingEnabled || timer == null) {
+				executeCommand(command);
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				executeCommand(command);
+			} finally {
+				timer.record(System.nanoTime() - start);
+			}
+		}
+
+		private StatementTimer getStatementTimer(PreparedStatement statement) {
+			PREPARED_STATEMENT statementKey = statementKeys.get(statement);
+			return statementKey != null ? statementTimers[statementKey.ordinal()] : adHocStatementTimer;
 		}
 
 		/**
@@ -8483,7 +9827,7 @@ private final class PostgreSQLConnection extends CaseDbConnection {
 		@Override
 		void executeUpdate(Statement statement, String update, int generateKeys) throws SQLException {
 			ExecuteStatementUpdateGenerateKeys executeStatementUpdateGenerateKeys = new ExecuteStatementUpdateGenerateKeys(statement, update, generateKeys);
-			executeCommand(executeStatementUpdateGenerateKeys);
+			executeTimedCommand(executeStatementUpdateGenerateKeys, adHocStatementTimer);
 		}
 
 		@Override
@@ -8526,9 +9870,14 @@ void executeCommand(DbCommand command) throws SQLException {
 	public static final class CaseDbTransaction {
 
 		private final CaseDbConnection connection;
+		private final ContentCache contentCache;
+		private final Set<Long> parentsWithNewChildren;
+		private ArtifactBatchWriter artifactBatchWriter;
 
-		private CaseDbTransaction(CaseDbConnection connection) throws TskCoreException {
+		private CaseDbTransaction(CaseDbConnection connection, ContentCache contentCache) throws TskCoreException {
 			this.connection = connection;
+			this.contentCache = contentCache;
+			this.parentsWithNewChildren = new HashSet<Long>();
 			try {
 				this.connection.beginTransaction();
 			} catch (SQLException ex) {
@@ -8547,15 +9896,40 @@ private CaseDbConnection getConnection() {
 			return this.connection;
 		}
 
+		/**
+		 * Records that a child was added to the given parent in this
+		 * transaction, so that a cached parent counts its children again once
+		 * the transaction is committed.
+		 *
+		 * @param parentId The object id of the parent.
+		 */
+		private void childAdded(long parentId) {
+			if (contentCache != null) {
+				parentsWithNewChildren.add(parentId);
+			}
+		}
+
 		/**
 		 * Commits the transaction on the case database that was begun when this
-		 * object was constructed.
+		 * object was constructed. Any artifacts and attributes buffered by the
+		 * artifact batch writer of the transaction are written first.
 		 *
 		 * @throws TskCoreException
 		 */
 		public void commit() throws TskCoreException {
 			try {
+				if (artifactBatchWriter != null) {
+					artifactBatchWriter.flush();
+				}
 				this.connection.commitTransaction();
+				if (contentCache != null) {
+					for (Long parentId : parentsWithNewChildren) {
+						contentCache.childrenChanged(parentId);
+					}
+				}
+			} catch (TskCoreException ex) {
+				this.connection.rollbackTransaction();
+				throw ex;
 			} catch (SQLException ex) {
 				throw new TskCoreException("Failed to commit transaction on case database", ex);
 			} finally {
@@ -8570,6 +9944,9 @@ public void commit() throws TskCoreException {
 		 * @throws TskCoreException
 		 */
 		public void rollback() throws TskCoreException {
+			if (artifactBatchWriter != null) {
+				artifactBatchWriter.discard();
+			}
 			try {
 				this.connection.rollbackTransactionWithThrow();
 			} catch (SQLException ex) {
@@ -8589,66 +9966,1349 @@ void close() {
 	}
 
 	/**
-	 * The CaseDbQuery supports the use case where developers have a need for
-	 * data that is not exposed through the SleuthkitCase API. A CaseDbQuery
-	 * instance gets created through the SleuthkitCase executeDbQuery() method.
-	 * It wraps the ResultSet and takes care of acquiring and releasing the
-	 * appropriate database lock. It implements AutoCloseable so that it can be
-	 * used in a try-with -resources block freeing developers from having to
-	 * remember to close the result set and releasing the lock.
+	 * Gets the artifact batch writer of a transaction, creating it on first
+	 * use. The writer buffers new artifacts and attributes and writes them to
+	 * the case database in batches, which is much faster than
+	 * newBlackboardArtifact and BlackboardArtifact.addAttribute when many
+	 * artifacts are created at once. Buffered rows are written when the batch
+	 * size is reached, when ArtifactBatchWriter.flush is called, and when the
+	 * transaction is committed. They are discarded if the transaction is rolled
+	 * back.
+	 *
+	 * For SQLite cases, the tsk_objects row of each artifact is inserted when
+	 * the artifact is created, so that SQLite assigns its object id like it
+	 * does for the other objects added in the transaction, and only the
+	 * artifact and attribute rows are batched.
+	 *
+	 * @param transaction The transaction to write the artifacts in.
+	 *
+	 * @return The artifact batch writer of the transaction.
 	 */
-	public final class CaseDbQuery implements AutoCloseable {
+	public ArtifactBatchWriter getArtifactBatchWriter(CaseDbTransaction transaction) {
+		if (transaction.artifactBatchWriter == null) {
+			transaction.artifactBatchWriter = new ArtifactBatchWriter(transaction);
+		}
+		return transaction.artifactBatchWriter;
+	}
 
-		private ResultSet resultSet;
-		private CaseDbConnection connection;
+	/**
+	 * Buffers new blackboard artifacts and attributes created in a
+	 * CaseDbTransaction and writes them with JDBC batches. For PostgreSQL
+	 * cases, object ids and artifact ids are reserved in blocks from their
+	 * sequences, so that each artifact gets its ids when it is created without
+	 * a round trip to the database per artifact. For SQLite cases, each
+	 * artifact gets its object id from inserting its tsk_objects row when it
+	 * is created. Instances are obtained with
+	 * SleuthkitCase.getArtifactBatchWriter.
+	 *
+	 * This class is not thread-safe; like the transaction it belongs to, it
+	 * should be used by one thread.
+	 */
+	public final class ArtifactBatchWriter {
 
-		private CaseDbQuery(String query) throws TskCoreException {
-			if (!query.regionMatches(true, 0, "SELECT", 0, "SELECT".length())) {
-				throw new TskCoreException("Unsupported query: Only SELECT queries are supported.");
+		private final CaseDbTransaction transaction;
+		private final List<BlackboardArtifact> pendingArtifacts = new ArrayList<BlackboardArtifact>();
+		private final List<BlackboardAttribute> pendingAttributes = new ArrayList<BlackboardAttribute>();
+		private final List<Integer> pendingAttributeArtifactTypes = new ArrayList<Integer>();
+		private int batchSize = DEFAULT_ARTIFACT_BATCH_SIZE;
+		private long[] reservedObjIds = new long[0];
+		private long[] reservedArtifactIds = new long[0];
+		private int nextReservedId;
+
+		private ArtifactBatchWriter(CaseDbTransaction transaction) {
+			this.transaction = transaction;
+		}
+
+		/**
+		 * Sets the number of buffered rows (artifacts plus attributes) that
+		 * triggers a write to the case database, which is also the number of
+		 * ids reserved at a time for PostgreSQL cases.
+		 *
+		 * @param batchSize The batch size, must be positive.
+		 */
+		public void setBatchSize(int batchSize) {
+			if (batchSize <= 0) {
+				throw new IllegalArgumentException("batchSize must be positive"); //NON-NLS
 			}
-			try {
-				connection = connections.getConnection();
-			} catch (TskCoreException ex) {
-				throw new TskCoreException("Error getting connection for query: ", ex);
+			this.batchSize = batchSize;
+		}
+
+		/**
+		 * Gets the number of buffered rows that triggers a write to the case
+		 * database.
+		 *
+		 * @return The batch size.
+		 */
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		/**
+		 * Creates a new blackboard artifact of the given type. The artifact is
+		 * written to the case database with the next batch.
+		 *
+		 * @param artifactType The type of the artifact.
+		 * @param obj_id       The content object id associated with the
+		 *                     artifact.
+		 *
+		 * @return The new artifact.
+		 *
+		 * @throws TskCoreException If there is a problem reserving ids or
+		 *                          writing a batch.
+		 */
+		public BlackboardArtifact newBlackboardArtifact(BlackboardArtifact.Type artifactType, long obj_id) throws TskCoreException {
+			BlackboardArtifact artifact;
+			if (dbType == DbType.POSTGRESQL) {
+				if (nextReservedId == reservedObjIds.length) {
+					reserveIds(batchSize);
+				}
+				artifact = new BlackboardArtifact(SleuthkitCase.this, reservedArtifactIds[nextReservedId], obj_id, reservedObjIds[nextReservedId],
+						artifactType.getTypeID(), artifactType.getTypeName(), artifactType.getDisplayName(), BlackboardArtifact.ReviewStatus.UNDECIDED, true);
+				nextReservedId++;
+			} else {
+				artifact = newSQLiteArtifact(artifactType, obj_id);
+			}
+			pendingArtifacts.add(artifact);
+			flushIfFull();
+			return artifact;
+		}
+
+		/**
+		 * Creates a new blackboard artifact of the given type. The artifact is
+		 * written to the case database with the next batch.
+		 *
+		 * @param artifactTypeID The type id of the artifact.
+		 * @param obj_id         The content object id associated with the
+		 *                       artifact.
+		 *
+		 * @return The new artifact.
+		 *
+		 * @throws TskCoreException If the type does not exist or there is a
+		 *                          problem reserving ids or writing a batch.
+		 */
+		public BlackboardArtifact newBlackboardArtifact(int artifactTypeID, long obj_id) throws TskCoreException {
+			return newBlackboardArtifact(getArtifactType(artifactTypeID), obj_id);
+		}
+
+		/**
+		 * Adds an attribute to an artifact. The attribute is written to the
+		 * case database with the next batch.
+		 *
+		 * @param artifact  The artifact.
+		 * @param attribute The attribute.
+		 *
+		 * @throws TskCoreException If there is a problem writing a batch.
+		 */
+		public void addAttribute(BlackboardArtifact artifact, BlackboardAttribute attribute) throws TskCoreException {
+			addAttributes(artifact, Collections.singletonList(attribute));
+		}
+
+		/**
+		 * Adds attributes to an artifact. The attributes are written to the
+		 * case database with the next batch.
+		 *
+		 * @param artifact   The artifact.
+		 * @param attributes The attributes.
+		 *
+		 * @throws TskCoreException If there is a problem writing a batch.
+		 */
+		public void addAttributes(BlackboardArtifact artifact, Collection<BlackboardAttribute> attributes) throws TskCoreException {
+			for (BlackboardAttribute attribute : attributes) {
+				attribute.setArtifactId(artifact.getArtifactID());
+				attribute.setCaseDatabase(SleuthkitCase.this);
+				pendingAttributes.add(attribute);
+				pendingAttributeArtifactTypes.add(artifact.getArtifactTypeID());
 			}
+			artifact.addAttributesToCache(attributes);
+			flushIfFull();
+		}
 
+		/**
+		 * Writes the buffered artifacts and attributes to the case database.
+		 * They become visible to other connections when the transaction is
+		 * committed.
+		 *
+		 * @throws TskCoreException If there is a problem writing the batch.
+		 */
+		public void flush() throws TskCoreException {
+			if (pendingArtifacts.isEmpty() && pendingAttributes.isEmpty()) {
+				return;
+			}
+			CaseDbConnection connection = transaction.getConnection();
+			acquireSingleUserCaseWriteLock();
+			Set<PreparedStatement> batchedStatements = new LinkedHashSet<PreparedStatement>();
 			try {
-				SleuthkitCase.this.acquireSingleUserCaseReadLock();
-				resultSet = connection.executeQuery(connection.createStatement(), query);
+				// Objects, then artifacts, then attributes, so that each batch
+				// only refers to rows written by the batches before it. The
+				// object rows of SQLite artifacts were inserted when the
+				// artifacts were created.
+				PreparedStatement objectStatement = null;
+				if (dbType == DbType.POSTGRESQL) {
+					objectStatement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_OBJECT_WITH_ID);
+					batchedStatements.add(objectStatement);
+				}
+				PreparedStatement artifactStatement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_ARTIFACT);
+				batchedStatements.add(artifactStatement);
+				for (BlackboardArtifact artifact : pendingArtifacts) {
+					// Every parameter is set, so they are not cleared first;
+					// the SQLite driver drops the rows already added to a
+					// batch when they are.
+					if (objectStatement != null) {
+						objectStatement.setLong(1, artifact.getId());
+						objectStatement.setLong(2, artifact.getObjectID());
+						objectStatement.setInt(3, TskData.ObjectType.ARTIFACT.getObjectType());
+						objectStatement.addBatch();
+					}
+					transaction.childAdded(artifact.getObjectID());
+					artifactStatement.setLong(1, artifact.getArtifactID());
+					artifactStatement.setLong(2, artifact.getObjectID());
+					artifactStatement.setLong(3, artifact.getId());
+					artifactStatement.setInt(4, artifact.getArtifactTypeID());
+					artifactStatement.addBatch();
+				}
+				if (objectStatement != null) {
+					objectStatement.executeBatch();
+				}
+				artifactStatement.executeBatch();
+				for (int i = 0; i < pendingAttributes.size(); i++) {
+					PreparedStatement statement = getAddBlackboardAttributeStatement(pendingAttributes.get(i), pendingAttributeArtifactTypes.get(i), connection);
+					statement.addBatch();
+					batchedStatements.add(statement);
+				}
+				// Batches are not retried on failure like single updates are,
+				// since drivers clear the batch when executing it.
+				for (PreparedStatement statement : batchedStatements) {
+					statement.executeBatch();
+				}
 			} catch (SQLException ex) {
-				SleuthkitCase.this.releaseSingleUserCaseReadLock();
-				throw new TskCoreException("Error executing query: ", ex);
+				throw new TskCoreException("Error writing a batch of blackboard artifacts", ex);
+			} finally {
+				for (PreparedStatement statement : batchedStatements) {
+					try {
+						statement.clearBatch();
+					} catch (SQLException ex) {
+						logger.log(Level.WARNING, "Error clearing statement batch", ex); //NON-NLS
+					}
+				}
+				discard();
+				releaseSingleUserCaseWriteLock();
 			}
 		}
 
 		/**
-		 * Get the result set for this query.
+		 * Drops the buffered artifacts and attributes without writing them.
+		 */
+		private void discard() {
+			pendingArtifacts.clear();
+			pendingAttributes.clear();
+			pendingAttributeArtifactTypes.clear();
+		}
+
+		private void flushIfFull() throws TskCoreException {
+			if (pendingArtifacts.size() + pendingAttributes.size() >= batchSize) {
+				flush();
+			}
+		}
+
+		/**
+		 * Creates a new blackboard artifact for a SQLite case, inserting its
+		 * tsk_objects row in the transaction so that SQLite assigns its object
+		 * id. The artifact row is written with the next batch.
 		 *
-		 * @return The result set.
+		 * @param artifactType The type of the artifact.
+		 * @param obj_id       The content object id associated with the
+		 *                     artifact.
+		 *
+		 * @return The new artifact.
+		 *
+		 * @throws TskCoreException If there is a problem inserting the object
+		 *                          row.
 		 */
-		public ResultSet getResultSet() {
-			return resultSet;
+		private BlackboardArtifact newSQLiteArtifact(BlackboardArtifact.Type artifactType, long obj_id) throws TskCoreException {
+			CaseDbConnection connection = transaction.getConnection();
+			acquireSingleUserCaseWriteLock();
+			ResultSet rs = null;
+			try {
+				PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_OBJECT, Statement.RETURN_GENERATED_KEYS);
+				statement.clearParameters();
+				statement.setLong(1, obj_id);
+				statement.setInt(2, TskData.ObjectType.ARTIFACT.getObjectType());
+				connection.executeUpdate(statement);
+				rs = statement.getGeneratedKeys();
+				rs.next();
+				long artifactObjId = rs.getLong(1); //last_insert_rowid()
+				nextArtifactId++;
+				return new BlackboardArtifact(SleuthkitCase.this, nextArtifactId, obj_id, artifactObjId,
+						artifactType.getTypeID(), artifactType.getTypeName(), artifactType.getDisplayName(), BlackboardArtifact.ReviewStatus.UNDECIDED, true);
+			} catch (SQLException ex) {
+				throw new TskCoreException("Error creating a blackboard artifact", ex);
+			} finally {
+				closeResultSet(rs);
+				releaseSingleUserCaseWriteLock();
+			}
 		}
 
-		@Override
-		public void close() throws TskCoreException {
+		/**
+		 * Reserves object ids and artifact ids for the next artifacts of a
+		 * PostgreSQL case in one round trip to the case database. Sequence
+		 * values are never handed out twice, so they can be reserved ahead of
+		 * the inserts.
+		 *
+		 * @param count The number of ids of each kind to reserve.
+		 *
+		 * @throws TskCoreException If there is a problem reserving the ids.
+		 */
+		private void reserveIds(int count) throws TskCoreException {
+			CaseDbConnection connection = transaction.getConnection();
+			ResultSet rs = null;
 			try {
-				if (resultSet != null) {
-					final Statement statement = resultSet.getStatement();
-					if (statement != null) {
-						statement.close();
-					}
-					resultSet.close();
+				long[] objIds = new long[count];
+				long[] artifactIds = new long[count];
+				PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.POSTGRESQL_RESERVE_ARTIFACT_IDS);
+				statement.clearParameters();
+				statement.setInt(1, count);
+				rs = connection.executeQuery(statement);
+				for (int i = 0; i < count && rs.next(); i++) {
+					objIds[i] = rs.getLong("obj_id");
+					artifactIds[i] = rs.getLong("artifact_id");
 				}
-				connection.close();
+				reservedObjIds = objIds;
+				reservedArtifactIds = artifactIds;
+				nextReservedId = 0;
 			} catch (SQLException ex) {
-				throw new TskCoreException("Error closing query: ", ex);
+				throw new TskCoreException("Error reserving ids for blackboard artifacts", ex);
 			} finally {
-				SleuthkitCase.this.releaseSingleUserCaseReadLock();
+				closeResultSet(rs);
 			}
 		}
 	}
 
+	/**
+	 * Starts a write-behind queue with the default capacity and batch size.
+	 *
+	 * @return The queue.
+	 *
+	 * @see #startWriteBehindQueue(int, int)
+	 */
+	public WriteBehindQueue startWriteBehindQueue() {
+		return startWriteBehindQueue(DEFAULT_WRITE_BEHIND_CAPACITY, DEFAULT_WRITE_BEHIND_BATCH_SIZE);
+	}
+
+	/**
+	 * Starts a write-behind queue, which takes updates of file known status,
+	 * MIME type and MD5 hash, artifact review status, new content tags and new
+	 * attributes from any number of threads and writes them to the case
+	 * database on a background thread, many per transaction. Callers do not
+	 * wait for the database unless the queue is full. The queue is shut down
+	 * when the case database is closed.
+	 *
+	 * @param capacity     The number of writes that can wait in the queue
+	 *                     before callers block.
+	 * @param maxBatchSize The maximum number of writes per transaction.
+	 *
+	 * @return The queue.
+	 */
+	public WriteBehindQueue startWriteBehindQueue(int capacity, int maxBatchSize) {
+		if (capacity <= 0 || maxBatchSize <= 0) {
+			throw new IllegalArgumentException("capacity and maxBatchSize must be positive"); //NON-NLS
+		}
+		WriteBehindQueue queue = new WriteBehindQueue(capacity, maxBatchSize);
+		writeBehindQueues.add(queue);
+		queue.writerThread.start();
+		return queue;
+	}
+
+	/**
+	 * The columns a write-behind queue can update, with the statement used to
+	 * update each.
+	 */
+	private enum WriteBehindColumn {
+
+		FILE_KNOWN(PREPARED_STATEMENT.UPDATE_FILE_KNOWN),
+		FILE_MIME_TYPE(PREPARED_STATEMENT.UPDATE_FILE_MIME_TYPE),
+		FILE_MD5(PREPARED_STATEMENT.UPDATE_FILE_MD5),
+		ARTIFACT_REVIEW_STATUS(PREPARED_STATEMENT.UPDATE_ARTIFACT_REVIEW_STATUS);
+
+		private final PREPARED_STATEMENT statement;
+
+		private WriteBehindColumn(PREPARED_STATEMENT statement) {
+			this.statement = statement;
+		}
+	}
+
+	/**
+	 * Writes mutations to the case database on a background thread. Each
+	 * method returns as soon as the write is queued, with a Future that
+	 * completes when the write is committed, or fails with a TskCoreException
+	 * if it could not be written. The writer thread takes up to the maximum
+	 * batch size of queued writes at a time and commits them in one
+	 * transaction; if the transaction fails, the writes are retried one at a
+	 * time so that only the failing writes report an error.
+	 *
+	 * An update of a column of a row that is still queued replaces the queued
+	 * value instead of taking another place in the queue, and shares its
+	 * Future. Updates of file known status keep the most severe status, like
+	 * setKnown. The in-memory state of the given file and artifact objects is
+	 * updated when the write is committed.
+	 *
+	 * When the queue is full, callers block until the writer thread catches
+	 * up. The number and total duration of those waits show how much the
+	 * database is holding the callers back. Writes queued before shutdown is
+	 * called are written before it returns; writes queued after it is called
+	 * are rejected.
+	 *
+	 * Instances are obtained with SleuthkitCase.startWriteBehindQueue. This
+	 * class is thread-safe.
+	 */
+	public final class WriteBehindQueue {
+
+		private final BlockingQueue<QueuedWrite> queue;
+		private final int maxBatchSize;
+		private final Map<String, RowUpdate> queuedUpdates = new HashMap<String, RowUpdate>(); // Guarded by itself.
+		private final Thread writerThread;
+		private final QueuedWrite shutdownMarker = new FlushMarker();
+		private final ReentrantReadWriteLock submitLock = new ReentrantReadWriteLock(); // Write lock guards shutDown, read lock is held while queueing.
+		private volatile boolean shutDown;
+		private final AtomicLong submittedCount = new AtomicLong();
+		private final AtomicLong coalescedCount = new AtomicLong();
+		private final AtomicLong committedCount = new AtomicLong();
+		private final AtomicLong failedCount = new AtomicLong();
+		private final AtomicLong transactionCount = new AtomicLong();
+		private final AtomicLong blockedSubmitCount = new AtomicLong();
+		private final AtomicLong blockedSubmitNanos = new AtomicLong();
+
+		private WriteBehindQueue(int capacity, int maxBatchSize) {
+			this.queue = new ArrayBlockingQueue<QueuedWrite>(capacity);
+			this.maxBatchSize = maxBatchSize;
+			this.writerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					writeQueuedWrites();
+				}
+			}, "WriteBehindQueue-" + databaseName); //NON-NLS
+			this.writerThread.setDaemon(true);
+		}
+
+		/**
+		 * Queues an update of the known status of a file. As with setKnown,
+		 * the status is not updated if the file already has a more severe
+		 * status.
+		 *
+		 * @param file      The file.
+		 * @param fileKnown The known status.
+		 *
+		 * @return A Future that completes when the update is committed, with
+		 *         true if the status was updated and false if it was not.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted while waiting for space.
+		 */
+		public Future<Boolean> setKnown(AbstractFile file, FileKnown fileKnown) throws TskCoreException {
+			if (file == null || fileKnown == null) {
+				throw new IllegalArgumentException("file and fileKnown must not be null"); //NON-NLS
+			}
+			if (file.getKnown().compareTo(fileKnown) > 0) {
+				WriteResult<Boolean> result = new WriteResult<Boolean>();
+				result.complete(false);
+				return result;
+			}
+			return queueUpdate(WriteBehindColumn.FILE_KNOWN, file.getId(), fileKnown, file);
+		}
+
+		/**
+		 * Queues an update of the MIME type of a file.
+		 *
+		 * @param file     The file.
+		 * @param mimeType The MIME type.
+		 *
+		 * @return A Future that completes when the update is committed.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted while waiting for space.
+		 */
+		public Future<Boolean> setFileMIMEType(AbstractFile file, String mimeType) throws TskCoreException {
+			if (file == null || mimeType == null) {
+				throw new IllegalArgumentException("file and mimeType must not be null"); //NON-NLS
+			}
+			return queueUpdate(WriteBehindColumn.FILE_MIME_TYPE, file.getId(), mimeType, file);
+		}
+
+		/**
+		 * Queues an update of the MD5 hash of a file.
+		 *
+		 * @param file    The file.
+		 * @param md5Hash The MD5 hash.
+		 *
+		 * @return A Future that completes when the update is committed.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted while waiting for space.
+		 */
+		public Future<Boolean> setMd5Hash(AbstractFile file, String md5Hash) throws TskCoreException {
+			if (file == null || md5Hash == null) {
+				throw new IllegalArgumentException("file and md5Hash must not be null"); //NON-NLS
+			}
+			return queueUpdate(WriteBehindColumn.FILE_MD5, file.getId(), md5Hash.toLowerCase(), file);
+		}
+
+		/**
+		 * Queues an update of the review status of an artifact.
+		 *
+		 * @param artifact  The artifact.
+		 * @param newStatus The review status.
+		 *
+		 * @return A Future that completes when the update is committed.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted while waiting for space.
+		 */
+		public Future<Boolean> setReviewStatus(BlackboardArtifact artifact, BlackboardArtifact.ReviewStatus newStatus) throws TskCoreException {
+			if (artifact == null || newStatus == null) {
+				throw new IllegalArgumentException("artifact and newStatus must not be null"); //NON-NLS
+			}
+			return queueUpdate(WriteBehindColumn.ARTIFACT_REVIEW_STATUS, artifact.getArtifactID(), newStatus, artifact);
+		}
+
+		/**
+		 * Queues the addition of a content tag.
+		 *
+		 * @param content         The content to tag.
+		 * @param tagName         The name to use for the tag.
+		 * @param comment         A comment to store with the tag.
+		 * @param beginByteOffset Designates the beginning of a tagged section.
+		 * @param endByteOffset   Designates the end of a tagged section.
+		 *
+		 * @return A Future that completes with the new tag when it is
+		 *         committed.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted while waiting for space.
+		 */
+		public Future<ContentTag> addContentTag(Content content, TagName tagName, String comment, long beginByteOffset, long endByteOffset) throws TskCoreException {
+			if (content == null || tagName == null) {
+				throw new IllegalArgumentException("content and tagName must not be null"); //NON-NLS
+			}
+			ContentTagInsert insert = new ContentTagInsert(content, tagName, comment, beginByteOffset, endByteOffset);
+			enqueue(insert);
+			return insert.result;
+		}
+
+		/**
+		 * Queues the addition of an attribute to an existing artifact.
+		 *
+		 * @param attr           The attribute, with its artifact id set.
+		 * @param artifactTypeId The type of the artifact.
+		 *
+		 * @return A Future that completes when the attribute is committed.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted while waiting for space.
+		 */
+		public Future<Void> addBlackboardAttribute(BlackboardAttribute attr, int artifactTypeId) throws TskCoreException {
+			if (attr == null) {
+				throw new IllegalArgumentException("attr must not be null"); //NON-NLS
+			}
+			AttributeInsert insert = new AttributeInsert(attr, artifactTypeId);
+			enqueue(insert);
+			return insert.result;
+		}
+
+		/**
+		 * Waits until every write queued before this call is committed or has
+		 * failed.
+		 *
+		 * @throws TskCoreException If the queue is shut down or the caller is
+		 *                          interrupted.
+		 */
+		public void flush() throws TskCoreException {
+			FlushMarker marker = new FlushMarker();
+			enqueue(marker);
+			try {
+				marker.result.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new TskCoreException("Interrupted while flushing the write-behind queue", ex); //NON-NLS
+			} catch (ExecutionException ex) {
+				throw new TskCoreException("Error flushing the write-behind queue", (Exception) ex.getCause()); //NON-NLS
+			}
+		}
+
+		/**
+		 * Writes every queued write and stops the writer thread. Writes
+		 * cannot be queued after this is called.
+		 *
+		 * @throws TskCoreException If the caller is interrupted while waiting
+		 *                          for the queued writes.
+		 */
+		public void shutdown() throws TskCoreException {
+			// Taking the write lock waits for callers that are putting writes
+			// in the queue, so the shutdown marker is queued after all of them.
+			submitLock.writeLock().lock();
+			try {
+				if (!shutDown) {
+					shutDown = true;
+					boolean interrupted = false;
+					while (true) {
+						try {
+							queue.put(shutdownMarker);
+							break;
+						} catch (InterruptedException ex) {
+							// The writer thread would never stop without the marker.
+							interrupted = true;
+						}
+					}
+					if (interrupted) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			} finally {
+				submitLock.writeLock().unlock();
+			}
+			try {
+				writerThread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new TskCoreException("Interrupted while stopping the write-behind queue", ex); //NON-NLS
+			} finally {
+				writeBehindQueues.remove(this);
+			}
+		}
+
+		/**
+		 * Gets the number of writes queued, including coalesced updates.
+		 *
+		 * @return The number of writes.
+		 */
+		public long getSubmittedCount() {
+			return submittedCount.get();
+		}
+
+		/**
+		 * Gets the number of updates that replaced an update of the same row
+		 * and column that was still queued.
+		 *
+		 * @return The number of coalesced updates.
+		 */
+		public long getCoalescedCount() {
+			return coalescedCount.get();
+		}
+
+		/**
+		 * Gets the number of queued writes that have been committed.
+		 *
+		 * @return The number of writes.
+		 */
+		public long getCommittedCount() {
+			return committedCount.get();
+		}
+
+		/**
+		 * Gets the number of queued writes that could not be written.
+		 *
+		 * @return The number of writes.
+		 */
+		public long getFailedCount() {
+			return failedCount.get();
+		}
+
+		/**
+		 * Gets the number of transactions the writer thread has committed.
+		 *
+		 * @return The number of transactions.
+		 */
+		public long getTransactionCount() {
+			return transactionCount.get();
+		}
+
+		/**
+		 * Gets the number of writes waiting in the queue.
+		 *
+		 * @return The queue depth.
+		 */
+		public int getQueueDepth() {
+			return queue.size();
+		}
+
+		/**
+		 * Gets the number of times a caller had to wait for space in the
+		 * queue.
+		 *
+		 * @return The number of waits.
+		 */
+		public long getBlockedSubmitCount() {
+			return blockedSubmitCount.get();
+		}
+
+		/**
+		 * Gets the total time callers have waited for space in the queue.
+		 *
+		 * @return The time in milliseconds.
+		 */
+		public long getBlockedSubmitMillis() {
+			return blockedSubmitNanos.get() / 1000000;
+		}
+
+		@Override
+		public String toString() {
+			return "WriteBehindQueue{" + "submitted=" + submittedCount.get() + ", coalesced=" + coalescedCount.get() //NON-NLS
+					+ ", committed=" + committedCount.get() + ", failed=" + failedCount.get() + ", transactions=" + transactionCount.get() //NON-NLS
+					+ ", depth=" + queue.size() + ", blockedSubmits=" + blockedSubmitCount.get() + ", blockedMillis=" + getBlockedSubmitMillis() + '}'; //NON-NLS
+		}
+
+		private Future<Boolean> queueUpdate(WriteBehindColumn column, long rowId, Object value, Object target) throws TskCoreException {
+			String key = column.name() + ":" + rowId; //NON-NLS
+			RowUpdate update;
+			synchronized (queuedUpdates) {
+				update = queuedUpdates.get(key);
+				if (update != null) {
+					update.merge(value, target);
+					submittedCount.incrementAndGet();
+					coalescedCount.incrementAndGet();
+					return update.result;
+				}
+				update = new RowUpdate(key, column, rowId, value, target);
+				queuedUpdates.put(key, update);
+			}
+			try {
+				enqueue(update);
+			} catch (TskCoreException ex) {
+				synchronized (queuedUpdates) {
+					queuedUpdates.remove(key);
+				}
+				// Callers whose updates were merged into this one are
+				// waiting on its result.
+				update.failed(ex);
+				throw ex;
+			}
+			return update.result;
+		}
+
+		private void enqueue(QueuedWrite write) throws TskCoreException {
+			submitLock.readLock().lock();
+			try {
+				if (shutDown) {
+					throw new TskCoreException("The write-behind queue is shut down"); //NON-NLS
+				}
+				submittedCount.incrementAndGet();
+				if (queue.offer(write)) {
+					return;
+				}
+				long start = System.nanoTime();
+				try {
+					queue.put(write);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new TskCoreException("Interrupted while waiting for space in the write-behind queue", ex); //NON-NLS
+				} finally {
+					blockedSubmitCount.incrementAndGet();
+					blockedSubmitNanos.addAndGet(System.nanoTime() - start);
+				}
+			} finally {
+				submitLock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * The body of the writer thread.
+		 */
+		private void writeQueuedWrites() {
+			List<QueuedWrite> batch = new ArrayList<QueuedWrite>(maxBatchSize);
+			boolean stopping = false;
+			while (!stopping) {
+				try {
+					batch.add(queue.take());
+				} catch (InterruptedException ex) {
+					continue; // Only the shutdown marker stops the thread.
+				}
+				queue.drainTo(batch, maxBatchSize - 1);
+				// Nothing can be queued after the shutdown marker.
+				stopping = batch.remove(shutdownMarker);
+				synchronized (queuedUpdates) {
+					// Queued updates can no longer be coalesced.
+					for (QueuedWrite write : batch) {
+						if (write instanceof RowUpdate) {
+							queuedUpdates.remove(((RowUpdate) write).key);
+						}
+					}
+				}
+				try {
+					writeBatch(batch);
+				} catch (RuntimeException ex) {
+					// Keep the thread alive and do not leave callers waiting.
+					logger.log(Level.SEVERE, "Unexpected error writing queued writes", ex); //NON-NLS
+					for (QueuedWrite write : batch) {
+						write.failed(new TskCoreException("Unexpected error writing queued writes", ex)); //NON-NLS
+						if (!(write instanceof FlushMarker)) {
+							failedCount.incrementAndGet();
+						}
+					}
+				}
+				batch.clear();
+			}
+			// Should there be any writes left, do not leave callers waiting.
+			queue.drainTo(batch);
+			for (QueuedWrite write : batch) {
+				write.failed(new TskCoreException("The write-behind queue is shut down")); //NON-NLS
+			}
+		}
+
+		private void writeBatch(List<QueuedWrite> batch) {
+			List<QueuedWrite> writes = new ArrayList<QueuedWrite>(batch.size());
+			for (QueuedWrite write : batch) {
+				if (!(write instanceof FlushMarker)) {
+					writes.add(write);
+				}
+			}
+			if (!writes.isEmpty()) {
+				try {
+					writeInTransaction(writes);
+					for (QueuedWrite write : writes) {
+						write.committed();
+					}
+					committedCount.addAndGet(writes.size());
+				} catch (TskCoreException ex) {
+					// Find the writes that fail by retrying them one at a time.
+					for (QueuedWrite write : writes) {
+						try {
+							writeInTransaction(Collections.singletonList(write));
+							write.committed();
+							committedCount.incrementAndGet();
+						} catch (TskCoreException writeEx) {
+							write.failed(writeEx);
+							failedCount.incrementAndGet();
+						}
+					}
+				}
+			}
+			for (QueuedWrite write : batch) {
+				if (write instanceof FlushMarker) {
+					write.committed();
+				}
+			}
+		}
+
+		private void writeInTransaction(List<QueuedWrite> writes) throws TskCoreException {
+			CaseDbConnection connection = connections.getConnection();
+			acquireSingleUserCaseWriteLock();
+			boolean inTransaction = false;
+			try {
+				connection.beginTransaction();
+				inTransaction = true;
+				for (QueuedWrite write : writes) {
+					write.execute(connection);
+				}
+				connection.commitTransaction();
+				inTransaction = false;
+				transactionCount.incrementAndGet();
+			} catch (SQLException ex) {
+				throw new TskCoreException("Error writing queued writes to the case database", ex);
+			} catch (RuntimeException ex) {
+				// Reported like a database error so that the batch is retried
+				// one write at a time and only this write fails.
+				throw new TskCoreException("Unexpected error writing queued writes to the case database", ex);
+			} finally {
+				if (inTransaction) {
+					connection.rollbackTransaction();
+				}
+				connection.close();
+				releaseSingleUserCaseWriteLock();
+			}
+		}
+
+		/**
+		 * A write waiting in the queue.
+		 */
+		private abstract class QueuedWrite {
+
+			/**
+			 * Executes the write as part of a transaction.
+			 */
+			abstract void execute(CaseDbConnection connection) throws SQLException, TskCoreException;
+
+			/**
+			 * Called after the transaction that included the write commits.
+			 */
+			abstract void committed();
+
+			/**
+			 * Called if the write could not be committed.
+			 */
+			abstract void failed(TskCoreException ex);
+		}
+
+		/**
+		 * An update of one column of one row.
+		 */
+		private final class RowUpdate extends QueuedWrite {
+
+			private final String key;
+			private final WriteBehindColumn column;
+			private final long rowId;
+			private final List<Object> targets = new ArrayList<Object>(1); // Guarded by queuedUpdates until taken.
+			private final WriteResult<Boolean> result = new WriteResult<Boolean>();
+			private Object value; // Guarded by queuedUpdates until taken.
+
+			RowUpdate(String key, WriteBehindColumn column, long rowId, Object value, Object target) {
+				this.key = key;
+				this.column = column;
+				this.rowId = rowId;
+				this.value = value;
+				this.targets.add(target);
+			}
+
+			void merge(Object newValue, Object target) {
+				if (column != WriteBehindColumn.FILE_KNOWN || ((FileKnown) value).compareTo((FileKnown) newValue) < 0) {
+					value = newValue;
+				}
+				targets.add(target);
+			}
+
+			@Override
+			void execute(CaseDbConnection connection) throws SQLException, TskCoreException {
+				PreparedStatement statement = connection.getPreparedStatement(column.statement);
+				statement.clearParameters();
+				switch (column) {
+					case FILE_KNOWN:
+						statement.setByte(1, ((FileKnown) value).getFileKnownValue());
+						break;
+					case ARTIFACT_REVIEW_STATUS:
+						statement.setInt(1, ((BlackboardArtifact.ReviewStatus) value).getID());
+						break;
+					default:
+						statement.setString(1, (String) value);
+						break;
+				}
+				statement.setLong(2, rowId);
+				connection.executeUpdate(statement);
+			}
+
+			@Override
+			void committed() {
+				for (Object target : targets) {
+					switch (column) {
+						case FILE_KNOWN:
+							((AbstractFile) target).setKnown((FileKnown) value);
+							break;
+						case FILE_MIME_TYPE:
+							((AbstractFile) target).setMIMEType((String) value);
+							break;
+						case FILE_MD5:
+							((AbstractFile) target).setMd5Hash((String) value);
+							break;
+						default:
+							break;
+					}
+					if (column == WriteBehindColumn.ARTIFACT_REVIEW_STATUS) {
+						// The review status of an artifact object is
+						// immutable, so the cached instance, if any, is stale.
+						final ContentCache cache = contentCache;
+						if (cache != null) {
+							cache.invalidate(((BlackboardArtifact) target).getId());
+						}
+					} else {
+						invalidateCachedContent((AbstractFile) target);
+					}
+				}
+				result.complete(true);
+			}
+
+			@Override
+			void failed(TskCoreException ex) {
+				result.fail(ex);
+			}
+		}
+
+		/**
+		 * The insertion of a content tag.
+		 */
+		private final class ContentTagInsert extends QueuedWrite {
+
+			private final Content content;
+			private final TagName tagName;
+			private final String comment;
+			private final long beginByteOffset;
+			private final long endByteOffset;
+			private final WriteResult<ContentTag> result = new WriteResult<ContentTag>();
+			private long tagId;
+
+			ContentTagInsert(Content content, TagName tagName, String comment, long beginByteOffset, long endByteOffset) {
+				this.content = content;
+				this.tagName = tagName;
+				this.comment = comment;
+				this.beginByteOffset = beginByteOffset;
+				this.endByteOffset = endByteOffset;
+			}
+
+			@Override
+			void execute(CaseDbConnection connection) throws SQLException, TskCoreException {
+				ResultSet resultSet = null;
+				try {
+					// INSERT INTO content_tags (obj_id, tag_name_id, comment, begin_byte_offset, end_byte_offset) VALUES (?, ?, ?, ?, ?)
+					PreparedStatement statement = connection.getPreparedStatement(PREPARED_STATEMENT.INSERT_CONTENT_TAG, Statement.RETURN_GENERATED_KEYS);
+					statement.clearParameters();
+					statement.setLong(1, content.getId());
+					statement.setLong(2, tagName.getId());
+					statement.setString(3, comment);
+					statement.setLong(4, beginByteOffset);
+					statement.setLong(5, endByteOffset);
+					connection.executeUpdate(statement);
+					resultSet = statement.getGeneratedKeys();
+					resultSet.next();
+					tagId = resultSet.getLong(1); //last_insert_rowid()
+				} finally {
+					closeResultSet(resultSet);
+				}
+			}
+
+			@Override
+			void committed() {
+				result.complete(new ContentTag(tagId, content, tagName, comment, beginByteOffset, endByteOffset));
+			}
+
+			@Override
+			void failed(TskCoreException ex) {
+				result.fail(ex);
+			}
+		}
+
+		/**
+		 * The insertion of a blackboard attribute.
+		 */
+		private final class AttributeInsert extends QueuedWrite {
+
+			private final BlackboardAttribute attr;
+			private final int artifactTypeId;
+			private final WriteResult<Void> result = new WriteResult<Void>();
+
+			AttributeInsert(BlackboardAttribute attr, int artifactTypeId) {
+				this.attr = attr;
+				this.artifactTypeId = artifactTypeId;
+			}
+
+			@Override
+			void execute(CaseDbConnection connection) throws SQLException, TskCoreException {
+				addBlackBoardAttribute(attr, artifactTypeId, connection);
+			}
+
+			@Override
+			void committed() {
+				result.complete(null);
+			}
+
+			@Override
+			void failed(TskCoreException ex) {
+				result.fail(ex);
+			}
+		}
+
+		/**
+		 * A marker that completes once every write queued before it has been
+		 * committed or has failed.
+		 */
+		private final class FlushMarker extends QueuedWrite {
+
+			private final WriteResult<Void> result = new WriteResult<Void>();
+
+			@Override
+			void execute(CaseDbConnection connection) {
+			}
+
+			@Override
+			void committed() {
+				result.complete(null);
+			}
+
+			@Override
+			void failed(TskCoreException ex) {
+				result.fail(ex);
+			}
+		}
+
+		/**
+		 * The Future of a queued write. It cannot be cancelled.
+		 */
+		private final class WriteResult<T> implements Future<T> {
+
+			private final CountDownLatch done = new CountDownLatch(1);
+			private volatile T value;
+			private volatile TskCoreException error;
+
+			void complete(T value) {
+				this.value = value;
+				done.countDown();
+			}
+
+			void fail(TskCoreException error) {
+				this.error = error;
+				done.countDown();
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+
+			@Override
+			public boolean isDone() {
+				return done.getCount() == 0;
+			}
+
+			@Override
+			public T get() throws InterruptedException, ExecutionException {
+				done.await();
+				return getResult();
+			}
+
+			@Override
+			public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+				if (!done.await(timeout, unit)) {
+					throw new TimeoutException();
+				}
+				return getResult();
+			}
+
+			private T getResult() throws ExecutionException {
+				if (error != null) {
+					throw new ExecutionException(error);
+				}
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * The CaseDbQuery supports the use case where developers have a need for
+	 * data that is not exposed through the SleuthkitCase API. A CaseDbQuery
+	 * instance gets created through the SleuthkitCase executeDbQuery() method.
+	 * It wraps the ResultSet and takes care of acquiring and releasing the
+	 * appropriate database lock. It implements AutoCloseable so that it can be
+	 * used in a try-with -resources block freeing developers from having to
+	 * remember to close the result set and releasing the lock.
+	 */
+	public final class CaseDbQuery implements AutoCloseable {
+
+		private ResultSet resultSet;
+		private CaseDbConnection connection;
+
+		private CaseDbQuery(String query) throws TskCoreException {
+			if (!query.regionMatches(true, 0, "SELECT", 0, "SELECT".length())) {
+				throw new TskCoreException("Unsupported query: Only SELECT queries are supported.");
+			}
+			try {
+				connection = connections.getConnection();
+			} catch (TskCoreException ex) {
+				throw new TskCoreException("Error getting connection for query: ", ex);
+			}
+
+			try {
+				SleuthkitCase.this.acquireSingleUserCaseReadLock();
+				resultSet = connection.executeQuery(connection.createStatement(), query);
+			} catch (SQLException ex) {
+				SleuthkitCase.this.releaseSingleUserCaseReadLock();
+				throw new TskCoreException("Error executing query: ", ex);
+			}
+		}
+
+		/**
+		 * Get the result set for this query.
+		 *
+		 * @return The result set.
+		 */
+		public ResultSet getResultSet() {
+			return resultSet;
+		}
+
+		@Override
+		public void close() throws TskCoreException {
+			try {
+				if (resultSet != null) {
+					final Statement statement = resultSet.getStatement();
+					if (statement != null) {
+						statement.close();
+					}
+					resultSet.close();
+				}
+				connection.close();
+			} catch (SQLException ex) {
+				throw new TskCoreException("Error closing query: ", ex);
+			} finally {
+				SleuthkitCase.this.releaseSingleUserCaseReadLock();
+			}
+		}
+	}
+
+	/**
+	 * A forward-only cursor over the results of a case database query that
+	 * creates the objects for one page of rows at a time as it is advanced, so
+	 * that very large results can be processed in constant memory. The rows
+	 * are returned in the order of a unique key column, and each page is read
+	 * with its own query that starts after the key of the last row of the
+	 * previous page. A database connection (and, for single-user cases, the
+	 * case read lock) is held only while a page is read, so the thread that
+	 * iterates may write to the case database, and writers on other threads
+	 * are not held up by a slow consumer. Rows added or changed while the
+	 * cursor is open are returned if their keys are after the current page.
+	 * Use it in a try-with-resources block:
+	 *
+	 * <pre>
+	 * try (SleuthkitCase.CaseDbCursor&lt;AbstractFile&gt; files = caseDb.openFilesWhereCursor("size &gt; 0")) {
+	 *     for (AbstractFile file : files) {
+	 *         ...
+	 *     }
+	 * }
+	 * </pre>
+	 *
+	 * Because Iterator methods cannot throw checked exceptions, a database
+	 * error while advancing the cursor is thrown as an IllegalStateException
+	 * whose cause is a TskCoreException.
+	 *
+	 * @param <T> The type of the objects created from the rows.
+	 */
+	public abstract class CaseDbCursor<T> implements Iterator<T>, Iterable<T>, AutoCloseable {
+
+		private final String query;
+		private final String keyColumn;
+		private final int pageSize;
+		private final List<T> page = new ArrayList<T>();
+		private int pageIndex;
+		private boolean firstPage = true;
+		private long lastKey;
+		private boolean morePages = true;
+		private boolean closed;
+
+		/**
+		 * Opens a cursor and reads its first page.
+		 *
+		 * @param query     The query. Its result must have a column named
+		 *                  keyColumn whose values are unique.
+		 * @param keyColumn The name of the key column, which orders the rows.
+		 *
+		 * @throws TskCoreException If there is a problem reading the first
+		 *                          page.
+		 */
+		private CaseDbCursor(String query, String keyColumn) throws TskCoreException {
+			this.query = query;
+			this.keyColumn = keyColumn;
+			this.pageSize = cursorFetchSize;
+			readPage();
+		}
+
+		/**
+		 * Creates the object for the current row of the result set.
+		 *
+		 * @param rs         The result set, positioned on the row to read.
+		 * @param connection The connection the page is read with.
+		 *
+		 * @return The object, or null to skip the row.
+		 *
+		 * @throws SQLException     If there is a problem reading the row.
+		 * @throws TskCoreException If there is a problem creating the object.
+		 */
+		abstract T fromResultSet(ResultSet rs, CaseDbConnection connection) throws SQLException, TskCoreException;
+
+		/**
+		 * Reads the page of rows after the last key read and creates their
+		 * objects, holding a connection and the case read lock until done.
+		 *
+		 * @throws TskCoreException If there is a problem reading the page.
+		 */
+		private void readPage() throws TskCoreException {
+			page.clear();
+			pageIndex = 0;
+			String pageQuery = "SELECT * FROM (" + query + ") AS cursor_rows" //NON-NLS
+					+ (firstPage ? "" : " WHERE " + keyColumn + " > " + lastKey) //NON-NLS
+					+ " ORDER BY " + keyColumn + " LIMIT " + pageSize; //NON-NLS
+			CaseDbConnection connection = connections.getConnection();
+			acquireSingleUserCaseReadLock();
+			Statement statement = null;
+			ResultSet resultSet = null;
+			try {
+				statement = connection.createStatement();
+				resultSet = connection.executeQuery(statement, pageQuery);
+				int rows = 0;
+				while (resultSet.next()) {
+					rows++;
+					lastKey = resultSet.getLong(keyColumn);
+					T item = fromResultSet(resultSet, connection);
+					if (item != null) {
+						page.add(item);
+					}
+				}
+				firstPage = false;
+				morePages = (rows == pageSize);
+			} catch (SQLException ex) {
+				throw new TskCoreException("Error executing cursor query: " + pageQuery, ex);
+			} finally {
+				closeResultSet(resultSet);
+				closeStatement(statement);
+				connection.close();
+				releaseSingleUserCaseReadLock();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!closed) {
+				if (pageIndex < page.size()) {
+					return true;
+				}
+				if (!morePages) {
+					close();
+					return false;
+				}
+				try {
+					readPage();
+				} catch (TskCoreException ex) {
+					close();
+					throw new IllegalStateException(ex);
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			T item = page.get(pageIndex);
+			page.set(pageIndex++, null);
+			return item;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("CaseDbCursor is read-only"); //NON-NLS
+		}
+
+		/**
+		 * Returns this cursor, so that it can be used in an enhanced for loop.
+		 * The cursor can only be iterated once.
+		 *
+		 * @return This cursor.
+		 */
+		@Override
+		public Iterator<T> iterator() {
+			return this;
+		}
+
+		/**
+		 * Closes the cursor. Any rows not yet read are discarded. Calling this
+		 * method more than once has no effect.
+		 */
+		@Override
+		public void close() {
+			closed = true;
+			page.clear();
+			pageIndex = 0;
+		}
+	}
+
 	/**
 	 * Add an observer for SleuthkitCase errors.
 	 *
@@ -21,18 +21,20 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.sleuthkit.datamodel.TskData.TSK_FS_ATTR_TYPE_ENUM;
 
 /**
@@ -59,6 +61,13 @@ public class SleuthkitJNI {
 	private SleuthkitJNI() {
 	}
 
+	/*
+	 * The hash databases whose MD5 index has been loaded into memory, mapped
+	 * by hash database handle. Lookups in these databases do not call into
+	 * the native library.
+	 */
+	private static final ConcurrentMap<Integer, HashSetIndex> inMemoryHashSets = new ConcurrentHashMap<Integer, HashSetIndex>();
+
 	/**
 	 * Cache of all handles allocated in the JNI layer. Used for: (a) quick
 	 * lookup of frequently used handles (e.g. file system and image) (b)
@@ -68,7 +77,9 @@ private SleuthkitJNI() {
 	private static class HandleCache {
 
 		/*
-		 * A monitor used to guard access to cached Sleuthkit JNI handles.
+		 * A monitor used to guard opening and closing of image and file system
+		 * handles. File handles are tracked with concurrent collections so
+		 * that validating a file handle on the read path does not take it.
 		 */
 		private static final Object cacheLock = new Object();
 
@@ -85,12 +96,13 @@ private static class HandleCache {
 		private static final Map<Long, Map<Long, Long>> fsHandleCache = new HashMap<Long, Map<Long, Long>>();
 
 		/*
-		 * The collection of open file handles. We will only allow requests
-		 * through to the C code if the file handle exists in this collection.
+		 * The open file handles, mapped to the handle of the file system in
+		 * which each file lives. We will only allow requests through to the C
+		 * code if the file handle exists in this collection.
 		 */
-		private static final Set<Long> fileHandleCache = new HashSet<Long>();
+		private static final ConcurrentMap<Long, Long> fileHandleCache = new ConcurrentHashMap<Long, Long>();
 
-		private static final Map<Long, List<Long>> fileSystemToFileHandles = new HashMap<Long, List<Long>>();
+		private static final ConcurrentMap<Long, Set<Long>> fileSystemToFileHandles = new ConcurrentHashMap<Long, Set<Long>>();
 
 		private static final String INVALID_FILE_HANDLE = "Invalid file handle."; //NON-NLS
 
@@ -101,30 +113,44 @@ private static class HandleCache {
 		 * @param fsHandle   The file system handle in which the file lives.
 		 */
 		private static void addFileHandle(long fileHandle, long fsHandle) {
-			synchronized (cacheLock) {
-				// Add to collection of open file handles.
-				fileHandleCache.add(fileHandle);
-
-				// Add to map of file system to file handles.
-				if (fileSystemToFileHandles.containsKey(fsHandle)) {
-					fileSystemToFileHandles.get(fsHandle).add(fileHandle);
-				} else {
-					fileSystemToFileHandles.put(fsHandle, new ArrayList<Long>(Arrays.asList(fileHandle)));
+			// Add to map of file system to file handles.
+			Set<Long> fileHandles = fileSystemToFileHandles.get(fsHandle);
+			if (fileHandles == null) {
+				Set<Long> newFileHandles = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+				fileHandles = fileSystemToFileHandles.putIfAbsent(fsHandle, newFileHandles);
+				if (fileHandles == null) {
+					fileHandles = newFileHandles;
 				}
 			}
+			fileHandles.add(fileHandle);
+
+			// Add to collection of open file handles.
+			fileHandleCache.put(fileHandle, fsHandle);
 		}
 
-		private static void removeFileHandle(long fileHandle) {
-			synchronized (cacheLock) {
-				// Remove from collection of open file handles.
-				fileHandleCache.remove(fileHandle);
+		/**
+		 * Remove a file handle from the cache.
+		 *
+		 * @param fileHandle The file handle.
+		 *
+		 * @return True if the handle was in the cache, false if it had already
+		 *         been removed.
+		 */
+		private static boolean removeFileHandle(long fileHandle) {
+			// Remove from collection of open file handles.
+			Long fsHandle = fileHandleCache.remove(fileHandle);
+			if (fsHandle == null) {
+				return false;
+			}
+			Set<Long> fileHandles = fileSystemToFileHandles.get(fsHandle);
+			if (fileHandles != null) {
+				fileHandles.remove(fileHandle);
 			}
+			return true;
 		}
 
 		private static boolean isValidFileHandle(long fileHandle) {
-			synchronized (cacheLock) {
-				return fileHandleCache.contains(fileHandle);
-			}
+			return fileHandleCache.containsKey(fileHandle);
 		}
 
 		private static void closeHandlesAndClearCache() throws TskCoreException {
@@ -135,8 +161,11 @@ private static void closeHandlesAndClearCache() throws TskCoreException {
 				for (Map<Long, Long> imageToFsMap : fsHandleCache.values()) {
 					for (Long fsHandle : imageToFsMap.values()) {
 						// First close all open file handles for the file system.
-						for (Long fileHandle : fileSystemToFileHandles.get(fsHandle)) {
-							closeFile(fileHandle);
+						Set<Long> fileHandles = fileSystemToFileHandles.remove(fsHandle);
+						if (fileHandles != null) {
+							for (Long fileHandle : fileHandles) {
+								closeFile(fileHandle);
+							}
 						}
 						// Then close the file system handle.
 						closeFsNat(fsHandle);
@@ -170,14 +199,37 @@ public static class CaseDbHandle {
 		 */
 		private final long caseDbPointer;
 
+		/*
+		 * The type of the case database.
+		 */
+		private final TskData.DbType dbType;
+
+		/*
+		 * The cache of Content objects of the case database, if any.
+		 */
+		private volatile ContentCache contentCache;
+
 		/**
 		 * Constructs an object that encapsulates a handle to a SleuthKit case
 		 * database with support for adding images to the database.
 		 *
 		 * @param caseDbPointer A pointer to a TskCaseDb object.
+		 * @param dbType        The type of the case database.
 		 */
-		private CaseDbHandle(long caseDbPointer) {
+		private CaseDbHandle(long caseDbPointer, TskData.DbType dbType) {
 			this.caseDbPointer = caseDbPointer;
+			this.dbType = dbType;
+		}
+
+		/**
+		 * Sets the cache of Content objects of the case database, which is
+		 * told when the children of cached objects may have changed because
+		 * a chunk of an image added in streaming mode was committed.
+		 *
+		 * @param contentCache The cache, or null if caching is disabled.
+		 */
+		void setContentCache(ContentCache contentCache) {
+			this.contentCache = contentCache;
 		}
 
 		/**
@@ -256,6 +308,11 @@ public class AddImageProcess {
 			private final String imageWriterPath;
 			private volatile long tskAutoDbPointer;
 			private boolean isCanceled;
+			private int parallelFsMaxThreads;
+			private int streamingFilesPerChunk;
+			private AddImageChunkListener streamingListener;
+			private boolean bulkLoad;
+			private AddImageIndexListener bulkLoadListener;
 
 			/**
 			 * Constructs an object that encapsulates a multi-step process to
@@ -277,6 +334,140 @@ private AddImageProcess(String timeZone, boolean addUnallocSpace, boolean skipFa
 				this.imageWriterPath = imageWriterPath;
 				tskAutoDbPointer = 0;
 				this.isCanceled = false;
+				this.parallelFsMaxThreads = -1;
+				this.streamingFilesPerChunk = 0;
+				this.streamingListener = null;
+				this.bulkLoad = false;
+				this.bulkLoadListener = null;
+			}
+
+			/**
+			 * Makes the process walk each file system of the image on its own
+			 * thread, with the files found by the walkers added to the case
+			 * database in batches by the thread that calls
+			 * AddImageProcess.run. Use
+			 * AddImageProcess.getFileSystemProgress to follow the progress of
+			 * each file system. Must be called before AddImageProcess.run.
+			 *
+			 * @param maxThreads The maximum number of walker threads, or 0 for
+			 *                   one thread per file system.
+			 *
+			 * @throws TskCoreException if the process has already started.
+			 */
+			public synchronized void setParallelFileSystems(int maxThreads) throws TskCoreException {
+				if (0 != tskAutoDbPointer) {
+					throw new TskCoreException("Add image process already started");
+				}
+				parallelFsMaxThreads = Math.max(maxThreads, 0);
+			}
+
+			/**
+			 * Makes the process commit the files of the image to the case
+			 * database in chunks as they are walked, instead of in one
+			 * transaction when AddImageProcess.commit is called, so that they
+			 * can be read while the rest of the image is added. The listener
+			 * is told the range of object ids of each chunk once it is
+			 * committed, on the thread that calls AddImageProcess.run, or
+			 * AddImageProcess.commit for the last chunk. With a PostgreSQL
+			 * case database the range can include objects added by other
+			 * connections. AddImageProcess.revert still removes the whole
+			 * image, including the committed chunks. Must be called before
+			 * AddImageProcess.run. Can't be combined with
+			 * AddImageProcess.setBulkLoad.
+			 *
+			 * With a SQLite case database, the process waits for readers in
+			 * other processes to release their locks before it commits a
+			 * chunk. The SQLite library of the JDBC driver does not see the
+			 * file locks of the native library in the same process on
+			 * systems other than Windows, so on those systems this process
+			 * should read the files of a chunk from the listener, when the
+			 * add image process holds no lock, rather than from other threads
+			 * while the image is being added.
+			 *
+			 * @param filesPerChunk The number of files per chunk, or 0 to add
+			 *                      the image in one transaction.
+			 * @param listener      The listener, or null.
+			 *
+			 * @throws TskCoreException if the process has already started or
+			 *                          bulk load mode is set.
+			 */
+			public synchronized void setStreaming(int filesPerChunk, AddImageChunkListener listener) throws TskCoreException {
+				if (0 != tskAutoDbPointer) {
+					throw new TskCoreException("Add image process already started");
+				}
+				if (bulkLoad && filesPerChunk > 0) {
+					throw new TskCoreException("Streaming can't be combined with bulk load mode");
+				}
+				streamingFilesPerChunk = Math.max(filesPerChunk, 0);
+				streamingListener = listener;
+			}
+
+			/**
+			 * Makes the process drop the secondary indexes of the case
+			 * database on the tables the image is added to, i.e. the ones on
+			 * the parent ids of objects, the file layouts and the MIME types,
+			 * extensions and hashes of files, while the image is added, and
+			 * build them again each in one pass when AddImageProcess.commit
+			 * or AddImageProcess.revert is called. The indexes of the
+			 * blackboard are kept. This makes adding a large image faster,
+			 * but queries that need the indexes are slow until they are built
+			 * again, and building them again takes longer the more the case
+			 * database already holds. If they can't be built again, commit
+			 * still adds the image but throws a TskDataException, and like
+			 * indexes left dropped by a process that ended before they were
+			 * built, they are built when the case database is next opened or
+			 * the next image is added. The listener is told each time an
+			 * index has been built, on the thread that calls
+			 * AddImageProcess.commit or AddImageProcess.revert. Can't be
+			 * combined with AddImageProcess.setStreaming, or used with a
+			 * PostgreSQL case database, whose indexes other users of the case
+			 * need while the image is added. Must be called before
+			 * AddImageProcess.run.
+			 *
+			 * @param listener The listener, or null.
+			 *
+			 * @throws TskCoreException if the process has already started,
+			 *                          streaming is set or the case database
+			 *                          is a PostgreSQL database.
+			 */
+			public synchronized void setBulkLoad(AddImageIndexListener listener) throws TskCoreException {
+				if (0 != tskAutoDbPointer) {
+					throw new TskCoreException("Add image process already started");
+				}
+				if (dbType == TskData.DbType.POSTGRESQL) {
+					throw new TskCoreException("Bulk load mode can't be used with a PostgreSQL case database");
+				}
+				if (streamingFilesPerChunk > 0) {
+					throw new TskCoreException("Bulk load mode can't be combined with streaming");
+				}
+				bulkLoad = true;
+				bulkLoadListener = listener;
+			}
+
+			/**
+			 * Chunk listener that makes the cached Content objects of the case
+			 * database count their children again before passing the chunk on
+			 * to the listener given to AddImageProcess.setStreaming, since the
+			 * chunk may have added children to cached directories.
+			 */
+			private class CacheResettingChunkListener implements AddImageChunkListener {
+
+				private final AddImageChunkListener listener;
+
+				private CacheResettingChunkListener(AddImageChunkListener listener) {
+					this.listener = listener;
+				}
+
+				@Override
+				public void chunkCommitted(long firstObjId, long lastObjId) {
+					final ContentCache cache = contentCache;
+					if (cache != null) {
+						cache.allChildrenChanged();
+					}
+					if (listener != null) {
+						listener.chunkCommitted(firstObjId, lastObjId);
+					}
+				}
 			}
 
 			/**
@@ -309,6 +500,15 @@ public void run(String deviceId, String[] imageFilePaths) throws TskCoreExceptio
 					if (0 == tskAutoDbPointer) {
 						throw new TskCoreException("initAddImgNat returned a NULL TskAutoDb pointer");
 					}
+					if (parallelFsMaxThreads >= 0) {
+						setAddImgParallelFsNat(tskAutoDbPointer, parallelFsMaxThreads);
+					}
+					if (streamingFilesPerChunk > 0) {
+						setAddImgStreamingNat(tskAutoDbPointer, streamingFilesPerChunk, new CacheResettingChunkListener(streamingListener));
+					}
+					if (bulkLoad) {
+						setAddImgBulkLoadNat(tskAutoDbPointer, bulkLoadListener);
+					}
 				}
 				if (imageHandle != 0) {
 					runAddImgNat(tskAutoDbPointer, deviceId, imageHandle, timeZone, imageWriterPath);
@@ -356,16 +556,23 @@ public synchronized void revert() throws TskCoreException {
 			 *
 			 * @throws TskCoreException if a critical error occurs within the
 			 *                          SleuthKit.
+			 * @throws TskDataException if the image was added, but the
+			 *                          indexes dropped in bulk load mode could
+			 *                          not be built again. They are built when
+			 *                          the case database is next opened or the
+			 *                          next image is added.
 			 */
-			public synchronized long commit() throws TskCoreException {
+			public synchronized long commit() throws TskCoreException, TskDataException {
 				if (tskAutoDbPointer == 0) {
 					throw new TskCoreException("AddImgProcess::commit: AutoDB pointer is NULL");
 				}
 
-				long id = commitAddImgNat(tskAutoDbPointer);
-				// the native code deleted the object
-				tskAutoDbPointer = 0;
-				return id;
+				try {
+					return commitAddImgNat(tskAutoDbPointer);
+				} finally {
+					// the native code deleted the object
+					tskAutoDbPointer = 0;
+				}
 			}
 
 			/**
@@ -378,6 +585,68 @@ public synchronized String currentDirectory() {
 				return tskAutoDbPointer == 0 ? "" : getCurDirNat(tskAutoDbPointer); //NON-NLS
 			}
 
+			/**
+			 * Gets the progress of each file system of the image when the
+			 * file systems are walked in parallel.
+			 *
+			 * @return The progress of each file system found so far, empty if
+			 *         the file systems are not walked in parallel or the
+			 *         process is not running.
+			 *
+			 * @throws TskCoreException if there is an error getting the
+			 *                          progress.
+			 */
+			public synchronized List<AddImageFileSystemProgress> getFileSystemProgress() throws TskCoreException {
+				List<AddImageFileSystemProgress> progress = new ArrayList<AddImageFileSystemProgress>();
+				if (tskAutoDbPointer == 0) {
+					return progress;
+				}
+				long[] values = getAddImgFsProgressNat(tskAutoDbPointer);
+				for (int i = 0; i + 4 < values.length; i += 5) {
+					progress.add(new AddImageFileSystemProgress(values[i], values[i + 1], values[i + 2], values[i + 3], values[i + 4] != 0));
+				}
+				return progress;
+			}
+
+			/**
+			 * Gets the hit and miss counts of the cache the SleuthKit uses to
+			 * find the object ids of parent directories while it adds files.
+			 * The counts cover the files added so far by this process; misses
+			 * are lookups that had to query the case database.
+			 *
+			 * @return The cache statistics, or null if the process is not
+			 *         running or has been committed or reverted.
+			 *
+			 * @throws TskCoreException if there is an error getting the
+			 *                          statistics.
+			 */
+			public synchronized ParentDirCacheStats getParentDirCacheStats() throws TskCoreException {
+				if (tskAutoDbPointer == 0) {
+					return null;
+				}
+				long[] stats = getAddImgParentDirCacheStatsNat(tskAutoDbPointer);
+				return new ParentDirCacheStats(stats[0], stats[1], stats[2], stats[3], stats[4]);
+			}
+
+			/**
+			 * Gets the time this process has spent walking the file systems of
+			 * the image and inserting their files into the case database, so
+			 * far if it is still running.
+			 *
+			 * @return The timings, or null if the process is not running or has
+			 *         been committed or reverted.
+			 *
+			 * @throws TskCoreException if there is an error getting the
+			 *                          timings.
+			 */
+			public synchronized AddImageTimings getTimings() throws TskCoreException {
+				if (tskAutoDbPointer == 0) {
+					return null;
+				}
+				long[] timings = getAddImgTimingsNat(tskAutoDbPointer);
+				return new AddImageTimings(timings[0], timings[1], timings[2], timings[3]);
+			}
+
 			/**
 			 * Starts the process of adding an image to the case database.
 			 * Either commit() or revert() MUST be called after calling run().
@@ -413,7 +682,7 @@ public void run(String[] imageFilePaths) throws TskCoreException, TskDataExcepti
 	 *                          TSK
 	 */
 	static CaseDbHandle newCaseDb(String path) throws TskCoreException {
-		return new CaseDbHandle(newCaseDbNat(path));
+		return new CaseDbHandle(newCaseDbNat(path), TskData.DbType.SQLITE);
 	}
 
 	/**
@@ -429,7 +698,7 @@ static CaseDbHandle newCaseDb(String path) throws TskCoreException {
 	 *                          TSK
 	 */
 	static CaseDbHandle newCaseDb(String databaseName, CaseDbConnectionInfo info) throws TskCoreException {
-		return new CaseDbHandle(newCaseDbMultiNat(info.getHost(), info.getPort(), info.getUserName(), info.getPassword(), info.getDbType().ordinal(), databaseName));
+		return new CaseDbHandle(newCaseDbMultiNat(info.getHost(), info.getPort(), info.getUserName(), info.getPassword(), info.getDbType().ordinal(), databaseName), info.getDbType());
 	}
 
 	/**
@@ -444,7 +713,7 @@ static CaseDbHandle newCaseDb(String databaseName, CaseDbConnectionInfo info) th
 	 *                          TSK
 	 */
 	static CaseDbHandle openCaseDb(String path) throws TskCoreException {
-		return new CaseDbHandle(openCaseDbNat(path));
+		return new CaseDbHandle(openCaseDbNat(path), TskData.DbType.SQLITE);
 	}
 
 	/**
@@ -460,7 +729,7 @@ static CaseDbHandle openCaseDb(String path) throws TskCoreException {
 	 *                          TSK
 	 */
 	static CaseDbHandle openCaseDb(String databaseName, CaseDbConnectionInfo info) throws TskCoreException {
-		return new CaseDbHandle(openCaseDbMultiNat(info.getHost(), info.getPort(), info.getUserName(), info.getPassword(), info.getDbType().ordinal(), databaseName));
+		return new CaseDbHandle(openCaseDbMultiNat(info.getHost(), info.getPort(), info.getUserName(), info.getPassword(), info.getDbType().ordinal(), databaseName), info.getDbType());
 	}
 
 	/**
@@ -493,6 +762,60 @@ public static long openImage(String[] imageFiles) throws TskCoreException {
 		return openImage(imageFiles, true);
 	}
 
+	/**
+	 * open the image, set the size of its read cache and return the image
+	 * info pointer. If the image is already open, the read cache of the open
+	 * image is resized and its cached data is discarded.
+	 *
+	 * @param imageFiles     the paths to the images
+	 * @param cacheEntries   the number of read cache entries
+	 * @param cacheEntrySize the size of each read cache entry in bytes, a
+	 *                       multiple of 512. Reads larger than this bypass
+	 *                       the cache.
+	 *
+	 * @return the image info pointer
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK
+	 */
+	public static long openImage(String[] imageFiles, int cacheEntries, int cacheEntrySize) throws TskCoreException {
+		long imageHandle = openImage(imageFiles, true);
+		setImageCacheSize(imageHandle, cacheEntries, cacheEntrySize);
+		return imageHandle;
+	}
+
+	/**
+	 * Sets the size of the read cache of an open image. Cached data is
+	 * discarded; the hit and miss counts are kept.
+	 *
+	 * @param imgHandle      the image info pointer
+	 * @param cacheEntries   the number of read cache entries
+	 * @param cacheEntrySize the size of each read cache entry in bytes, a
+	 *                       multiple of 512
+	 *
+	 * @throws TskCoreException exception thrown if the cache size is invalid
+	 *                          or the cache cannot be allocated
+	 */
+	public static void setImageCacheSize(long imgHandle, int cacheEntries, int cacheEntrySize) throws TskCoreException {
+		setImgCacheNat(imgHandle, cacheEntries, cacheEntrySize);
+	}
+
+	/**
+	 * Gets the configuration and hit and miss counts of the read cache of an
+	 * open image.
+	 *
+	 * @param imgHandle the image info pointer
+	 *
+	 * @return the cache statistics
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK
+	 */
+	public static ImageCacheStats getImageCacheStats(long imgHandle) throws TskCoreException {
+		long[] stats = getImgCacheStatsNat(imgHandle);
+		return new ImageCacheStats(stats[0], stats[1], (int) stats[2], (int) stats[3]);
+	}
+
 	/**
 	 * open the image and return the image info pointer This is a temporary
 	 * measure to allow ingest of multiple local disks on the same drive letter.
@@ -665,6 +988,27 @@ public static int readImg(long imgHandle, byte[] readBuffer, long offset, long l
 		return readImgNat(imgHandle, readBuffer, offset, len);
 	}
 
+	/**
+	 * reads data from an image into a buffer, starting at a given position in
+	 * the buffer
+	 *
+	 * @param imgHandle
+	 * @param readBuffer  buffer to read to
+	 * @param bufOffset   position in the buffer to start writing at
+	 * @param offset      byte offset in the image to start at
+	 * @param len         amount of data to read, no more than the space in
+	 *                    the buffer after bufOffset
+	 *
+	 * @return the number of characters read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK
+	 */
+	public static int readImg(long imgHandle, byte[] readBuffer, int bufOffset, long offset, long len) throws TskCoreException {
+		return readImgToOffsetNat(imgHandle, readBuffer, bufOffset, offset, len);
+	}
+
 	/**
 	 * reads data from an volume system
 	 *
@@ -784,6 +1128,172 @@ public static int readFileSlack(long fileHandle, byte[] readBuffer, long offset,
 		return readFileNat(fileHandle, readBuffer, offset, TSK_FS_FILE_READ_OFFSET_TYPE_ENUM.START_OF_SLACK.getValue(), len);
 	}
 
+	/**
+	 * reads data from an image directly into a direct buffer, without an
+	 * intermediate native allocation or copy. Up to directBuf.remaining()
+	 * bytes are read into the buffer starting at its position, and the
+	 * position is advanced by the number of bytes read.
+	 *
+	 * @param imgHandle
+	 * @param directBuf direct buffer to read to
+	 * @param offset    byte offset in the image to start at
+	 *
+	 * @return the number of bytes read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK or if the buffer is not a writable direct
+	 *                          buffer
+	 */
+	public static int readImg(long imgHandle, ByteBuffer directBuf, long offset) throws TskCoreException {
+		checkDirectBuffer(directBuf);
+		return advancePosition(directBuf, readImgDirectNat(imgHandle, directBuf, directBuf.position(), offset, directBuf.remaining()));
+	}
+
+	/**
+	 * reads data from an volume system directly into a direct buffer. Up to
+	 * directBuf.remaining() bytes are read into the buffer starting at its
+	 * position, and the position is advanced by the number of bytes read.
+	 *
+	 * @param vsHandle  pointer to a volume system structure in the sleuthkit
+	 * @param directBuf direct buffer to read to
+	 * @param offset    sector offset in the image to start at
+	 *
+	 * @return the number of bytes read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK or if the buffer is not a writable direct
+	 *                          buffer
+	 */
+	public static int readVs(long vsHandle, ByteBuffer directBuf, long offset) throws TskCoreException {
+		checkDirectBuffer(directBuf);
+		return advancePosition(directBuf, readVsDirectNat(vsHandle, directBuf, directBuf.position(), offset, directBuf.remaining()));
+	}
+
+	/**
+	 * reads data from an volume directly into a direct buffer. Up to
+	 * directBuf.remaining() bytes are read into the buffer starting at its
+	 * position, and the position is advanced by the number of bytes read.
+	 *
+	 * @param volHandle pointer to a volume structure in the sleuthkit
+	 * @param directBuf direct buffer to read to
+	 * @param offset    byte offset in the volume to start at
+	 *
+	 * @return the number of bytes read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK or if the buffer is not a writable direct
+	 *                          buffer
+	 */
+	public static int readVsPart(long volHandle, ByteBuffer directBuf, long offset) throws TskCoreException {
+		checkDirectBuffer(directBuf);
+		return advancePosition(directBuf, readVolDirectNat(volHandle, directBuf, directBuf.position(), offset, directBuf.remaining()));
+	}
+
+	/**
+	 * reads data from an file system directly into a direct buffer. Up to
+	 * directBuf.remaining() bytes are read into the buffer starting at its
+	 * position, and the position is advanced by the number of bytes read.
+	 *
+	 * @param fsHandle  pointer to a file system structure in the sleuthkit
+	 * @param directBuf direct buffer to read to
+	 * @param offset    byte offset in the file system to start at
+	 *
+	 * @return the number of bytes read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK or if the buffer is not a writable direct
+	 *                          buffer
+	 */
+	public static int readFs(long fsHandle, ByteBuffer directBuf, long offset) throws TskCoreException {
+		checkDirectBuffer(directBuf);
+		return advancePosition(directBuf, readFsDirectNat(fsHandle, directBuf, directBuf.position(), offset, directBuf.remaining()));
+	}
+
+	/**
+	 * reads data from an file directly into a direct buffer. Up to
+	 * directBuf.remaining() bytes are read into the buffer starting at its
+	 * position, and the position is advanced by the number of bytes read.
+	 *
+	 * @param fileHandle pointer to a file structure in the sleuthkit
+	 * @param directBuf  direct buffer to read to
+	 * @param offset     byte offset in the file to start at
+	 *
+	 * @return the number of bytes read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK or if the buffer is not a writable direct
+	 *                          buffer
+	 */
+	public static int readFile(long fileHandle, ByteBuffer directBuf, long offset) throws TskCoreException {
+		if (!HandleCache.isValidFileHandle(fileHandle)) {
+			throw new TskCoreException(HandleCache.INVALID_FILE_HANDLE);
+		}
+		checkDirectBuffer(directBuf);
+		return advancePosition(directBuf, readFileDirectNat(fileHandle, directBuf, directBuf.position(), offset, TSK_FS_FILE_READ_OFFSET_TYPE_ENUM.START_OF_FILE.getValue(), directBuf.remaining()));
+	}
+
+	/**
+	 * reads data from the slack space of a file directly into a direct
+	 * buffer. Up to directBuf.remaining() bytes are read into the buffer
+	 * starting at its position, and the position is advanced by the number of
+	 * bytes read.
+	 *
+	 * @param fileHandle pointer to a file structure in the sleuthkit
+	 * @param directBuf  direct buffer to read to
+	 * @param offset     byte offset in the slack to start at
+	 *
+	 * @return the number of bytes read, or -1 if the end of the stream has
+	 *         been reached
+	 *
+	 * @throws TskCoreException exception thrown if critical error occurs within
+	 *                          TSK or if the buffer is not a writable direct
+	 *                          buffer
+	 */
+	public static int readFileSlack(long fileHandle, ByteBuffer directBuf, long offset) throws TskCoreException {
+		if (!HandleCache.isValidFileHandle(fileHandle)) {
+			throw new TskCoreException(HandleCache.INVALID_FILE_HANDLE);
+		}
+		checkDirectBuffer(directBuf);
+		return advancePosition(directBuf, readFileDirectNat(fileHandle, directBuf, directBuf.position(), offset, TSK_FS_FILE_READ_OFFSET_TYPE_ENUM.START_OF_SLACK.getValue(), directBuf.remaining()));
+	}
+
+	/**
+	 * Verifies that a buffer can be written to directly by the native code.
+	 *
+	 * @param directBuf the buffer to check
+	 *
+	 * @throws TskCoreException if the buffer is not a writable direct buffer
+	 */
+	private static void checkDirectBuffer(ByteBuffer directBuf) throws TskCoreException {
+		if (!directBuf.isDirect()) {
+			throw new TskCoreException("Buffer is not a direct buffer"); //NON-NLS
+		}
+		if (directBuf.isReadOnly()) {
+			throw new TskCoreException("Buffer is read-only"); //NON-NLS
+		}
+	}
+
+	/**
+	 * Moves the position of a buffer past the bytes written into it by the
+	 * native code.
+	 *
+	 * @param directBuf the buffer that was read into
+	 * @param bytesRead the number of bytes read, or -1
+	 *
+	 * @return bytesRead
+	 */
+	private static int advancePosition(ByteBuffer directBuf, int bytesRead) {
+		if (bytesRead > 0) {
+			directBuf.position(directBuf.position() + bytesRead);
+		}
+		return bytesRead;
+	}
+
 	/**
 	 * Get human readable (some what) details about a file. This is the same as
 	 * the 'istat' TSK tool
@@ -864,12 +1374,13 @@ public static void closeFs(long fsHandle) {
 	 * @param fileHandle pointer to file structure in sleuthkit
 	 */
 	public static void closeFile(long fileHandle) {
-		if (!HandleCache.isValidFileHandle(fileHandle)) {
+		// Only the caller that removes the handle from the cache frees it, so
+		// concurrent closes of the same handle free it once.
+		if (!HandleCache.removeFileHandle(fileHandle)) {
 			// File handle is not open so this is a no-op.
 			return;
 		}
 		closeFileNat(fileHandle);
-		HandleCache.removeFileHandle(fileHandle);
 	}
 
 	/**
@@ -880,6 +1391,7 @@ public static void closeFile(long fileHandle) {
 	 * @throws TskCoreException if a critical error occurs within TSK core
 	 */
 	public static void createLookupIndexForHashDatabase(int dbHandle) throws TskCoreException {
+		inMemoryHashSets.remove(dbHandle);
 		hashDbCreateIndexNat(dbHandle);
 	}
 
@@ -960,6 +1472,7 @@ public static int createHashDatabase(String path) throws TskCoreException {
 	 *                          TSK
 	 */
 	public static void closeAllHashDatabases() throws TskCoreException {
+		inMemoryHashSets.clear();
 		hashDbCloseAll();
 	}
 
@@ -971,6 +1484,7 @@ public static void closeAllHashDatabases() throws TskCoreException {
 	 *                          TSK
 	 */
 	public static void closeHashDatabase(int dbHandle) throws TskCoreException {
+		inMemoryHashSets.remove(dbHandle);
 		hashDbClose(dbHandle);
 	}
 
@@ -996,9 +1510,86 @@ public static String getHashDatabaseDisplayName(int dbHandle) throws TskCoreExce
 	 * @throws TskCoreException
 	 */
 	public static boolean lookupInHashDatabase(String hash, int dbHandle) throws TskCoreException {
+		HashSetIndex hashSet = inMemoryHashSets.get(dbHandle);
+		if (hashSet != null && hash.length() == 32) {
+			return hashSet.contains(hash);
+		}
 		return hashDbLookup(hash, dbHandle);
 	}
 
+	/**
+	 * Looks up a batch of hash values with a single call into the native
+	 * library. The batch is sorted and the index of a text hash database is
+	 * searched once for the whole batch, which is much faster than looking up
+	 * the hash values one at a time.
+	 *
+	 * @param hashes   Binary hash values to search for, all MD5 (16 bytes) or
+	 *                 all SHA-1 (20 bytes).
+	 * @param dbHandle Handle of database to lookup in.
+	 *
+	 * @return An array with an element for each hash value, true if the hash
+	 *         value was found in the database.
+	 *
+	 * @throws TskCoreException
+	 */
+	public static boolean[] lookupInHashDatabase(byte[][] hashes, int dbHandle) throws TskCoreException {
+		if (hashes.length == 0) {
+			return new boolean[0];
+		}
+		int hashLen = hashes[0].length;
+		HashSetIndex hashSet = inMemoryHashSets.get(dbHandle);
+		if (hashSet != null && hashLen == 16) {
+			for (byte[] hash : hashes) {
+				if (hash.length != hashLen) {
+					throw new TskCoreException("All hash values in a batch must have the same length"); //NON-NLS
+				}
+			}
+			return hashSet.containsAll(hashes);
+		}
+		byte[] packedHashes = new byte[hashes.length * hashLen];
+		for (int i = 0; i < hashes.length; i++) {
+			if (hashes[i].length != hashLen) {
+				throw new TskCoreException("All hash values in a batch must have the same length"); //NON-NLS
+			}
+			System.arraycopy(hashes[i], 0, packedHashes, i * hashLen, hashLen);
+		}
+		return hashDbLookupBatchNat(packedHashes, hashLen, dbHandle);
+	}
+
+	/**
+	 * Loads the MD5 index of a text hash database, such as the NSRL, into
+	 * memory. Subsequent MD5 lookups in the database with lookupInHashDatabase
+	 * are answered from memory until the database is closed or re-indexed.
+	 * Verbose lookups and SHA-1 lookups still use the native library. The
+	 * returned object reports the memory used by the index and the time it
+	 * took to load.
+	 *
+	 * @param dbHandle Handle of an indexed text hash database.
+	 *
+	 * @return The in-memory index.
+	 *
+	 * @throws TskCoreException if the database does not have an MD5 index
+	 *                          file or it cannot be read
+	 */
+	public static HashSetIndex loadHashDatabaseIntoMemory(int dbHandle) throws TskCoreException {
+		HashSetIndex hashSet = inMemoryHashSets.get(dbHandle);
+		if (hashSet == null) {
+			hashSet = HashSetIndex.load(getHashDatabaseIndexPath(dbHandle));
+			inMemoryHashSets.put(dbHandle, hashSet);
+		}
+		return hashSet;
+	}
+
+	/**
+	 * Releases the in-memory index of a hash database loaded with
+	 * loadHashDatabaseIntoMemory. Lookups go back to the native library.
+	 *
+	 * @param dbHandle Handle of the hash database.
+	 */
+	public static void unloadHashDatabaseFromMemory(int dbHandle) {
+		inMemoryHashSets.remove(dbHandle);
+	}
+
 	/**
 	 * Lookup hash value in DB and return details on results (more time
 	 * consuming than basic lookup)
@@ -1142,6 +1733,58 @@ public static boolean isImageSupported(String imagePath) {
 		return isImageSupportedNat(imagePath);
 	}
 
+	/**
+	 * Receives the progress of a case database backup.
+	 */
+	interface BackupProgressObserver {
+
+		/**
+		 * Called after each batch of pages is copied.
+		 *
+		 * @param remaining The number of pages still to be copied.
+		 * @param pageCount The number of pages in the case database.
+		 */
+		void progress(int remaining, int pageCount);
+	}
+
+	/**
+	 * Copies a SQLite case database with the SQLite online backup API, a
+	 * batch of pages at a time, pausing between batches so that other
+	 * connections can keep using the database. A write by another connection
+	 * makes the copy start over.
+	 *
+	 * @param dbPath       The path of the case database.
+	 * @param backupPath   The path of the copy, overwritten if it exists.
+	 * @param pagesPerStep The number of pages copied per batch.
+	 * @param sleepMillis  The pause between batches in milliseconds.
+	 * @param observer     The observer of the progress of the copy.
+	 *
+	 * @throws TskCoreException If there is an error copying the database.
+	 */
+	static void backupCaseDb(String dbPath, String backupPath, int pagesPerStep, int sleepMillis, BackupProgressObserver observer) throws TskCoreException {
+		backupCaseDbNat(dbPath, backupPath, pagesPerStep, sleepMillis, observer);
+	}
+
+	/**
+	 * Updates an existing copy of a SQLite case database in place with the
+	 * SQLite online backup API, writing only the pages that differ. The case
+	 * database is read in one read transaction, so the copy is consistent
+	 * while other connections keep using the database; without a write-ahead
+	 * log their commits wait until the update is done.
+	 *
+	 * @param dbPath       The path of the case database.
+	 * @param snapshotPath The path of the existing copy.
+	 * @param pagesPerStep The number of pages copied per batch.
+	 * @param observer     The observer of the progress of the update.
+	 *
+	 * @return The number of bytes written to the copy.
+	 *
+	 * @throws TskCoreException If there is an error updating the copy.
+	 */
+	static long updateCaseDbSnapshot(String dbPath, String snapshotPath, int pagesPerStep, BackupProgressObserver observer) throws TskCoreException {
+		return updateCaseDbSnapshotNat(dbPath, snapshotPath, pagesPerStep, observer);
+	}
+
 	private static native String getVersionNat();
 
 	private static native void startVerboseLoggingNat(String logPath);
@@ -1156,6 +1799,10 @@ public static boolean isImageSupported(String imagePath) {
 
 	private static native void closeCaseDbNat(long db) throws TskCoreException;
 
+	private static native void backupCaseDbNat(String dbPath, String backupPath, int pagesPerStep, int sleepMillis, BackupProgressObserver observer) throws TskCoreException;
+
+	private static native long updateCaseDbSnapshotNat(String dbPath, String snapshotPath, int pagesPerStep, BackupProgressObserver observer) throws TskCoreException;
+
 	private static native int hashDbOpenNat(String hashDbPath) throws TskCoreException;
 
 	private static native int hashDbNewNat(String hashDbPath) throws TskCoreException;
@@ -1190,6 +1837,8 @@ public static boolean isImageSupported(String imagePath) {
 
 	private static native boolean hashDbLookup(String hash, int dbHandle) throws TskCoreException;
 
+	private static native boolean[] hashDbLookupBatchNat(byte[] hashes, int hashLen, int dbHandle) throws TskCoreException;
+
 	private static native HashHitInfo hashDbLookupVerbose(String hash, int dbHandle) throws TskCoreException;
 
 	private static native long initAddImgNat(long db, String timezone, boolean addUnallocSpace, boolean skipFatFsOrphans) throws TskCoreException;
@@ -1204,10 +1853,26 @@ public static boolean isImageSupported(String imagePath) {
 
 	private static native void revertAddImgNat(long process) throws TskCoreException;
 
-	private static native long commitAddImgNat(long process) throws TskCoreException;
+	private static native long commitAddImgNat(long process) throws TskCoreException, TskDataException;
+
+	private static native void setAddImgParallelFsNat(long process, int maxThreads) throws TskCoreException;
+
+	private static native void setAddImgStreamingNat(long process, int filesPerChunk, AddImageChunkListener listener) throws TskCoreException;
+
+	private static native void setAddImgBulkLoadNat(long process, AddImageIndexListener listener) throws TskCoreException;
+
+	private static native long[] getAddImgFsProgressNat(long process) throws TskCoreException;
+
+	private static native long[] getAddImgParentDirCacheStatsNat(long process) throws TskCoreException;
+
+	private static native long[] getAddImgTimingsNat(long process) throws TskCoreException;
 
 	private static native long openImgNat(String[] imgPath, int splits) throws TskCoreException;
 
+	private static native void setImgCacheNat(long imgHandle, int numEntries, int entrySize) throws TskCoreException;
+
+	private static native long[] getImgCacheStatsNat(long imgHandle) throws TskCoreException;
+
 	private static native long openVsNat(long imgHandle, long vsOffset) throws TskCoreException;
 
 	private static native long openVolNat(long vsHandle, long volId) throws TskCoreException;
@@ -1218,6 +1883,8 @@ public static boolean isImageSupported(String imagePath) {
 
 	private static native int readImgNat(long imgHandle, byte[] readBuffer, long offset, long len) throws TskCoreException;
 
+	private static native int readImgToOffsetNat(long imgHandle, byte[] readBuffer, int bufOffset, long offset, long len) throws TskCoreException;
+
 	private static native int readVsNat(long vsHandle, byte[] readBuffer, long offset, long len) throws TskCoreException;
 
 	private static native int readVolNat(long volHandle, byte[] readBuffer, long offset, long len) throws TskCoreException;
@@ -1226,6 +1893,16 @@ public static boolean isImageSupported(String imagePath) {
 
 	private static native int readFileNat(long fileHandle, byte[] readBuffer, long offset, int offset_type, long len) throws TskCoreException;
 
+	private static native int readImgDirectNat(long imgHandle, ByteBuffer directBuf, int bufOffset, long offset, long len) throws TskCoreException;
+
+	private static native int readVsDirectNat(long vsHandle, ByteBuffer directBuf, int bufOffset, long offset, long len) throws TskCoreException;
+
+	private static native int readVolDirectNat(long volHandle, ByteBuffer directBuf, int bufOffset, long offset, long len) throws TskCoreException;
+
+	private static native int readFsDirectNat(long fsHandle, ByteBuffer directBuf, int bufOffset, long offset, long len) throws TskCoreException;
+
+	private static native int readFileDirectNat(long fileHandle, ByteBuffer directBuf, int bufOffset, long offset, int offset_type, long len) throws TskCoreException;
+
 	private static native int saveFileMetaDataTextNat(long fileHandle, String fileName) throws TskCoreException;
 
 	private static native void closeImgNat(long imgHandle);
@@ -0,0 +1,106 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+/**
+ * A snapshot of the execution times of one kind of case database statement,
+ * as recorded by SleuthkitCase when statement timing is enabled. The time of
+ * a query covers executing it and fetching its first rows, not reading the
+ * rest of the result set.
+ */
+public final class StatementTiming {
+
+	private final String name;
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+	private final long p99Nanos;
+
+	StatementTiming(String name, long count, long totalNanos, long maxNanos, long p99Nanos) {
+		this.name = name;
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+		this.p99Nanos = p99Nanos;
+	}
+
+	/**
+	 * Gets the name of the statement. Prepared statements are named after
+	 * their SleuthkitCase constant; statements built as strings are counted
+	 * together as AD_HOC.
+	 *
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of times the statement was executed.
+	 *
+	 * @return The count.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the total execution time of the statement.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getTotalMicros() {
+		return totalNanos / 1000;
+	}
+
+	/**
+	 * Gets the mean execution time of the statement.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public double getMeanMicros() {
+		return count == 0 ? 0 : totalNanos / 1000.0 / count;
+	}
+
+	/**
+	 * Gets the longest execution time of the statement.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getMaxMicros() {
+		return maxNanos / 1000;
+	}
+
+	/**
+	 * Gets the 99th percentile of the execution times of the statement. The
+	 * times are recorded in a histogram with four buckets per power of two,
+	 * so this is an upper bound that is at most 25% above the true value.
+	 *
+	 * @return The time in microseconds.
+	 */
+	public long getP99Micros() {
+		return p99Nanos / 1000;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%-40s count=%d total=%dus mean=%.1fus p99=%dus max=%dus", //NON-NLS
+				name, count, getTotalMicros(), getMeanMicros(), getP99Micros(), getMaxMicros());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests SleuthkitCase.ArtifactBatchWriter against a SQLite case database.
+ */
+public class ArtifactBatchWriterTest {
+
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+	private SleuthkitCase caseDb;
+
+	@Before
+	public void setUp() throws TskCoreException {
+		caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "case.db").getAbsolutePath());
+	}
+
+	@After
+	public void tearDown() {
+		caseDb.close();
+	}
+
+	/**
+	 * Test of writing batched artifacts and adding local files in the same
+	 * transaction. The files and the artifacts must get distinct object ids
+	 * and all be committed.
+	 */
+	@Test
+	public void testArtifactsMixedWithLocalFiles() throws TskCoreException {
+		System.out.println("artifactsMixedWithLocalFiles");
+		BlackboardArtifact.Type type = caseDb.getArtifactType(BlackboardArtifact.ARTIFACT_TYPE.TSK_GEN_INFO.getLabel());
+		BlackboardAttribute.Type commentType = caseDb.getAttributeType(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_COMMENT.getLabel());
+		List<BlackboardArtifact> artifacts = new ArrayList<BlackboardArtifact>();
+		List<AbstractFile> files = new ArrayList<AbstractFile>();
+
+		SleuthkitCase.CaseDbTransaction transaction = caseDb.beginTransaction();
+		try {
+			LocalFilesDataSource dataSource = caseDb.addLocalFilesDataSource("device", "root", "", transaction);
+			VirtualDirectory dir = caseDb.addVirtualDirectory(dataSource.getId(), "dir", transaction);
+			SleuthkitCase.ArtifactBatchWriter writer = caseDb.getArtifactBatchWriter(transaction);
+			writer.setBatchSize(4);
+			for (int i = 0; i < 10; i++) {
+				BlackboardArtifact artifact = writer.newBlackboardArtifact(type, dir.getId());
+				writer.addAttribute(artifact, new BlackboardAttribute(commentType, "test", "artifact " + i));
+				artifacts.add(artifact);
+				files.add(caseDb.addLocalFile("file" + i, "/file" + i, 0, 0, 0, 0, 0, true, TskData.EncodingType.NONE, dir, transaction));
+			}
+			transaction.commit();
+		} catch (TskCoreException ex) {
+			transaction.rollback();
+			throw ex;
+		}
+
+		Set<Long> objIds = new HashSet<Long>();
+		for (AbstractFile file : files) {
+			assertTrue(objIds.add(file.getId()));
+		}
+		for (BlackboardArtifact artifact : artifacts) {
+			assertTrue(objIds.add(artifact.getId()));
+			BlackboardArtifact stored = caseDb.getBlackboardArtifact(artifact.getArtifactID());
+			assertEquals(artifact.getId(), stored.getId());
+			assertEquals(artifact.getObjectID(), stored.getObjectID());
+			BlackboardAttribute comment = stored.getAttribute(commentType);
+			assertEquals(artifact.getAttribute(commentType).getValueString(), comment.getValueString());
+		}
+		assertEquals(artifacts.size(), caseDb.getBlackboardArtifactsTypeCount(type.getTypeID()));
+		for (AbstractFile file : files) {
+			assertEquals(file.getName(), caseDb.getAbstractFileById(file.getId()).getName());
+		}
+	}
+}
@@ -88,7 +88,13 @@ public void testBottomUpDiff() {
 				inp.add(ex);
 				DataModelTestSuite.writeExceptions(exFile, inp);
 			}
-			process.commit();
+			try {
+				process.commit();
+			} catch (TskDataException ex) {
+				List<Exception> inp = new ArrayList<Exception>();
+				inp.add(ex);
+				DataModelTestSuite.writeExceptions(exFile, inp);
+			}
 
 			// open the "leaf file" generated by the TopDown test and verify that getParent() follows the same sequence
 			java.io.File lvs = new java.io.File(dbFile.getAbsolutePath() + java.io.File.separator + title);
@@ -0,0 +1,173 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sleuthkit.datamodel.SleuthkitJNI.CaseDbHandle.AddImageProcess;
+
+/**
+ * Tests that the secondary indexes of a SQLite case database exist again
+ * after an image is added in bulk load mode. The tests that add an image use
+ * the first image in the directory given by the "inpt" system property, and
+ * are skipped if there is none.
+ */
+public class BulkLoadAddImageTest {
+
+	private static final List<String> INDEXES = Arrays.asList("parObjId", "layout_objID", "artifact_objID", "artifact_typeID", //NON-NLS
+			"attrsArtifactID", "mime_type", "file_extension", "file_md5"); //NON-NLS
+	private static final List<String> BULK_LOAD_INDEXES = Arrays.asList("parObjId", "layout_objID", "mime_type", "file_extension", "file_md5"); //NON-NLS
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+
+	/**
+	 * Test of committing an image added in bulk load mode to a case that
+	 * already holds an image. The indexes must all exist again, and the
+	 * listener must be told of each one built.
+	 */
+	@Test
+	public void testIndexesAfterCommit() throws Exception {
+		System.out.println("indexesAfterCommit");
+		String[] image = getImage();
+		SleuthkitCase caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "commit.db").getAbsolutePath());
+		try {
+			AddImageProcess process = caseDb.makeAddImageProcess("", false, false, "");
+			process.run(UUID.randomUUID().toString(), image);
+			process.commit();
+			long filesBefore = caseDb.countFilesWhere("1 = 1"); //NON-NLS
+
+			final AtomicInteger indexesBuilt = new AtomicInteger();
+			process = caseDb.makeAddImageProcess("", false, false, "");
+			process.setBulkLoad(new AddImageIndexListener() {
+				@Override
+				public void indexBuilt(String indexName, int built, int indexCount) {
+					indexesBuilt.incrementAndGet();
+				}
+			});
+			process.run(UUID.randomUUID().toString(), image);
+			process.commit();
+
+			assertEquals(2, caseDb.getImages().size());
+			assertEquals(2 * filesBefore, caseDb.countFilesWhere("1 = 1")); //NON-NLS
+			assertEquals(INDEXES.size(), indexesBuilt.get());
+			assertTrue(getIndexes(caseDb).containsAll(INDEXES));
+		} finally {
+			caseDb.close();
+		}
+	}
+
+	/**
+	 * Test of reverting an image added in bulk load mode. The indexes must all
+	 * exist again.
+	 */
+	@Test
+	public void testIndexesAfterRevert() throws Exception {
+		System.out.println("indexesAfterRevert");
+		String[] image = getImage();
+		SleuthkitCase caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "revert.db").getAbsolutePath());
+		try {
+			AddImageProcess process = caseDb.makeAddImageProcess("", false, false, "");
+			process.setBulkLoad(null);
+			process.run(UUID.randomUUID().toString(), image);
+			process.revert();
+
+			assertTrue(caseDb.getImages().isEmpty());
+			assertTrue(getIndexes(caseDb).containsAll(INDEXES));
+		} finally {
+			caseDb.close();
+		}
+	}
+
+	/**
+	 * Test of opening a case whose indexes were left dropped by an add image
+	 * process in bulk load mode that ended before it built them again. Opening
+	 * the case must build them.
+	 */
+	@Test
+	public void testIndexesBuiltOnOpen() throws Exception {
+		System.out.println("indexesBuiltOnOpen");
+		File dbFile = new File(caseFolder.getRoot(), "open.db");
+		SleuthkitCase.newCase(dbFile.getAbsolutePath()).close();
+
+		Class.forName("org.sqlite.JDBC"); //NON-NLS
+		Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath()); //NON-NLS
+		try {
+			Statement statement = connection.createStatement();
+			try {
+				for (String index : BULK_LOAD_INDEXES) {
+					statement.execute("DROP INDEX " + index); //NON-NLS
+				}
+			} finally {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+		}
+
+		SleuthkitCase caseDb = SleuthkitCase.openCase(dbFile.getAbsolutePath());
+		try {
+			assertTrue(getIndexes(caseDb).containsAll(INDEXES));
+		} finally {
+			caseDb.close();
+		}
+	}
+
+	/**
+	 * Gets the paths of the first test image, skipping the test if there is
+	 * none.
+	 */
+	private static String[] getImage() {
+		Assume.assumeTrue(System.getProperty(DataModelTestSuite.INPT) != null);
+		List<List<String>> imagePaths = DataModelTestSuite.getImagePaths();
+		Assume.assumeTrue(!imagePaths.isEmpty());
+		return imagePaths.get(0).toArray(new String[0]);
+	}
+
+	/**
+	 * Gets the names of the indexes of a SQLite case database.
+	 */
+	private static Set<String> getIndexes(SleuthkitCase caseDb) throws Exception {
+		Set<String> indexes = new TreeSet<String>();
+		SleuthkitCase.CaseDbQuery query = caseDb.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index'"); //NON-NLS
+		try {
+			ResultSet resultSet = query.getResultSet();
+			while (resultSet.next()) {
+				indexes.add(resultSet.getString("name"));
+			}
+		} finally {
+			query.close();
+		}
+		return indexes;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests SleuthkitCase.CaseDbCursor against a SQLite case database.
+ */
+public class CaseDbCursorTest {
+
+	private static final int FILE_COUNT = 10;
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+	private SleuthkitCase caseDb;
+	private final List<Long> fileIds = new ArrayList<Long>();
+
+	@Before
+	public void setUp() throws TskCoreException {
+		caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "case.db").getAbsolutePath());
+		SleuthkitCase.CaseDbTransaction transaction = caseDb.beginTransaction();
+		try {
+			LocalFilesDataSource dataSource = caseDb.addLocalFilesDataSource("device", "root", "", transaction);
+			VirtualDirectory dir = caseDb.addVirtualDirectory(dataSource.getId(), "dir", transaction);
+			for (int i = 0; i < FILE_COUNT; i++) {
+				fileIds.add(caseDb.addLocalFile("file" + i, "/file" + i, 0, 0, 0, 0, 0, true, TskData.EncodingType.NONE, dir, transaction).getId());
+			}
+			transaction.commit();
+		} catch (TskCoreException ex) {
+			transaction.rollback();
+			throw ex;
+		}
+		caseDb.setCursorFetchSize(3);
+	}
+
+	@After
+	public void tearDown() {
+		caseDb.close();
+	}
+
+	/**
+	 * Test of writing to the case database from the thread that iterates a
+	 * cursor over several pages. The writes must not deadlock, and the cursor
+	 * must return every row once, in key order.
+	 */
+	@Test(timeout = 60000)
+	public void testWriteWhileIterating() throws TskCoreException {
+		System.out.println("writeWhileIterating");
+		List<Long> seen = new ArrayList<Long>();
+		SleuthkitCase.CaseDbCursor<AbstractFile> files = caseDb.openFilesWhereCursor("name LIKE 'file%'");
+		try {
+			for (AbstractFile file : files) {
+				seen.add(file.getId());
+				file.newArtifact(BlackboardArtifact.ARTIFACT_TYPE.TSK_GEN_INFO);
+			}
+		} finally {
+			files.close();
+		}
+		assertEquals(fileIds, seen);
+
+		BlackboardArtifact.Type type = caseDb.getArtifactType(BlackboardArtifact.ARTIFACT_TYPE.TSK_GEN_INFO.getLabel());
+		List<Long> artifactIds = new ArrayList<Long>();
+		SleuthkitCase.CaseDbCursor<BlackboardArtifact> artifacts = caseDb.openBlackboardArtifactsCursor(type);
+		try {
+			for (BlackboardArtifact artifact : artifacts) {
+				artifactIds.add(artifact.getArtifactID());
+				caseDb.setReviewStatus(artifact, BlackboardArtifact.ReviewStatus.APPROVED);
+			}
+			assertFalse(artifacts.hasNext());
+		} finally {
+			artifacts.close();
+		}
+		assertEquals(FILE_COUNT, artifactIds.size());
+		for (int i = 1; i < artifactIds.size(); i++) {
+			assertTrue(artifactIds.get(i - 1) < artifactIds.get(i));
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import org.sleuthkit.datamodel.BlackboardArtifact.ARTIFACT_TYPE;
+import org.sleuthkit.datamodel.BlackboardAttribute.ATTRIBUTE_TYPE;
+
+/**
+ * Times representative SleuthkitCase operations on a copy of an existing case
+ * database opened with each CaseDbPerformanceProfile: loading every file row,
+ * random file lookups, walking the content tree from the images, adding
+ * artifacts with attributes, and reading the artifacts back.
+ *
+ * Usage: CaseDbProfileBenchmark caseDbPath [lookups] [artifacts]
+ */
+public class CaseDbProfileBenchmark {
+
+	private static final int DEFAULT_LOOKUPS = 20000;
+	private static final int DEFAULT_ARTIFACTS = 2000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: CaseDbProfileBenchmark caseDbPath [lookups] [artifacts]"); //NON-NLS
+			return;
+		}
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LOOKUPS;
+		int artifacts = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ARTIFACTS;
+
+		for (CaseDbPerformanceProfile profile : CaseDbPerformanceProfile.values()) {
+			File copy = File.createTempFile("CaseDbProfileBenchmark", ".db"); //NON-NLS
+			SleuthkitCase original = SleuthkitCase.openCase(args[0]);
+			try {
+				original.copyCaseDB(copy.getPath());
+			} finally {
+				original.close();
+			}
+			SleuthkitCase caseDb = SleuthkitCase.openCase(copy.getPath(), profile);
+			try {
+				System.out.println(profile);
+
+				long start = System.nanoTime();
+				List<AbstractFile> files = caseDb.findAllFilesWhere("1 = 1"); //NON-NLS
+				report("load all files", files.size(), start);
+				if (files.isEmpty()) {
+					System.out.println("The case database has no files"); //NON-NLS
+					return;
+				}
+
+				Random random = new Random(0);
+				start = System.nanoTime();
+				for (int i = 0; i < lookups; i++) {
+					caseDb.getAbstractFileById(files.get(random.nextInt(files.size())).getId());
+				}
+				report("file lookups", lookups, start);
+
+				start = System.nanoTime();
+				int count = 0;
+				for (Image image : caseDb.getImages()) {
+					count += walk(image);
+				}
+				report("tree walk", count, start);
+
+				start = System.nanoTime();
+				for (int i = 0; i < artifacts; i++) {
+					BlackboardArtifact artifact = caseDb.newBlackboardArtifact(ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT, files.get(random.nextInt(files.size())).getId());
+					artifact.addAttribute(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_SET_NAME, "CaseDbProfileBenchmark", "set")); //NON-NLS
+				}
+				report("artifact writes", artifacts, start);
+
+				start = System.nanoTime();
+				List<BlackboardArtifact> hits = caseDb.getBlackboardArtifacts(ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT);
+				for (BlackboardArtifact hit : hits) {
+					hit.getAttributes();
+				}
+				report("artifact reads", hits.size(), start);
+			} finally {
+				caseDb.close();
+				copy.delete();
+			}
+		}
+	}
+
+	private static int walk(Content content) throws TskCoreException {
+		int count = 1;
+		for (Content child : content.getChildren()) {
+			count += walk(child);
+		}
+		return count;
+	}
+
+	private static void report(String operation, int count, long startNanos) {
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		System.out.println(String.format("  %-16s %8d in %7.3f s, %10.0f/s", operation, count, seconds, count / seconds)); //NON-NLS
+	}
+}
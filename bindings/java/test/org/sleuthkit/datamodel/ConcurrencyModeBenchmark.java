@@ -0,0 +1,132 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sleuthkit.datamodel.BlackboardArtifact.ARTIFACT_TYPE;
+import org.sleuthkit.datamodel.BlackboardAttribute.ATTRIBUTE_TYPE;
+
+/**
+ * Measures mixed read/write throughput on a single-user case database in each
+ * SleuthkitCase.ConcurrencyMode, with 1, 2, 4, ... 32 threads. Each operation
+ * is either a write, which adds an interesting file artifact with one
+ * attribute to a random file, or a read, which gets a random file and its
+ * artifacts. The case database is copied for each mode so that the runs start
+ * from the same state and the original is not modified.
+ *
+ * Usage: ConcurrencyModeBenchmark caseDbPath [writePercent] [secondsPerRun]
+ */
+public class ConcurrencyModeBenchmark {
+
+	private static final int DEFAULT_WRITE_PERCENT = 10;
+	private static final int DEFAULT_SECONDS_PER_RUN = 10;
+	private static final int MAX_THREADS = 32;
+	private static final int MAX_FILES = 10000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: ConcurrencyModeBenchmark caseDbPath [writePercent] [secondsPerRun]"); //NON-NLS
+			return;
+		}
+		int writePercent = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WRITE_PERCENT;
+		int secondsPerRun = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS_PER_RUN;
+
+		for (SleuthkitCase.ConcurrencyMode mode : SleuthkitCase.ConcurrencyMode.values()) {
+			File copy = File.createTempFile("ConcurrencyModeBenchmark", ".db"); //NON-NLS
+			SleuthkitCase original = SleuthkitCase.openCase(args[0]);
+			try {
+				original.copyCaseDB(copy.getPath());
+			} finally {
+				original.close();
+			}
+			SleuthkitCase caseDb = SleuthkitCase.openCase(copy.getPath(), mode);
+			try {
+				List<AbstractFile> files = caseDb.findAllFilesWhere("meta_type = " + TskData.TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue() //NON-NLS
+						+ " LIMIT " + MAX_FILES); //NON-NLS
+				long[] fileIds = new long[files.size()];
+				for (int i = 0; i < fileIds.length; i++) {
+					fileIds[i] = files.get(i).getId();
+				}
+				if (fileIds.length == 0) {
+					System.out.println("The case database has no files"); //NON-NLS
+					return;
+				}
+				System.out.println(String.format("%s, %d files, %d%% writes", mode, fileIds.length, writePercent)); //NON-NLS
+
+				// Warm up the JIT, the connection pool and the page cache.
+				runMix(caseDb, fileIds, 1, writePercent, 1);
+				for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+					long[] counts = runMix(caseDb, fileIds, threads, writePercent, secondsPerRun);
+					System.out.println(String.format("%2d threads: %8.0f reads/s, %8.0f writes/s, %d errors", //NON-NLS
+							threads, (double) counts[0] / secondsPerRun, (double) counts[1] / secondsPerRun, counts[2]));
+				}
+			} finally {
+				caseDb.close();
+				copy.delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs the read/write mix for a fixed time.
+	 *
+	 * @return The number of reads, writes and errors.
+	 */
+	private static long[] runMix(final SleuthkitCase caseDb, final long[] fileIds, int threadCount, final int writePercent, int seconds) throws InterruptedException {
+		final long endTime = System.nanoTime() + seconds * 1000000000L;
+		final AtomicLong reads = new AtomicLong();
+		final AtomicLong writes = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			final Random random = new Random(i);
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (System.nanoTime() < endTime) {
+						long fileId = fileIds[random.nextInt(fileIds.length)];
+						try {
+							if (random.nextInt(100) < writePercent) {
+								BlackboardArtifact artifact = caseDb.newBlackboardArtifact(ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT, fileId);
+								artifact.addAttribute(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_SET_NAME, "ConcurrencyModeBenchmark", "set")); //NON-NLS
+								writes.incrementAndGet();
+							} else {
+								caseDb.getAbstractFileById(fileId);
+								caseDb.getBlackboardArtifacts(ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT, fileId);
+								reads.incrementAndGet();
+							}
+						} catch (TskCoreException ex) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return new long[]{reads.get(), writes.get(), errors.get()};
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how file read throughput scales with the number of reader threads.
+ * The files of an existing case database are read in full by 1, 2, 4, ...
+ * threads, up to the number of available processors, with each thread taking
+ * the next unread file from a shared list. Small chunk sizes make the cost of
+ * the per-read handle validation in SleuthkitJNI more visible.
+ *
+ * Usage: ConcurrentReadBenchmark caseDbPath [chunkSize] [maxFiles]
+ */
+public class ConcurrentReadBenchmark {
+
+	private static final int DEFAULT_CHUNK_SIZE = 4 * 1024;
+	private static final int DEFAULT_MAX_FILES = 100000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: ConcurrentReadBenchmark caseDbPath [chunkSize] [maxFiles]"); //NON-NLS
+			return;
+		}
+		int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHUNK_SIZE;
+		int maxFiles = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_FILES;
+
+		SleuthkitCase caseDb = SleuthkitCase.openCase(args[0]);
+		try {
+			List<AbstractFile> files = caseDb.findAllFilesWhere("type = " + TskData.TSK_DB_FILES_TYPE_ENUM.FS.getFileType() //NON-NLS
+					+ " AND meta_type = " + TskData.TSK_FS_META_TYPE_ENUM.TSK_FS_META_TYPE_REG.getValue() //NON-NLS
+					+ " AND size > 0 LIMIT " + maxFiles); //NON-NLS
+			System.out.println(String.format("%d files", files.size())); //NON-NLS
+
+			// Warm up the JIT, the handle caches and the OS page cache.
+			readFiles(files, 1, chunkSize);
+			int processors = Runtime.getRuntime().availableProcessors();
+			List<Integer> threadCounts = new ArrayList<Integer>();
+			for (int threads = 1; threads < processors; threads *= 2) {
+				threadCounts.add(threads);
+			}
+			threadCounts.add(processors);
+			double singleThreadRate = 0;
+			for (int threads : threadCounts) {
+				long start = System.nanoTime();
+				long bytes = readFiles(files, threads, chunkSize);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				double rate = bytes / seconds / (1024 * 1024);
+				if (threads == 1) {
+					singleThreadRate = rate;
+				}
+				System.out.println(String.format("%d threads: %.3f s, %.1f MB/s, %.2fx", threads, seconds, rate, rate / singleThreadRate)); //NON-NLS
+			}
+		} finally {
+			caseDb.close();
+		}
+	}
+
+	private static long readFiles(final List<AbstractFile> files, int threadCount, final int chunkSize) throws InterruptedException {
+		final AtomicInteger nextFile = new AtomicInteger();
+		final AtomicLong bytesRead = new AtomicLong();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					byte[] buf = new byte[chunkSize];
+					for (int index = nextFile.getAndIncrement(); index < files.size(); index = nextFile.getAndIncrement()) {
+						AbstractFile file = files.get(index);
+						try {
+							for (long offset = 0; offset < file.getSize();) {
+								int count = file.read(buf, offset, chunkSize);
+								if (count <= 0) {
+									break;
+								}
+								offset += count;
+								bytesRead.addAndGet(count);
+							}
+						} catch (TskCoreException ex) {
+							System.out.println(String.format("Error reading %s: %s", file.getName(), ex.getMessage())); //NON-NLS
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return bytesRead.get();
+	}
+}
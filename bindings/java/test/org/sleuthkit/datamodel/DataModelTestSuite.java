@@ -41,7 +41,7 @@
  * default ant target sets properties for the various folders.
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({CaseDbSchemaVersionNumberTest.class,org.sleuthkit.datamodel.TopDownTraversal.class, org.sleuthkit.datamodel.SequentialTraversal.class, org.sleuthkit.datamodel.CrossCompare.class, org.sleuthkit.datamodel.BottomUpTest.class, org.sleuthkit.datamodel.CPPtoJavaCompare.class, org.sleuthkit.datamodel.HashDbTest.class})
+@Suite.SuiteClasses({CaseDbSchemaVersionNumberTest.class, CaseDbCursorTest.class, HashingServiceTest.class, StatementTimerTest.class, FileSummaryTest.class, ArtifactBatchWriterTest.class, WriteBehindQueueTest.class, StreamingAddImageTest.class, ParallelAddImageTest.class, BulkLoadAddImageTest.class, org.sleuthkit.datamodel.TopDownTraversal.class, org.sleuthkit.datamodel.SequentialTraversal.class, org.sleuthkit.datamodel.CrossCompare.class, org.sleuthkit.datamodel.BottomUpTest.class, org.sleuthkit.datamodel.CPPtoJavaCompare.class, org.sleuthkit.datamodel.HashDbTest.class})
 public class DataModelTestSuite {
 
 	static final String TEST_IMAGE_DIR_NAME = "test" + java.io.File.separator + "Input";
@@ -120,8 +120,12 @@ public static void createOutput(String outputPath, String tempDirPath, List<Stri
 			} catch (TskDataException ex) {
 				inp.add(ex);
 			}
+			try {
+				process.commit();
+			} catch (TskDataException ex) {
+				inp.add(ex);
+			}
 			writeExceptions(standardFile.getAbsolutePath(), inp);
-			process.commit();
 
 			// dump the database based on the specific test testType
 			OutputStreamWriter standardWriter = testType.traverse(sk, standardFile.getAbsolutePath());
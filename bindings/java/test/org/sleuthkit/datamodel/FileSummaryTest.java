@@ -0,0 +1,155 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sleuthkit.datamodel.TskData.TSK_DB_FILES_TYPE_ENUM;
+import org.sleuthkit.datamodel.TskData.TSK_FS_META_FLAG_ENUM;
+
+/**
+ * Tests SleuthkitCase.getFileSummaries and the local paths of the children
+ * loaded by Content.getChildren against a SQLite case database.
+ */
+public class FileSummaryTest {
+
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+	private SleuthkitCase caseDb;
+	private VirtualDirectory dir;
+	private final Map<String, String> localPaths = new HashMap<String, String>();
+	private final Map<String, String> contents = new HashMap<String, String>();
+
+	@Before
+	public void setUp() throws TskCoreException, IOException {
+		caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "case.db").getAbsolutePath());
+		File plain = writeLocalFile("b.txt", "plain local file", TskData.EncodingType.NONE);
+		File encoded = writeLocalFile("A.txt", "encoded local file", TskData.EncodingType.XOR1);
+		File derived = writeLocalFile("c.bin", "derived file", TskData.EncodingType.XOR1);
+		SleuthkitCase.CaseDbTransaction transaction = caseDb.beginTransaction();
+		try {
+			LocalFilesDataSource dataSource = caseDb.addLocalFilesDataSource("device", "root", "", transaction);
+			dir = caseDb.addVirtualDirectory(dataSource.getId(), "dir", transaction);
+			caseDb.addLocalDirectory(dir.getId(), "sub", transaction);
+			caseDb.addLocalFile("b.txt", plain.getAbsolutePath(), contents.get("b.txt").length(), 1, 2, 3, 4, true, TskData.EncodingType.NONE, dir, transaction);
+			caseDb.addLocalFile("A.txt", encoded.getAbsolutePath(), contents.get("A.txt").length(), 5, 6, 7, 8, true, TskData.EncodingType.XOR1, dir, transaction);
+			transaction.commit();
+		} catch (TskCoreException ex) {
+			transaction.rollback();
+			throw ex;
+		}
+		// The paths of derived files are relative to the case directory.
+		caseDb.addDerivedFile("c.bin", derived.getName(), contents.get("c.bin").length(), 9, 10, 11, 12, true, dir, "", "tool", "1.0", "", TskData.EncodingType.XOR1);
+	}
+
+	@After
+	public void tearDown() {
+		caseDb.close();
+	}
+
+	/**
+	 * Writes a file for a local or derived file of the case database, encoded
+	 * as it would be by an ingest module.
+	 */
+	private File writeLocalFile(String name, String content, TskData.EncodingType encodingType) throws IOException {
+		File file = caseFolder.newFile(name);
+		OutputStream out = new FileOutputStream(file);
+		if (encodingType != TskData.EncodingType.NONE) {
+			out = new EncodedFileOutputStream(out, encodingType);
+		}
+		try {
+			out.write(content.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		localPaths.put(name, file.getAbsolutePath());
+		contents.put(name, content);
+		return file;
+	}
+
+	/**
+	 * Test of listing the children of a directory as file summaries. The
+	 * summaries must match the children returned by getChildren, in the same
+	 * order.
+	 */
+	@Test
+	public void testSummariesMatchChildren() throws TskCoreException {
+		System.out.println("summariesMatchChildren");
+		List<Content> children = dir.getChildren();
+		List<FileSummary> summaries = caseDb.getFileSummaries(dir);
+		assertEquals(4, children.size());
+		assertEquals(children.size(), summaries.size());
+		assertEquals("sub", summaries.get(0).getName());
+		for (int i = 0; i < children.size(); i++) {
+			AbstractFile file = (AbstractFile) children.get(i);
+			FileSummary summary = summaries.get(i);
+			assertEquals(file.getId(), summary.getId());
+			assertEquals(file.getName(), summary.getName());
+			// A DerivedFile reports LOCAL as its type.
+			assertEquals(file instanceof DerivedFile ? TSK_DB_FILES_TYPE_ENUM.DERIVED : file.getType(), summary.getType());
+			assertEquals(file.getDirType(), summary.getDirType());
+			assertEquals(file.getMetaType(), summary.getMetaType());
+			assertTrue(file.isDirNameFlagSet(summary.getDirFlag()));
+			assertEquals(file.isMetaFlagSet(TSK_FS_META_FLAG_ENUM.ALLOC), summary.isMetaAllocated());
+			assertEquals(file.isDir(), summary.isDir());
+			assertEquals(file.getSize(), summary.getSize());
+			assertEquals(file.getCtime(), summary.getCtime());
+			assertEquals(file.getCrtime(), summary.getCrtime());
+			assertEquals(file.getAtime(), summary.getAtime());
+			assertEquals(file.getMtime(), summary.getMtime());
+		}
+	}
+
+	/**
+	 * Test of the local paths and encodings of local and derived children,
+	 * which getChildren reads from tsk_files_path in the same query. They must
+	 * match those of the files loaded one at a time, and the contents must be
+	 * decoded when read.
+	 */
+	@Test
+	public void testChildrenLocalPaths() throws TskCoreException {
+		System.out.println("childrenLocalPaths");
+		int filesWithPaths = 0;
+		for (Content child : dir.getChildren()) {
+			AbstractFile file = (AbstractFile) child;
+			if (!(file instanceof LocalFile) && !(file instanceof DerivedFile)) {
+				continue;
+			}
+			filesWithPaths++;
+			assertEquals(localPaths.get(file.getName()), file.getLocalAbsPath());
+			assertEquals(caseDb.getAbstractFileById(file.getId()).getLocalPath(), file.getLocalPath());
+			byte[] buffer = new byte[(int) file.getSize()];
+			int bytesRead = file.read(buffer, 0, buffer.length);
+			assertEquals(contents.get(file.getName()), new String(buffer, 0, bytesRead));
+		}
+		assertEquals(3, filesWithPaths);
+	}
+}
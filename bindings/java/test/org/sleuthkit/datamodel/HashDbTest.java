@@ -24,13 +24,16 @@
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.*;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
@@ -42,6 +45,9 @@ public class HashDbTest extends ImgTraverser {
 
 	private static final Logger logg = Logger.getLogger(HashDbTest.class.getName());
 
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
 	public HashDbTest(List<String> imagePaths) {
 		testName = DataModelTestSuite.HASH;
 		this.imagePaths = imagePaths;
@@ -202,6 +208,69 @@ public void testHashDb() {
 		}
 	}
 
+	/**
+	 * Tests looking up a batch of hash values against looking them up one at a
+	 * time, in a copy of the legacy test database indexed with an index of its
+	 * index file. The index of the index file maps the first three digits of
+	 * a hash value to the first entry with those digits, so the batch
+	 * includes the first and last entries of the database, an entry that is
+	 * the last one with its first three digits, misses next to it and in
+	 * digits that have no entries, and repeated values.
+	 */
+	@Test
+	public void testHashDbBatchLookup() {
+		try {
+			File legacyDb = new File("." + File.separator + "test" + File.separator + "data" + File.separator + "testmd5.dat");
+			File dbCopy = new File(tempFolder.getRoot(), legacyDb.getName());
+			Files.copy(legacyDb.toPath(), dbCopy.toPath());
+
+			// Building the index also builds the index of the index file,
+			// which is loaded when the database is opened again.
+			int handle = SleuthkitJNI.openHashDatabase(dbCopy.getAbsolutePath());
+			SleuthkitJNI.createLookupIndexForHashDatabase(handle);
+			SleuthkitJNI.closeHashDatabase(handle);
+			assertTrue(new File(dbCopy.getAbsolutePath() + "-md5.idx2").exists());
+			handle = SleuthkitJNI.openHashDatabase(dbCopy.getAbsolutePath());
+
+			String[] hashes = {
+				"1c223d76cb979476e587c16ff0f3e38c", // Last entry starting with 1c2, followed by 1cb
+				"1cb6e31c9a2aaf444d49e7048ce4172c", // First entry starting with 1cb
+				"1c223d76cb979476e587c16ff0f3e38d", // Miss just after the last entry starting with 1c2
+				"1c300000000000000000000000000000", // Miss in digits with no entries
+				"03782788d3daeccc91bbf5402b0d95fa", // First entry
+				"faa52b139cf644e3db8cbe4c000c94e6", // Last entry
+				"00000000000000000000000000000000", // Miss before the first entry
+				"ffffffffffffffffffffffffffffffff", // Miss after the last entry
+				"2729B2C4D149DEEF7C899AB4D42D6C68", // Hit in upper case
+				"1c223d76cb979476e587c16ff0f3e38c", // Repeated hit
+				"1c300000000000000000000000000000" // Repeated miss
+			};
+			byte[][] binaryHashes = new byte[hashes.length][];
+			for (int i = 0; i < hashes.length; i++) {
+				binaryHashes[i] = hexToBytes(hashes[i]);
+			}
+			boolean[] found = SleuthkitJNI.lookupInHashDatabase(binaryHashes, handle);
+			assertEquals(hashes.length, found.length);
+			for (int i = 0; i < hashes.length; i++) {
+				assertEquals(hashes[i], SleuthkitJNI.lookupInHashDatabase(hashes[i], handle), found[i]);
+			}
+			assertTrue(found[0]);
+			assertFalse(found[2]);
+			assertFalse(found[3]);
+			SleuthkitJNI.closeHashDatabase(handle);
+		} catch (Exception ex) {
+			fail("Error running JNI HashDb batch lookup test: " + ex.getMessage());
+		}
+	}
+
+	private static byte[] hexToBytes(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+
 	/**
 	 * Traverses through an image and generates a sequential representation of
 	 * the image
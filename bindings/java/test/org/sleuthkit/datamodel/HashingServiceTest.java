@@ -0,0 +1,90 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests HashingService against a SQLite case database.
+ */
+public class HashingServiceTest {
+
+	private static final String CONTENT = "The quick brown fox jumps over the lazy dog"; //NON-NLS
+	private static final String CONTENT_MD5 = "9e107d9d372bb6826bd81d3542a419d6"; //NON-NLS
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+	private SleuthkitCase caseDb;
+	private LocalFile file;
+
+	@Before
+	public void setUp() throws TskCoreException, IOException {
+		caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "case.db").getAbsolutePath());
+		File localFile = caseFolder.newFile("fox.txt");
+		FileOutputStream out = new FileOutputStream(localFile);
+		try {
+			out.write(CONTENT.getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+		SleuthkitCase.CaseDbTransaction transaction = caseDb.beginTransaction();
+		try {
+			LocalFilesDataSource dataSource = caseDb.addLocalFilesDataSource("device", "root", "", transaction);
+			VirtualDirectory dir = caseDb.addVirtualDirectory(dataSource.getId(), "dir", transaction);
+			file = caseDb.addLocalFile("fox.txt", localFile.getAbsolutePath(), localFile.length(), 0, 0, 0, 0, true, TskData.EncodingType.NONE, dir, transaction);
+			transaction.commit();
+		} catch (TskCoreException ex) {
+			transaction.rollback();
+			throw ex;
+		}
+	}
+
+	@After
+	public void tearDown() {
+		caseDb.close();
+	}
+
+	/**
+	 * Test of waiting for the future of a single file, far fewer than a batch
+	 * of MD5 updates. The future must complete without a flush, and the MD5
+	 * hash must be stored.
+	 */
+	@Test(timeout = 60000)
+	public void testSingleFile() throws Exception {
+		System.out.println("singleFile");
+		HashingService hashingService = new HashingService(caseDb, 2);
+		try {
+			HashingService.HashResult result = hashingService.submit(file).get(30, TimeUnit.SECONDS);
+			assertEquals(CONTENT_MD5, result.getMd5());
+			assertEquals(CONTENT_MD5, caseDb.getAbstractFileById(file.getId()).getMd5Hash());
+			assertEquals(1, hashingService.getFilesHashed());
+			assertEquals(0, hashingService.getFilesFailed());
+		} finally {
+			hashingService.shutdown();
+		}
+	}
+}
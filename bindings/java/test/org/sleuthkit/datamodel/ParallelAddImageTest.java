@@ -0,0 +1,121 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sleuthkit.datamodel.SleuthkitJNI.CaseDbHandle.AddImageProcess;
+
+/**
+ * Tests adding an image with its file systems walked in parallel against
+ * adding it with the serial walk. Uses the first image in the directory given
+ * by the "inpt" system property, and is skipped if there is none.
+ */
+public class ParallelAddImageTest {
+
+	/**
+	 * Selects the rows of tsk_files with their file layouts, identified by
+	 * file system offset, parent and path instead of by object ids, which
+	 * depend on the order the walker threads queue the files in.
+	 */
+	private static final String FILE_ROWS_QUERY = "SELECT COALESCE(fs.img_offset, -1) AS fs_offset, parent.name AS parent_name, parent.meta_addr AS parent_meta_addr, " //NON-NLS
+			+ "f.type, f.name, f.meta_addr, f.meta_seq, f.attr_type, f.attr_id, f.has_layout, f.has_path, f.dir_type, f.meta_type, " //NON-NLS
+			+ "f.dir_flags, f.meta_flags, f.size, f.ctime, f.crtime, f.atime, f.mtime, f.mode, f.uid, f.gid, f.md5, f.known, f.parent_path, " //NON-NLS
+			+ "(SELECT GROUP_CONCAT(layout.byte_start || ':' || layout.byte_len || ':' || layout.sequence, ' ') " //NON-NLS
+			+ "FROM (SELECT * FROM tsk_file_layout WHERE obj_id = f.obj_id ORDER BY sequence) AS layout) AS layout " //NON-NLS
+			+ "FROM tsk_files AS f JOIN tsk_objects AS obj ON obj.obj_id = f.obj_id " //NON-NLS
+			+ "LEFT JOIN tsk_files AS parent ON parent.obj_id = obj.par_obj_id " //NON-NLS
+			+ "LEFT JOIN tsk_fs_info AS fs ON fs.obj_id = f.fs_obj_id"; //NON-NLS
+
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+
+	/**
+	 * Test of walking the file systems of an image on several threads. The
+	 * process must add the same tsk_files and tsk_file_layout rows as the
+	 * serial walk, whether there is one thread per file system or fewer.
+	 */
+	@Test
+	public void testParallelMatchesSerial() throws Exception {
+		System.out.println("parallelMatchesSerial");
+		Assume.assumeTrue(System.getProperty(DataModelTestSuite.INPT) != null);
+		List<List<String>> imagePaths = DataModelTestSuite.getImagePaths();
+		Assume.assumeTrue(!imagePaths.isEmpty());
+		String[] image = imagePaths.get(0).toArray(new String[0]);
+
+		List<String> serialRows = addImage(new File(caseFolder.getRoot(), "serial.db"), image, -1);
+		assertTrue(serialRows.size() > 1);
+		assertEquals(serialRows, addImage(new File(caseFolder.getRoot(), "parallel.db"), image, 0));
+		assertEquals(serialRows, addImage(new File(caseFolder.getRoot(), "one-thread.db"), image, 1));
+	}
+
+	/**
+	 * Adds an image to a new case database.
+	 *
+	 * @param dbFile     The case database file.
+	 * @param image      The paths of the image.
+	 * @param maxThreads The maximum number of walker threads, 0 for one per
+	 *                   file system, or -1 for the serial walk.
+	 *
+	 * @return The rows of tsk_files and tsk_file_layout added, sorted.
+	 */
+	private static List<String> addImage(File dbFile, String[] image, int maxThreads) throws TskCoreException, TskDataException, SQLException {
+		SleuthkitCase caseDb = SleuthkitCase.newCase(dbFile.getAbsolutePath());
+		try {
+			AddImageProcess process = caseDb.makeAddImageProcess("", false, false, "");
+			if (maxThreads >= 0) {
+				process.setParallelFileSystems(maxThreads);
+			}
+			process.run(UUID.randomUUID().toString(), image);
+			process.commit();
+
+			List<String> rows = new ArrayList<String>();
+			SleuthkitCase.CaseDbQuery query = caseDb.executeQuery(FILE_ROWS_QUERY);
+			try {
+				ResultSet resultSet = query.getResultSet();
+				ResultSetMetaData metaData = resultSet.getMetaData();
+				while (resultSet.next()) {
+					StringBuilder row = new StringBuilder();
+					for (int i = 1; i <= metaData.getColumnCount(); i++) {
+						row.append(metaData.getColumnName(i)).append('=').append(resultSet.getString(i)).append('|');
+					}
+					rows.add(row.toString());
+				}
+			} finally {
+				query.close();
+			}
+			Collections.sort(rows);
+			return rows;
+		} finally {
+			caseDb.close();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the throughput of reading a raw image through the byte array read
+ * path of SleuthkitJNI with the direct ByteBuffer read path.
+ *
+ * Usage: ReadBenchmark image [chunkSize] [passes]
+ */
+public class ReadBenchmark {
+
+	private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+	private static final int DEFAULT_PASSES = 5;
+
+	public static void main(String[] args) throws TskCoreException {
+		if (args.length < 1) {
+			System.out.println("Usage: ReadBenchmark image [chunkSize] [passes]"); //NON-NLS
+			return;
+		}
+		int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHUNK_SIZE;
+		int passes = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PASSES;
+
+		long imgHandle = SleuthkitJNI.openImage(new String[]{args[0]});
+		long imageSize = SleuthkitJNI.findDeviceSize(args[0]);
+
+		// The first pass of each path warms up the JIT and the OS page cache
+		// and is not reported.
+		readWithArray(imgHandle, imageSize, chunkSize);
+		readWithDirectBuffer(imgHandle, imageSize, chunkSize);
+		for (int pass = 1; pass <= passes; pass++) {
+			report("byte[]", pass, imageSize, readWithArray(imgHandle, imageSize, chunkSize)); //NON-NLS
+			report("direct", pass, imageSize, readWithDirectBuffer(imgHandle, imageSize, chunkSize)); //NON-NLS
+		}
+	}
+
+	private static long readWithArray(long imgHandle, long imageSize, int chunkSize) throws TskCoreException {
+		byte[] buf = new byte[chunkSize];
+		long start = System.nanoTime();
+		for (long offset = 0; offset < imageSize;) {
+			int len = (int) Math.min(chunkSize, imageSize - offset);
+			int bytesRead = SleuthkitJNI.readImg(imgHandle, buf, offset, len);
+			if (bytesRead <= 0) {
+				break;
+			}
+			offset += bytesRead;
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long readWithDirectBuffer(long imgHandle, long imageSize, int chunkSize) throws TskCoreException {
+		ByteBuffer buf = ByteBuffer.allocateDirect(chunkSize);
+		long start = System.nanoTime();
+		for (long offset = 0; offset < imageSize;) {
+			buf.clear();
+			buf.limit((int) Math.min(chunkSize, imageSize - offset));
+			int bytesRead = SleuthkitJNI.readImg(imgHandle, buf, offset);
+			if (bytesRead <= 0) {
+				break;
+			}
+			offset += bytesRead;
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String path, int pass, long bytes, long nanos) {
+		double seconds = nanos / 1e9;
+		System.out.println(String.format("%s pass %d: %.3f s, %.1f MB/s", path, pass, seconds, bytes / seconds / (1024 * 1024))); //NON-NLS
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the statement timing histogram and the timings reported by
+ * SleuthkitCase.
+ */
+public class StatementTimerTest {
+
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+
+	/**
+	 * Test of the histogram buckets. Every time must fall in a bucket whose
+	 * upper bound is at most 25% above it and above the bound of the bucket
+	 * before.
+	 */
+	@Test
+	public void testBuckets() {
+		System.out.println("buckets");
+		for (long nanos = 0; nanos < 100000; nanos++) {
+			checkBucket(nanos);
+		}
+		for (long nanos = 100000; nanos > 0 && nanos < Long.MAX_VALUE / 2; nanos = nanos * 3 + 1) {
+			checkBucket(nanos);
+		}
+		checkBucket(Long.MAX_VALUE);
+	}
+
+	private static void checkBucket(long nanos) {
+		int index = StatementTimer.bucketIndex(nanos);
+		long upperBound = StatementTimer.bucketUpperBound(index);
+		assertTrue(nanos < upperBound || (nanos == Long.MAX_VALUE && upperBound < 0));
+		if (nanos >= 4 && nanos != Long.MAX_VALUE) {
+			assertTrue(upperBound - nanos <= nanos / 4 + 1);
+		}
+		if (index > 0) {
+			assertTrue(nanos >= StatementTimer.bucketUpperBound(index - 1));
+		}
+	}
+
+	/**
+	 * Test of the count, total, mean, maximum and 99th percentile of recorded
+	 * times, and of discarding them.
+	 */
+	@Test
+	public void testTiming() {
+		System.out.println("timing");
+		StatementTimer timer = new StatementTimer("TEST");
+		// 1 to 1000 microseconds, shuffled so the order does not matter.
+		for (int i = 0; i < 1000; i++) {
+			timer.record(((i * 7919) % 1000 + 1) * 1000L);
+		}
+		timer.record(-5);
+		StatementTiming timing = timer.getTiming();
+		assertEquals("TEST", timing.getName());
+		assertEquals(1001, timing.getCount());
+		assertEquals(500500, timing.getTotalMicros());
+		assertEquals(500500 / 1001.0, timing.getMeanMicros(), 0.001);
+		assertEquals(1000, timing.getMaxMicros());
+		// The true 99th percentile is 990us; the estimate is an upper bound
+		// no higher than the maximum.
+		assertTrue(timing.getP99Micros() >= 990);
+		assertTrue(timing.getP99Micros() <= 1000);
+
+		timer.reset();
+		timing = timer.getTiming();
+		assertEquals(0, timing.getCount());
+		assertEquals(0, timing.getMaxMicros());
+		assertEquals(0, timing.getP99Micros());
+		assertEquals(0, timing.getMeanMicros(), 0);
+	}
+
+	/**
+	 * Test of the timings of a case database. Statements must only be timed
+	 * while timing is enabled, and the timings must be ordered by total time.
+	 */
+	@Test
+	public void testCaseTimings() throws TskCoreException {
+		System.out.println("caseTimings");
+		SleuthkitCase caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "case.db").getAbsolutePath());
+		try {
+			SleuthkitCase.CaseDbTransaction transaction = caseDb.beginTransaction();
+			LocalFilesDataSource dataSource = caseDb.addLocalFilesDataSource("device", "root", "", transaction);
+			transaction.commit();
+			caseDb.getContentById(dataSource.getId());
+			assertTrue(caseDb.getStatementTimings().isEmpty());
+
+			caseDb.setStatementTimingEnabled(true);
+			for (int i = 0; i < 10; i++) {
+				caseDb.getContentById(dataSource.getId());
+				caseDb.getAbstractFileById(dataSource.getId());
+			}
+			List<StatementTiming> timings = caseDb.getStatementTimings();
+			assertTrue(!timings.isEmpty());
+			long statements = 0;
+			for (int i = 0; i < timings.size(); i++) {
+				assertTrue(timings.get(i).getCount() > 0);
+				statements += timings.get(i).getCount();
+				if (i > 0) {
+					assertTrue(timings.get(i - 1).getTotalMicros() >= timings.get(i).getTotalMicros());
+				}
+			}
+			assertTrue(statements >= 20);
+			assertEquals(timings.size(), caseDb.getStatementTimingReport().split("\n").length);
+
+			caseDb.setStatementTimingEnabled(false);
+			caseDb.resetStatementTimings();
+			caseDb.getContentById(dataSource.getId());
+			assertTrue(caseDb.getStatementTimings().isEmpty());
+		} finally {
+			caseDb.close();
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sleuthkit.datamodel.SleuthkitJNI.CaseDbHandle.AddImageProcess;
+
+/**
+ * Tests streaming add image while another process reads the case
+ * database. Uses the first image in the directory given by the "inpt" system
+ * property, and is skipped if there is none.
+ */
+public class StreamingAddImageTest {
+
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+
+	/**
+	 * Test of committing chunks while another process keeps reading the case
+	 * database. The add image process must wait for the reader's locks
+	 * instead of failing, and must add the same files as a non-streaming add
+	 * image.
+	 */
+	@Test
+	public void testStreamingWithConcurrentReader() throws Exception {
+		System.out.println("streamingWithConcurrentReader");
+		Assume.assumeTrue(System.getProperty(DataModelTestSuite.INPT) != null);
+		List<List<String>> imagePaths = DataModelTestSuite.getImagePaths();
+		Assume.assumeTrue(!imagePaths.isEmpty());
+		String[] image = imagePaths.get(0).toArray(new String[0]);
+
+		long expectedFiles = countFilesAdded(new File(caseFolder.getRoot(), "plain.db"), image);
+		File dbFile = new File(caseFolder.getRoot(), "streaming.db");
+		SleuthkitCase caseDb = SleuthkitCase.newCase(dbFile.getAbsolutePath());
+		try {
+			Process reader = startReader(dbFile);
+			BufferedReader output = new BufferedReader(new InputStreamReader(reader.getInputStream(), "UTF-8"));
+			assertEquals("ready", output.readLine()); //NON-NLS
+			try {
+				AddImageProcess process = caseDb.makeAddImageProcess("", false, false, "");
+				process.setStreaming(100, null);
+				process.run(UUID.randomUUID().toString(), image);
+				process.commit();
+			} finally {
+				// The reader stops when its standard input is closed.
+				reader.getOutputStream().close();
+			}
+			StringBuilder readerOutput = new StringBuilder();
+			for (String line = output.readLine(); line != null; line = output.readLine()) {
+				readerOutput.append(line).append('\n');
+			}
+			assertEquals(readerOutput.toString(), 0, reader.waitFor());
+			assertTrue(readerOutput.toString(), Long.parseLong(readerOutput.toString().trim()) > 1);
+			assertEquals(expectedFiles, caseDb.countFilesWhere("1 = 1")); //NON-NLS
+		} finally {
+			caseDb.close();
+		}
+	}
+
+	/**
+	 * Test of reverting a streaming add image after its committed files were
+	 * given artifacts, attributes, tags and derived files. Nothing of the
+	 * image may be left behind.
+	 */
+	@Test
+	public void testRevertAfterIngest() throws Exception {
+		System.out.println("revertAfterIngest");
+		Assume.assumeTrue(System.getProperty(DataModelTestSuite.INPT) != null);
+		List<List<String>> imagePaths = DataModelTestSuite.getImagePaths();
+		Assume.assumeTrue(!imagePaths.isEmpty());
+		String[] image = imagePaths.get(0).toArray(new String[0]);
+
+		final SleuthkitCase caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "revert.db").getAbsolutePath());
+		try {
+			final TagName tagName = caseDb.addTagName("test", "", TagName.HTML_COLOR.NONE);
+			final BlackboardAttribute.Type setNameType = caseDb.getAttributeType(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_SET_NAME.getLabel());
+			final AtomicLong ingestedFiles = new AtomicLong();
+			final AtomicReference<Exception> ingestError = new AtomicReference<Exception>();
+			AddImageProcess process = caseDb.makeAddImageProcess("", false, false, "");
+			process.setStreaming(100, new AddImageChunkListener() {
+				@Override
+				public void chunkCommitted(long firstObjId, long lastObjId) {
+					// Ingest the first regular file of the chunk.
+					try {
+						for (AbstractFile file : caseDb.findAllFilesWhere("obj_id BETWEEN " + firstObjId + " AND " + lastObjId + " AND meta_type = 1")) { //NON-NLS
+							BlackboardArtifact artifact = file.newArtifact(BlackboardArtifact.ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT);
+							artifact.addAttribute(new BlackboardAttribute(setNameType, "test", "set")); //NON-NLS
+							caseDb.addBlackboardArtifactTag(artifact, tagName, "");
+							caseDb.addContentTag(file, tagName, "", 0, 0);
+							caseDb.addDerivedFile(file.getName() + ".txt", "derived/" + file.getId(), 0, 0, 0, 0, 0, true, file, "", "test", "1", "", TskData.EncodingType.NONE); //NON-NLS
+							ingestedFiles.incrementAndGet();
+							break;
+						}
+					} catch (TskCoreException ex) {
+						ingestError.compareAndSet(null, ex);
+					}
+				}
+			});
+			process.run(UUID.randomUUID().toString(), image);
+			process.revert();
+
+			assertNull(ingestError.get());
+			assertTrue(ingestedFiles.get() > 1);
+			String[] tables = {"tsk_objects", "tsk_image_info", "tsk_fs_info", "tsk_files", "tsk_file_layout", "tsk_files_path", //NON-NLS
+				"tsk_files_derived", "blackboard_artifacts", "blackboard_attributes", "blackboard_artifact_tags", "content_tags"}; //NON-NLS
+			for (String table : tables) {
+				SleuthkitCase.CaseDbQuery query = caseDb.executeQuery("SELECT COUNT(*) FROM " + table); //NON-NLS
+				try {
+					ResultSet resultSet = query.getResultSet();
+					resultSet.next();
+					assertEquals(table, 0, resultSet.getLong(1));
+				} finally {
+					query.close();
+				}
+			}
+		} finally {
+			caseDb.close();
+		}
+	}
+
+	/**
+	 * Starts a process that runs main() to read the given case database
+	 * until its standard input is closed. The reader is a separate process
+	 * because SQLite in the JDBC driver and SQLite in the native library are
+	 * separate copies, and on POSIX systems one copy does not see the file
+	 * locks the other holds in the same process.
+	 */
+	private static Process startReader(File dbFile) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"; //NON-NLS
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), //NON-NLS
+				StreamingAddImageTest.class.getName(), dbFile.getAbsolutePath());
+		builder.redirectErrorStream(true);
+		return builder.start();
+	}
+
+	/**
+	 * Reads a case database in a loop, keeping a query open for a while each
+	 * time, until standard input is closed. Prints "ready" after the first
+	 * query, then the number of queries when it exits with 0, or exits with 1
+	 * if a query fails.
+	 *
+	 * @param args The path of the case database.
+	 */
+	public static void main(String[] args) throws Exception {
+		Class.forName("org.sqlite.JDBC"); //NON-NLS
+		final Connection connection = DriverManager.getConnection("jdbc:sqlite:" + args[0]); //NON-NLS
+		final AtomicLong reads = new AtomicLong();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						Statement statement = connection.createStatement();
+						try {
+							ResultSet resultSet = statement.executeQuery("SELECT obj_id FROM tsk_files"); //NON-NLS
+							resultSet.next();
+							Thread.sleep(20);
+							while (resultSet.next()) {
+							}
+						} finally {
+							statement.close();
+						}
+						if (reads.incrementAndGet() == 1) {
+							System.out.println("ready"); //NON-NLS
+						}
+					}
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					System.exit(1);
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		while (System.in.read() != -1) {
+		}
+		System.out.println(reads.get());
+		System.exit(0);
+	}
+
+	/**
+	 * Adds an image to a new case database in one transaction.
+	 *
+	 * @return The number of files added.
+	 */
+	private long countFilesAdded(File dbFile, String[] image) throws TskCoreException, TskDataException {
+		SleuthkitCase caseDb = SleuthkitCase.newCase(dbFile.getAbsolutePath());
+		try {
+			AddImageProcess process = caseDb.makeAddImageProcess("", false, false, "");
+			process.run(UUID.randomUUID().toString(), image);
+			process.commit();
+			return caseDb.countFilesWhere("1 = 1"); //NON-NLS
+		} finally {
+			caseDb.close();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Compares setting the MIME type and known status of every file of a case
+ * database with the synchronous SleuthkitCase methods and with a write-behind
+ * queue. The updates are made on a copy of the case database, so the
+ * original is not modified.
+ *
+ * Usage: WriteBehindBenchmark caseDbPath [queueCapacity] [maxBatchSize]
+ */
+public class WriteBehindBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: WriteBehindBenchmark caseDbPath [queueCapacity] [maxBatchSize]"); //NON-NLS
+			return;
+		}
+		int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int maxBatchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+		File copy = File.createTempFile("WriteBehindBenchmark", ".db"); //NON-NLS
+		SleuthkitCase original = SleuthkitCase.openCase(args[0]);
+		try {
+			original.copyCaseDB(copy.getPath());
+		} finally {
+			original.close();
+		}
+		SleuthkitCase caseDb = SleuthkitCase.openCase(copy.getPath());
+		try {
+			List<AbstractFile> files = caseDb.findAllFilesWhere("1 = 1"); //NON-NLS
+			System.out.println(String.format("%d files", files.size())); //NON-NLS
+
+			long start = System.nanoTime();
+			for (AbstractFile file : files) {
+				caseDb.setFileMIMEType(file, "application/octet-stream"); //NON-NLS
+				caseDb.setKnown(file, TskData.FileKnown.KNOWN);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("synchronous: %.3f s, %.0f updates/s", seconds, 2 * files.size() / seconds)); //NON-NLS
+
+			SleuthkitCase.WriteBehindQueue queue = caseDb.startWriteBehindQueue(capacity, maxBatchSize);
+			start = System.nanoTime();
+			for (AbstractFile file : files) {
+				queue.setFileMIMEType(file, "text/plain"); //NON-NLS
+				queue.setKnown(file, TskData.FileKnown.BAD);
+			}
+			double queuedSeconds = (System.nanoTime() - start) / 1e9;
+			queue.shutdown();
+			seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("write-behind: queued in %.3f s, committed in %.3f s, %.0f updates/s", queuedSeconds, seconds, 2 * files.size() / seconds)); //NON-NLS
+			System.out.println(queue);
+		} finally {
+			caseDb.close();
+			copy.delete();
+		}
+	}
+}
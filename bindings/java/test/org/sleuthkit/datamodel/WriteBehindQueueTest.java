@@ -0,0 +1,178 @@
+/*
+ * Sleuth Kit Data Model
+ *
+ * Copyright 2017 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.datamodel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests SleuthkitCase.WriteBehindQueue against a SQLite case database.
+ */
+public class WriteBehindQueueTest {
+
+	private static final int FILE_COUNT = 20;
+	@Rule
+	public TemporaryFolder caseFolder = new TemporaryFolder();
+	private SleuthkitCase caseDb;
+	private final List<AbstractFile> files = new ArrayList<AbstractFile>();
+
+	@Before
+	public void setUp() throws TskCoreException {
+		caseDb = SleuthkitCase.newCase(new File(caseFolder.getRoot(), "case.db").getAbsolutePath());
+		SleuthkitCase.CaseDbTransaction transaction = caseDb.beginTransaction();
+		try {
+			LocalFilesDataSource dataSource = caseDb.addLocalFilesDataSource("device", "root", "", transaction);
+			VirtualDirectory dir = caseDb.addVirtualDirectory(dataSource.getId(), "dir", transaction);
+			for (int i = 0; i < FILE_COUNT; i++) {
+				files.add(caseDb.addLocalFile("file" + i, "/file" + i, 0, 0, 0, 0, 0, true, TskData.EncodingType.NONE, dir, transaction));
+			}
+			transaction.commit();
+		} catch (TskCoreException ex) {
+			transaction.rollback();
+			throw ex;
+		}
+	}
+
+	@After
+	public void tearDown() {
+		caseDb.close();
+	}
+
+	/**
+	 * Test of shutting down the queue while other threads are queueing
+	 * writes. Every Future returned before shutdown returns must complete,
+	 * and writes queued after it must be rejected.
+	 */
+	@Test
+	public void testShutdownWhileQueueing() throws Exception {
+		System.out.println("shutdownWhileQueueing");
+		final SleuthkitCase.WriteBehindQueue queue = caseDb.startWriteBehindQueue(4, 3);
+		final List<Future<Boolean>> futures = Collections.synchronizedList(new ArrayList<Future<Boolean>>());
+		final CountDownLatch started = new CountDownLatch(4);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int threadNum = t;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					started.countDown();
+					for (int i = 0;; i++) {
+						AbstractFile file = files.get(i % FILE_COUNT);
+						try {
+							if (threadNum % 2 == 0) {
+								futures.add(queue.setFileMIMEType(file, "text/plain-" + i));
+							} else {
+								futures.add(queue.setMd5Hash(file, String.format("%032x", i)));
+							}
+						} catch (TskCoreException ex) {
+							return; // The queue is shut down.
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		started.await();
+		Thread.sleep(200);
+		queue.shutdown();
+
+		List<Future<Boolean>> queued;
+		synchronized (futures) {
+			queued = new ArrayList<Future<Boolean>>(futures);
+		}
+		assertTrue(queued.size() > 0);
+		for (Thread thread : threads) {
+			thread.join(10000);
+			assertTrue(!thread.isAlive());
+		}
+		for (Future<Boolean> future : futures) {
+			// An update merged into one that was rejected, or that the writer
+			// is failing, fails with it.
+			try {
+				assertTrue(future.get(10, TimeUnit.SECONDS));
+			} catch (ExecutionException ex) {
+				assertTrue(ex.getCause() instanceof TskCoreException);
+			}
+		}
+		try {
+			queue.setFileMIMEType(files.get(0), "text/plain");
+			fail("Write queued after shutdown");
+		} catch (TskCoreException ex) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test of a write that fails in the database. It must fail on its own,
+	 * and the other writes in its batch must be committed.
+	 */
+	@Test
+	public void testFailingWrite() throws Exception {
+		System.out.println("failingWrite");
+		TagName tagName = caseDb.addTagName("test", "", TagName.HTML_COLOR.NONE);
+		SleuthkitCase.WriteBehindQueue queue = caseDb.startWriteBehindQueue(100, 100);
+		AbstractFile file = files.get(0);
+		Future<Boolean> mimeType = queue.setFileMIMEType(file, "text/plain");
+		// The comment column is NOT NULL.
+		Future<ContentTag> badTag = queue.addContentTag(file, tagName, null, 0, 0);
+		Future<ContentTag> goodTag = queue.addContentTag(file, tagName, "comment", 0, 0);
+		Future<Boolean> md5 = queue.setMd5Hash(file, "D41D8CD98F00B204E9800998ECF8427E");
+		queue.flush();
+
+		assertTrue(mimeType.get());
+		assertTrue(md5.get());
+		assertEquals("comment", goodTag.get().getComment());
+		try {
+			badTag.get();
+			fail("Tag with a null comment was written");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof TskCoreException);
+		}
+		assertEquals(1, queue.getFailedCount());
+		assertEquals(3, queue.getCommittedCount());
+		AbstractFile stored = caseDb.getAbstractFileById(file.getId());
+		assertEquals("text/plain", stored.getMIMEType());
+		assertEquals("d41d8cd98f00b204e9800998ecf8427e", stored.getMd5Hash());
+		assertEquals(1, caseDb.getContentTagsByContent(file).size());
+
+		// Invalid arguments are rejected before they are queued.
+		try {
+			queue.setReviewStatus(caseDb.newBlackboardArtifact(BlackboardArtifact.ARTIFACT_TYPE.TSK_INTERESTING_FILE_HIT.getTypeID(), file.getId()), null);
+			fail("Null review status was queued");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+		queue.shutdown();
+	}
+}
@@ -0,0 +1,225 @@
+/*
+* The Sleuth Kit
+*
+* Copyright (c) 2017 Basis Technology Corp.  All Rights reserved
+*
+* This software is distributed under the Common Public License 1.0
+*
+*/
+
+/* Test the cache that TskDb uses to find the object id of the parent
+* directory of each file added to the database against the four level
+* std::map the cache replaced.  A synthetic directory tree is stored in the
+* order a depth-first directory walk would report it, in several file
+* systems and with directories that share a metadata address, and the
+* object id found for every directory is compared with the map's.
+*
+* Usage: parent_dir_cache_test [directories] [depth]
+*/
+
+#include "tsk/auto/tsk_db.h"
+
+#include <stdio.h>
+#include <stdlib.h>
+
+#include <map>
+#include <string>
+#include <vector>
+
+using std::map;
+using std::string;
+using std::vector;
+
+typedef map<int64_t, map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > > NESTED_MAP;
+
+typedef struct {
+    int64_t fsObjId;
+    TSK_INUM_T inum;
+    uint32_t seq;
+    uint32_t pathHash;      ///< hash of the full path of the directory
+} DIR_INFO;
+
+// same hash as TskDbSqlite::hash()
+static uint32_t
+pathHash(const string & path)
+{
+    uint32_t hash = 5381;
+    for (size_t i = 0; i < path.size(); i++) {
+        if (path[i] == '/')
+            continue;
+        hash = ((hash << 5) + hash) + (unsigned char) path[i];
+    }
+    return hash;
+}
+
+/* Build the directories of a tree that is depth levels deep in the given
+* file system, spreading numDirs directories over it so that most of them
+* are deep in the tree.  Every fifth directory reuses the metadata address
+* of the one before with another sequence, as a reallocated NTFS entry
+* would, and every eleventh reuses it with another path, as a FAT
+* directory entry address would. */
+static void
+buildTree(vector<DIR_INFO> & dirs, int64_t fsObjId, size_t numDirs,
+    size_t depth)
+{
+    vector<string> paths;
+    vector<size_t> stack;
+    TSK_INUM_T nextInum = 3;
+    size_t first = dirs.size();
+
+    DIR_INFO root = { fsObjId, 2, 0, pathHash("/") };
+    dirs.push_back(root);
+    paths.push_back("/");
+    stack.push_back(first);
+
+    while (dirs.size() - first < numDirs) {
+        size_t parent = stack.back();
+        if ((stack.size() > depth) || ((nextInum % 7 == 0)
+                && (stack.size() > 1))) {
+            stack.pop_back();
+            continue;
+        }
+        size_t count = dirs.size() - first;
+        TSK_INUM_T inum = nextInum++;
+        uint32_t seq = 0;
+        if (count % 5 == 0) {
+            inum = dirs.back().inum;
+            seq = dirs.back().seq + 1;
+        }
+        else if (count % 11 == 0) {
+            inum = dirs.back().inum;
+            seq = dirs.back().seq;
+        }
+        char name[32];
+        snprintf(name, sizeof(name), "dir%" PRIuSIZE, count);
+        string path = paths[parent - first] + name + "/";
+        DIR_INFO dir = { fsObjId, inum, seq, pathHash(path) };
+        dirs.push_back(dir);
+        paths.push_back(path);
+        stack.push_back(dirs.size() - 1);
+    }
+}
+
+/* Look up a directory in the nested maps.
+* @returns the object id, or 0 if the directory is not in the maps */
+static int64_t
+findNested(NESTED_MAP & nested, const DIR_INFO & dir)
+{
+    if (nested.count(dir.fsObjId) == 0)
+        return 0;
+    map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > &fsMap = nested[dir.fsObjId];
+    if (fsMap.count(dir.inum) == 0)
+        return 0;
+    map<uint32_t, map<uint32_t, int64_t> > &fileMap = fsMap[dir.inum];
+    if (fileMap.count(dir.seq) == 0)
+        return 0;
+    map<uint32_t, int64_t> &pathMap = fileMap[dir.seq];
+    if (pathMap.count(dir.pathHash) == 0)
+        return 0;
+    return pathMap[dir.pathHash];
+}
+
+/* Store the directories in a cache with the given maximum number of slots
+* and in the nested maps, and compare the object ids found for each of them
+* and for directories that were never stored.
+* @param bounded true if the cache may drop directories, false if every
+* directory must be found
+* @returns 1 if a test failed */
+static int
+test_cache(const vector<DIR_INFO> & dirs, size_t maxSlots, bool bounded)
+{
+    TskDbParentDirCache cache(maxSlots);
+    NESTED_MAP nested;
+    uint64_t dropped = 0;
+
+    for (size_t i = 0; i < dirs.size(); i++) {
+        const DIR_INFO & dir = dirs[i];
+        int64_t objId = (int64_t) i + 1;
+        cache.store(dir.fsObjId, dir.inum, dir.seq, dir.pathHash, objId);
+        // an existing entry is kept, as the cache does
+        if (findNested(nested, dir) == 0)
+            nested[dir.fsObjId][dir.inum][dir.seq][dir.pathHash] = objId;
+
+        // the directory was just stored, so it must be found
+        int64_t expected = findNested(nested, dir);
+        int64_t found = cache.find(dir.fsObjId, dir.inum, dir.seq, dir.pathHash);
+        if (found != expected) {
+            fprintf(stderr,
+                "Directory %" PRIuSIZE " found as %" PRId64 " right after it was stored, expected %" PRId64 " (max slots %" PRIuSIZE ")\n",
+                i, found, expected, maxSlots);
+            return 1;
+        }
+    }
+
+    for (size_t i = 0; i < dirs.size(); i++) {
+        const DIR_INFO & dir = dirs[i];
+        int64_t expected = findNested(nested, dir);
+        int64_t found = cache.find(dir.fsObjId, dir.inum, dir.seq, dir.pathHash);
+        if ((found == 0) && bounded) {
+            dropped++;
+            continue;
+        }
+        if (found != expected) {
+            fprintf(stderr,
+                "Directory %" PRIuSIZE " found as %" PRId64 ", expected %" PRId64 " (max slots %" PRIuSIZE ")\n",
+                i, found, expected, maxSlots);
+            return 1;
+        }
+
+        // the same directory in another file system or with another
+        // sequence was never stored
+        DIR_INFO other = dir;
+        other.fsObjId = -dir.fsObjId;
+        if (cache.find(other.fsObjId, other.inum, other.seq, other.pathHash) != 0) {
+            fprintf(stderr, "Directory %" PRIuSIZE " found in a file system it is not in\n", i);
+            return 1;
+        }
+        other = dir;
+        other.seq = dir.seq + 1000;
+        if (cache.find(other.fsObjId, other.inum, other.seq, other.pathHash) != 0) {
+            fprintf(stderr, "Directory %" PRIuSIZE " found with a sequence it does not have\n", i);
+            return 1;
+        }
+    }
+
+    TSK_DB_PARENT_DIR_CACHE_STATS stats = cache.getStats();
+    if ((dropped > 0) && (stats.resets == 0)) {
+        fprintf(stderr,
+            "%" PRIu64 " directories were not found although the cache was never emptied (max slots %" PRIuSIZE ")\n",
+            dropped, maxSlots);
+        return 1;
+    }
+    if ((bounded == false) && (stats.resets != 0)) {
+        fprintf(stderr, "The cache was emptied %" PRIu64 " times (max slots %" PRIuSIZE ")\n",
+            stats.resets, maxSlots);
+        return 1;
+    }
+
+    printf("max slots %" PRIuSIZE ": hits %" PRIu64 ", misses %" PRIu64 ", resets %" PRIu64 ", %" PRIu64 " slots\n",
+        maxSlots, stats.hits, stats.misses, stats.resets, stats.capacity);
+    return 0;
+}
+
+int
+main(int argc, char **argv)
+{
+    size_t numDirs = argc > 1 ? strtoul(argv[1], NULL, 10) : 100000;
+    size_t depth = argc > 2 ? strtoul(argv[2], NULL, 10) : 64;
+
+    vector<DIR_INFO> dirs;
+    buildTree(dirs, 5, numDirs, depth);
+    buildTree(dirs, 9, numDirs / 4, depth);
+    printf("%" PRIuSIZE " directories, depth %" PRIuSIZE "\n", dirs.size(), depth);
+
+    // room for every directory
+    if (test_cache(dirs, dirs.size() * 4, false))
+        return 1;
+    // the cache fills up and is emptied, and the rest fall back to SQL
+    if (test_cache(dirs, 1024, true))
+        return 1;
+    if (test_cache(dirs, dirs.size() / 4, true))
+        return 1;
+
+    printf("All tests passed\n");
+    return 0;
+}
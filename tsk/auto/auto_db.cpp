@@ -22,10 +22,38 @@
 
 #include <algorithm>
 #include <sstream>
+#ifndef TSK_WIN32
+#include <sys/time.h>
+#endif
+#ifdef TSK_MULTITHREAD_LIB
+#include <deque>
+#ifdef TSK_WIN32
+#include <process.h>
+#endif
+#endif
 
 using std::stringstream;
 using std::for_each;
 
+/**
+ * Returns a clock value in microseconds, for timing the add image steps.
+ */
+static uint64_t
+addImageClockUsec()
+{
+#ifdef TSK_WIN32
+    LARGE_INTEGER freq, count;
+    QueryPerformanceFrequency(&freq);
+    QueryPerformanceCounter(&count);
+    return (uint64_t) (count.QuadPart / freq.QuadPart * 1000000
+        + count.QuadPart % freq.QuadPart * 1000000 / freq.QuadPart);
+#else
+    struct timeval tv;
+    gettimeofday(&tv, NULL);
+    return (uint64_t) tv.tv_sec * 1000000 + tv.tv_usec;
+#endif
+}
+
 /**
  * @param a_db Database to add an image to
  * @param a_NSRLDb Database of "known" files (can be NULL)
@@ -62,7 +90,23 @@ TskAutoDb::TskAutoDb(TskDb * a_db, TSK_HDB_INFO * a_NSRLDb, TSK_HDB_INFO * a_kno
     m_addUnallocSpace = false;
     m_minChunkSize = -1;
     m_maxChunkSize = -1;
+    m_streamingChunkFiles = 0;
+    m_streamingChunkCallback = NULL;
+    m_streamingChunkCallbackPtr = NULL;
+    m_streamingFilesInChunk = 0;
+    m_streamingChunkCommitted = false;
+    m_bulkLoad = false;
+    m_bulkLoadCallback = NULL;
+    m_bulkLoadCallbackPtr = NULL;
+    m_indexesDropped = false;
+    m_parallelFs = false;
+    m_parallelFsMaxThreads = 0;
+    memset(&m_parentDirCacheBaseline, 0, sizeof(m_parentDirCacheBaseline));
+    memset(&m_addImageTimings, 0, sizeof(m_addImageTimings));
+    m_addImageStartUsec = 0;
+    m_addingFiles = false;
     tsk_init_lock(&m_curDirPathLock);
+    tsk_init_lock(&m_parallelFsJobsLock);
 }
 
 TskAutoDb::~TskAutoDb()
@@ -72,8 +116,16 @@ TskAutoDb::~TskAutoDb()
         revertAddImage();
     }
 
+    // if revertAddImage() was not able to
+    if (m_indexesDropped) {
+        m_bulkLoadCallback = NULL;
+        rebuildIndexes();
+    }
+
     closeImage();
+    clearParallelFsJobs();
     tsk_deinit_lock(&m_curDirPathLock);
+    tsk_deinit_lock(&m_parallelFsJobsLock);
 }
 
 void
@@ -126,6 +178,17 @@ void TskAutoDb::setAddUnallocSpace(int64_t minChunkSize, int64_t maxChunkSize)
     m_maxChunkSize = maxChunkSize;
 }
 
+void TskAutoDb::setParallelFileSystems(bool parallel, unsigned int maxThreads)
+{
+#ifdef TSK_MULTITHREAD_LIB
+    m_parallelFs = parallel;
+#else
+    (void) parallel;    // file systems are always walked one at a time
+    m_parallelFs = false;
+#endif
+    m_parallelFsMaxThreads = maxThreads;
+}
+
 /**
  * Adds an image to the database.
  *
@@ -332,14 +395,6 @@ TskAutoDb::filterFs(TSK_FS_INFO * fs_info)
     }
 
 
-    // We won't hit the root directory on the walk, so open it now 
-    if ((file_root = tsk_fs_file_open(fs_info, NULL, "/")) != NULL) {
-        processFile(file_root, "");
-        tsk_fs_file_close(file_root);
-        file_root = NULL;
-    }
-
-
     // make sure that flags are set to get all files -- we need this to
     // find parent directory
      
@@ -352,6 +407,21 @@ TskAutoDb::filterFs(TSK_FS_INFO * fs_info)
             filterFlags = (TSK_FS_DIR_WALK_FLAG_ENUM) (filterFlags | TSK_FS_DIR_WALK_FLAG_NOORPHAN);
     }
 
+    // leave the walk to addParallelFsFilesToDb(), which opens the file
+    // system again on its own thread.  The image writer expects the image
+    // to be read from one thread, so it keeps the serial walk.
+    if (m_parallelFs && (m_imageWriterEnabled == false)) {
+        queueParallelFs(fs_info, filterFlags);
+        return TSK_FILTER_SKIP;
+    }
+
+    // We won't hit the root directory on the walk, so open it now 
+    if ((file_root = tsk_fs_file_open(fs_info, NULL, "/")) != NULL) {
+        processFile(file_root, "");
+        tsk_fs_file_close(file_root);
+        file_root = NULL;
+    }
+
     setFileFilterFlags(filterFlags);
 
     return TSK_FILTER_CONT;
@@ -368,11 +438,15 @@ TSK_RETVAL_ENUM
     const TSK_DB_FILES_KNOWN_ENUM known)
 {
 
+    uint64_t start = addImageClockUsec();
     if (m_db->addFsFile(fs_file, fs_attr, path, md5, known, m_curFsId, m_curFileId,
             m_curImgId)) {
+        m_addImageTimings.insertUsec += addImageClockUsec() - start;
         registerError();
         return TSK_ERR;
     }
+    m_addImageTimings.insertUsec += addImageClockUsec() - start;
+    m_addImageTimings.filesInserted++;
 
     return TSK_OK;
 }
@@ -400,6 +474,12 @@ uint8_t TskAutoDb::addFilesInImgToDb()
     setVolFilterFlags((TSK_VS_PART_FLAG_ENUM) (TSK_VS_PART_FLAG_ALLOC |
             TSK_VS_PART_FLAG_UNALLOC));
 
+    clearParallelFsJobs();
+    m_parentDirCacheBaseline = m_db->getParentDirCacheStats();
+    memset(&m_addImageTimings, 0, sizeof(m_addImageTimings));
+    m_addImageStartUsec = addImageClockUsec();
+    m_addingFiles = true;
+
     uint8_t retVal = 0;
     if (findFilesInImg()) {
         // map the boolean return value from findFiles to the three-state return value we use
@@ -412,9 +492,24 @@ uint8_t TskAutoDb::addFilesInImgToDb()
         }
     }
 
+    // walk the file systems that filterFs() left for the parallel walkers
+    if (addParallelFsFilesToDb() && (retVal == 0)) {
+        retVal = 2;
+    }
+
     TSK_RETVAL_ENUM addUnallocRetval = TSK_OK;
-    if (m_addUnallocSpace)
+    if (m_addUnallocSpace) {
+        uint64_t unallocStart = addImageClockUsec();
         addUnallocRetval = addUnallocSpaceToDb();
+        m_addImageTimings.unallocUsec = addImageClockUsec() - unallocStart;
+    }
+
+    m_addImageTimings.totalUsec = addImageClockUsec() - m_addImageStartUsec;
+    m_addingFiles = false;
+    if (tsk_verbose)
+        tsk_fprintf(stderr, "TskAutoDb::addFilesInImgToDb: %" PRIu64 " files in %" PRIu64 " us, %" PRIu64 " us inserting, %" PRIu64 " us adding unallocated space\n",
+            m_addImageTimings.filesInserted, m_addImageTimings.totalUsec,
+            m_addImageTimings.insertUsec, m_addImageTimings.unallocUsec);
 
     // findFiles return value trumps unalloc since it can return either 2 or 1.
     if (retVal) {
@@ -465,12 +560,19 @@ uint8_t
         return 1;
     }
 
+    if (prepareIndexes()) {
+        return 1;
+    }
+
     if (m_db->createSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
         registerError();
+        if (rebuildIndexes())
+            registerError();
         return 1;
     }
 
     m_imgTransactionOpen = true;
+    resetStreamingChunks();
     if (openImage(numImg, imagePaths, imgType, sSize, deviceId)) {
         tsk_error_set_errstr2("TskAutoDb::startAddImage");
         registerError();
@@ -528,12 +630,19 @@ TskAutoDb::startAddImage(TSK_IMG_INFO * img_info, const char* deviceId)
         return 1;
     }
 
+    if (prepareIndexes()) {
+        return 1;
+    }
+
     if (m_db->createSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
         registerError();
+        if (rebuildIndexes())
+            registerError();
         return 1;
     }
 
     m_imgTransactionOpen = true;
+    resetStreamingChunks();
     if (openImage(deviceId)) {
         tsk_error_set_errstr2("TskAutoDb::startAddImage");
         registerError();
@@ -597,13 +706,19 @@ uint8_t
         return 1;
     }
 
+    if (prepareIndexes()) {
+        return 1;
+    }
 
     if (m_db->createSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
         registerError();
+        if (rebuildIndexes())
+            registerError();
         return 1;
     }
 
     m_imgTransactionOpen = true;
+    resetStreamingChunks();
 
     if (openImageUtf8(numImg, imagePaths, imgType, sSize, deviceId)) {
         tsk_error_set_errstr2("TskAutoDb::startAddImage");
@@ -656,21 +771,36 @@ int
         return 1;
     }
 
-    int retval = m_db->revertSavepoint(TSK_ADD_IMAGE_SAVEPOINT);
-    if (retval == 0) {
-        if (m_db->inTransaction()) {
-            tsk_error_reset();
-            tsk_error_set_errno(TSK_ERR_AUTO_DB);
-            tsk_error_set_errstr("TskAutoDb::revertAddImage(): Image reverted, but still in a transaction.");
-            retval = 1;
+    // a streaming chunk that failed to open a new savepoint leaves no open transaction
+    int retval = 0;
+    if ((m_streamingChunkCommitted == false) || m_db->inTransaction()) {
+        retval = m_db->revertSavepoint(TSK_ADD_IMAGE_SAVEPOINT);
+        if (retval == 0) {
+            if (m_db->inTransaction()) {
+                tsk_error_reset();
+                tsk_error_set_errno(TSK_ERR_AUTO_DB);
+                tsk_error_set_errstr("TskAutoDb::revertAddImage(): Image reverted, but still in a transaction.");
+                retval = 1;
+            }
         }
     }
+
+    // delete the streaming chunks that were already committed
+    if ((retval == 0) && m_streamingChunkCommitted) {
+        retval = m_db->deleteDataSource(m_curImgId);
+    }
     m_imgTransactionOpen = false;
+
+    if ((retval == 0) && m_indexesDropped) {
+        retval = rebuildIndexes();
+    }
     return retval;
 }
 
 /**
- * Finish the transaction after the startAddImage is finished.  
+ * Finish the transaction after the startAddImage is finished.  In bulk load
+ * mode the dropped indexes are then built again; if that fails the image is
+ * still added and the error is registered in the list.
  * @returns Id of the image that was added or -1 on error (error was NOT registered in list)
  */
 int64_t
@@ -686,6 +816,9 @@ TskAutoDb::commitAddImage()
         return -1;
     }
 
+    int64_t firstObjId, lastObjId;
+    m_db->getAddedObjIdRange(firstObjId, lastObjId);
+
     int retval = m_db->releaseSavepoint(TSK_ADD_IMAGE_SAVEPOINT);
     m_imgTransactionOpen = false;
     if (retval == 1) {
@@ -699,6 +832,18 @@ TskAutoDb::commitAddImage()
         }
     }
 
+    // the image is committed, so a failure to build the indexes is not fatal;
+    // they are built again when the next image is added
+    if (rebuildIndexes()) {
+        tsk_error_set_errstr2("TskAutoDb::commitAddImage: image %" PRId64 " was added, but its indexes were not built", m_curImgId);
+        registerError();
+    }
+
+    // the last streaming chunk
+    if (m_streamingChunkFiles > 0) {
+        notifyStreamingChunk(firstObjId, lastObjId);
+    }
+
     return m_curImgId;
 }
 
@@ -762,6 +907,8 @@ TskAutoDb::processFile(TSK_FS_FILE * fs_file, const char *path)
     // reset the file id
     m_curFileId = 0;
 
+    streamingFileAdded();
+
     if (retval == TSK_STOP)
         return TSK_STOP;
     else 
@@ -827,6 +974,7 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
             && (isDotDir(fs_file) == 0)) {
             TSK_FS_ATTR_RUN *run;
             int sequence = 0;
+            uint64_t start = addImageClockUsec();
 
             for (run = fs_attr->nrd.run; run != NULL; run = run->next) {
                 unsigned int block_size = fs_file->fs_info->block_size;
@@ -838,10 +986,12 @@ TskAutoDb::processAttribute(TSK_FS_FILE * fs_file,
                 // @@@ We probably want to keep on going here
                 if (m_db->addFileLayoutRange(m_curFileId,
                     run->addr * block_size, run->len * block_size, sequence++)) {
+                    m_addImageTimings.insertUsec += addImageClockUsec() - start;
                     registerError();
                     return TSK_OK;
                 }
             }
+            m_addImageTimings.insertUsec += addImageClockUsec() - start;
         }
     }
 
@@ -1222,6 +1372,168 @@ TSK_RETVAL_ENUM TskAutoDb::addUnallocImageSpaceToDb() {
     return retImgFile;
 }
 
+TSK_DB_PARENT_DIR_CACHE_STATS TskAutoDb::getParentDirCacheStats() {
+    TSK_DB_PARENT_DIR_CACHE_STATS stats = m_db->getParentDirCacheStats();
+    stats.hits -= m_parentDirCacheBaseline.hits;
+    stats.misses -= m_parentDirCacheBaseline.misses;
+    stats.resets -= m_parentDirCacheBaseline.resets;
+    return stats;
+}
+
+void TskAutoDb::setStreamingChunks(uint64_t filesPerChunk, STREAMING_CHUNK_CALLBACK callback, void *ptr) {
+    m_streamingChunkFiles = filesPerChunk;
+    m_streamingChunkCallback = callback;
+    m_streamingChunkCallbackPtr = ptr;
+}
+
+void *TskAutoDb::getStreamingChunkCallbackPtr() {
+    return m_streamingChunkCallbackPtr;
+}
+
+void TskAutoDb::setBulkLoad(bool bulkLoad, TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr) {
+    m_bulkLoad = bulkLoad;
+    m_bulkLoadCallback = callback;
+    m_bulkLoadCallbackPtr = ptr;
+}
+
+void *TskAutoDb::getBulkLoadCallbackPtr() {
+    return m_bulkLoadCallbackPtr;
+}
+
+/**
+ * Gets the secondary indexes ready before an image is added.  In bulk load
+ * mode the indexes on the tables that adding an image loads are dropped; if
+ * they can't all be dropped the ones that were are built again.  Otherwise
+ * any indexes left dropped by an earlier bulk load that did not finish, e.g.
+ * because the process crashed, are built again.
+ * @returns 1 on error (error was registered), 0 on success
+ */
+uint8_t TskAutoDb::prepareIndexes() {
+    if (m_bulkLoad == false) {
+        if (m_db->createIndexes(NULL, NULL)) {
+            registerError();
+            return 1;
+        }
+        return 0;
+    }
+
+    if (m_streamingChunkFiles > 0) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_AUTO_DB);
+        tsk_error_set_errstr("TskAutoDb::prepareIndexes: bulk load mode can't be used with streaming chunks");
+        registerError();
+        return 1;
+    }
+
+    if (tsk_verbose)
+        tsk_fprintf(stderr, "TskAutoDb::prepareIndexes: Dropping indexes\n");
+
+    m_indexesDropped = true;
+    if (m_db->dropIndexes()) {
+        registerError();
+        if (rebuildIndexes())
+            registerError();
+        return 1;
+    }
+    return 0;
+}
+
+/**
+ * Builds the secondary indexes dropped by prepareIndexes() again.
+ * @returns 1 on error (error was NOT registered in list), 0 on success
+ */
+int TskAutoDb::rebuildIndexes() {
+    if (m_indexesDropped == false)
+        return 0;
+
+    if (tsk_verbose)
+        tsk_fprintf(stderr, "TskAutoDb::rebuildIndexes: Building indexes\n");
+
+    uint64_t startUsec = addImageClockUsec();
+    if (m_db->createIndexes(m_bulkLoadCallback, m_bulkLoadCallbackPtr)) {
+        return 1;
+    }
+    m_indexesDropped = false;
+
+    if (tsk_verbose)
+        tsk_fprintf(stderr, "TskAutoDb::rebuildIndexes: Built indexes in %" PRIu64 " usec\n",
+            addImageClockUsec() - startUsec);
+    return 0;
+}
+
+/**
+ * Starts the first streaming chunk of an image.  Called when the add image
+ * savepoint is created.
+ */
+void TskAutoDb::resetStreamingChunks() {
+    m_streamingFilesInChunk = 0;
+    m_streamingChunkCommitted = false;
+    m_db->resetAddedObjIdRange();
+}
+
+/**
+ * Counts a file added by processFile() or the parallel file system writer
+ * and commits the streaming chunk once it has enough files.
+ */
+void TskAutoDb::streamingFileAdded() {
+    if ((m_streamingChunkFiles == 0) || (m_imgTransactionOpen == false))
+        return;
+
+    if (++m_streamingFilesInChunk >= m_streamingChunkFiles) {
+        commitStreamingChunk();
+    }
+}
+
+/**
+ * Commits the files added since the last streaming chunk by releasing the add
+ * image savepoint, and creates the savepoint again for the next chunk.  If the
+ * savepoint can't be created again the process is stopped, so that no files
+ * are added outside of a transaction.
+ * @returns 1 on error (error was registered), 0 on success
+ */
+uint8_t TskAutoDb::commitStreamingChunk() {
+    m_streamingFilesInChunk = 0;
+
+    int64_t firstObjId, lastObjId;
+    m_db->getAddedObjIdRange(firstObjId, lastObjId);
+
+    if (m_db->releaseSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
+        // the chunk stays open and is committed with the next one
+        registerError();
+        return 1;
+    }
+    m_streamingChunkCommitted = true;
+    m_db->resetAddedObjIdRange();
+
+    if (m_db->createSavepoint(TSK_ADD_IMAGE_SAVEPOINT)) {
+        registerError();
+        stopAddImage();
+        notifyStreamingChunk(firstObjId, lastObjId);
+        return 1;
+    }
+
+    if (tsk_verbose)
+        tsk_fprintf(stderr, "TskAutoDb::commitStreamingChunk: committed objects %" PRId64 " to %" PRId64 "\n",
+            firstObjId, lastObjId);
+
+    notifyStreamingChunk(firstObjId, lastObjId);
+    return 0;
+}
+
+void TskAutoDb::notifyStreamingChunk(int64_t firstObjId, int64_t lastObjId) {
+    if ((m_streamingChunkCallback != NULL) && (lastObjId != 0)) {
+        m_streamingChunkCallback(firstObjId, lastObjId, m_streamingChunkCallbackPtr);
+    }
+}
+
+TskAutoDb::ADD_IMAGE_TIMINGS TskAutoDb::getAddImageTimings() {
+    ADD_IMAGE_TIMINGS timings = m_addImageTimings;
+    if (m_addingFiles) {
+        timings.totalUsec = addImageClockUsec() - m_addImageStartUsec;
+    }
+    return timings;
+}
+
 /**
 * Returns the directory currently being analyzed by processFile().
 * Safe to use from another thread than processFile().
@@ -1243,3 +1555,756 @@ bool TskAutoDb::isDbOpen() {
     }
     return false;
 }
+
+#ifdef TSK_MULTITHREAD_LIB
+
+/*
+ * Condition variables and threads for the parallel file system walk, on top
+ * of the same Win32 and pthreads primitives as tsk_lock_t.  A condition
+ * variable is waited on with a tsk_lock_t held.
+ */
+#ifdef TSK_WIN32
+typedef CONDITION_VARIABLE parallel_fs_cond_t;
+typedef HANDLE parallel_fs_thread_t;
+
+static void
+parallelFsCondInit(parallel_fs_cond_t * cond)
+{
+    InitializeConditionVariable(cond);
+}
+
+static void
+parallelFsCondDeinit(parallel_fs_cond_t * cond)
+{
+    (void) cond;    // Win32 condition variables need no cleanup
+}
+
+static void
+parallelFsCondWait(parallel_fs_cond_t * cond, tsk_lock_t * lock)
+{
+    SleepConditionVariableCS(cond, &lock->critical_section, INFINITE);
+}
+
+static void
+parallelFsCondSignal(parallel_fs_cond_t * cond)
+{
+    WakeConditionVariable(cond);
+}
+
+static void
+parallelFsCondBroadcast(parallel_fs_cond_t * cond)
+{
+    WakeAllConditionVariable(cond);
+}
+#else
+typedef pthread_cond_t parallel_fs_cond_t;
+typedef pthread_t parallel_fs_thread_t;
+
+static void
+parallelFsCondInit(parallel_fs_cond_t * cond)
+{
+    pthread_cond_init(cond, NULL);
+}
+
+static void
+parallelFsCondDeinit(parallel_fs_cond_t * cond)
+{
+    pthread_cond_destroy(cond);
+}
+
+static void
+parallelFsCondWait(parallel_fs_cond_t * cond, tsk_lock_t * lock)
+{
+    pthread_cond_wait(cond, &lock->mutex);
+}
+
+static void
+parallelFsCondSignal(parallel_fs_cond_t * cond)
+{
+    pthread_cond_signal(cond);
+}
+
+static void
+parallelFsCondBroadcast(parallel_fs_cond_t * cond)
+{
+    pthread_cond_broadcast(cond);
+}
+#endif
+
+/**
+ * A file system that filterFs() found and left to be walked on its own thread.
+ * The counters are protected by m_parallelFsJobsLock.
+ */
+struct TskAutoDb::ParallelFsJob {
+    int64_t fsObjId;
+    TSK_OFF_T offset;
+    TSK_FS_TYPE_ENUM ftype;
+    TSK_FS_DIR_WALK_FLAG_ENUM walkFlags;
+    TSK_FS_INFO *fs_info;       ///< Opened by the walker, closed after the writer has added its files
+    uint64_t filesFound;
+    uint64_t filesAdded;
+    bool done;
+    std::vector<error_record> errors;   ///< Errors of the walker, registered by the writer after the walk
+};
+
+/**
+ * A file or attribute found by a walker, with everything the writer needs to
+ * add it to the database.  The TSK_FS_FILE is a copy of the name and metadata
+ * of the walked file and the TSK_FS_ATTR holds only the fields that
+ * TskDb::addFsFile() reads, so neither refers to data that the walker frees.
+ */
+struct TskAutoDb::ParallelFsRecord {
+    ParallelFsJob *job;
+    TSK_FS_FILE *fs_file;
+    bool hasAttr;
+    TSK_FS_ATTR fs_attr;
+    string attrName;
+    string path;
+    bool hasMd5;
+    unsigned char md5[16];
+    vector<TSK_DB_FILE_LAYOUT_RANGE> ranges;
+
+    ParallelFsRecord() : job(NULL), fs_file(NULL), hasAttr(false), hasMd5(false) {
+        memset(&fs_attr, 0, sizeof(fs_attr));
+        memset(md5, 0, sizeof(md5));
+    }
+
+    ~ParallelFsRecord() {
+        tsk_fs_file_close(fs_file);
+    }
+};
+
+/**
+ * Bounded queue between the file system walkers and the database writer.
+ * Walkers block while it is full; the writer blocks while it is empty and a
+ * walker is still running.
+ */
+class TskAutoDb::ParallelFsQueue {
+  public:
+    ParallelFsQueue(size_t capacity, size_t producers)
+        : m_capacity(capacity), m_producers(producers), m_cancelled(false) {
+        tsk_init_lock(&m_lock);
+        parallelFsCondInit(&m_notFull);
+        parallelFsCondInit(&m_notEmpty);
+    }
+
+    ~ParallelFsQueue() {
+        for (size_t i = 0; i < m_records.size(); i++) {
+            delete m_records[i];
+        }
+        parallelFsCondDeinit(&m_notFull);
+        parallelFsCondDeinit(&m_notEmpty);
+        tsk_deinit_lock(&m_lock);
+    }
+
+    /**
+     * Adds a record, waiting for room if the queue is full.
+     * @returns false if the queue was cancelled, in which case the caller still owns the record
+     */
+    bool push(ParallelFsRecord * rec) {
+        tsk_take_lock(&m_lock);
+        while ((m_records.size() >= m_capacity) && (m_cancelled == false)) {
+            parallelFsCondWait(&m_notFull, &m_lock);
+        }
+        bool pushed = false;
+        if (m_cancelled == false) {
+            m_records.push_back(rec);
+            parallelFsCondSignal(&m_notEmpty);
+            pushed = true;
+        }
+        tsk_release_lock(&m_lock);
+        return pushed;
+    }
+
+    /**
+     * Moves up to maxRecords records into batch, waiting for one if the
+     * queue is empty and a walker is still running.
+     * @returns the number of records moved, 0 once all walkers are done and the queue is empty or it was cancelled
+     */
+    size_t popBatch(vector<ParallelFsRecord *> & batch, size_t maxRecords) {
+        tsk_take_lock(&m_lock);
+        while (m_records.empty() && (m_producers > 0) && (m_cancelled == false)) {
+            parallelFsCondWait(&m_notEmpty, &m_lock);
+        }
+        size_t count = 0;
+        if (m_cancelled == false) {
+            while ((count < maxRecords) && (m_records.empty() == false)) {
+                batch.push_back(m_records.front());
+                m_records.pop_front();
+                count++;
+            }
+            parallelFsCondBroadcast(&m_notFull);
+        }
+        tsk_release_lock(&m_lock);
+        return count;
+    }
+
+    /** Called by a walker once for each file system it has finished. */
+    void producerDone() {
+        tsk_take_lock(&m_lock);
+        m_producers--;
+        parallelFsCondBroadcast(&m_notEmpty);
+        tsk_release_lock(&m_lock);
+    }
+
+    /** Stops the walkers and the writer.  Queued records are freed by the destructor. */
+    void cancel() {
+        tsk_take_lock(&m_lock);
+        m_cancelled = true;
+        parallelFsCondBroadcast(&m_notFull);
+        parallelFsCondBroadcast(&m_notEmpty);
+        tsk_release_lock(&m_lock);
+    }
+
+    bool isCancelled() {
+        tsk_take_lock(&m_lock);
+        bool cancelled = m_cancelled;
+        tsk_release_lock(&m_lock);
+        return cancelled;
+    }
+
+  private:
+    tsk_lock_t m_lock;
+    parallel_fs_cond_t m_notFull;
+    parallel_fs_cond_t m_notEmpty;
+    std::deque<ParallelFsRecord *> m_records;
+    const size_t m_capacity;
+    size_t m_producers;
+    bool m_cancelled;
+};
+
+/**
+ * State shared by the walker threads of one addParallelFsFilesToDb() call.
+ */
+struct TskAutoDb::ParallelFsWalk {
+    TskAutoDb *tskAutoDb;
+    std::vector<ParallelFsJob *> jobs;
+    size_t nextJob;     ///< protected by m_parallelFsJobsLock
+    ParallelFsQueue queue;
+
+    ParallelFsWalk(TskAutoDb * a_tskAutoDb, const std::vector<ParallelFsJob *> & a_jobs)
+        : tskAutoDb(a_tskAutoDb), jobs(a_jobs), nextJob(0), queue(TSK_PARALLEL_FS_QUEUE_SIZE, a_jobs.size()) {}
+};
+
+/**
+ * Context passed to parallelFsWalkCb() by a walker.
+ */
+typedef struct {
+    TskAutoDb *tskAutoDb;
+    void *job;
+    void *queue;
+} PARALLEL_FS_WALK_CTX;
+
+/**
+ * Records the file system found by filterFs() so that addParallelFsFilesToDb()
+ * can walk it.
+ */
+void
+TskAutoDb::queueParallelFs(const TSK_FS_INFO * fs_info, TSK_FS_DIR_WALK_FLAG_ENUM walkFlags)
+{
+    ParallelFsJob *job = new ParallelFsJob();
+    job->fsObjId = m_curFsId;
+    job->offset = fs_info->offset;
+    job->ftype = fs_info->ftype;
+    job->walkFlags = walkFlags;
+    job->fs_info = NULL;
+    job->filesFound = 0;
+    job->filesAdded = 0;
+    job->done = false;
+
+    tsk_take_lock(&m_parallelFsJobsLock);
+    m_parallelFsJobs.push_back(job);
+    tsk_release_lock(&m_parallelFsJobsLock);
+}
+
+void
+TskAutoDb::clearParallelFsJobs()
+{
+    tsk_take_lock(&m_parallelFsJobsLock);
+    for (size_t i = 0; i < m_parallelFsJobs.size(); i++) {
+        delete m_parallelFsJobs[i];
+    }
+    m_parallelFsJobs.clear();
+    tsk_release_lock(&m_parallelFsJobsLock);
+}
+
+std::vector<TskAutoDb::FS_PROGRESS>
+TskAutoDb::getFsProgress()
+{
+    std::vector<FS_PROGRESS> progress;
+    tsk_take_lock(&m_parallelFsJobsLock);
+    for (size_t i = 0; i < m_parallelFsJobs.size(); i++) {
+        const ParallelFsJob *job = m_parallelFsJobs[i];
+        FS_PROGRESS fsProgress;
+        fsProgress.fsObjId = job->fsObjId;
+        fsProgress.offset = job->offset;
+        fsProgress.filesFound = job->filesFound;
+        fsProgress.filesAdded = job->filesAdded;
+        fsProgress.done = job->done;
+        progress.push_back(fsProgress);
+    }
+    tsk_release_lock(&m_parallelFsJobsLock);
+    return progress;
+}
+
+/**
+ * Walks the file systems queued by filterFs() on worker threads and adds
+ * their files to the database from the calling thread, in batches taken
+ * from a bounded queue.  Errors of the walkers are registered once they
+ * have all finished.
+ * @returns 1 if errors were registered, 0 otherwise
+ */
+uint8_t
+TskAutoDb::addParallelFsFilesToDb()
+{
+    tsk_take_lock(&m_parallelFsJobsLock);
+    std::vector<ParallelFsJob *> jobs = m_parallelFsJobs;
+    tsk_release_lock(&m_parallelFsJobsLock);
+
+    if (jobs.empty()) {
+        return 0;
+    }
+
+    size_t numThreads = jobs.size();
+    if ((m_parallelFsMaxThreads > 0) && (m_parallelFsMaxThreads < numThreads)) {
+        numThreads = m_parallelFsMaxThreads;
+    }
+
+    if (tsk_verbose)
+        tsk_fprintf(stderr, "TskAutoDb::addParallelFsFilesToDb: Walking %" PRIuSIZE " file systems on %" PRIuSIZE " threads\n",
+            jobs.size(), numThreads);
+
+    uint8_t retval = 0;
+    size_t errorCount = getErrorList().size();
+    ParallelFsWalk walk(this, jobs);
+    std::vector<parallel_fs_thread_t> walkers;
+    for (size_t i = 0; i < numThreads; i++) {
+        parallel_fs_thread_t walker;
+#ifdef TSK_WIN32
+        walker = (HANDLE) _beginthreadex(NULL, 0, parallelFsWalkerThread, &walk, 0, NULL);
+        if (walker == 0) {
+            break;
+        }
+#else
+        if (pthread_create(&walker, NULL, parallelFsWalkerThread, &walk) != 0) {
+            break;
+        }
+#endif
+        walkers.push_back(walker);
+    }
+    if (walkers.empty()) {
+        // the queue is never filled, so don't wait on it
+        walk.queue.cancel();
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_AUTO_DB);
+        tsk_error_set_errstr("TskAutoDb::addParallelFsFilesToDb: Error starting file system walker threads");
+        registerError();
+    }
+
+    vector<ParallelFsRecord *> batch;
+    while (walk.queue.popBatch(batch, TSK_PARALLEL_FS_BATCH_SIZE) > 0) {
+        for (size_t i = 0; i < batch.size(); i++) {
+            if (m_stopped == false) {
+                addParallelFsRecord(batch[i]);
+            }
+            delete batch[i];
+        }
+        batch.clear();
+
+        if (m_stopped) {
+            if (tsk_verbose)
+                tsk_fprintf(stderr, "TskAutoDb::addParallelFsFilesToDb: Stop request detected\n");
+            walk.queue.cancel();
+        }
+    }
+
+    for (size_t i = 0; i < walkers.size(); i++) {
+#ifdef TSK_WIN32
+        WaitForSingleObject(walkers[i], INFINITE);
+        CloseHandle(walkers[i]);
+#else
+        pthread_join(walkers[i], NULL);
+#endif
+    }
+
+    for (size_t i = 0; i < jobs.size(); i++) {
+        ParallelFsJob *job = jobs[i];
+        for (size_t j = 0; j < job->errors.size(); j++) {
+            tsk_error_reset();
+            tsk_error_set_errno(job->errors[j].code);
+            tsk_error_set_errstr("%s", job->errors[j].msg1.c_str());
+            tsk_error_set_errstr2("%s", job->errors[j].msg2.c_str());
+            registerError();
+        }
+        job->errors.clear();
+
+        if (job->fs_info != NULL) {
+            tsk_fs_close(job->fs_info);
+            job->fs_info = NULL;
+        }
+    }
+
+    m_curFsId = 0;
+    if (getErrorList().size() > errorCount) {
+        retval = 1;
+    }
+    return retval;
+}
+
+/**
+ * Thread start routine of a walker.
+ * @param ptr The ParallelFsWalk
+ */
+#ifdef TSK_WIN32
+unsigned __stdcall
+#else
+void *
+#endif
+TskAutoDb::parallelFsWalkerThread(void *ptr)
+{
+    ParallelFsWalk *walk = (ParallelFsWalk *) ptr;
+    walk->tskAutoDb->runParallelFsWalker(walk);
+    return 0;
+}
+
+/**
+ * Thread body of a walker: walks queued file systems until none are left.
+ */
+void
+TskAutoDb::runParallelFsWalker(ParallelFsWalk * walk)
+{
+    while (true) {
+        tsk_take_lock(&m_parallelFsJobsLock);
+        size_t i = walk->nextJob++;
+        tsk_release_lock(&m_parallelFsJobsLock);
+        if (i >= walk->jobs.size()) {
+            break;
+        }
+        walkParallelFs(walk->jobs[i], &walk->queue);
+    }
+}
+
+/**
+ * Save the current error of this thread in the job so that the writer can
+ * register it.  registerError() is not safe to call from a walker.
+ */
+static void
+recordParallelFsError(std::vector<TskAuto::error_record> & errors)
+{
+    TskAuto::error_record er;
+    er.code = tsk_error_get_errno();
+    er.msg1 = tsk_error_get_errstr();
+    er.msg2 = tsk_error_get_errstr2();
+    errors.push_back(er);
+    tsk_error_reset();
+}
+
+/**
+ * Opens a queued file system on the calling thread and queues its files,
+ * starting with the root directory.
+ */
+void
+TskAutoDb::walkParallelFs(ParallelFsJob * job, ParallelFsQueue * queue)
+{
+    if ((m_stopped == false) && (queue->isCancelled() == false)) {
+        job->fs_info = tsk_fs_open_img(m_img_info, job->offset, job->ftype);
+        if (job->fs_info == NULL) {
+            tsk_error_set_errstr2(
+                "Error opening file system at offset %" PRIuOFF " for parallel walk", job->offset);
+            recordParallelFsError(job->errors);
+        }
+    }
+
+    if (job->fs_info != NULL) {
+        PARALLEL_FS_WALK_CTX ctx;
+        ctx.tskAutoDb = this;
+        ctx.job = job;
+        ctx.queue = queue;
+
+        // We won't hit the root directory on the walk, so queue it now
+        TSK_RETVAL_ENUM retval = TSK_OK;
+        TSK_FS_FILE *file_root;
+        if ((file_root = tsk_fs_file_open(job->fs_info, NULL, "/")) != NULL) {
+            retval = queueParallelFsFile(job, queue, file_root, "");
+            tsk_fs_file_close(file_root);
+        }
+
+        if ((retval != TSK_STOP) && tsk_fs_dir_walk(job->fs_info, job->fs_info->root_inum,
+                (TSK_FS_DIR_WALK_FLAG_ENUM) (TSK_FS_DIR_WALK_FLAG_RECURSE | job->walkFlags),
+                parallelFsWalkCb, &ctx)) {
+            tsk_error_set_errstr2(
+                "Error walking directory in file system at offset %" PRIuOFF, job->offset);
+            recordParallelFsError(job->errors);
+        }
+    }
+
+    tsk_take_lock(&m_parallelFsJobsLock);
+    job->done = true;
+    tsk_release_lock(&m_parallelFsJobsLock);
+    queue->producerDone();
+}
+
+TSK_WALK_RET_ENUM
+TskAutoDb::parallelFsWalkCb(TSK_FS_FILE * fs_file, const char *path, void *ptr)
+{
+    PARALLEL_FS_WALK_CTX *ctx = (PARALLEL_FS_WALK_CTX *) ptr;
+    if (ctx->tskAutoDb->queueParallelFsFile((ParallelFsJob *) ctx->job,
+            (ParallelFsQueue *) ctx->queue, fs_file, path) == TSK_STOP) {
+        return TSK_WALK_STOP;
+    }
+    return TSK_WALK_CONT;
+}
+
+/**
+ * Queues a record for each default type attribute of a file, or one record
+ * without an attribute if there are none.  This is the walker side of
+ * processFile() and processAttribute(): the hashing is done here, the hash
+ * database lookups and inserts are done by addParallelFsRecord().
+ * @returns STOP if the walk should stop, OK otherwise
+ */
+TSK_RETVAL_ENUM
+TskAutoDb::queueParallelFsFile(ParallelFsJob * job, ParallelFsQueue * queue,
+    TSK_FS_FILE * fs_file, const char *path)
+{
+    if (m_stopped) {
+        return TSK_STOP;
+    }
+
+    bool attributeQueued = false;
+    int count = tsk_fs_file_attr_getsize(fs_file);
+    for (int i = 0; i < count; i++) {
+        const TSK_FS_ATTR *fs_attr = tsk_fs_file_attr_get_idx(fs_file, i);
+        if ((fs_attr == NULL) || (isDefaultType(fs_file, fs_attr) == 0)) {
+            continue;
+        }
+
+        ParallelFsRecord *rec = newParallelFsRecord(job, fs_file, fs_attr, path);
+        if (rec == NULL) {
+            recordParallelFsError(job->errors);
+            continue;
+        }
+
+        // calculate the MD5 hash if the attribute is a file
+        if (m_fileHashFlag && isFile(fs_file)) {
+            TSK_MD5_CTX md;
+            TSK_MD5_Init(&md);
+            if (tsk_fs_attr_walk(fs_attr, TSK_FS_FILE_WALK_FLAG_NONE,
+                    md5HashCallback, (void *) &md)) {
+                recordParallelFsError(job->errors);
+                delete rec;
+                continue;
+            }
+            TSK_MD5_Final(rec->md5, &md);
+            rec->hasMd5 = true;
+        }
+
+        // add the block map, if requested and the file is non-resident
+        if ((m_blkMapFlag) && (isNonResident(fs_attr))
+            && (isDotDir(fs_file) == 0)) {
+            int sequence = 0;
+            unsigned int block_size = fs_file->fs_info->block_size;
+            for (TSK_FS_ATTR_RUN *run = fs_attr->nrd.run; run != NULL; run = run->next) {
+                // ignore sparse blocks
+                if (run->flags & TSK_FS_ATTR_RUN_FLAG_SPARSE)
+                    continue;
+                rec->ranges.push_back(TSK_DB_FILE_LAYOUT_RANGE(run->addr * block_size,
+                    run->len * block_size, sequence++));
+            }
+        }
+
+        if (queue->push(rec) == false) {
+            delete rec;
+            return TSK_STOP;
+        }
+        tsk_take_lock(&m_parallelFsJobsLock);
+        job->filesFound++;
+        tsk_release_lock(&m_parallelFsJobsLock);
+        attributeQueued = true;
+    }
+
+    // queue a general row if we didn't queue a specific attribute one
+    if (attributeQueued == false) {
+        ParallelFsRecord *rec = newParallelFsRecord(job, fs_file, NULL, path);
+        if (rec == NULL) {
+            recordParallelFsError(job->errors);
+            return TSK_OK;
+        }
+        if (queue->push(rec) == false) {
+            delete rec;
+            return TSK_STOP;
+        }
+        tsk_take_lock(&m_parallelFsJobsLock);
+        job->filesFound++;
+        tsk_release_lock(&m_parallelFsJobsLock);
+    }
+
+    return TSK_OK;
+}
+
+/**
+ * Copies the parts of a walked file and attribute that the writer needs.
+ * @returns NULL on error
+ */
+TskAutoDb::ParallelFsRecord *
+TskAutoDb::newParallelFsRecord(ParallelFsJob * job, TSK_FS_FILE * fs_file,
+    const TSK_FS_ATTR * fs_attr, const char *path)
+{
+    ParallelFsRecord *rec = new ParallelFsRecord();
+    rec->job = job;
+    rec->path = path;
+
+    if ((rec->fs_file = tsk_fs_file_alloc(fs_file->fs_info)) == NULL) {
+        delete rec;
+        return NULL;
+    }
+
+    if (fs_file->name) {
+        if (((rec->fs_file->name = tsk_fs_name_alloc(
+                        fs_file->name->name ? strlen(fs_file->name->name) : 0,
+                        fs_file->name->shrt_name ? strlen(fs_file->name->shrt_name) : 0)) == NULL)
+            || tsk_fs_name_copy(rec->fs_file->name, fs_file->name)) {
+            delete rec;
+            return NULL;
+        }
+    }
+
+    if (fs_file->meta) {
+        if ((rec->fs_file->meta = tsk_fs_meta_alloc(0)) == NULL) {
+            delete rec;
+            return NULL;
+        }
+        TSK_FS_META *meta = rec->fs_file->meta;
+        meta->flags = fs_file->meta->flags;
+        meta->addr = fs_file->meta->addr;
+        meta->type = fs_file->meta->type;
+        meta->mode = fs_file->meta->mode;
+        meta->nlink = fs_file->meta->nlink;
+        meta->size = fs_file->meta->size;
+        meta->uid = fs_file->meta->uid;
+        meta->gid = fs_file->meta->gid;
+        meta->mtime = fs_file->meta->mtime;
+        meta->mtime_nano = fs_file->meta->mtime_nano;
+        meta->atime = fs_file->meta->atime;
+        meta->atime_nano = fs_file->meta->atime_nano;
+        meta->ctime = fs_file->meta->ctime;
+        meta->ctime_nano = fs_file->meta->ctime_nano;
+        meta->crtime = fs_file->meta->crtime;
+        meta->crtime_nano = fs_file->meta->crtime_nano;
+        meta->seq = fs_file->meta->seq;
+    }
+
+    if (fs_attr) {
+        rec->hasAttr = true;
+        rec->fs_attr.fs_file = rec->fs_file;
+        rec->fs_attr.flags = fs_attr->flags;
+        rec->fs_attr.type = fs_attr->type;
+        rec->fs_attr.id = fs_attr->id;
+        rec->fs_attr.size = fs_attr->size;
+        rec->fs_attr.nrd.allocsize = fs_attr->nrd.allocsize;
+        rec->fs_attr.nrd.initsize = fs_attr->nrd.initsize;
+        if (fs_attr->name) {
+            rec->attrName = fs_attr->name;
+            rec->fs_attr.name = &rec->attrName[0];
+            rec->fs_attr.name_size = rec->attrName.size() + 1;
+        }
+    }
+
+    return rec;
+}
+
+/**
+ * Writer side of queueParallelFsFile(): looks the hash up in the hash
+ * databases and adds the file and its block map to the database.  Errors
+ * are registered.
+ */
+void
+TskAutoDb::addParallelFsRecord(ParallelFsRecord * rec)
+{
+    TSK_FS_FILE *fs_file = rec->fs_file;
+
+    /* Update the current directory, as processFile() does, so that
+     * getCurDir() shows progress. */
+    if (isDir(fs_file)) {
+        m_curDirId = fs_file->name->meta_addr;
+        tsk_take_lock(&m_curDirPathLock);
+        m_curDirPath = rec->path + fs_file->name->name;
+        tsk_release_lock(&m_curDirPathLock);
+    }
+    else if ((fs_file->name) && (m_curDirId != (int64_t) fs_file->name->par_addr)) {
+        m_curDirId = fs_file->name->par_addr;
+        tsk_take_lock(&m_curDirPathLock);
+        m_curDirPath = rec->path;
+        tsk_release_lock(&m_curDirPathLock);
+    }
+
+    TSK_DB_FILES_KNOWN_ENUM file_known = TSK_DB_FILES_KNOWN_UNKNOWN;
+    if (rec->hasMd5) {
+        if (m_NSRLDb != NULL) {
+            int8_t retval = tsk_hdb_lookup_raw(m_NSRLDb, rec->md5, 16, TSK_HDB_FLAG_QUICK, NULL, NULL);
+            if (retval == -1) {
+                registerError();
+            } 
+            else if (retval) {
+                file_known = TSK_DB_FILES_KNOWN_KNOWN;
+            }
+        }
+
+        if (m_knownBadDb != NULL) {
+            int8_t retval = tsk_hdb_lookup_raw(m_knownBadDb, rec->md5, 16, TSK_HDB_FLAG_QUICK, NULL, NULL);
+            if (retval == -1) {
+                registerError();
+            } 
+            else if (retval) {
+                file_known = TSK_DB_FILES_KNOWN_KNOWN_BAD;
+            }
+        }
+    }
+
+    m_curFsId = rec->job->fsObjId;
+    if (insertFileData(fs_file, rec->hasAttr ? &rec->fs_attr : NULL, rec->path.c_str(),
+            rec->hasMd5 ? rec->md5 : NULL, file_known) == TSK_OK) {
+        uint64_t start = addImageClockUsec();
+        for (size_t i = 0; i < rec->ranges.size(); i++) {
+            if (m_db->addFileLayoutRange(m_curFileId, rec->ranges[i].byteStart,
+                    rec->ranges[i].byteLen, rec->ranges[i].sequence)) {
+                registerError();
+                break;
+            }
+        }
+        m_addImageTimings.insertUsec += addImageClockUsec() - start;
+        tsk_take_lock(&m_parallelFsJobsLock);
+        rec->job->filesAdded++;
+        tsk_release_lock(&m_parallelFsJobsLock);
+    }
+
+    // reset the file id
+    m_curFileId = 0;
+
+    streamingFileAdded();
+}
+
+#else
+
+void
+TskAutoDb::queueParallelFs(const TSK_FS_INFO * fs_info, TSK_FS_DIR_WALK_FLAG_ENUM walkFlags)
+{
+}
+
+void
+TskAutoDb::clearParallelFsJobs()
+{
+}
+
+std::vector<TskAutoDb::FS_PROGRESS>
+TskAutoDb::getFsProgress()
+{
+    return std::vector<FS_PROGRESS>();
+}
+
+uint8_t
+TskAutoDb::addParallelFsFilesToDb()
+{
+    return 0;
+}
+
+#endif
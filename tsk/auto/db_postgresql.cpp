@@ -212,6 +212,11 @@ int TskDbPostgreSQL::open(bool createDbFlag)
         }
     }
 
+    if (prepareFileStmts()) {
+        close();
+        return -1;
+    }
+
     return 0;
 }
 
@@ -222,6 +227,7 @@ int TskDbPostgreSQL::open(bool createDbFlag)
 int TskDbPostgreSQL::close()
 {
     if (conn) {
+        flushFileLayoutRanges();
         PQfinish(conn);
         conn = NULL;
     }
@@ -382,6 +388,81 @@ PGresult* TskDbPostgreSQL::get_query_result_set_binary(const char *sql, const ch
     return res;
 }
 
+/**
+* Execute a statement prepared by prepareFileStmts() with text parameters. Sets TSK error values on error.
+* IMPORTANT: result set needs to be freed by calling PQclear(res) when no longer needed.
+* @param paramValues Parameter values as text, NULL for SQL NULL
+* @param expectedStatus PGRES_COMMAND_OK for statements that return no data, PGRES_TUPLES_OK otherwise
+* @returns Result set on success, NULL on error
+*/
+PGresult* TskDbPostgreSQL::exec_prepared(const char *stmtName, int nParams, const char *const *paramValues,
+    ExecStatusType expectedStatus, const char *errfmt)
+{
+    if (!conn){
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_AUTO_DB);
+        tsk_error_set_errstr("Can't execute PostgreSQL prepared statement, not connected to database. Statement: %s", stmtName);
+        return NULL;
+    }
+
+    PGresult *res = PQexecPrepared(conn, stmtName, nParams, paramValues,
+                       NULL,    /* don't need param lengths since text */
+                       NULL,    /* default to all text params */
+                       0);      /* ask for text results */
+
+    if (!isQueryResultValid(res, stmtName)) {
+        return NULL;
+    }
+
+    if (PQresultStatus(res) != expectedStatus) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_AUTO_DB);
+        char * str = PQerrorMessage(conn);
+        tsk_error_set_errstr(errfmt, str);
+        PQclear(res);
+        return NULL;
+    }
+    return res;
+}
+
+/**
+* Prepare the statements used for every file that is added, so that the server
+* parses and plans them once per connection.
+* @returns 1 on error, 0 on success
+*/
+int TskDbPostgreSQL::prepareFileStmts()
+{
+    PGresult *res = PQprepare(conn, "insert_object",
+        "INSERT INTO tsk_objects (par_obj_id, type) VALUES ($1, $2) RETURNING obj_id", 2, NULL);
+    if (!isQueryResultValid(res, "insert_object")) {
+        return 1;
+    }
+    if (PQresultStatus(res) != PGRES_COMMAND_OK) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_AUTO_DB);
+        tsk_error_set_errstr("TskDbPostgreSQL::prepareFileStmts: Error preparing insert_object statement: %s", PQerrorMessage(conn));
+        PQclear(res);
+        return 1;
+    }
+    PQclear(res);
+
+    res = PQprepare(conn, "insert_file",
+        "INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path, extension) "
+        "VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10, $11, $12, $13, $14, $15, $16, $17, $18, $19, $20, $21, $22, $23, $24, $25)", 25, NULL);
+    if (!isQueryResultValid(res, "insert_file")) {
+        return 1;
+    }
+    if (PQresultStatus(res) != PGRES_COMMAND_OK) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_AUTO_DB);
+        tsk_error_set_errstr("TskDbPostgreSQL::prepareFileStmts: Error preparing insert_file statement: %s", PQerrorMessage(conn));
+        PQclear(res);
+        return 1;
+    }
+    PQclear(res);
+    return 0;
+}
+
 /* Verifies that result code matches expected result code. Sets TSK error values if result codes do not match. 		
 * @returns 0 if result codes match, 1 if they don't		
 */	
@@ -619,36 +700,63 @@ int TskDbPostgreSQL::initialize() {
         }
     }
 
-    if (createIndexes())
+    if (createIndexes(NULL, NULL))
         return 1;
 
     return 0;    
 }
 
 /**
-* Create indexes for the columns that are not primary keys and that we query on. 
+* Create indexes for the columns that are not primary keys and that we query on.
+* Indexes that already exist are skipped.  The indexes are built in one transaction,
+* each with one sorted pass over its table.
+* @param callback Called after each index is built, or NULL
+* @param ptr Passed to the callback
 * @returns 1 on error, 0 on success
 */
-int TskDbPostgreSQL::createIndexes() {
-	return
-		// tsk_objects index
-		attempt_exec("CREATE INDEX parObjId ON tsk_objects(par_obj_id);",
-			"Error creating tsk_objects index on par_obj_id: %s\n") ||
-		// file layout index
-		attempt_exec("CREATE INDEX layout_objID ON tsk_file_layout(obj_id);",
-			"Error creating layout_objID index on tsk_file_layout: %s\n") ||
-		// blackboard indexes
-		attempt_exec("CREATE INDEX artifact_objID ON blackboard_artifacts(obj_id);",
-			"Error creating artifact_objID index on blackboard_artifacts: %s\n") ||
-		attempt_exec("CREATE INDEX artifact_typeID ON blackboard_artifacts(artifact_type_id);",
-			"Error creating artifact_objID index on blackboard_artifacts: %s\n") ||
-		attempt_exec("CREATE INDEX attrsArtifactID ON blackboard_attributes(artifact_id);",
-			"Error creating artifact_id index on blackboard_attributes: %s\n") ||
-		//file type indexes
-		attempt_exec("CREATE INDEX mime_type ON tsk_files(dir_type,mime_type,type);", //mime type
-			"Error creating mime_type index on tsk_files: %s\n") ||
-		attempt_exec("CREATE INDEX file_extension ON tsk_files(extension);",  //file extenssion
-			"Error creating file_extension index on tsk_files: %s\n");
+int TskDbPostgreSQL::createIndexes(TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr) {
+    char sql[256];
+    char errfmt[128];
+
+    if (createSavepoint("CREATEINDEXES")) {
+        return 1;
+    }
+    for (int i = 0; i < s_indexCount; i++) {
+        // PostgreSQL stores unquoted names in lower case
+        snprintf(sql, 256, "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() AND indexname = lower('%s')", s_indexes[i].name);
+        PGresult *res = get_query_result_set(sql, "TskDbPostgreSQL::createIndexes: Error looking up index: %s\n");
+        if (res == NULL) {
+            revertSavepoint("CREATEINDEXES");
+            return 1;
+        }
+        bool exists = PQntuples(res) > 0;
+        PQclear(res);
+
+        if (!exists) {
+            snprintf(sql, 256, "CREATE INDEX %s ON %s;", s_indexes[i].name, s_indexes[i].definition);
+            snprintf(errfmt, 128, "Error creating %s index on %s: %%s\n", s_indexes[i].name, s_indexes[i].definition);
+            if (attempt_exec(sql, errfmt)) {
+                revertSavepoint("CREATEINDEXES");
+                return 1;
+            }
+        }
+        if (callback != NULL) {
+            callback(i + 1, s_indexCount, s_indexes[i].name, ptr);
+        }
+    }
+    return releaseSavepoint("CREATEINDEXES");
+}
+
+/**
+* Bulk loading is not supported: a PostgreSQL case database is shared by the
+* users of the case, whose queries need the indexes while an image is added.
+* @returns 1 (error)
+*/
+int TskDbPostgreSQL::dropIndexes() {
+    tsk_error_reset();
+    tsk_error_set_errno(TSK_ERR_AUTO_DB);
+    tsk_error_set_errstr("TskDbPostgreSQL::dropIndexes: Bulk load mode can't be used with a PostgreSQL case database");
+    return 1;
 }
 
 
@@ -657,23 +765,23 @@ int TskDbPostgreSQL::createIndexes() {
 */
 uint8_t TskDbPostgreSQL::addObject(TSK_DB_OBJECT_TYPE_ENUM type, int64_t parObjId, int64_t & objId)
 {
-    char stmt[1024];
+    char parObjIdStr[32];
+    char typeStr[16];
+    snprintf(parObjIdStr, 32, "%" PRId64, parObjId);
+    snprintf(typeStr, 16, "%d", type);
+    const char *params[2] = { parObjIdStr, typeStr };
     int expectedNumFileds = 1;
-    snprintf(stmt, 1024, "INSERT INTO tsk_objects (par_obj_id, type) VALUES (%" PRId64 ", %d) RETURNING obj_id", parObjId, type);
 
-    PGresult *res = get_query_result_set(stmt, "TskDbPostgreSQL::addObj: Error adding object to row: %s (result code %d)\n");
+    PGresult *res = exec_prepared("insert_object", 2, params, PGRES_TUPLES_OK, "TskDbPostgreSQL::addObj: Error adding object to row: %s\n");
 
     // check if a valid result set was returned
-    if (verifyNonEmptyResultSetSize(stmt, res, expectedNumFileds, "TskDbPostgreSQL::addObj: Unexpected number of columns in result set: Expected %d, Received %d\n")) {
+    if (verifyNonEmptyResultSetSize("insert_object", res, expectedNumFileds, "TskDbPostgreSQL::addObj: Unexpected number of columns in result set: Expected %d, Received %d\n")) {
         return TSK_ERR;
     }
 
     // Returned value is objId
     objId = atoll(PQgetvalue(res, 0, 0));
-
-    /* PostgreSQL returns binary results in network byte order, which need to be converted to the local byte order.
-    int64_t *pInt64 = (int64_t*)PQgetvalue(res, 0, 0);
-    objId = ntoh64(pInt64);*/
+    noteAddedObjId(objId);
 
     PQclear(res);
     return 0;
@@ -766,6 +874,7 @@ int TskDbPostgreSQL::addImageInfo(int type, TSK_OFF_T ssize, int64_t & objId, co
         return 1;
     }
     objId = atoll(PQgetvalue(res, 0, 0));
+    noteAddedObjId(objId);
 
     // Add the data source to the tsk_image_info table.
     char timeZone_local[MAX_DB_STRING_LENGTH];
@@ -925,16 +1034,8 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
     const unsigned char *const md5, const TSK_DB_FILES_KNOWN_ENUM known, int64_t fsObjId, int64_t parObjId, int64_t & objId, 
     int64_t dataSourceObjId)
 {
-    time_t mtime = 0;
-    time_t crtime = 0;
-    time_t ctime = 0;
-    time_t atime = 0;
     TSK_OFF_T size = 0;
     int meta_type = 0;
-    int meta_flags = 0;
-    int meta_mode = 0;
-    int gid = 0;
-    int uid = 0;
     int type = TSK_FS_ATTR_TYPE_NOT_FOUND;
     int idx = 0;
 
@@ -942,15 +1043,7 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         return 0;
 
     if (fs_file->meta) {
-        mtime = fs_file->meta->mtime;
-        atime = fs_file->meta->atime;
-        ctime = fs_file->meta->ctime;
-        crtime = fs_file->meta->crtime;
         meta_type = fs_file->meta->type;
-        meta_flags = fs_file->meta->flags;
-        meta_mode = fs_file->meta->mode;
-        gid = fs_file->meta->gid;
-        uid = fs_file->meta->uid;
     }
 
     size_t attr_nlen = 0;
@@ -1022,95 +1115,14 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
     tsk_cleanupUTF8(escaped_path, '^');
 	tsk_cleanupUTF8(extension, '^');
 
-    // escape strings for use within an SQL command
-    char *name_sql = PQescapeLiteral(conn, name, strlen(name));
-    char *escaped_path_sql = PQescapeLiteral(conn, escaped_path, strlen(escaped_path));
-	char *extension_sql = PQescapeLiteral(conn, extension, strlen(extension));
-    if (!isEscapedStringValid(name_sql, name, "TskDbPostgreSQL::addFile: Unable to escape file name string: %s\n") 
-        || !isEscapedStringValid(escaped_path_sql, escaped_path, "TskDbPostgreSQL::addFile: Unable to escape path string: %s\n")
-		|| !isEscapedStringValid(extension_sql, extension, "TskDbPostgreSQL::addFile: Unable to escape extension string: %s\n")
-		) {
-			free(name);
-            free(escaped_path);
-            PQfreemem(name_sql);
-            PQfreemem(escaped_path_sql);
-			PQfreemem(extension_sql);
-            return 1;
-    }
-
-    char zSQL_fixed[2048];
-    zSQL_fixed[2047] = '\0';
-    char *zSQL_dynamic = NULL; // Only used if the query does not fit in the fixed length buffer
-    char *zSQL = zSQL_fixed;
-    int bufLen = 2048;
-
-    // Check if the path may be too long. The rest of the query should take up far less than 500 bytes.
-    if (strlen(name_sql) + strlen(escaped_path_sql) + 500 > bufLen) {
-        // The query may be long to fit in the standard buffer, so create a larger one.
-        // This should be a very rare case and allows us to not use malloc most of the time.
-        // The same buffer will be used for the slack file entry.
-        bufLen = strlen(escaped_path_sql) + strlen(name_sql) + 500;
-        if ((zSQL_dynamic = (char *)tsk_malloc(bufLen)) == NULL) {
-			free(name);
-            free(escaped_path);
-            PQfreemem(escaped_path_sql);
-            PQfreemem(name_sql);
-			PQfreemem(extension_sql);
-            return 1;
-        }
-        zSQL_dynamic[bufLen - 1] = '\0';
-        zSQL = zSQL_dynamic;
-    }
-
-    if (0 > snprintf(zSQL, bufLen - 1, "INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path,extension) "
-        "VALUES ("
-        "%" PRId64 ",%" PRId64 ","
-        "%" PRId64 ","
-        "%d,"
-        "%d,%d,%s,"
-        "%" PRIuINUM ",%d,"
-        "%d,%d,%d,%d,"
-        "%" PRIuOFF ","
-        "%llu,%llu,%llu,%llu,"
-        "%d,%d,%d,%s,%d,"
-        "%s,%s)",
-        fsObjId, objId,
-        dataSourceObjId,
-        TSK_DB_FILES_TYPE_FS,
-        type, idx, name_sql,
-        fs_file->name->meta_addr, fs_file->name->meta_seq,
-        fs_file->name->type, meta_type, fs_file->name->flags, meta_flags,
-        size,
-        (unsigned long long)crtime, (unsigned long long)ctime, (unsigned long long) atime, (unsigned long long) mtime,
-        meta_mode, gid, uid, NULL, known,
-        escaped_path_sql, extension_sql)) {
-
-            tsk_error_reset();
-            tsk_error_set_errno(TSK_ERR_AUTO_DB);
-            tsk_error_set_errstr("Error inserting file with object ID for: %" PRId64 , objId);
-            if (zSQL_dynamic != NULL) {
-                free(zSQL_dynamic);
-            }
+    if (insertFileRow(fs_file, fsObjId, objId, dataSourceObjId, TSK_DB_FILES_TYPE_FS,
+        type, idx, name, fs_file->name->type, meta_type, size, NULL, known,
+        escaped_path, extension)) {
             free(name);
             free(escaped_path);
-            PQfreemem(name_sql);
-            PQfreemem(escaped_path_sql);
-			PQfreemem(extension_sql);
             return 1;
     }
 
-    if (attempt_exec(zSQL, "TskDbPostgreSQL::addFile: Error adding data to tsk_files table: %s\n")) {
-		free(name);
-        free(escaped_path);
-        PQfreemem(name_sql);
-        PQfreemem(escaped_path_sql);
-		PQfreemem(extension_sql);
-        if (zSQL_dynamic != NULL) {
-            free(zSQL_dynamic);
-        }
-        return 1;
-    }
-
     //if dir, update parent id cache (do this before objId may be changed creating the slack file)
     if (TSK_FS_IS_DIR_META(meta_type)){
         std::string fullPath = std::string(path) + fs_file->name->name;
@@ -1130,86 +1142,92 @@ int TskDbPostgreSQL::addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
            && (fs_attr->flags & TSK_FS_ATTR_NONRES) 
            && (fs_attr->nrd.allocsize >  fs_attr->nrd.initsize)){
 		strncat(name, "-slack", 6);
-		PQfreemem(name_sql);
-		name_sql = PQescapeLiteral(conn, name, strlen(name));
-		if (strlen(extension) > 0) { //if there was an extension, add "-slack" and escape it again.
+		if (strlen(extension) > 0) {
 			strncat(extension, "-slack", 6);
-			PQfreemem(extension_sql);
-			extension_sql = PQescapeLiteral(conn, extension, strlen(extension));
 		}
-  
-	
         TSK_OFF_T slackSize = fs_attr->nrd.allocsize - fs_attr->nrd.initsize;
 
         if (addObject(TSK_DB_OBJECT_TYPE_FILE, parObjId, objId)) {
 			free(name);
             free(escaped_path);
-			PQfreemem(name_sql);
-			PQfreemem(escaped_path_sql);
-			PQfreemem(extension_sql);
             return 1;
         }
 
-        if (0 > snprintf(zSQL, bufLen - 1, "INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path, extension) "
-            "VALUES ("
-            "%" PRId64 ",%" PRId64 ","
-            "%" PRId64 ","
-            "%d,"
-            "%d,%d,%s,"
-            "%" PRIuINUM ",%d,"
-            "%d,%d,%d,%d,"
-            "%" PRIuOFF ","
-            "%llu,%llu,%llu,%llu,"
-            "%d,%d,%d,%s,%d,"
-            "%s, %s)",
-            fsObjId, objId,
-            dataSourceObjId,
-            TSK_DB_FILES_TYPE_SLACK,
-            type, idx, name_sql,
-            fs_file->name->meta_addr, fs_file->name->meta_seq, 
-            TSK_FS_NAME_TYPE_REG, TSK_FS_META_TYPE_REG, fs_file->name->flags, meta_flags,
-            slackSize, 
-            (unsigned long long)crtime, (unsigned long long)ctime,(unsigned long long) atime,(unsigned long long) mtime, 
-            meta_mode, gid, uid, NULL, known,
-            escaped_path_sql,extension_sql)) {
-
-                tsk_error_reset();
-                tsk_error_set_errno(TSK_ERR_AUTO_DB);
-                tsk_error_set_errstr("Error inserting slack file with object ID for: %" PRId64, objId);
-				free(name);
+        // Run the same insert with the new name, size, and type
+        if (insertFileRow(fs_file, fsObjId, objId, dataSourceObjId, TSK_DB_FILES_TYPE_SLACK,
+            type, idx, name, TSK_FS_NAME_TYPE_REG, TSK_FS_META_TYPE_REG, slackSize, NULL, known,
+            escaped_path, extension)) {
+                free(name);
                 free(escaped_path);
-                PQfreemem(name_sql);
-                PQfreemem(escaped_path_sql);
-				PQfreemem(extension_sql);
-                if (zSQL_dynamic != NULL) {
-                    free(zSQL_dynamic);
-                }
                 return 1;
         }
-
-        if (attempt_exec(zSQL, "TskDbPostgreSQL::addFile: Error adding data to tsk_files table: %s\n")) {
-			free(name);
-            free(escaped_path);
-            PQfreemem(name_sql);
-            PQfreemem(escaped_path_sql);	
-			PQfreemem(extension_sql);
-            if (zSQL_dynamic != NULL) {
-                free(zSQL_dynamic);
-            }
-            return 1;
-        }
-
-    }
-    if (zSQL_dynamic != NULL) {
-        free(zSQL_dynamic);
     }
 
     // cleanup
     free(name);
     free(escaped_path);
-    PQfreemem(name_sql);
-    PQfreemem(escaped_path_sql);
-	PQfreemem(extension_sql);
+    return 0;
+}
+
+
+/**
+* Add a row to the tsk_files table with the prepared insert_file statement. The
+* values are sent as text parameters, so strings need no escaping.
+* The name, meta address and sequence, and directory entry flags are taken from
+* fs_file->name and the times, mode, ids and metadata flags from fs_file->meta,
+* if it has metadata.
+* @param md5Text MD5 as hexadecimal text, or NULL
+* @returns 1 on error, 0 on success
+*/
+int TskDbPostgreSQL::insertFileRow(const TSK_FS_FILE * fs_file, int64_t fsObjId, int64_t objId,
+    int64_t dataSourceObjId, TSK_DB_FILES_TYPE_ENUM dbFileType, int attrType, int attrId,
+    const char *name, int dirType, int metaType, TSK_OFF_T size, const char *md5Text,
+    TSK_DB_FILES_KNOWN_ENUM known, const char *parentPath, const char *extension)
+{
+    const TSK_FS_META *fs_meta = fs_file->meta;
+    char values[21][32];
+    const char *params[25];
+
+    snprintf(values[0], 32, "%" PRId64, fsObjId);
+    snprintf(values[1], 32, "%" PRId64, objId);
+    snprintf(values[2], 32, "%" PRId64, dataSourceObjId);
+    snprintf(values[3], 32, "%d", dbFileType);
+    snprintf(values[4], 32, "%d", attrType);
+    snprintf(values[5], 32, "%d", attrId);
+    snprintf(values[6], 32, "%" PRIuINUM, fs_file->name->meta_addr);
+    snprintf(values[7], 32, "%d", fs_file->name->meta_seq);
+    snprintf(values[8], 32, "%d", dirType);
+    snprintf(values[9], 32, "%d", metaType);
+    snprintf(values[10], 32, "%d", fs_file->name->flags);
+    snprintf(values[11], 32, "%d", fs_meta ? fs_meta->flags : 0);
+    snprintf(values[12], 32, "%" PRIdOFF, size);
+    snprintf(values[13], 32, "%llu", fs_meta ? (unsigned long long) fs_meta->crtime : 0ULL);
+    snprintf(values[14], 32, "%llu", fs_meta ? (unsigned long long) fs_meta->ctime : 0ULL);
+    snprintf(values[15], 32, "%llu", fs_meta ? (unsigned long long) fs_meta->atime : 0ULL);
+    snprintf(values[16], 32, "%llu", fs_meta ? (unsigned long long) fs_meta->mtime : 0ULL);
+    snprintf(values[17], 32, "%d", fs_meta ? (int) fs_meta->mode : 0);
+    snprintf(values[18], 32, "%d", fs_meta ? (int) fs_meta->gid : 0);
+    snprintf(values[19], 32, "%d", fs_meta ? (int) fs_meta->uid : 0);
+    snprintf(values[20], 32, "%d", known);
+
+    for (int i = 0; i < 6; i++) {
+        params[i] = values[i];
+    }
+    params[6] = name;
+    for (int i = 6; i < 20; i++) {
+        params[i + 1] = values[i];
+    }
+    params[21] = md5Text;
+    params[22] = values[20];
+    params[23] = parentPath;
+    params[24] = extension;
+
+    PGresult *res = exec_prepared("insert_file", 25, params, PGRES_COMMAND_OK,
+        "TskDbPostgreSQL::insertFileRow: Error adding data to tsk_files table: %s\n");
+    if (res == NULL) {
+        return 1;
+    }
+    PQclear(res);
     return 0;
 }
 
@@ -1236,18 +1254,9 @@ int64_t TskDbPostgreSQL::findParObjId(const TSK_FS_FILE * fs_file, const char *p
     }
 
     //get from cache by parent meta addr, if available
-    map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > &fsMap = m_parentDirIdCache[fsObjId];
-    if (fsMap.count(fs_file->name->par_addr) > 0) {
-        map<uint32_t, map<uint32_t, int64_t> > &fileMap = fsMap[fs_file->name->par_addr];
-        if (fileMap.count(seq) > 0) {
-            map<uint32_t, int64_t> &pathMap = fileMap[seq];
-            if (pathMap.count(path_hash) > 0) {
-                return pathMap[path_hash];
-            }
-        }
-        else {
-            // printf("Miss: %d\n", fileMap.count(seq));
-        }
+    int64_t cachedObjId = m_parentDirIdCache.find(fsObjId, fs_file->name->par_addr, seq, path_hash);
+    if (cachedObjId > 0) {
+        return cachedObjId;
     }
 
     // Need to break up 'path' in to the parent folder to match in 'parent_path' and the folder 
@@ -1321,6 +1330,9 @@ int64_t TskDbPostgreSQL::findParObjId(const TSK_FS_FILE * fs_file, const char *p
     PQclear(res);
     PQfreemem(escaped_path_sql);
     PQfreemem(escaped_parent_name_sql);
+
+    // cache it for the siblings of this file
+    m_parentDirIdCache.store(fsObjId, fs_file->name->par_addr, seq, path_hash, parObjId);
     return parObjId;
 }
 
@@ -1344,7 +1356,7 @@ uint32_t TskDbPostgreSQL::hash(const unsigned char *str) {
 }
 
 /**
-* Store info about a directory in a complex map structure as a cache for the
+* Store info about a directory in the parent directory cache for the
 * files who are a child of this directory and want to know its object id. 
 *
 * @param fsObjId fs id of this directory
@@ -1375,16 +1387,7 @@ void TskDbPostgreSQL::storeObjId(const int64_t & fsObjId, const TSK_FS_FILE *fs_
         seq = path_hash;
     }
     
-    map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > &fsMap = m_parentDirIdCache[fsObjId];
-    if (fsMap.count(fs_file->name->meta_addr) == 0) {
-        fsMap[fs_file->name->meta_addr][seq][path_hash] = objId;
-    }
-    else {
-        map<uint32_t, map<uint32_t, int64_t> > &fileMap = fsMap[fs_file->name->meta_addr];
-        if (fileMap.count(seq) == 0) {
-            fileMap[seq][path_hash] = objId;
-        }
-    }
+    m_parentDirIdCache.store(fsObjId, fs_file->name->meta_addr, seq, path_hash, objId);
 }
 
 
@@ -1837,9 +1840,70 @@ int TskDbPostgreSQL::addVolumeInfo(const TSK_VS_PART_INFO * vs_part,
 }
 
 
+/**
+* Deletes an image that was added and committed, in one transaction, with its
+* volume systems, volumes, file systems and files and every row that refers to
+* them: file layout ranges, local paths and derivation records of the files,
+* blackboard artifacts and their attributes, content and artifact tags, and the
+* ingest jobs of the image.  The rows are deleted explicitly, so that no orphans
+* are left whether or not foreign keys are enforced.
+* @param dataSourceObjId Object ID of the image
+* @returns 1 on error, 0 on success
+*/
+int TskDbPostgreSQL::deleteDataSource(int64_t dataSourceObjId)
+{
+    // The objects of the image are collected first: the image, its volume
+    // systems and file systems (object types 1 and 3), the volumes of its
+    // volume systems (2), the file systems in those volumes, its files and
+    // the artifacts of any of them.  The rows that refer to them are deleted
+    // before the objects themselves.
+    const char *deleteSql[] = {
+        "CREATE TEMP TABLE tsk_deleted_objects (obj_id BIGINT PRIMARY KEY)",
+        "INSERT INTO tsk_deleted_objects (obj_id) VALUES (%" PRId64 ")",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_objects WHERE par_obj_id = %" PRId64 " AND type IN (1, 3)",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_objects WHERE type = 2 AND par_obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_objects WHERE type = 3 AND par_obj_id IN (SELECT obj_id FROM tsk_objects WHERE type = 2 AND obj_id IN (SELECT obj_id FROM tsk_deleted_objects))",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_files WHERE data_source_obj_id = %" PRId64,
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT artifact_obj_id FROM blackboard_artifacts WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM blackboard_artifact_tags WHERE artifact_id IN (SELECT artifact_id FROM blackboard_artifacts WHERE artifact_obj_id IN (SELECT obj_id FROM tsk_deleted_objects))",
+        "DELETE FROM blackboard_attributes WHERE artifact_id IN (SELECT artifact_id FROM blackboard_artifacts WHERE artifact_obj_id IN (SELECT obj_id FROM tsk_deleted_objects))",
+        "DELETE FROM blackboard_artifacts WHERE artifact_obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM content_tags WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_file_layout WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_files_path WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_files_derived WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_files WHERE data_source_obj_id = %" PRId64,
+        "DELETE FROM tsk_fs_info WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_vs_parts WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_vs_info WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM ingest_job_modules WHERE ingest_job_id IN (SELECT ingest_job_id FROM ingest_jobs WHERE obj_id = %" PRId64 ")",
+        "DELETE FROM ingest_jobs WHERE obj_id = %" PRId64,
+        "DELETE FROM data_source_info WHERE obj_id = %" PRId64,
+        "DELETE FROM tsk_image_names WHERE obj_id = %" PRId64,
+        "DELETE FROM tsk_image_info WHERE obj_id = %" PRId64,
+        "DELETE FROM tsk_objects WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DROP TABLE tsk_deleted_objects",
+    };
+    char sql[1024];
+
+    if (createSavepoint("DELETEDATASOURCE")) {
+        return 1;
+    }
+    for (size_t i = 0; i < sizeof(deleteSql) / sizeof(deleteSql[0]); i++) {
+        snprintf(sql, 1024, deleteSql[i], dataSourceObjId);
+        if (attempt_exec(sql, "TskDbPostgreSQL::deleteDataSource: Error deleting data source: %s\n")) {
+            revertSavepoint("DELETEDATASOURCE");
+            return 1;
+        }
+    }
+    return releaseSavepoint("DELETEDATASOURCE");
+}
+
 /**
 * Add file layout info to the database.  This table stores the run information for each file so that we
-* can map which parts of an image are used by what files.
+* can map which parts of an image are used by what files.  The row is buffered and written with the
+* next TSK_DB_LAYOUT_RANGE_BATCH_SIZE - 1 rows in one statement; buffered rows are also written
+* before a savepoint is created, released or reverted, before getFileLayouts() and by close().
 * @param a_fileObjId ID of the file
 * @param a_byteStart Byte address relative to the start of the image file
 * @param a_byteLen Length of the run in bytes
@@ -1848,12 +1912,39 @@ int TskDbPostgreSQL::addVolumeInfo(const TSK_VS_PART_INFO * vs_part,
 */
 int TskDbPostgreSQL::addFileLayoutRange(int64_t a_fileObjId, uint64_t a_byteStart, uint64_t a_byteLen, int a_sequence)
 {
-    char foo[1024];
+    TSK_DB_FILE_LAYOUT_RANGE range(a_byteStart, a_byteLen, a_sequence);
+    range.fileObjId = a_fileObjId;
+    m_layoutRangeBatch.push_back(range);
 
-    snprintf(foo, 1024, "INSERT INTO tsk_file_layout(obj_id, byte_start, byte_len, sequence) VALUES (%lld, %llu, %llu, %d)",
-        a_fileObjId, a_byteStart, a_byteLen, a_sequence);
+    if (m_layoutRangeBatch.size() >= TSK_DB_LAYOUT_RANGE_BATCH_SIZE) {
+        return flushFileLayoutRanges();
+    }
+    return 0;
+}
+
+/**
+* Write the buffered file layout ranges to the tsk_file_layout table with one multi-row INSERT.
+* The buffer is emptied even on error.
+* @returns 1 on error, 0 on success
+*/
+int TskDbPostgreSQL::flushFileLayoutRanges()
+{
+    if (m_layoutRangeBatch.empty()) {
+        return 0;
+    }
 
-    return attempt_exec(foo, "Error adding data to tsk_file_layout table: %s\n");
+    stringstream sql;
+    sql << "INSERT INTO tsk_file_layout(obj_id, byte_start, byte_len, sequence) VALUES ";
+    for (size_t i = 0; i < m_layoutRangeBatch.size(); i++) {
+        const TSK_DB_FILE_LAYOUT_RANGE & range = m_layoutRangeBatch[i];
+        if (i > 0) {
+            sql << ", ";
+        }
+        sql << "(" << range.fileObjId << ", " << range.byteStart << ", " << range.byteLen << ", " << range.sequence << ")";
+    }
+    m_layoutRangeBatch.clear();
+
+    return attempt_exec(sql.str().c_str(), "Error adding data to tsk_file_layout table: %s\n");
 }
 
 /**
@@ -1964,6 +2055,10 @@ TSK_RETVAL_ENUM TskDbPostgreSQL::getFsRootDirObjectInfo(const int64_t fsObjId, T
 */
 TSK_RETVAL_ENUM TskDbPostgreSQL::getFileLayouts(vector<TSK_DB_FILE_LAYOUT_RANGE> & fileLayouts) {
     
+    if (flushFileLayoutRanges()) {
+        return TSK_ERR;
+    }
+
     char zSQL[512];
     int expectedNumFileds = 4;
     snprintf(zSQL, 512, "SELECT obj_id, byte_start, byte_len, sequence FROM tsk_file_layout");
@@ -2065,6 +2160,10 @@ int TskDbPostgreSQL::createSavepoint(const char *name)
     // in transaction and only call "BEGIN" if we are not in transaction. Alternatively we can keep
     // calling "BEGIN" every time we create a savepoint and simply ignore the error if there is one.
     // Also see note inside TskDbPostgreSQL::releaseSavepoint().
+    if (flushFileLayoutRanges()) {
+        return 1;
+    }
+
     snprintf(buff, 1024, "BEGIN;");
     if (attempt_exec(buff, "Error starting transaction: %s\n")) {
         return 1;
@@ -2084,6 +2183,10 @@ int TskDbPostgreSQL::revertSavepoint(const char *name)
 {
     char buff[1024];
 
+    // write the buffered layout ranges so that they are rolled back with
+    // the rest of the savepoint instead of being written after it
+    flushFileLayoutRanges();
+
     snprintf(buff, 1024, "ROLLBACK TO SAVEPOINT %s", name);
 
     if (attempt_exec(buff, "Error rolling back savepoint: %s\n"))
@@ -2101,6 +2204,10 @@ int TskDbPostgreSQL::releaseSavepoint(const char *name)
 {
     char buff[1024];
 
+    if (flushFileLayoutRanges()) {
+        return 1;
+    }
+
     snprintf(buff, 1024, "RELEASE SAVEPOINT %s", name);
 
     if (attempt_exec(buff, "Error releasing savepoint: %s\n")) {
@@ -36,6 +36,9 @@ TskDbSqlite::TskDbSqlite(const char *a_dbFilePathUtf8, bool a_blkMapFlag)
     m_db = NULL;
     m_selectFilePreparedStmt = NULL;
     m_insertObjectPreparedStmt = NULL;
+    m_insertFilePreparedStmt = NULL;
+    m_insertLayoutPreparedStmt = NULL;
+    m_insertLayoutBatchPreparedStmt = NULL;
 }
 
 #ifdef TSK_WIN32
@@ -49,6 +52,9 @@ TskDbSqlite::TskDbSqlite(const TSK_TCHAR * a_dbFilePath, bool a_blkMapFlag)
     m_db = NULL;
     m_selectFilePreparedStmt = NULL;
     m_insertObjectPreparedStmt = NULL;
+    m_insertFilePreparedStmt = NULL;
+    m_insertLayoutPreparedStmt = NULL;
+    m_insertLayoutBatchPreparedStmt = NULL;
 }
 #endif
 
@@ -66,6 +72,7 @@ int
 {
 
     if (m_db) {
+        flushFileLayoutRanges();
         cleanupFilePreparedStmt();
         sqlite3_close(m_db);
         m_db = NULL;
@@ -172,6 +179,7 @@ uint8_t
     }
 
     objId = sqlite3_last_insert_rowid(m_db);
+    noteAddedObjId(objId);
 
     if (attempt(sqlite3_reset(m_insertObjectPreparedStmt),
         "TskDbSqlite::addObj: Error resetting 'insert object' statement: %s\n")) {
@@ -371,36 +379,59 @@ int
         }
     }
 
-    if (createIndexes())
+    if (createIndexes(NULL, NULL))
         return 1;
 
     return 0;
 }
 
 /**
-* Create indexes for the columns that are not primary keys and that we query on. 
+* Create indexes for the columns that are not primary keys and that we query on.
+* Indexes that already exist are skipped.  The indexes are built in one transaction,
+* each with one sorted pass over its table.
+* @param callback Called after each index is built, or NULL
+* @param ptr Passed to the callback
 * @returns 1 on error, 0 on success
 */
-int TskDbSqlite::createIndexes() {
-	return
-		// tsk_objects index
-		attempt_exec("CREATE INDEX parObjId ON tsk_objects(par_obj_id);",
-			"Error creating tsk_objects index on par_obj_id: %s\n") ||
-		// file layout index
-		attempt_exec("CREATE INDEX layout_objID ON tsk_file_layout(obj_id);",
-			"Error creating layout_objID index on tsk_file_layout: %s\n") ||
-		// blackboard indexes
-		attempt_exec("CREATE INDEX artifact_objID ON blackboard_artifacts(obj_id);",
-			"Error creating artifact_objID index on blackboard_artifacts: %s\n") ||
-		attempt_exec("CREATE INDEX artifact_typeID ON blackboard_artifacts(artifact_type_id);",
-			"Error creating artifact_objID index on blackboard_artifacts: %s\n") ||
-		attempt_exec("CREATE INDEX attrsArtifactID ON blackboard_attributes(artifact_id);",
-			"Error creating artifact_id index on blackboard_attributes: %s\n") ||
-		//file type indexes
-		attempt_exec("CREATE INDEX mime_type ON tsk_files(dir_type,mime_type,type);", //mime type
-			"Error creating mime_type index on tsk_files: %s\n") ||
-		attempt_exec("CREATE INDEX file_extension ON tsk_files(extension);",  //file extenssion
-			"Error creating file_extension index on tsk_files: %s\n");
+int TskDbSqlite::createIndexes(TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr) {
+    char sql[256];
+    char errfmt[128];
+
+    if (createSavepoint("CREATEINDEXES")) {
+        return 1;
+    }
+    for (int i = 0; i < s_indexCount; i++) {
+        snprintf(sql, 256, "CREATE INDEX IF NOT EXISTS %s ON %s;", s_indexes[i].name, s_indexes[i].definition);
+        snprintf(errfmt, 128, "Error creating %s index on %s: %%s\n", s_indexes[i].name, s_indexes[i].definition);
+        if (attempt_exec(sql, errfmt)) {
+            revertSavepoint("CREATEINDEXES");
+            return 1;
+        }
+        if (callback != NULL) {
+            callback(i + 1, s_indexCount, s_indexes[i].name, ptr);
+        }
+    }
+    return releaseSavepoint("CREATEINDEXES");
+}
+
+/**
+* Drop the indexes created by createIndexes() on the tables that adding an
+* image loads, so that rows can be bulk loaded without maintaining them.
+* @returns 1 on error, 0 on success
+*/
+int TskDbSqlite::dropIndexes() {
+    char sql[256];
+
+    for (int i = 0; i < s_indexCount; i++) {
+        if (!s_indexes[i].bulkLoaded) {
+            continue;
+        }
+        snprintf(sql, 256, "DROP INDEX IF EXISTS %s;", s_indexes[i].name);
+        if (attempt_exec(sql, "TskDbSqlite::dropIndexes: Error dropping index: %s\n")) {
+            return 1;
+        }
+    }
+    return 0;
 }
 
 
@@ -431,6 +462,10 @@ int
     // enable finer result codes
     sqlite3_extended_result_codes(m_db, true);
 
+    // wait for other connections to release their locks instead of failing
+    // with SQLITE_BUSY.  Streaming add image commits while the case is read.
+    sqlite3_busy_timeout(m_db, TSK_SQLITE_BUSY_TIMEOUT_MS);
+
     // create the tables if we need to
     if (a_toInit) {
         if (initialize())
@@ -460,6 +495,26 @@ int
         &m_insertObjectPreparedStmt)) {
             return 1;
     }
+    if (prepare_stmt
+        ("INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path, extension) "
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+        &m_insertFilePreparedStmt)) {
+            return 1;
+    }
+    if (prepare_stmt
+        ("INSERT INTO tsk_file_layout(obj_id, byte_start, byte_len, sequence) VALUES (?, ?, ?, ?)",
+        &m_insertLayoutPreparedStmt)) {
+            return 1;
+    }
+
+    // one statement with a row of parameters for every buffered layout range
+    std::string batchSql = "INSERT INTO tsk_file_layout(obj_id, byte_start, byte_len, sequence) VALUES (?, ?, ?, ?)";
+    for (int i = 1; i < TSK_DB_LAYOUT_RANGE_BATCH_SIZE; i++) {
+        batchSql += ", (?, ?, ?, ?)";
+    }
+    if (prepare_stmt(batchSql.c_str(), &m_insertLayoutBatchPreparedStmt)) {
+        return 1;
+    }
 
     return 0;
 }
@@ -479,6 +534,18 @@ void
         sqlite3_finalize(m_insertObjectPreparedStmt);
         m_insertObjectPreparedStmt = NULL;
     }
+    if (m_insertFilePreparedStmt != NULL) {
+        sqlite3_finalize(m_insertFilePreparedStmt);
+        m_insertFilePreparedStmt = NULL;
+    }
+    if (m_insertLayoutPreparedStmt != NULL) {
+        sqlite3_finalize(m_insertLayoutPreparedStmt);
+        m_insertLayoutPreparedStmt = NULL;
+    }
+    if (m_insertLayoutBatchPreparedStmt != NULL) {
+        sqlite3_finalize(m_insertLayoutBatchPreparedStmt);
+        m_insertLayoutBatchPreparedStmt = NULL;
+    }
 }
 
 /**
@@ -524,6 +591,7 @@ int TskDbSqlite::addImageInfo(int type, TSK_OFF_T ssize, int64_t & objId, const
         return 1;
     }
     objId = sqlite3_last_insert_rowid(m_db);
+    noteAddedObjId(objId);
 
     // Add the data source to the tsk_image_info table.
     char *sql;
@@ -726,7 +794,7 @@ uint32_t TskDbSqlite::hash(const unsigned char *str) {
 }
 
 /**
-* Store info about a directory in a complex map structure as a cache for the
+* Store info about a directory in the parent directory cache for the
 * files who are a child of this directory and want to know its object id. 
 *
 * @param fsObjId fs id of this directory
@@ -757,16 +825,7 @@ void TskDbSqlite::storeObjId(const int64_t & fsObjId, const TSK_FS_FILE *fs_file
         seq = path_hash;
     }
 
-    map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > &fsMap = m_parentDirIdCache[fsObjId];
-    if (fsMap.count(fs_file->name->meta_addr) == 0) {
-        fsMap[fs_file->name->meta_addr][seq][path_hash] = objId;
-    }
-    else {
-        map<uint32_t, map<uint32_t, int64_t> > &fileMap = fsMap[fs_file->name->meta_addr];
-        if (fileMap.count(seq) == 0) {
-            fileMap[seq][path_hash] = objId;
-        }
-    }
+    m_parentDirIdCache.store(fsObjId, fs_file->name->meta_addr, seq, path_hash, objId);
 }
 
 /**
@@ -791,23 +850,11 @@ int64_t TskDbSqlite::findParObjId(const TSK_FS_FILE * fs_file, const char *paren
     }
 
     //get from cache by parent meta addr, if available
-    map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > &fsMap = m_parentDirIdCache[fsObjId];
-    if (fsMap.count(fs_file->name->par_addr) > 0) {
-        map<uint32_t, map<uint32_t, int64_t> > &fileMap = fsMap[fs_file->name->par_addr];
-        if (fileMap.count(seq) > 0) {
-            map<uint32_t, int64_t> &pathMap = fileMap[seq];
-            if (pathMap.count(path_hash) > 0) {
-                return pathMap[path_hash];
-            }
-        }
-        else {
-            // printf("Miss: %zu\n", fileMap.count(seq));
-        }
+    int64_t cachedObjId = m_parentDirIdCache.find(fsObjId, fs_file->name->par_addr, seq, path_hash);
+    if (cachedObjId > 0) {
+        return cachedObjId;
     }
 
-    // fprintf(stderr, "Miss: %s (%" PRIu64  " - %" PRIu64 ")\n", fs_file->name->name, fs_file->name->meta_addr,
-    //                fs_file->name->par_addr);
-    
     // Need to break up 'path' in to the parent folder to match in 'parent_path' and the folder 
     // name to match with the 'name' column in tsk_files table
     char *parent_name = "";
@@ -841,9 +888,109 @@ int64_t TskDbSqlite::findParObjId(const TSK_FS_FILE * fs_file, const char *paren
             return -1;
     }
 
+    // cache it for the siblings of this file
+    m_parentDirIdCache.store(fsObjId, fs_file->name->par_addr, seq, path_hash, parObjId);
     return parObjId;
 }
 
+/**
+* Bind an unsigned 64-bit value the way SQLite stores it when it is written as
+* a decimal literal: as an integer, or as a real if it is too large for one.
+* This keeps the values of tsk_files columns that used to be formatted with
+* %llu, such as times before 1970, the same as before they were bound.
+* @returns SQLite result code
+*/
+static int bindUnsignedInt64(sqlite3_stmt *stmt, int idx, uint64_t value)
+{
+    if (value > (uint64_t) INT64_MAX) {
+        return sqlite3_bind_double(stmt, idx, (double) value);
+    }
+    return sqlite3_bind_int64(stmt, idx, (int64_t) value);
+}
+
+/**
+* Add a row to the tsk_files table with the cached 'insert file' statement.
+* The name, meta address and sequence, and directory entry flags are taken from
+* fs_file->name and the times, mode, ids and metadata flags from fs_file->meta,
+* if it has metadata.
+* @param md5Text MD5 as hexadecimal text, or NULL
+* @returns 1 on error, 0 on success
+*/
+int
+    TskDbSqlite::insertFileRow(const TSK_FS_FILE * fs_file, int64_t fsObjId, int64_t objId,
+    int64_t dataSourceObjId, TSK_DB_FILES_TYPE_ENUM dbFileType, int attrType, int attrId,
+    const char *name, int dirType, int metaType, TSK_OFF_T size, const char *md5Text,
+    TSK_DB_FILES_KNOWN_ENUM known, const char *parentPath, const char *extension)
+{
+    const TSK_FS_META *fs_meta = fs_file->meta;
+    sqlite3_stmt *stmt = m_insertFilePreparedStmt;
+
+    if (attempt(sqlite3_bind_int64(stmt, 1, fsObjId),
+            "TskDbSqlite::insertFileRow: Error binding fs_obj_id to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int64(stmt, 2, objId),
+            "TskDbSqlite::insertFileRow: Error binding obj_id to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int64(stmt, 3, dataSourceObjId),
+            "TskDbSqlite::insertFileRow: Error binding data_source_obj_id to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 4, dbFileType),
+            "TskDbSqlite::insertFileRow: Error binding type to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 5, attrType),
+            "TskDbSqlite::insertFileRow: Error binding attr_type to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 6, attrId),
+            "TskDbSqlite::insertFileRow: Error binding attr_id to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_text(stmt, 7, name, -1, SQLITE_STATIC),
+            "TskDbSqlite::insertFileRow: Error binding name to statement: %s (result code %d)\n")
+        || attempt(bindUnsignedInt64(stmt, 8, fs_file->name->meta_addr),
+            "TskDbSqlite::insertFileRow: Error binding meta_addr to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 9, fs_file->name->meta_seq),
+            "TskDbSqlite::insertFileRow: Error binding meta_seq to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 10, dirType),
+            "TskDbSqlite::insertFileRow: Error binding dir_type to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 11, metaType),
+            "TskDbSqlite::insertFileRow: Error binding meta_type to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 12, fs_file->name->flags),
+            "TskDbSqlite::insertFileRow: Error binding dir_flags to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 13, fs_meta ? fs_meta->flags : 0),
+            "TskDbSqlite::insertFileRow: Error binding meta_flags to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int64(stmt, 14, size),
+            "TskDbSqlite::insertFileRow: Error binding size to statement: %s (result code %d)\n")
+        || attempt(bindUnsignedInt64(stmt, 15, fs_meta ? (uint64_t) fs_meta->crtime : 0),
+            "TskDbSqlite::insertFileRow: Error binding crtime to statement: %s (result code %d)\n")
+        || attempt(bindUnsignedInt64(stmt, 16, fs_meta ? (uint64_t) fs_meta->ctime : 0),
+            "TskDbSqlite::insertFileRow: Error binding ctime to statement: %s (result code %d)\n")
+        || attempt(bindUnsignedInt64(stmt, 17, fs_meta ? (uint64_t) fs_meta->atime : 0),
+            "TskDbSqlite::insertFileRow: Error binding atime to statement: %s (result code %d)\n")
+        || attempt(bindUnsignedInt64(stmt, 18, fs_meta ? (uint64_t) fs_meta->mtime : 0),
+            "TskDbSqlite::insertFileRow: Error binding mtime to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 19, fs_meta ? (int) fs_meta->mode : 0),
+            "TskDbSqlite::insertFileRow: Error binding mode to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 20, fs_meta ? (int) fs_meta->gid : 0),
+            "TskDbSqlite::insertFileRow: Error binding gid to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 21, fs_meta ? (int) fs_meta->uid : 0),
+            "TskDbSqlite::insertFileRow: Error binding uid to statement: %s (result code %d)\n")
+        || attempt(md5Text ? sqlite3_bind_text(stmt, 22, md5Text, -1, SQLITE_STATIC) : sqlite3_bind_null(stmt, 22),
+            "TskDbSqlite::insertFileRow: Error binding md5 to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_int(stmt, 23, known),
+            "TskDbSqlite::insertFileRow: Error binding known to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_text(stmt, 24, parentPath, -1, SQLITE_STATIC),
+            "TskDbSqlite::insertFileRow: Error binding parent_path to statement: %s (result code %d)\n")
+        || attempt(sqlite3_bind_text(stmt, 25, extension, -1, SQLITE_STATIC),
+            "TskDbSqlite::insertFileRow: Error binding extension to statement: %s (result code %d)\n")
+        || attempt(sqlite3_step(stmt), SQLITE_DONE,
+            "TskDbSqlite::insertFileRow: Error adding data to tsk_files table: %s (result code %d)\n"))
+    {
+        // Statement may be used again, even after error
+        sqlite3_reset(stmt);
+        return 1;
+    }
+
+    if (attempt(sqlite3_reset(stmt),
+        "TskDbSqlite::insertFileRow: Error resetting 'insert file' statement: %s\n")) {
+            return 1;
+    }
+
+    return 0;
+}
+
 /**
 * Add file data to the file table
 * @param md5 binary value of MD5 (i.e. 16 bytes) or NULL
@@ -859,33 +1006,16 @@ int
 {
 
 
-	time_t        mtime = 0;
-	time_t        crtime = 0;
-	time_t        ctime = 0;
-	time_t        atime = 0;
 	TSK_OFF_T size = 0;
 	int        meta_type = 0;
-	int        meta_flags = 0;
-	int        meta_mode = 0;
-	int        gid = 0;
-	int        uid = 0;
 	int        type = TSK_FS_ATTR_TYPE_NOT_FOUND;
 	int        idx = 0;
-	char *zSQL;
 
 	if (fs_file->name == NULL)
 		return 0;
 
 	if (fs_file->meta) {
-		mtime = fs_file->meta->mtime;
-		atime = fs_file->meta->atime;
-		ctime = fs_file->meta->ctime;
-		crtime = fs_file->meta->crtime;
 		meta_type = fs_file->meta->type;
-		meta_flags = fs_file->meta->flags;
-		meta_mode = fs_file->meta->mode;
-		gid = fs_file->meta->gid;
-		uid = fs_file->meta->uid;
 	}
 
 	size_t attr_nlen = 0;
@@ -952,34 +1082,11 @@ int
 		return 1;
 	}
 
-	zSQL = sqlite3_mprintf(
-		"INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path, extension) "
-		"VALUES ("
-		"%" PRId64 ",%" PRId64 ","
-		"%" PRId64 ","
-		"%d,"
-		"%d,%d,'%q',"
-		"%" PRIuINUM ",%d,"
-		"%d,%d,%d,%d,"
-		"%" PRIuOFF ","
-		"%llu,%llu,%llu,%llu,"
-		"%d,%d,%d,%Q,%d,"
-		"'%q','%q')",
-		fsObjId, objId,
-		dataSourceObjId,
-		TSK_DB_FILES_TYPE_FS,
-		type, idx, name,
-		fs_file->name->meta_addr, fs_file->name->meta_seq,
-		fs_file->name->type, meta_type, fs_file->name->flags, meta_flags,
-		size,
-		(unsigned long long)crtime, (unsigned long long)ctime, (unsigned long long) atime, (unsigned long long) mtime,
-		meta_mode, gid, uid, md5TextPtr, known,
-		escaped_path, extension);
-
-	if (attempt_exec(zSQL, "TskDbSqlite::addFile: Error adding data to tsk_files table: %s\n")) {
+	if (insertFileRow(fs_file, fsObjId, objId, dataSourceObjId, TSK_DB_FILES_TYPE_FS,
+		type, idx, name, fs_file->name->type, meta_type, size, md5TextPtr, known,
+		escaped_path, extension)) {
 		free(name);
 		free(escaped_path);
-		sqlite3_free(zSQL);
 		return 1;
 	}
 
@@ -1014,40 +1121,15 @@ int
 		}
 
 		// Run the same insert with the new name, size, and type
-		zSQL = sqlite3_mprintf(
-			"INSERT INTO tsk_files (fs_obj_id, obj_id, data_source_obj_id, type, attr_type, attr_id, name, meta_addr, meta_seq, dir_type, meta_type, dir_flags, meta_flags, size, crtime, ctime, atime, mtime, mode, gid, uid, md5, known, parent_path,extension) "
-			"VALUES ("
-			"%" PRId64 ",%" PRId64 ","
-			"%" PRId64 ","
-			"%d,"
-			"%d,%d,'%q',"
-			"%" PRIuINUM ",%d,"
-			"%d,%d,%d,%d,"
-			"%" PRIuOFF ","
-			"%llu,%llu,%llu,%llu,"
-			"%d,%d,%d,%Q,%d,"
-			"'%q','%q')",
-			fsObjId, objId,
-			dataSourceObjId,
-			TSK_DB_FILES_TYPE_SLACK,
-			type, idx, name,
-			fs_file->name->meta_addr, fs_file->name->meta_seq,
-			TSK_FS_NAME_TYPE_REG, TSK_FS_META_TYPE_REG, fs_file->name->flags, meta_flags,
-			slackSize,
-        (unsigned long long)crtime, (unsigned long long)ctime,(unsigned long long) atime,(unsigned long long) mtime, 
-			meta_mode, gid, uid, md5TextPtr, known,
-			escaped_path,extension);
-
-		if (attempt_exec(zSQL, "TskDbSqlite::addFile: Error adding data to tsk_files table: %s\n")) {
+		if (insertFileRow(fs_file, fsObjId, objId, dataSourceObjId, TSK_DB_FILES_TYPE_SLACK,
+			type, idx, name, TSK_FS_NAME_TYPE_REG, TSK_FS_META_TYPE_REG, slackSize, md5TextPtr, known,
+			escaped_path, extension)) {
 			free(name);
 			free(escaped_path);
-			sqlite3_free(zSQL);
 			return 1;
 		}
 	}
 
-	sqlite3_free(zSQL);
-
 	free(name);
 	free(escaped_path);
 
@@ -1068,6 +1150,10 @@ int
     char
         buff[1024];
 
+    if (flushFileLayoutRanges()) {
+        return 1;
+    }
+
     snprintf(buff, 1024, "SAVEPOINT %s", name);
 
     return attempt_exec(buff, "Error setting savepoint: %s\n");
@@ -1084,6 +1170,10 @@ int
     char
         buff[1024];
 
+    // write the buffered layout ranges so that they are rolled back with
+    // the rest of the savepoint instead of being written after it
+    flushFileLayoutRanges();
+
     snprintf(buff, 1024, "ROLLBACK TO SAVEPOINT %s", name);
 
     if (attempt_exec(buff, "Error rolling back savepoint: %s\n"))
@@ -1103,6 +1193,10 @@ int
     char
         buff[1024];
 
+    if (flushFileLayoutRanges()) {
+        return 1;
+    }
+
     snprintf(buff, 1024, "RELEASE SAVEPOINT %s", name);
 
     return attempt_exec(buff, "Error releasing savepoint: %s\n");
@@ -1110,9 +1204,71 @@ int
 
 
 
+/**
+* Deletes an image that was added and committed, in one transaction, with its
+* volume systems, volumes, file systems and files and every row that refers to
+* them: file layout ranges, local paths and derivation records of the files,
+* blackboard artifacts and their attributes, content and artifact tags, and the
+* ingest jobs of the image.  The rows are deleted explicitly, so that no orphans
+* are left whether or not foreign keys are enforced.
+* @param dataSourceObjId Object ID of the image
+* @returns 1 on error, 0 on success
+*/
+int
+    TskDbSqlite::deleteDataSource(int64_t dataSourceObjId)
+{
+    // The objects of the image are collected first: the image, its volume
+    // systems and file systems (object types 1 and 3), the volumes of its
+    // volume systems (2), the file systems in those volumes, its files and
+    // the artifacts of any of them.  The rows that refer to them are deleted
+    // before the objects themselves.
+    const char *deleteSql[] = {
+        "CREATE TEMP TABLE tsk_deleted_objects (obj_id BIGINT PRIMARY KEY)",
+        "INSERT INTO tsk_deleted_objects (obj_id) VALUES (%" PRId64 ")",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_objects WHERE par_obj_id = %" PRId64 " AND type IN (1, 3)",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_objects WHERE type = 2 AND par_obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_objects WHERE type = 3 AND par_obj_id IN (SELECT obj_id FROM tsk_objects WHERE type = 2 AND obj_id IN (SELECT obj_id FROM tsk_deleted_objects))",
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT obj_id FROM tsk_files WHERE data_source_obj_id = %" PRId64,
+        "INSERT INTO tsk_deleted_objects (obj_id) SELECT artifact_obj_id FROM blackboard_artifacts WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM blackboard_artifact_tags WHERE artifact_id IN (SELECT artifact_id FROM blackboard_artifacts WHERE artifact_obj_id IN (SELECT obj_id FROM tsk_deleted_objects))",
+        "DELETE FROM blackboard_attributes WHERE artifact_id IN (SELECT artifact_id FROM blackboard_artifacts WHERE artifact_obj_id IN (SELECT obj_id FROM tsk_deleted_objects))",
+        "DELETE FROM blackboard_artifacts WHERE artifact_obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM content_tags WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_file_layout WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_files_path WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_files_derived WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_files WHERE data_source_obj_id = %" PRId64,
+        "DELETE FROM tsk_fs_info WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_vs_parts WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM tsk_vs_info WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DELETE FROM ingest_job_modules WHERE ingest_job_id IN (SELECT ingest_job_id FROM ingest_jobs WHERE obj_id = %" PRId64 ")",
+        "DELETE FROM ingest_jobs WHERE obj_id = %" PRId64,
+        "DELETE FROM data_source_info WHERE obj_id = %" PRId64,
+        "DELETE FROM tsk_image_names WHERE obj_id = %" PRId64,
+        "DELETE FROM tsk_image_info WHERE obj_id = %" PRId64,
+        "DELETE FROM tsk_objects WHERE obj_id IN (SELECT obj_id FROM tsk_deleted_objects)",
+        "DROP TABLE tsk_deleted_objects",
+    };
+    char sql[1024];
+
+    if (createSavepoint("DELETEDATASOURCE")) {
+        return 1;
+    }
+    for (size_t i = 0; i < sizeof(deleteSql) / sizeof(deleteSql[0]); i++) {
+        snprintf(sql, 1024, deleteSql[i], dataSourceObjId);
+        if (attempt_exec(sql, "TskDbSqlite::deleteDataSource: Error deleting data source: %s\n")) {
+            revertSavepoint("DELETEDATASOURCE");
+            return 1;
+        }
+    }
+    return releaseSavepoint("DELETEDATASOURCE");
+}
+
 /**
 * Add file layout info to the database.  This table stores the run information for each file so that we
-* can map which parts of an image are used by what files.
+* can map which parts of an image are used by what files.  The row is buffered and written with the
+* next TSK_DB_LAYOUT_RANGE_BATCH_SIZE - 1 rows in one statement; buffered rows are also written
+* before a savepoint is created, released or reverted, before getFileLayouts() and by close().
 * @param a_fileObjId ID of the file
 * @param a_byteStart Byte address relative to the start of the image file
 * @param a_byteLen Length of the run in bytes
@@ -1123,15 +1279,66 @@ int
     TskDbSqlite::addFileLayoutRange(int64_t a_fileObjId,
     uint64_t a_byteStart, uint64_t a_byteLen, int a_sequence)
 {
-    char
-        foo[1024];
+    TSK_DB_FILE_LAYOUT_RANGE range(a_byteStart, a_byteLen, a_sequence);
+    range.fileObjId = a_fileObjId;
+    m_layoutRangeBatch.push_back(range);
 
-    snprintf(foo, 1024,
-        "INSERT INTO tsk_file_layout(obj_id, byte_start, byte_len, sequence) VALUES (%lld, %llu, %llu, %d)",
-        a_fileObjId, a_byteStart, a_byteLen, a_sequence);
+    if (m_layoutRangeBatch.size() >= TSK_DB_LAYOUT_RANGE_BATCH_SIZE) {
+        return flushFileLayoutRanges();
+    }
+    return 0;
+}
+
+/**
+* Write the buffered file layout ranges to the tsk_file_layout table.  Full batches
+* use the multi-row 'insert layout' statement and the remaining rows the single-row one.
+* The buffer is emptied even on error.
+* @returns 1 on error, 0 on success
+*/
+int
+    TskDbSqlite::flushFileLayoutRanges()
+{
+    if (m_layoutRangeBatch.empty()) {
+        return 0;
+    }
 
-    return attempt_exec(foo,
-        "Error adding data to tsk_file_layout table: %s\n");
+    int ret = 0;
+    size_t i = 0;
+    while (i < m_layoutRangeBatch.size() && ret == 0) {
+        size_t rows = m_layoutRangeBatch.size() - i;
+        sqlite3_stmt *stmt = m_insertLayoutPreparedStmt;
+        if (rows >= TSK_DB_LAYOUT_RANGE_BATCH_SIZE) {
+            rows = TSK_DB_LAYOUT_RANGE_BATCH_SIZE;
+            stmt = m_insertLayoutBatchPreparedStmt;
+        }
+        else {
+            rows = 1;
+        }
+
+        for (size_t r = 0; r < rows && ret == 0; r++) {
+            const TSK_DB_FILE_LAYOUT_RANGE & range = m_layoutRangeBatch[i + r];
+            int col = (int) r * 4;
+            ret = attempt(sqlite3_bind_int64(stmt, col + 1, range.fileObjId),
+                    "TskDbSqlite::flushFileLayoutRanges: Error binding obj_id to statement: %s (result code %d)\n")
+                || attempt(sqlite3_bind_int64(stmt, col + 2, (int64_t) range.byteStart),
+                    "TskDbSqlite::flushFileLayoutRanges: Error binding byte_start to statement: %s (result code %d)\n")
+                || attempt(sqlite3_bind_int64(stmt, col + 3, (int64_t) range.byteLen),
+                    "TskDbSqlite::flushFileLayoutRanges: Error binding byte_len to statement: %s (result code %d)\n")
+                || attempt(sqlite3_bind_int(stmt, col + 4, range.sequence),
+                    "TskDbSqlite::flushFileLayoutRanges: Error binding sequence to statement: %s (result code %d)\n");
+        }
+
+        if (ret == 0) {
+            ret = attempt(sqlite3_step(stmt), SQLITE_DONE,
+                "Error adding data to tsk_file_layout table: %s (result code %d)\n");
+        }
+        // Statement may be used again, even after error
+        sqlite3_reset(stmt);
+        i += rows;
+    }
+
+    m_layoutRangeBatch.clear();
+    return ret;
 }
 
 /**
@@ -1469,6 +1676,10 @@ TSK_RETVAL_ENUM TskDbSqlite::addFileWithLayoutRange(const TSK_DB_FILES_TYPE_ENUM
 */
 TSK_RETVAL_ENUM TskDbSqlite::getFileLayouts(vector<TSK_DB_FILE_LAYOUT_RANGE> & fileLayouts) {
     sqlite3_stmt * fileLayoutsStatement = NULL;
+    if (flushFileLayoutRanges()) {
+        return TSK_ERR;
+    }
+
     if (prepare_stmt("SELECT obj_id, byte_start, byte_len, sequence FROM tsk_file_layout", 
         &fileLayoutsStatement) ) {
             return TSK_ERR;
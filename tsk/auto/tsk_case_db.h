@@ -26,6 +26,8 @@ using std::string;
 #include "tsk/hashdb/tsk_hashdb.h"
 
 #define TSK_ADD_IMAGE_SAVEPOINT "ADDIMAGE"
+#define TSK_PARALLEL_FS_QUEUE_SIZE 10000  ///< Number of files the file system walkers can queue ahead of the database writer
+#define TSK_PARALLEL_FS_BATCH_SIZE 500    ///< Number of queued files the database writer takes at a time
 
 /** \internal
  * C++ class that implements TskAuto to load file metadata into a database. 
@@ -105,6 +107,110 @@ class TskAutoDb:public TskAuto {
     */
     virtual void setAddUnallocSpace(int64_t minChunkSize, int64_t maxChunkSize);
 
+    /**
+     * When enabled, each file system in the image is walked on its own thread
+     * with its own TSK_FS_INFO. The walkers hash the files and queue them, and
+     * the thread that called startAddImage() adds the queued files to the
+     * database. Has no effect if the library was built without thread support
+     * or if an image writer is in use. Default value is false.
+     * @param parallel True to walk the file systems in parallel
+     * @param maxThreads Maximum number of walker threads, 0 for one per file system
+     */
+    void setParallelFileSystems(bool parallel, unsigned int maxThreads);
+
+    /**
+     * Progress of one file system that is walked in parallel.
+     */
+    typedef struct {
+        int64_t fsObjId;        ///< Object ID of the file system
+        TSK_OFF_T offset;       ///< Byte offset of the file system in the image
+        uint64_t filesFound;    ///< Number of files queued by the walker
+        uint64_t filesAdded;    ///< Number of queued files added to the database
+        bool done;              ///< True once the walker has finished the file system
+    } FS_PROGRESS;
+
+    /**
+     * Returns the progress of the file systems of the current image that are
+     * walked in parallel. Safe to use from another thread than startAddImage().
+     * @returns One entry per file system, empty if file systems are not walked in parallel
+     */
+    std::vector<FS_PROGRESS> getFsProgress();
+
+    /**
+     * Returns the hit and miss counts of the parent directory cache of the
+     * database since addFilesInImgToDb() started.  Safe to use from another
+     * thread than startAddImage(), in which case the counts are approximate.
+     */
+    TSK_DB_PARENT_DIR_CACHE_STATS getParentDirCacheStats();
+
+    /**
+     * Time spent by addFilesInImgToDb() on the current image.  The time spent
+     * walking the file systems is totalUsec - insertUsec - unallocUsec.  When
+     * file systems are walked in parallel the walkers run while files are
+     * inserted, so this is the time the database writer was not inserting.
+     */
+    typedef struct {
+        uint64_t totalUsec;     ///< Time spent in addFilesInImgToDb(), so far if it is still running
+        uint64_t insertUsec;    ///< Part of totalUsec spent adding file system files and their layout ranges to the database
+        uint64_t unallocUsec;   ///< Part of totalUsec spent adding the unallocated space files
+        uint64_t filesInserted; ///< Number of file system files added, one per attribute
+    } ADD_IMAGE_TIMINGS;
+
+    /**
+     * Returns the time spent by addFilesInImgToDb() on the current image.  Safe
+     * to use from another thread than startAddImage(), in which case the times
+     * are approximate.
+     */
+    ADD_IMAGE_TIMINGS getAddImageTimings();
+
+    /**
+     * Called by streaming add image each time it commits a chunk of the image,
+     * with the lowest and highest object IDs added in the chunk.  With a
+     * PostgreSQL database the range can include objects added by other
+     * connections while the chunk was open.
+     */
+    typedef void (*STREAMING_CHUNK_CALLBACK) (int64_t firstObjId, int64_t lastObjId, void *ptr);
+
+    /**
+     * Makes startAddImage() commit the image in chunks of files as they are
+     * walked, instead of holding everything in one transaction until
+     * commitAddImage(), so that the files can be analyzed while the rest of the
+     * image is added.  revertAddImage() still removes the whole image: it rolls
+     * back the open chunk and deletes the committed ones.  Can't be combined
+     * with setBulkLoad(), startAddImage() fails if both are set.
+     * @param filesPerChunk Number of files per chunk, 0 to add the image in one transaction (the default)
+     * @param callback Called after each chunk is committed, including the last one by commitAddImage(), or NULL
+     * @param ptr Passed to the callback
+     */
+    void setStreamingChunks(uint64_t filesPerChunk, STREAMING_CHUNK_CALLBACK callback, void *ptr);
+
+    /**
+     * Returns the pointer passed to setStreamingChunks(), NULL if it was not called.
+     */
+    void *getStreamingChunkCallbackPtr();
+
+    /**
+     * Makes startAddImage() drop the secondary indexes of the case database
+     * on tsk_objects, tsk_file_layout and tsk_files before it adds the image,
+     * and commitAddImage() or revertAddImage() build them again, each in one
+     * pass over its table, instead of updating them for every row.  This is
+     * faster when the image is large compared to what is already in the case,
+     * but queries of other connections that need the indexes are slow until
+     * they are built again.  If the process ends before they are built, the
+     * next startAddImage() builds them.  Can't be combined with
+     * setStreamingChunks() or used with a PostgreSQL case database, whose
+     * indexes other users of the case need; startAddImage() fails if it is.
+     * @param bulkLoad Set to true to drop the indexes while the image is added
+     * @param callback Called after each index is built again, or NULL
+     * @param ptr Passed to the callback
+     */
+    void setBulkLoad(bool bulkLoad, TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr);
+
+    /**
+     * Returns the pointer passed to setBulkLoad(), NULL if it was not called.
+     */
+    void *getBulkLoadCallbackPtr();
+
     uint8_t addFilesInImgToDb();
 
     /**
@@ -148,6 +254,28 @@ class TskAutoDb:public TskAuto {
     int64_t m_maxChunkSize; ///< Max number of unalloc bytes to process before writing to the database, even if there is no natural break. -1 for no chunking
     bool m_foundStructure;  ///< Set to true when we find either a volume or file system
     bool m_attributeAdded; ///< Set to true when an attribute was added by processAttributes
+    TSK_DB_PARENT_DIR_CACHE_STATS m_parentDirCacheBaseline; ///< Parent directory cache counts when addFilesInImgToDb() started
+    ADD_IMAGE_TIMINGS m_addImageTimings; ///< Times of addFilesInImgToDb(), totalUsec is set when it returns
+    uint64_t m_addImageStartUsec; ///< Clock value when addFilesInImgToDb() started
+    bool m_addingFiles;     ///< True while addFilesInImgToDb() is running
+    uint64_t m_streamingChunkFiles; ///< Number of files per streaming chunk, 0 if the image is added in one transaction
+    STREAMING_CHUNK_CALLBACK m_streamingChunkCallback;
+    void *m_streamingChunkCallbackPtr;
+    uint64_t m_streamingFilesInChunk; ///< Number of files added to the open streaming chunk
+    bool m_streamingChunkCommitted; ///< Set to true once a chunk of the current image has been committed
+    bool m_bulkLoad;        ///< Set to true to drop the secondary indexes while the image is added
+    TSK_DB_INDEX_PROGRESS_CALLBACK m_bulkLoadCallback;
+    void *m_bulkLoadCallbackPtr;
+    bool m_indexesDropped;  ///< Set to true while the secondary indexes are dropped
+    bool m_parallelFs;      ///< Set to true to walk the file systems in parallel
+    unsigned int m_parallelFsMaxThreads; ///< Maximum number of file system walker threads, 0 for one per file system
+
+    struct ParallelFsJob;
+    struct ParallelFsRecord;
+    class ParallelFsQueue;
+    struct ParallelFsWalk;
+    std::vector<ParallelFsJob *> m_parallelFsJobs; ///< File systems found by filterFs() that are waiting to be walked in parallel
+    tsk_lock_t m_parallelFsJobsLock; ///< protects concurrent access to m_parallelFsJobs
 
     // prevent copying until we add proper logic to handle it
     TskAutoDb(const TskAutoDb&);
@@ -181,6 +309,12 @@ class TskAutoDb:public TskAuto {
         TSK_OFF_T offset, TSK_DADDR_T addr, char *buf, size_t size,
         TSK_FS_BLOCK_FLAG_ENUM a_flags, void *ptr);
     int md5HashAttr(unsigned char md5Hash[16], const TSK_FS_ATTR * fs_attr);
+    uint8_t prepareIndexes();
+    int rebuildIndexes();
+    void resetStreamingChunks();
+    void streamingFileAdded();
+    uint8_t commitStreamingChunk();
+    void notifyStreamingChunk(int64_t firstObjId, int64_t lastObjId);
 
     static TSK_WALK_RET_ENUM fsWalkUnallocBlocksCb(const TSK_FS_BLOCK *a_block, void *a_ptr);
     TSK_RETVAL_ENUM addFsInfoUnalloc(const TSK_DB_FS_INFO & dbFsInfo);
@@ -189,6 +323,20 @@ class TskAutoDb:public TskAuto {
     TSK_RETVAL_ENUM addUnallocImageSpaceToDb();
     TSK_RETVAL_ENUM addUnallocSpaceToDb();
 
+    void queueParallelFs(const TSK_FS_INFO * fs_info, TSK_FS_DIR_WALK_FLAG_ENUM walkFlags);
+    void clearParallelFsJobs();
+    uint8_t addParallelFsFilesToDb();
+#ifdef TSK_WIN32
+    static unsigned __stdcall parallelFsWalkerThread(void *ptr);
+#else
+    static void *parallelFsWalkerThread(void *ptr);
+#endif
+    void runParallelFsWalker(ParallelFsWalk * walk);
+    void walkParallelFs(ParallelFsJob * job, ParallelFsQueue * queue);
+    static TSK_WALK_RET_ENUM parallelFsWalkCb(TSK_FS_FILE * fs_file, const char *path, void *ptr);
+    TSK_RETVAL_ENUM queueParallelFsFile(ParallelFsJob * job, ParallelFsQueue * queue, TSK_FS_FILE * fs_file, const char *path);
+    ParallelFsRecord * newParallelFsRecord(ParallelFsJob * job, TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr, const char *path);
+    void addParallelFsRecord(ParallelFsRecord * rec);
 };
 
 
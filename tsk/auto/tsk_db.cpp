@@ -15,20 +15,42 @@
 
 #include "tsk_db.h"
 
+#include <algorithm>
+
+// SleuthkitCase.BULK_LOAD_INDEXES in the Java bindings lists the bulk loaded
+// indexes too, to build them when a case is opened.
+const TSK_DB_INDEX TskDb::s_indexes[] = {
+    // tsk_objects index
+    { "parObjId", "tsk_objects(par_obj_id)", true },
+    // file layout index
+    { "layout_objID", "tsk_file_layout(obj_id)", true },
+    // blackboard indexes
+    { "artifact_objID", "blackboard_artifacts(obj_id)", false },
+    { "artifact_typeID", "blackboard_artifacts(artifact_type_id)", false },
+    { "attrsArtifactID", "blackboard_attributes(artifact_id)", false },
+    //file type indexes
+    { "mime_type", "tsk_files(dir_type,mime_type,type)", true },
+    { "file_extension", "tsk_files(extension)", true },
+    //hash lookup index
+    { "file_md5", "tsk_files(md5,size)", true },
+};
+
+const int TskDb::s_indexCount = sizeof(TskDb::s_indexes) / sizeof(TskDb::s_indexes[0]);
+
 /**
 * Set the locations and logging object.  Must call
 * open() before the object can be used.
 */
 TskDb::TskDb(const char *a_dbFilePathUtf8, bool a_blkMapFlag)
 {
-
+    resetAddedObjIdRange();
 }
 
 #ifdef TSK_WIN32
 //@@@@
 TskDb::TskDb(const TSK_TCHAR * a_dbFilePath, bool a_blkMapFlag)
 {
-
+    resetAddedObjIdRange();
 }
 #endif
 
@@ -110,3 +132,142 @@ bool TskDb::getParentPathAndName(const char *path, char **ret_parent_path, char
     } 
     return 0;
 }
+
+#define TSK_PARENT_DIR_CACHE_MIN_SLOTS 1024
+
+/**
+* @param maxSlots Maximum number of slots, rounded down to a power of two.
+* The cache holds up to three quarters of that many directories.
+*/
+TskDbParentDirCache::TskDbParentDirCache(size_t maxSlots)
+{
+    m_maxSlots = TSK_PARENT_DIR_CACHE_MIN_SLOTS;
+    while (m_maxSlots * 2 <= maxSlots) {
+        m_maxSlots *= 2;
+    }
+    m_mask = 0;
+    m_count = 0;
+    m_hits = 0;
+    m_misses = 0;
+    m_resets = 0;
+}
+
+/**
+* Mixes the parts of a key into a slot hash (splitmix64 finalizer).
+*/
+uint64_t TskDbParentDirCache::hashKey(int64_t fsObjId, TSK_INUM_T metaAddr, uint32_t seq, uint32_t pathHash)
+{
+    uint64_t h = (uint64_t) fsObjId;
+    h ^= (uint64_t) metaAddr * 0x9E3779B97F4A7C15ULL;
+    h ^= (((uint64_t) seq << 32) | pathHash) * 0xC2B2AE3D27D4EB4FULL;
+    h ^= h >> 30;
+    h *= 0xBF58476D1CE4E5B9ULL;
+    h ^= h >> 27;
+    h *= 0x94D049BB133111EBULL;
+    h ^= h >> 31;
+    return h;
+}
+
+/**
+* Rehashes the cache into the given number of slots, a power of two.
+*/
+void TskDbParentDirCache::resize(size_t numSlots)
+{
+    vector<ENTRY> oldSlots;
+    oldSlots.swap(m_slots);
+
+    ENTRY empty;
+    memset(&empty, 0, sizeof(empty));
+    m_slots.assign(numSlots, empty);
+    m_mask = numSlots - 1;
+    m_count = 0;
+
+    for (size_t i = 0; i < oldSlots.size(); i++) {
+        const ENTRY &entry = oldSlots[i];
+        if (entry.objId != 0) {
+            store(entry.fsObjId, entry.metaAddr, entry.seq, entry.pathHash, entry.objId);
+        }
+    }
+}
+
+/**
+* Store the object id of a directory.  An existing entry for the same
+* directory is kept.  Grows the table when it is three quarters full and
+* empties it when it is at its maximum size.
+*/
+void TskDbParentDirCache::store(int64_t fsObjId, TSK_INUM_T metaAddr, uint32_t seq, uint32_t pathHash, int64_t objId)
+{
+    if (m_count + 1 > (m_slots.size() / 4) * 3) {
+        if (m_slots.size() < m_maxSlots) {
+            resize(m_slots.empty() ? TSK_PARENT_DIR_CACHE_MIN_SLOTS : m_slots.size() * 2);
+        }
+        else {
+            clear();
+            m_resets++;
+        }
+    }
+
+    size_t i = (size_t) hashKey(fsObjId, metaAddr, seq, pathHash) & m_mask;
+    while (m_slots[i].objId != 0) {
+        const ENTRY &entry = m_slots[i];
+        if ((entry.metaAddr == metaAddr) && (entry.fsObjId == fsObjId)
+            && (entry.seq == seq) && (entry.pathHash == pathHash)) {
+            return;
+        }
+        i = (i + 1) & m_mask;
+    }
+
+    ENTRY &entry = m_slots[i];
+    entry.fsObjId = fsObjId;
+    entry.metaAddr = metaAddr;
+    entry.seq = seq;
+    entry.pathHash = pathHash;
+    entry.objId = objId;
+    m_count++;
+}
+
+/**
+* Look up the object id of a directory.
+* @returns the object id, or 0 if the directory is not cached
+*/
+int64_t TskDbParentDirCache::find(int64_t fsObjId, TSK_INUM_T metaAddr, uint32_t seq, uint32_t pathHash)
+{
+    if (m_count > 0) {
+        size_t i = (size_t) hashKey(fsObjId, metaAddr, seq, pathHash) & m_mask;
+        while (m_slots[i].objId != 0) {
+            const ENTRY &entry = m_slots[i];
+            if ((entry.metaAddr == metaAddr) && (entry.fsObjId == fsObjId)
+                && (entry.seq == seq) && (entry.pathHash == pathHash)) {
+                m_hits++;
+                return entry.objId;
+            }
+            i = (i + 1) & m_mask;
+        }
+    }
+    m_misses++;
+    return 0;
+}
+
+/**
+* Remove all entries.  The slots stay allocated.
+*/
+void TskDbParentDirCache::clear()
+{
+    if (m_count > 0) {
+        ENTRY empty;
+        memset(&empty, 0, sizeof(empty));
+        std::fill(m_slots.begin(), m_slots.end(), empty);
+        m_count = 0;
+    }
+}
+
+TSK_DB_PARENT_DIR_CACHE_STATS TskDbParentDirCache::getStats() const
+{
+    TSK_DB_PARENT_DIR_CACHE_STATS stats;
+    stats.hits = m_hits;
+    stats.misses = m_misses;
+    stats.entries = m_count;
+    stats.capacity = m_slots.size();
+    stats.resets = m_resets;
+    return stats;
+}
@@ -29,7 +29,8 @@ using std::vector;
 using std::string;
 
 #define TSK_SCHEMA_VER 7
-#define TSK_SCHEMA_MINOR_VER 2
+#define TSK_SCHEMA_MINOR_VER 3
+#define TSK_DB_LAYOUT_RANGE_BATCH_SIZE 100  ///< Number of tsk_file_layout rows that are buffered and written with one multi-row INSERT
 /**
  * Values for the type column in the tsk_objects table. 
  */
@@ -147,6 +148,78 @@ typedef struct _TSK_DB_VS_PART_INFO {
 
 ostream& operator <<(ostream &os,const TSK_DB_VS_PART_INFO &vsPartInfos);
 
+/**
+* Hit and miss counts of the cache that maps directories to their object ids
+* while files are added to the database.  A miss is a lookup that had to
+* fall back to querying the database.
+*/
+typedef struct _TSK_DB_PARENT_DIR_CACHE_STATS {
+    uint64_t hits;
+    uint64_t misses;
+    uint64_t entries;   ///< Number of directories currently cached
+    uint64_t capacity;  ///< Number of slots currently allocated
+    uint64_t resets;    ///< Number of times the cache was emptied because it reached its maximum size
+} TSK_DB_PARENT_DIR_CACHE_STATS;
+
+#define TSK_PARENT_DIR_CACHE_MAX_SLOTS (1 << 21)  ///< Maximum number of slots (32 bytes each) of a TskDbParentDirCache
+
+/** \internal
+* Open-addressing hash table that maps a directory, identified by its file
+* system object id, metadata address, sequence and path hash, to its object
+* id in the database.  It replaces a four level std::map, which cost hundreds
+* of bytes and several pointer chases per directory.  The table grows up to
+* a maximum number of slots; when that is full it is emptied and refilled,
+* and lookups of directories that were dropped fall back to SQL.
+*/
+class TskDbParentDirCache {
+  public:
+    TskDbParentDirCache(size_t maxSlots = TSK_PARENT_DIR_CACHE_MAX_SLOTS);
+
+    void store(int64_t fsObjId, TSK_INUM_T metaAddr, uint32_t seq, uint32_t pathHash, int64_t objId);
+    int64_t find(int64_t fsObjId, TSK_INUM_T metaAddr, uint32_t seq, uint32_t pathHash);
+    void clear();
+    TSK_DB_PARENT_DIR_CACHE_STATS getStats() const;
+
+  private:
+    typedef struct {
+        int64_t fsObjId;
+        TSK_INUM_T metaAddr;
+        uint32_t seq;
+        uint32_t pathHash;
+        int64_t objId;      ///< 0 if the slot is empty
+    } ENTRY;
+
+    static uint64_t hashKey(int64_t fsObjId, TSK_INUM_T metaAddr, uint32_t seq, uint32_t pathHash);
+    void resize(size_t numSlots);
+
+    vector<ENTRY> m_slots;
+    size_t m_mask;
+    size_t m_count;
+    size_t m_maxSlots;
+    uint64_t m_hits;
+    uint64_t m_misses;
+    uint64_t m_resets;
+};
+
+/**
+ * A secondary index of the case database, one that is not needed for the
+ * primary keys or constraints.
+ */
+typedef struct {
+    const char *name;       ///< name of the index
+    const char *definition; ///< table and columns, e.g. "tsk_objects(par_obj_id)"
+    bool bulkLoaded;        ///< true if the index is on a table that adding an image loads, so it is dropped by dropIndexes()
+} TSK_DB_INDEX;
+
+/**
+ * Called after each index is built by TskDb::createIndexes().
+ * @param indexesBuilt Number of indexes built so far
+ * @param indexCount Number of indexes to build
+ * @param indexName Name of the index that was built
+ * @param ptr Pointer passed to createIndexes()
+ */
+typedef void (*TSK_DB_INDEX_PROGRESS_CALLBACK) (int indexesBuilt, int indexCount, const char *indexName, void *ptr);
+
 /** \internal
  * C++ class that serves as interface to direct database handling classes. 
  */
@@ -198,8 +271,58 @@ class TskDb {
     virtual bool inTransaction() = 0;
     virtual bool dbExists() = 0;
 
+    /**
+    * Deletes an image that was added and committed, with its volume systems,
+    * volumes, file systems and files, and the rows that other code added for
+    * them, e.g. blackboard artifacts, attributes and tags of its files.
+    * @param dataSourceObjId Object ID of the image
+    * @returns 1 on error, 0 on success
+    */
+    virtual int deleteDataSource(int64_t dataSourceObjId) = 0;
+
+    /**
+    * Drops the secondary indexes on the tables that adding an image loads
+    * (tsk_objects, tsk_file_layout and tsk_files), so that rows can be bulk
+    * loaded without maintaining them.  createIndexes() must be called
+    * afterwards.  Fails for a database that other clients share.
+    * @returns 1 on error, 0 on success
+    */
+    virtual int dropIndexes() = 0;
+
+    /**
+    * Creates the secondary indexes that don't exist, each in one pass over
+    * its table.
+    * @param callback Called after each index is built, or NULL
+    * @param ptr Passed to the callback
+    * @returns 1 on error, 0 on success
+    */
+    virtual int createIndexes(TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr) = 0;
+
     virtual bool getParentPathAndName(const char *path, char **ret_parent_path, char **ret_name);
 
+    /**
+    * Returns the hit and miss counts of the cache of directory object ids
+    * used while adding files.
+    */
+    TSK_DB_PARENT_DIR_CACHE_STATS getParentDirCacheStats() const {
+        return m_parentDirIdCache.getStats();
+    }
+
+    /**
+    * Returns the lowest and highest object IDs added through this object
+    * since the last call to resetAddedObjIdRange().  Both are 0 if no object
+    * was added.
+    */
+    void getAddedObjIdRange(int64_t & firstObjId, int64_t & lastObjId) const {
+        firstObjId = m_firstAddedObjId;
+        lastObjId = m_lastAddedObjId;
+    }
+
+    void resetAddedObjIdRange() {
+        m_firstAddedObjId = 0;
+        m_lastAddedObjId = 0;
+    }
+
     //query methods / getters
     virtual TSK_RETVAL_ENUM getFileLayouts(vector<TSK_DB_FILE_LAYOUT_RANGE> & fileLayouts) = 0;
     virtual TSK_RETVAL_ENUM getFsInfos(int64_t imgId, vector<TSK_DB_FS_INFO> & fsInfos) = 0;
@@ -211,6 +334,21 @@ class TskDb {
     virtual TSK_RETVAL_ENUM getFsRootDirObjectInfo(const int64_t fsObjId, TSK_DB_OBJECT & rootDirObjInfo) = 0;
 
   protected:
+    static const TSK_DB_INDEX s_indexes[]; ///< the secondary indexes of the case database
+    static const int s_indexCount;
+    TskDbParentDirCache m_parentDirIdCache; ///< maps a directory (fs object id, meta address, sequence, hash of path) to its object ID in the database
+    int64_t m_firstAddedObjId; ///< lowest object ID added since resetAddedObjIdRange(), 0 if none
+    int64_t m_lastAddedObjId;  ///< highest object ID added since resetAddedObjIdRange(), 0 if none
+
+    /**
+    * Records an object ID added to tsk_objects in the range returned by getAddedObjIdRange().
+    */
+    void noteAddedObjId(int64_t objId) {
+        if ((m_firstAddedObjId == 0) || (objId < m_firstAddedObjId))
+            m_firstAddedObjId = objId;
+        if (objId > m_lastAddedObjId)
+            m_lastAddedObjId = objId;
+    }
 	
 	  /**
 	  Extract the extension from the given file name and store it in the supplied string.
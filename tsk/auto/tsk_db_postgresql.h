@@ -78,6 +78,9 @@ class TskDbPostgreSQL : public TskDb {
     int revertSavepoint(const char *name);
     int releaseSavepoint(const char *name);
     bool inTransaction();
+    int deleteDataSource(int64_t dataSourceObjId);
+    int dropIndexes();
+    int createIndexes(TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr);
     bool dbExists();
 
     //query methods / getters
@@ -99,6 +102,7 @@ class TskDbPostgreSQL : public TskDb {
     char password[MAX_CONN_INFO_FIELD_LENGTH];
     char hostNameOrIpAddr[MAX_CONN_INFO_FIELD_LENGTH];
     char hostPort[16];
+    vector<TSK_DB_FILE_LAYOUT_RANGE> m_layoutRangeBatch; ///< tsk_file_layout rows that have not been written yet
     TSK_RETVAL_ENUM verifyConnectionInfoStringLengths(size_t userNameStrLen, size_t pwdStrLen, size_t hostNameStrLen, size_t portStrLen);
 
     PGconn* connectToDatabase(TSK_TCHAR *dbName);
@@ -110,9 +114,16 @@ class TskDbPostgreSQL : public TskDb {
     int verifyResultSetSize(const char *sql, PGresult *res, int expectedNumFileds, const char *errfmt);
     PGresult* get_query_result_set(const char *sql, const char *errfmt);
     PGresult* get_query_result_set_binary(const char *sql, const char *errfmt);
+    PGresult* exec_prepared(const char *stmtName, int nParams, const char *const *paramValues,
+        ExecStatusType expectedStatus, const char *errfmt);
+    int prepareFileStmts();
+    int insertFileRow(const TSK_FS_FILE * fs_file, int64_t fsObjId, int64_t objId,
+        int64_t dataSourceObjId, TSK_DB_FILES_TYPE_ENUM dbFileType, int attrType, int attrId,
+        const char *name, int dirType, int metaType, TSK_OFF_T size, const char *md5Text,
+        TSK_DB_FILES_KNOWN_ENUM known, const char *parentPath, const char *extension);
+    int flushFileLayoutRanges();
     bool isQueryResultValid(PGresult *res, const char *sql);
     int isEscapedStringValid(const char *sql_str, const char *orig_str, const char *errfmt);
-    int createIndexes();
 
     void removeNonUtf8(char* newStr, int newStrMaxSize, const char* origStr);
 
@@ -123,7 +134,6 @@ class TskDbPostgreSQL : public TskDb {
     void storeObjId(const int64_t & fsObjId, const TSK_FS_FILE *fs_file, const char *path, const int64_t & objId);
     int64_t findParObjId(const TSK_FS_FILE * fs_file, const char *path, const int64_t & fsObjId);
     uint32_t hash(const unsigned char *str);
-    map<int64_t, map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > > m_parentDirIdCache; //maps a file system ID to a map, which maps a directory file system meta address to a map, which maps a sequence ID to a map, which maps a hash of a path to its object ID in the database
 
     TSK_RETVAL_ENUM addFileWithLayoutRange(const TSK_DB_FILES_TYPE_ENUM dbFileType, const int64_t parentObjId, const int64_t fsObjId,
         const uint64_t size, vector<TSK_DB_FILE_LAYOUT_RANGE> & ranges, int64_t & objId, int64_t dataSourceObjId);
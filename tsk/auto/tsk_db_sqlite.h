@@ -30,6 +30,8 @@
 using std::map;
 using std::vector;
 
+#define TSK_SQLITE_BUSY_TIMEOUT_MS 30000  ///< Time to wait for other connections, such as readers of a streaming add image, to release their locks
+
 /** \internal
  * C++ class that wraps the database internals. 
  */
@@ -75,6 +77,9 @@ class TskDbSqlite : public TskDb {
     int revertSavepoint(const char *name);
     int releaseSavepoint(const char *name);
     bool inTransaction();
+    int deleteDataSource(int64_t dataSourceObjId);
+    int dropIndexes();
+    int createIndexes(TSK_DB_INDEX_PROGRESS_CALLBACK callback, void *ptr);
     bool dbExists();
 
     //query methods / getters
@@ -96,7 +101,6 @@ class TskDbSqlite : public TskDb {
     int initialize();
     int setupFilePreparedStmt();
     void cleanupFilePreparedStmt();
-    int createIndexes();
     int attempt(int resultCode, const char *errfmt);
     int attempt(int resultCode, int expectedResultCode,
         const char *errfmt);
@@ -104,6 +108,11 @@ class TskDbSqlite : public TskDb {
             char **, char **), void *callback_arg, const char *errfmt);
     int attempt_exec(const char *sql, const char *errfmt);
     int prepare_stmt(const char *sql, sqlite3_stmt ** ppStmt);
+    int insertFileRow(const TSK_FS_FILE * fs_file, int64_t fsObjId, int64_t objId,
+        int64_t dataSourceObjId, TSK_DB_FILES_TYPE_ENUM dbFileType, int attrType, int attrId,
+        const char *name, int dirType, int metaType, TSK_OFF_T size, const char *md5Text,
+        TSK_DB_FILES_KNOWN_ENUM known, const char *parentPath, const char *extension);
+    int flushFileLayoutRanges();
     uint8_t addObject(TSK_DB_OBJECT_TYPE_ENUM type, int64_t parObjId, int64_t & objId);
     int addFile(TSK_FS_FILE * fs_file, const TSK_FS_ATTR * fs_attr,
         const char *path, const unsigned char *const md5,
@@ -123,7 +132,10 @@ class TskDbSqlite : public TskDb {
     bool m_utf8; //encoding used for the database file name, not the actual database
     sqlite3_stmt *m_selectFilePreparedStmt;
     sqlite3_stmt *m_insertObjectPreparedStmt;
-    map<int64_t, map<TSK_INUM_T, map<uint32_t, map<uint32_t, int64_t> > > > m_parentDirIdCache; //maps a file system ID to a map, which maps a directory file system meta address to a map, which maps a sequence ID to a map, which maps a hash of a path to its object ID in the database
+    sqlite3_stmt *m_insertFilePreparedStmt;
+    sqlite3_stmt *m_insertLayoutPreparedStmt;       ///< inserts one tsk_file_layout row
+    sqlite3_stmt *m_insertLayoutBatchPreparedStmt;  ///< inserts TSK_DB_LAYOUT_RANGE_BATCH_SIZE tsk_file_layout rows
+    vector<TSK_DB_FILE_LAYOUT_RANGE> m_layoutRangeBatch; ///< tsk_file_layout rows that have not been written yet
 };
 
 #endif
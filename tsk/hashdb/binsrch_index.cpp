@@ -10,6 +10,8 @@
 
 #include "tsk_hashdb_i.h"
 #include "tsk_hash_info.h"
+#include <vector>
+#include <algorithm>
 
 /**
 * \file binsrch_index.cpp
@@ -1468,6 +1470,216 @@ int8_t
     return tsk_hdb_lookup_str(hdb_info, hashbuf, flags, action, ptr);
 }
 
+/**
+* \internal
+* Orders pointers to binary hash values by the hash values they point to.
+*/
+struct BinsrchHashLess {
+    uint8_t len;
+
+    BinsrchHashLess(uint8_t a_len) : len(a_len) {}
+
+    bool operator()(const uint8_t *a, const uint8_t *b) const {
+        return memcmp(a, b, len) < 0;
+    }
+};
+
+/**
+* \internal
+* Reads the index line at the given offset into idx_lbuf and terminates the
+* hash value in it. The lock must be held.
+*
+* @param hdb_binsrch_info Hash database with an open index
+* @param offset Offset of the line in the index file
+*
+* @return 1 on error and 0 on success
+*/
+static uint8_t
+    hdb_binsrch_read_idx_line(TSK_HDB_BINSRCH_INFO * hdb_binsrch_info,
+    TSK_OFF_T offset)
+{
+    if (0 != fseeko(hdb_binsrch_info->hIdx, offset, SEEK_SET)) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_HDB_READIDX);
+        tsk_error_set_errstr(
+            "hdb_lookup: Error seeking in search: %" PRIuOFF,
+            offset);
+        return 1;
+    }
+
+    if (NULL ==
+        fgets(hdb_binsrch_info->idx_lbuf, (int) hdb_binsrch_info->idx_llen + 1,
+        hdb_binsrch_info->hIdx)) {
+            tsk_error_reset();
+            tsk_error_set_errno(TSK_ERR_HDB_READIDX);
+            tsk_error_set_errstr(
+                "Error reading index file: %lu",
+                (unsigned long) offset);
+            return 1;
+    }
+
+    if ((strlen(hdb_binsrch_info->idx_lbuf) < hdb_binsrch_info->idx_llen) ||
+        (hdb_binsrch_info->idx_lbuf[hdb_binsrch_info->hash_len] != '|')) {
+            tsk_error_reset();
+            tsk_error_set_errno(TSK_ERR_HDB_CORRUPT);
+            tsk_error_set_errstr(
+                "Invalid line in index file: %lu (%s)",
+                (unsigned long) (offset / hdb_binsrch_info->idx_llen),
+                hdb_binsrch_info->idx_lbuf);
+            return 1;
+    }
+
+    hdb_binsrch_info->idx_lbuf[hdb_binsrch_info->hash_len] = '\0';
+    return 0;
+}
+
+/**
+* \ingroup hashdblib
+* \internal
+* Searches the index for a batch of hash values given in binary form. The
+* batch is sorted first and then searched in order, so that each search
+* starts where the search for the previous hash value ended rather than at
+* the start of the index. The lock is taken once for the whole batch.
+*
+* @param hdb_info_base Open hash database (with index)
+* @param hashes Array with count binary hash values of len bytes each
+* @param count Number of hash values in the array
+* @param len Number of bytes in each binary hash value
+* @param found Array of count flags, set to 1 for each hash value that was
+* found and to 0 for each that was not
+*
+* @return -1 on error and 0 on success
+*/
+int8_t
+    hdb_binsrch_lookup_batch_bin(TSK_HDB_INFO * hdb_info_base, uint8_t * hashes,
+    size_t count, uint8_t len, uint8_t * found)
+{
+    const char *func_name = "hdb_binsrch_lookup_batch_bin";
+    TSK_HDB_BINSRCH_INFO *hdb_binsrch_info = (TSK_HDB_BINSRCH_INFO*)hdb_info_base; 
+    static const char hex[] = "0123456789ABCDEF";
+    char ucHash[TSK_HDB_HTYPE_SHA1_LEN + 1]; // Set to the longest hash length + 1
+    TSK_HDB_HTYPE_ENUM htype;
+
+    if (2 * len == TSK_HDB_HTYPE_MD5_LEN) {
+        htype = TSK_HDB_HTYPE_MD5_ID;
+    }
+    else if (2 * len == TSK_HDB_HTYPE_SHA1_LEN) {
+        htype = TSK_HDB_HTYPE_SHA1_ID;
+    }
+    else {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_HDB_ARG);
+        tsk_error_set_errstr(
+            "%s: Invalid hash length: %d", func_name, len);
+        return -1;
+    }
+
+    memset(found, 0, count);
+    if (count == 0) {
+        return 0;
+    }
+
+    // verify the index is open
+    if (hdb_binsrch_open_idx(hdb_info_base, htype))
+        return -1;
+
+    /* Sanity check */
+    if (hdb_binsrch_info->hash_len != 2 * len) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_HDB_ARG);
+        tsk_error_set_errstr(
+            "%s: Hash passed is different size than expected (%d vs %d)",
+            func_name, hdb_binsrch_info->hash_len, 2 * len);
+        return -1;
+    }
+
+    // Hex digits sort in the same order as the bytes they encode, so the
+    // sorted batch is in the same order as the index.
+    std::vector<uint8_t *> sorted(count);
+    for (size_t i = 0; i < count; i++) {
+        sorted[i] = &hashes[i * len];
+    }
+    std::sort(sorted.begin(), sorted.end(), BinsrchHashLess(len));
+
+    // Offset of the first index entry the next search can start at.
+    TSK_OFF_T next_low = hdb_binsrch_info->idx_off;
+
+    tsk_take_lock(&hdb_binsrch_info->base.lock);
+
+    for (size_t i = 0; i < count; i++) {
+        uint8_t *hash = sorted[i];
+        size_t pos = (hash - hashes) / len;
+        TSK_OFF_T low;
+        TSK_OFF_T up;
+
+        if ((i > 0) && (memcmp(hash, sorted[i - 1], len) == 0)) {
+            found[pos] = found[(sorted[i - 1] - hashes) / len];
+            continue;
+        }
+
+        for (size_t j = 0; j < len; j++) {
+            ucHash[2 * j] = hex[(hash[j] >> 4) & 0xf];
+            ucHash[2 * j + 1] = hex[hash[j] & 0xf];
+        }
+        ucHash[2 * len] = '\0';
+
+        // Use the index of the index file, if there is one, to bound the
+        // search by the first three digits of the hash.
+        if (hdb_binsrch_info->idx_offsets) {
+            size_t idx_idx_off = ((size_t) hash[0] << 4) | (hash[1] >> 4);
+            low = hdb_binsrch_info->idx_offsets[idx_idx_off];
+            if (IDX_IDX_ENTRY_NOT_SET == (uint64_t)low) {
+                // The hash does not map to an index offset.
+                continue;
+            }
+            do {
+                ++idx_idx_off;
+                if (idx_idx_off == IDX_IDX_ENTRY_COUNT) {
+                    up = hdb_binsrch_info->idx_size;
+                    break;
+                }
+                else {
+                    up = hdb_binsrch_info->idx_offsets[idx_idx_off];
+                }
+            } while (IDX_IDX_ENTRY_NOT_SET == (uint64_t)up);
+        }
+        else {
+            low = hdb_binsrch_info->idx_off;
+            up = hdb_binsrch_info->idx_size;
+        }
+        if (next_low > low) {
+            low = next_low;
+        }
+
+        // Find the first entry that is not less than the hash.
+        TSK_OFF_T lines = (up > low) ? (up - low) / hdb_binsrch_info->idx_llen : 0;
+        while (lines > 0) {
+            TSK_OFF_T step = lines / 2;
+            TSK_OFF_T offset = low + step * hdb_binsrch_info->idx_llen;
+            if (hdb_binsrch_read_idx_line(hdb_binsrch_info, offset)) {
+                tsk_release_lock(&hdb_binsrch_info->base.lock);
+                tsk_error_set_errstr2("%s", func_name);
+                return -1;
+            }
+            int cmp = strcasecmp(hdb_binsrch_info->idx_lbuf, ucHash);
+            if (cmp < 0) {
+                low = offset + hdb_binsrch_info->idx_llen;
+                lines -= step + 1;
+            }
+            else {
+                if (cmp == 0) {
+                    found[pos] = 1;
+                }
+                lines = step;
+            }
+        }
+        next_low = low;
+    }
+
+    tsk_release_lock(&hdb_binsrch_info->base.lock);
+    return 0;
+}
+
 /**
 * \ingroup hashdblib
 * \internal 
@@ -435,6 +435,49 @@ int8_t
     return hdb_info->lookup_raw(hdb_info, hash, len, flags, action, ptr);
 }
 
+/**
+* \ingroup hashdblib
+* Search the index for a batch of hash values given in binary form. Text
+* databases with a binary search index sort the batch and search the index
+* once for the whole batch; other databases look up each hash value in turn.
+*
+* @param hdb_info Open hash database (with index)
+* @param hashes Array with count binary hash values of len bytes each
+* @param count Number of hash values in the array
+* @param len Number of bytes in each binary hash value
+* @param found Array of count flags, set to 1 for each hash value that was
+* found and to 0 for each that was not
+*
+* @return -1 on error and 0 on success
+*/
+int8_t
+    tsk_hdb_lookup_raw_batch(TSK_HDB_INFO * hdb_info, uint8_t * hashes,
+    size_t count, uint8_t len, uint8_t * found)
+{
+    size_t i;
+
+    if (!hdb_info) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_HDB_ARG);
+        tsk_error_set_errstr("tsk_hdb_lookup_raw_batch: NULL hdb_info");
+        return -1;
+    }
+
+    if (hdb_info->lookup_raw == hdb_binsrch_lookup_bin) {
+        return hdb_binsrch_lookup_batch_bin(hdb_info, hashes, count, len, found);
+    }
+
+    for (i = 0; i < count; i++) {
+        int8_t retval = hdb_info->lookup_raw(hdb_info, &hashes[i * len], len,
+            TSK_HDB_FLAG_QUICK, NULL, NULL);
+        if (retval == -1) {
+            return -1;
+        }
+        found[i] = (retval == 1);
+    }
+    return 0;
+}
+
 int8_t
     tsk_hdb_lookup_verbose_str(TSK_HDB_INFO *hdb_info, const char *hash, void *result)
 {
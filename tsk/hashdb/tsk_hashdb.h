@@ -179,6 +179,8 @@ extern "C" {
         TSK_HDB_FLAG_ENUM, TSK_HDB_LOOKUP_FN, void *);
     extern int8_t tsk_hdb_lookup_raw(TSK_HDB_INFO *, uint8_t *, uint8_t, 
         TSK_HDB_FLAG_ENUM,  TSK_HDB_LOOKUP_FN, void *);
+    extern int8_t tsk_hdb_lookup_raw_batch(TSK_HDB_INFO *, uint8_t *, size_t,
+        uint8_t, uint8_t *);
     extern int8_t tsk_hdb_lookup_verbose_str(TSK_HDB_INFO *, const char *, void *);
     extern uint8_t tsk_hdb_accepts_updates(TSK_HDB_INFO *);
     extern uint8_t tsk_hdb_add_entry(TSK_HDB_INFO *, const char*, const char*, 
@@ -271,6 +273,25 @@ class TskHdbInfo{
                 return 0;
     };
 
+    /**
+    * Search the index for a batch of hash values given in binary form.
+    * See tsk_hdb_lookup_raw_batch() for details.
+    * @param a_hashes Array with a_count binary hash values of a_len bytes each
+    * @param a_count Number of hash values in the array
+    * @param a_len Number of bytes in each binary hash value
+    * @param a_found Array of a_count flags, set to 1 for each hash value found
+    *
+    * @return -1 on error and 0 on success
+    */
+    int8_t lookupRawBatch(uint8_t * a_hashes, size_t a_count, uint8_t a_len,
+        uint8_t * a_found) {
+            if (m_hdbInfo != NULL)
+                return tsk_hdb_lookup_raw_batch(m_hdbInfo, a_hashes, a_count,
+                a_len, a_found);
+            else
+                return 0;
+    };
+
     /**
     * Create an index for an open hash database.
     * See tsk_hdb_makeindex() for details.
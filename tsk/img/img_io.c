@@ -11,6 +11,160 @@
  */
 
 #include "tsk_img_i.h"
+#include "raw.h"
+
+/* Allocates the read cache with the configured (or default) number and size
+ * of entries. The number of entries is rounded up to a whole number of sets.
+ * Must be called with cache_lock held.
+ * @returns 1 on error, 0 on success */
+static uint8_t
+tsk_img_alloc_cache(TSK_IMG_INFO * a_img_info)
+{
+    int num;
+    size_t entry_len;
+
+    if (a_img_info->cache_num <= 0)
+        a_img_info->cache_num = TSK_IMG_INFO_CACHE_NUM;
+    if (a_img_info->cache_entry_len == 0)
+        a_img_info->cache_entry_len = TSK_IMG_INFO_CACHE_LEN;
+    if (a_img_info->cache_num > TSK_IMG_INFO_CACHE_WAYS)
+        a_img_info->cache_num =
+            (int) roundup(a_img_info->cache_num, TSK_IMG_INFO_CACHE_WAYS);
+    num = a_img_info->cache_num;
+    entry_len = a_img_info->cache_entry_len;
+
+    if (((a_img_info->cache = (char *) tsk_malloc(num * entry_len)) == NULL)
+        || ((a_img_info->cache_off =
+                (TSK_OFF_T *) tsk_malloc(num * sizeof(TSK_OFF_T))) == NULL)
+        || ((a_img_info->cache_age =
+                (uint64_t *) tsk_malloc(num * sizeof(uint64_t))) == NULL)
+        || ((a_img_info->cache_len =
+                (size_t *) tsk_malloc(num * sizeof(size_t))) == NULL)) {
+        tsk_img_free_cache(a_img_info);
+        return 1;
+    }
+    return 0;
+}
+
+/**
+ * \internal
+ * Frees the read cache of an image. The configured number and size of the
+ * cache entries are kept, so the cache is reallocated with the same
+ * configuration on the next read.
+ * @param a_img_info Disk image to free the cache of
+ */
+void
+tsk_img_free_cache(TSK_IMG_INFO * a_img_info)
+{
+    free(a_img_info->cache);
+    free(a_img_info->cache_off);
+    free(a_img_info->cache_age);
+    free(a_img_info->cache_len);
+    a_img_info->cache = NULL;
+    a_img_info->cache_off = NULL;
+    a_img_info->cache_age = NULL;
+    a_img_info->cache_len = NULL;
+}
+
+/* Returns the index of the first cache entry of the set that holds the
+ * cache block starting at a_blk_off. Blocks are spread over the sets with a
+ * multiplicative hash so that sequential and strided reads use all sets. */
+static int
+tsk_img_cache_set(TSK_IMG_INFO * a_img_info, TSK_OFF_T a_blk_off)
+{
+    int ways, num_sets;
+    uint64_t blk;
+
+    ways = a_img_info->cache_num < TSK_IMG_INFO_CACHE_WAYS ?
+        a_img_info->cache_num : TSK_IMG_INFO_CACHE_WAYS;
+    num_sets = a_img_info->cache_num / ways;
+    blk = (uint64_t) (a_blk_off / a_img_info->cache_entry_len);
+    return (int) (((blk * 0x9E3779B97F4A7C15ULL) >> 32) % num_sets) * ways;
+}
+
+/**
+ * \ingroup imglib
+ * Sets the number and size of the entries of the read cache of an open disk
+ * image. Cached data is discarded; the hit and miss counts are kept.
+ * Reads larger than the entry size bypass the cache.
+ * @param a_img_info Disk image to configure
+ * @param a_num_entries Number of cache entries. Values above
+ * TSK_IMG_INFO_CACHE_WAYS are rounded up to a multiple of it.
+ * @param a_entry_len Size of each cache entry in bytes, a multiple of 512,
+ * and no larger than the VHD block size if the image is being copied by an
+ * image writer
+ * @returns 1 on error, 0 on success
+ */
+uint8_t
+tsk_img_set_cache(TSK_IMG_INFO * a_img_info, int a_num_entries,
+    size_t a_entry_len)
+{
+    uint8_t retval;
+
+    if (a_img_info == NULL) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_IMG_ARG);
+        tsk_error_set_errstr("tsk_img_set_cache: a_img_info: NULL");
+        return 1;
+    }
+    if ((a_num_entries <= 0) || (a_entry_len == 0)
+        || (a_entry_len % 512)) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_IMG_ARG);
+        tsk_error_set_errstr
+            ("tsk_img_set_cache: invalid cache size (%d entries of %"
+            PRIuSIZE " bytes)", a_num_entries, a_entry_len);
+        return 1;
+    }
+    /* The image writer is given the data of each cache entry read, which
+     * must fit in one of its blocks */
+    if (TSK_IMG_TYPE_ISRAW(a_img_info->itype)
+        && (((IMG_RAW_INFO *) a_img_info)->img_writer != NULL)
+        && (a_entry_len > VHD_DEFAULT_BLOCK_SIZE)) {
+        tsk_error_reset();
+        tsk_error_set_errno(TSK_ERR_IMG_ARG);
+        tsk_error_set_errstr
+            ("tsk_img_set_cache: cache entry size of %" PRIuSIZE
+            " bytes is larger than the image writer block size", a_entry_len);
+        return 1;
+    }
+
+    tsk_take_lock(&(a_img_info->cache_lock));
+    tsk_img_free_cache(a_img_info);
+    a_img_info->cache_num = a_num_entries;
+    a_img_info->cache_entry_len = a_entry_len;
+    retval = tsk_img_alloc_cache(a_img_info);
+    tsk_release_lock(&(a_img_info->cache_lock));
+    return retval;
+}
+
+/**
+ * \ingroup imglib
+ * Gets the configuration and hit and miss counts of the read cache of an
+ * open disk image. Any of the output pointers may be NULL.
+ * @param a_img_info Disk image to get the statistics of
+ * @param a_hits Number of reads served from the cache
+ * @param a_misses Number of reads that loaded data into the cache
+ * @param a_num_entries Number of cache entries
+ * @param a_entry_len Size of each cache entry in bytes
+ */
+void
+tsk_img_get_cache_stats(TSK_IMG_INFO * a_img_info, uint64_t * a_hits,
+    uint64_t * a_misses, int *a_num_entries, size_t * a_entry_len)
+{
+    tsk_take_lock(&(a_img_info->cache_lock));
+    if (a_hits)
+        *a_hits = a_img_info->cache_hits;
+    if (a_misses)
+        *a_misses = a_img_info->cache_misses;
+    if (a_num_entries)
+        *a_num_entries = a_img_info->cache_num > 0 ?
+            a_img_info->cache_num : TSK_IMG_INFO_CACHE_NUM;
+    if (a_entry_len)
+        *a_entry_len = a_img_info->cache_entry_len > 0 ?
+            a_img_info->cache_entry_len : TSK_IMG_INFO_CACHE_LEN;
+    tsk_release_lock(&(a_img_info->cache_lock));
+}
 
 /**
  * \ingroup imglib
@@ -25,11 +179,9 @@ ssize_t
 tsk_img_read(TSK_IMG_INFO * a_img_info, TSK_OFF_T a_off,
     char *a_buf, size_t a_len)
 {
-#define CACHE_AGE   1000
     ssize_t read_count = 0;
-    int cache_index = 0;
-    int cache_next = 0;         // index to lowest age cache (to use next)
     size_t len2 = 0;
+    size_t copied = 0;
 
     if (a_img_info == NULL) {
         tsk_error_reset();
@@ -71,8 +223,13 @@ tsk_img_read(TSK_IMG_INFO * a_img_info, TSK_OFF_T a_off,
      */
     tsk_take_lock(&(a_img_info->cache_lock));
 
+    if ((a_img_info->cache == NULL) && tsk_img_alloc_cache(a_img_info)) {
+        tsk_release_lock(&(a_img_info->cache_lock));
+        return -1;
+    }
+
     // if they ask for more than the cache length, skip the cache
-    if ((a_len + (a_off % 512)) > TSK_IMG_INFO_CACHE_LEN) {
+    if (a_len > a_img_info->cache_entry_len) {
         ssize_t nbytes;
 
         /* Some of the lower-level methods like block-sized reads.
@@ -123,114 +280,104 @@ tsk_img_read(TSK_IMG_INFO * a_img_info, TSK_OFF_T a_off,
         len2 = (size_t) (a_img_info->size - a_off);
     }
 
-    // check if it is in the cache
-    for (cache_index = 0;
-        cache_index < TSK_IMG_INFO_CACHE_NUM; cache_index++) {
-
-        // Look into the in-use cache entries
-        if (a_img_info->cache_len[cache_index] > 0) {
-
-            // the read_count check makes sure we don't go back in after data was read
-            if ((read_count == 0)
-                && (a_img_info->cache_off[cache_index] <= a_off)
-                && (a_img_info->cache_off[cache_index] +
-                    a_img_info->cache_len[cache_index] >= a_off + len2)) {
-
-                /*
-                   if (tsk_verbose)
-                   fprintf(stderr,
-                   "tsk_img_read: Read found in cache %d\n",  cache_index );
-                 */
-
-                // We found it...
-                memcpy(a_buf,
-                    &a_img_info->cache[cache_index][a_off -
-                        a_img_info->cache_off[cache_index]], len2);
-                read_count = (ssize_t) len2;
-
-                // reset its "age" since it was useful
-                a_img_info->cache_age[cache_index] = CACHE_AGE;
-
-                // we don't break out of the loop so that we update all ages
+    /* Cache entries hold aligned blocks of cache_entry_len bytes, so a read
+     * that is not larger than an entry spans at most two blocks. */
+    while (copied < len2) {
+        TSK_OFF_T cur_off = a_off + (TSK_OFF_T) copied;
+        TSK_OFF_T blk_off = cur_off - (cur_off % a_img_info->cache_entry_len);
+        int set = tsk_img_cache_set(a_img_info, blk_off);
+        int ways = a_img_info->cache_num < TSK_IMG_INFO_CACHE_WAYS ?
+            a_img_info->cache_num : TSK_IMG_INFO_CACHE_WAYS;
+        int cache_index = -1;
+        int cache_next = set;   // least recently used entry of the set (to use next)
+        int i;
+        size_t rel_off, avail;
+
+        // check if it is in the cache
+        for (i = set; i < set + ways; i++) {
+            if (a_img_info->cache_len[i] == 0) {
+                // never-used entries are the first to be replaced
+                if (a_img_info->cache_len[cache_next] > 0)
+                    cache_next = i;
             }
-            else {
-                /* decrease its "age" since it was not useful.
-                 * We don't let used ones go below 1 so that they are not
-                 * confused with entries that have never been used. */
-                a_img_info->cache_age[cache_index]--;
-
-                // see if this is the most eligible replacement
-                if ((a_img_info->cache_len[cache_next] > 0)
-                    && (a_img_info->cache_age[cache_index] <
-                        a_img_info->cache_age[cache_next]))
-                    cache_next = cache_index;
+            else if (a_img_info->cache_off[i] == blk_off) {
+                cache_index = i;
+                break;
+            }
+            else if ((a_img_info->cache_len[cache_next] > 0)
+                && (a_img_info->cache_age[i] <
+                    a_img_info->cache_age[cache_next])) {
+                cache_next = i;
             }
         }
-        else {
-            cache_next = cache_index;
-        }
-    }
 
-    // if we didn't find it, then load it into the cache_next entry
-    if (read_count == 0) {
-        size_t read_size = 0;
+        if (cache_index >= 0) {
+            a_img_info->cache_hits++;
+        }
+        // if we didn't find it, then load it into the cache_next entry
+        else {
+            size_t read_size = a_img_info->cache_entry_len;
 
-        // round the offset down to a sector boundary
-        a_img_info->cache_off[cache_next] = (a_off / 512) * 512;
+            a_img_info->cache_misses++;
+            cache_index = cache_next;
 
-        /*
-           if (tsk_verbose)
-           fprintf(stderr,
-           "tsk_img_read: Loading data into cache %d (%" PRIuOFF
-           ")\n", cache_next, a_img_info->cache_off[cache_next]);
-         */
+            /*
+               if (tsk_verbose)
+               fprintf(stderr,
+               "tsk_img_read: Loading data into cache %d (%" PRIuOFF
+               ")\n", cache_index, blk_off);
+             */
 
-        // Read a full cache block or the remaining data.
-        read_size = TSK_IMG_INFO_CACHE_LEN;
+            // Read a full cache block or the remaining data.
+            if ((blk_off + (TSK_OFF_T) read_size) > a_img_info->size) {
+                read_size = (size_t) (a_img_info->size - blk_off);
+            }
 
-        if ((a_img_info->cache_off[cache_next] + (TSK_OFF_T)read_size) >
-            a_img_info->size) {
-            read_size =
-                (size_t) (a_img_info->size -
-                a_img_info->cache_off[cache_next]);
+            read_count = a_img_info->read(a_img_info, blk_off,
+                &a_img_info->cache[(size_t) cache_index *
+                    a_img_info->cache_entry_len], read_size);
+
+            // Although a read_count of -1 indicates an error, it does not
+            // make sense to cache anything when the read_count is 0 either.
+            if (read_count <= 0) {
+                a_img_info->cache_len[cache_index] = 0;
+                a_img_info->cache_age[cache_index] = 0;
+                a_img_info->cache_off[cache_index] = 0;
+                // report the error unless some data was already copied
+                if (copied == 0) {
+                    tsk_release_lock(&(a_img_info->cache_lock));
+                    return read_count;
+                }
+                break;
+            }
+            a_img_info->cache_off[cache_index] = blk_off;
+            a_img_info->cache_len[cache_index] = (size_t) read_count;
         }
 
-        read_count = a_img_info->read(a_img_info,
-            a_img_info->cache_off[cache_next],
-            a_img_info->cache[cache_next], read_size);
-
-        // if no error, then set the variables and copy the data
-        // Although a read_count of -1 indicates an error,
-        // since read_count is used in the calculation it may not be negative.
-        // Also it does not make sense to copy data when the read_count is 0.
-        if (read_count > 0) {
-            TSK_OFF_T rel_off = 0;
-            a_img_info->cache_age[cache_next] = CACHE_AGE;
-            a_img_info->cache_len[cache_next] = read_count;
-
-            // Determine the offset relative to the start of the cached data.
-            rel_off = a_off - a_img_info->cache_off[cache_next];
-
-            // Make sure we were able to read sufficient data into the cache.
-            if (rel_off > (TSK_OFF_T) read_count) {
-                len2 = 0;
-            }
-            // Make sure not to copy more than is available in the cache.
-            else if ((rel_off + (TSK_OFF_T) len2) > (TSK_OFF_T) read_count) {
-                len2 = (size_t) (read_count - rel_off);
-            }
-            // Only copy data when we have something to copy.
-            if (len2 > 0) {
-                memcpy(a_buf, &(a_img_info->cache[cache_next][rel_off]), len2);
-            }
-            read_count = (ssize_t) len2;
+        // reset its "age" since it was useful
+        a_img_info->cache_age[cache_index] = ++a_img_info->cache_clock;
+
+        // Make sure not to copy more than is available in the cache.
+        rel_off = (size_t) (cur_off - blk_off);
+        if (rel_off >= a_img_info->cache_len[cache_index]) {
+            break;
         }
-        else {
-            a_img_info->cache_len[cache_next] = 0;
-            a_img_info->cache_age[cache_next] = 0;
-            a_img_info->cache_off[cache_next] = 0;
+        avail = a_img_info->cache_len[cache_index] - rel_off;
+        if (avail > len2 - copied) {
+            avail = len2 - copied;
+        }
+        memcpy(&a_buf[copied],
+            &a_img_info->cache[(size_t) cache_index *
+                a_img_info->cache_entry_len + rel_off], avail);
+        copied += avail;
+
+        // a short block means the image ended early, so stop here
+        if (a_img_info->cache_len[cache_index] < a_img_info->cache_entry_len
+            && copied < len2) {
+            break;
         }
     }
+    read_count = (ssize_t) copied;
 
     tsk_release_lock(&(a_img_info->cache_lock));
     return read_count;
@@ -454,6 +454,17 @@ tsk_img_open_external(
     img_info->close = close;
     img_info->imgstat = imgstat;
 
+    // the caller allocated the structure, so the cache may not be zeroed
+    img_info->cache = NULL;
+    img_info->cache_off = NULL;
+    img_info->cache_age = NULL;
+    img_info->cache_len = NULL;
+    img_info->cache_num = 0;
+    img_info->cache_entry_len = 0;
+    img_info->cache_clock = 0;
+    img_info->cache_hits = 0;
+    img_info->cache_misses = 0;
+
     tsk_init_lock(&(img_info->cache_lock));
     return img_info;
 }
@@ -554,6 +565,7 @@ tsk_img_close(TSK_IMG_INFO * a_img_info)
     if (a_img_info == NULL) {
         return;
     }
+    tsk_img_free_cache(a_img_info);
     tsk_deinit_lock(&(a_img_info->cache_lock));
     a_img_info->close(a_img_info);
 }
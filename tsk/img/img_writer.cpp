@@ -28,7 +28,6 @@
 #ifdef TSK_WIN32
 
 #define VHD_MAX_IMAGE_SIZE 2000000000000 /* VHD_MAX_IMAGE_SIZE is a little lower than the actual maximum size for the VHD */
-#define VHD_DEFAULT_BLOCK_SIZE 0x200000  /* This needs to be 0x200000 to load the VHD in Windows */
 #define VHD_SECTOR_SIZE 0x200
 #define VHD_FOOTER_LENGTH 0x200
 #define VHD_DISK_HEADER_LENGTH 0x400
@@ -564,9 +563,21 @@ static TSK_RETVAL_ENUM tsk_img_writer_finish_image(TSK_IMG_WRITER* img_writer) {
     TSK_OFF_T offset;
     TSK_OFF_T startOfBlock;
 
-    char * buffer = (char*)tsk_malloc(TSK_IMG_INFO_CACHE_LEN * sizeof(char));
+    /* Read in chunks of the size of a cache entry, so that each read goes
+     * through the cache and is added to the writer */
+    size_t readLen;
+    tsk_take_lock(&(img_writer->img_info->cache_lock));
+    readLen = img_writer->img_info->cache_entry_len > 0 ?
+        img_writer->img_info->cache_entry_len : TSK_IMG_INFO_CACHE_LEN;
+    tsk_release_lock(&(img_writer->img_info->cache_lock));
+
+    char * buffer = (char*)tsk_malloc(readLen * sizeof(char));
+    if (buffer == NULL) {
+        return TSK_ERR;
+    }
     for (TSK_OFF_T i = 0; i < img_writer->totalBlocks; i++) {
         if (img_writer->cancelFinish) {
+            free(buffer);
             return TSK_ERR;
         }
 
@@ -582,15 +593,17 @@ static TSK_RETVAL_ENUM tsk_img_writer_finish_image(TSK_IMG_WRITER* img_writer) {
              * another thread running tsk_img_writer_add.
             */
             startOfBlock = i * img_writer->blockSize;
-            for(offset = startOfBlock; offset < startOfBlock + img_writer->blockSize;offset += TSK_IMG_INFO_CACHE_LEN){
+            for(offset = startOfBlock; offset < startOfBlock + img_writer->blockSize;offset += readLen){
                 if (img_writer->cancelFinish) {
+                    free(buffer);
                     return TSK_ERR;
                 }
                 /* Using tsk_img_read here to make sure we get the lock */
-                tsk_img_read(img_writer->img_info, offset, buffer, TSK_IMG_INFO_CACHE_LEN);
+                tsk_img_read(img_writer->img_info, offset, buffer, readLen);
             }
         }
     }
+    free(buffer);
 
     img_writer->is_finished = 1;
     return TSK_OK;
@@ -618,7 +631,12 @@ TSK_RETVAL_ENUM tsk_img_writer_create(TSK_IMG_INFO * img_info, const TSK_TCHAR *
 
     /* Everything will break if the buffers coming in are larger than the block 
        size (i.e., they could span three blocks instead of just two)*/
-    if (TSK_IMG_INFO_CACHE_LEN > VHD_DEFAULT_BLOCK_SIZE) {
+    size_t cacheEntryLen;
+    tsk_take_lock(&(img_info->cache_lock));
+    cacheEntryLen = img_info->cache_entry_len > 0 ?
+        img_info->cache_entry_len : TSK_IMG_INFO_CACHE_LEN;
+    tsk_release_lock(&(img_info->cache_lock));
+    if (cacheEntryLen > VHD_DEFAULT_BLOCK_SIZE) {
         tsk_error_reset();
         tsk_error_set_errno(TSK_ERR_IMG_OPEN);
         tsk_error_set_errstr("tsk_img_writer_create: tsk cache length is larger than the block size");
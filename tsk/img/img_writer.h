@@ -19,6 +19,11 @@
 #ifdef __cplusplus
 extern "C" {
 #endif
+
+/* Size of the VHD blocks. Reads added to the writer, whose length is at most
+ * the size of a read cache entry, must not be larger. */
+#define VHD_DEFAULT_BLOCK_SIZE 0x200000  /* This needs to be 0x200000 to load the VHD in Windows */
+
     TSK_RETVAL_ENUM tsk_img_writer_create(TSK_IMG_INFO* img_info, const TSK_TCHAR * outputFileName);
 
     enum IMG_WRITER_BLOCK_STATUS_ENUM {
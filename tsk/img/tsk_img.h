@@ -72,8 +72,9 @@ extern "C" {
         TSK_IMG_TYPE_UNSUPP = 0xffff,   ///< Unsupported disk image type
     } TSK_IMG_TYPE_ENUM;
 
-#define TSK_IMG_INFO_CACHE_NUM  4
-#define TSK_IMG_INFO_CACHE_LEN  65536
+#define TSK_IMG_INFO_CACHE_NUM  4       ///< Default number of read cache entries
+#define TSK_IMG_INFO_CACHE_LEN  65536   ///< Default size of a read cache entry in bytes
+#define TSK_IMG_INFO_CACHE_WAYS 4       ///< Number of read cache entries in each set of the set-associative cache
 
     typedef struct TSK_IMG_INFO TSK_IMG_INFO;
 #define TSK_IMG_INFO_TAG 0x39204231
@@ -94,10 +95,15 @@ extern "C" {
         TSK_TCHAR **images;    ///< Image names
 
         tsk_lock_t cache_lock;  ///< Lock for cache and associated values
-        char cache[TSK_IMG_INFO_CACHE_NUM][TSK_IMG_INFO_CACHE_LEN];     ///< read cache (r/w shared - lock) 
-        TSK_OFF_T cache_off[TSK_IMG_INFO_CACHE_NUM];    ///< starting byte offset of corresponding cache entry (r/w shared - lock) 
-        int cache_age[TSK_IMG_INFO_CACHE_NUM];  ///< "Age" of corresponding cache entry, higher means more recently used (r/w shared - lock) 
-        size_t cache_len[TSK_IMG_INFO_CACHE_NUM];       ///< Length of cache entry used (0 if never used) (r/w shared - lock) 
+        char *cache;            ///< read cache of cache_num entries of cache_entry_len bytes, allocated on first read (r/w shared - lock) 
+        TSK_OFF_T *cache_off;   ///< starting byte offset of corresponding cache entry, a multiple of cache_entry_len (r/w shared - lock) 
+        uint64_t *cache_age;    ///< "Age" of corresponding cache entry, higher means more recently used (r/w shared - lock) 
+        size_t *cache_len;      ///< Length of cache entry used (0 if never used) (r/w shared - lock) 
+        int cache_num;          ///< Number of cache entries, 0 to use TSK_IMG_INFO_CACHE_NUM (r/w shared - lock) 
+        size_t cache_entry_len; ///< Size of each cache entry in bytes, 0 to use TSK_IMG_INFO_CACHE_LEN (r/w shared - lock) 
+        uint64_t cache_clock;   ///< Source of cache_age values, incremented on each cache access (r/w shared - lock) 
+        uint64_t cache_hits;    ///< Number of reads served from the cache (r/w shared - lock) 
+        uint64_t cache_misses;  ///< Number of reads that loaded data into the cache (r/w shared - lock) 
 
         ssize_t(*read) (TSK_IMG_INFO * img, TSK_OFF_T off, char *buf, size_t len);     ///< \internal External progs should call tsk_img_read()
         void (*close) (TSK_IMG_INFO *); ///< \internal Progs should call tsk_img_close()
@@ -126,6 +132,13 @@ extern "C" {
     extern ssize_t tsk_img_read(TSK_IMG_INFO * img, TSK_OFF_T off,
         char *buf, size_t len);
 
+    // read cache functions
+    extern uint8_t tsk_img_set_cache(TSK_IMG_INFO * img, int num_entries,
+        size_t entry_len);
+    extern void tsk_img_get_cache_stats(TSK_IMG_INFO * img,
+        uint64_t * hits, uint64_t * misses, int *num_entries,
+        size_t * entry_len);
+
     // type conversion functions
     extern TSK_IMG_TYPE_ENUM tsk_img_type_toid_utf8(const char *);
     extern TSK_IMG_TYPE_ENUM tsk_img_type_toid(const TSK_TCHAR *);
@@ -37,6 +37,7 @@ extern "C" {
 #endif
 extern void *tsk_img_malloc(size_t);
 extern void tsk_img_free(void *);
+extern void tsk_img_free_cache(TSK_IMG_INFO *);
 extern TSK_TCHAR **tsk_img_findFiles(const TSK_TCHAR * a_startingName,
     int *a_numFound);
 